@@ -0,0 +1,129 @@
+package com.notes.audit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Escribe los registros de auditoría en NDJSON (una línea JSON por registro) en un fichero local que rota
+ * al pasar de {@code maxFileBytes}: {@code audit.ndjson} pasa a {@code audit.ndjson.1}, la anterior
+ * {@code .1} a {@code .2}... y se conservan como mucho {@code maxFiles} ficheros rotados.
+ * Solo lo usa el hilo consumidor de {@link NoteAuditLog}.
+ */
+final class AuditFileWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    // Se reutiliza para cada línea
+    private final StringBuilder line = new StringBuilder(256);
+    private BufferedWriter out;
+    private long fileBytes;
+
+    AuditFileWriter(Path file, long maxFileBytes, int maxFiles) throws IOException {
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    void write(AuditRecord record) {
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(record.timestampMillis))
+                .append("\",\"type\":\"").append(record.type.getName()).append('"');
+        if (record.type == AuditRecord.Type.SLOW_QUERY) {
+            line.append(",\"durationMs\":").append(record.durationNanos / 1_000_000)
+                    .append(",\"sql\":");
+            appendString(record.sql);
+        } else {
+            line.append(",\"noteId\":").append(record.noteId)
+                    .append(",\"version\":").append(record.version);
+        }
+        if (record.client != null) {
+            line.append(",\"client\":");
+            appendString(record.client);
+        }
+        line.append("}\n");
+        try {
+            out.append(line);
+            // Tamaño aproximado (caracteres): basta para decidir cuándo rotar
+            fileBytes += line.length();
+            if (fileBytes >= maxFileBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void open() throws IOException {
+        out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), BUFFER_SIZE);
+        fileBytes = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path rotated = rotated(i);
+            if (Files.exists(rotated)) {
+                Files.move(rotated, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    // Cadena JSON con las comillas, barras y caracteres de control escapados
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
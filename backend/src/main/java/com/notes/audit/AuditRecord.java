@@ -0,0 +1,43 @@
+package com.notes.audit;
+
+/**
+ * Hueco de {@link AuditRingBuffer}: se crean todos al arrancar y se rellenan en el sitio, así publicar
+ * un registro no reserva memoria. Solo lo escribe el productor que lo ha reservado y solo lo lee el
+ * consumidor cuando ya está publicado.
+ */
+final class AuditRecord {
+
+    enum Type {
+        NOTE_CREATED("note.created"),
+        NOTE_UPDATED("note.updated"),
+        NOTE_DELETED("note.deleted"),
+        SLOW_QUERY("slow_query");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    Type type;
+    long timestampMillis;
+    // Cambios de notas
+    long noteId;
+    long version;
+    // Consultas lentas
+    long durationNanos;
+    String sql;
+    // Cliente de la petición en curso (null fuera de una petición HTTP)
+    String client;
+
+    // Suelta las referencias para no retener cadenas hasta que el hueco se reutilice
+    void clear() {
+        sql = null;
+        client = null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.notes.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Cola circular acotada sin bloqueos, con varios productores y un único consumidor (el algoritmo de
+ * Vyukov): cada hueco lleva un número de secuencia que indica si está libre para el productor de la
+ * vuelta actual o publicado para el consumidor. Un productor reserva su hueco con un CAS sobre
+ * {@code tail} y nunca espera: si la cola está llena, {@link #claim()} devuelve {@code -1}.
+ * <p>
+ * Uso: {@code claim()}, rellenar {@code get(position)} en el sitio y {@code publish(position)}.
+ */
+final class AuditRingBuffer {
+
+    private final AuditRecord[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Solo lo escribe el consumidor
+    private volatile long head;
+
+    AuditRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Audit buffer capacity must be a power of two: " + capacity);
+        }
+        this.records = new AuditRecord[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            records[i] = new AuditRecord();
+            sequences.set(i, i);
+        }
+    }
+
+    /** Reserva un hueco para el productor; {@code -1} si no queda ninguno libre (el registro se descarta). */
+    long claim() {
+        long position = tail.get();
+        while (true) {
+            long diff = sequences.getAcquire((int) (position & mask)) - position;
+            if (diff == 0) {
+                long witness = tail.compareAndExchange(position, position + 1);
+                if (witness == position) {
+                    return position;
+                }
+                position = witness;
+            } else if (diff < 0) {
+                // El consumidor aún no ha liberado el hueco de la vuelta anterior: cola llena
+                return -1;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /** Hueco reservado con {@link #claim()}, para rellenarlo antes de publicarlo. */
+    AuditRecord get(long position) {
+        return records[(int) (position & mask)];
+    }
+
+    /** Entrega el hueco relleno al consumidor. */
+    void publish(long position) {
+        sequences.setRelease((int) (position & mask), position + 1);
+    }
+
+    /** Entrega al consumidor hasta {@code max} registros publicados, en orden; devuelve cuántos. */
+    int drain(Consumer<AuditRecord> consumer, int max) {
+        int drained = 0;
+        long position = head;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.getAcquire(index) != position + 1) {
+                break;
+            }
+            AuditRecord record = records[index];
+            try {
+                consumer.accept(record);
+            } finally {
+                record.clear();
+                sequences.setRelease(index, position + records.length);
+                head = ++position;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    /** Registros reservados y aún no consumidos (aproximado). */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return records.length;
+    }
+}
@@ -0,0 +1,223 @@
+package com.notes.audit;
+
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Auditoría de los cambios de notas y de las consultas lentas, fuera del camino de la petición.
+ * <p>
+ * Quien audita (el listener de {@link NoteChangedEvent} tras cada commit y {@code SlowQueryDataSource})
+ * solo copia unos campos en un hueco de {@link AuditRingBuffer}: ni bloqueos, ni E/S, ni reservas de memoria.
+ * Un hilo propio vacía la cola por lotes y los escribe en un fichero NDJSON que rota por tamaño
+ * (ver {@link AuditFileWriter}). Si la cola está llena el registro se descarta y se cuenta en
+ * {@code notes.audit.dropped}: la auditoría nunca frena una escritura.
+ */
+@Component
+public class NoteAuditLog implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteAuditLog.class);
+
+    private static final int DRAIN_BATCH_SIZE = 1024;
+
+    private final boolean enabled;
+    private final AuditRingBuffer buffer;
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final long idleNanos;
+
+    // LongAdder: con la cola llena todos los productores lo incrementan a la vez
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    public NoteAuditLog(@Value("${notes.audit.enabled:true}") boolean enabled,
+                        @Value("${notes.audit.buffer-size:8192}") int bufferSize,
+                        @Value("${notes.audit.file:data/audit/notes-audit.ndjson}") String file,
+                        @Value("${notes.audit.max-file-bytes:104857600}") long maxFileBytes,
+                        @Value("${notes.audit.max-files:5}") int maxFiles,
+                        @Value("${notes.audit.flush-interval-ms:200}") long flushIntervalMs) {
+        this.enabled = enabled;
+        this.buffer = enabled ? new AuditRingBuffer(bufferSize) : null;
+        this.file = Path.of(file);
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long position = claim();
+        if (position < 0) {
+            return;
+        }
+        AuditRecord record = buffer.get(position);
+        NoteDto note = event.getNote() != null ? event.getNote() : event.getPrevious();
+        record.type = switch (event.getType()) {
+            case CREATED -> AuditRecord.Type.NOTE_CREATED;
+            case UPDATED -> AuditRecord.Type.NOTE_UPDATED;
+            case DELETED -> AuditRecord.Type.NOTE_DELETED;
+        };
+        record.timestampMillis = System.currentTimeMillis();
+        record.noteId = event.getNoteId();
+        record.version = note != null ? note.getVersion() : -1;
+        record.client = currentClient();
+        buffer.publish(position);
+    }
+
+    /** Consulta que ha tardado {@code durationNanos}; el texto SQL no se copia. */
+    public void recordSlowQuery(String sql, long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        long position = claim();
+        if (position < 0) {
+            return;
+        }
+        AuditRecord record = buffer.get(position);
+        record.type = AuditRecord.Type.SLOW_QUERY;
+        record.timestampMillis = System.currentTimeMillis();
+        record.durationNanos = durationNanos;
+        record.sql = sql;
+        record.client = currentClient();
+        buffer.publish(position);
+    }
+
+    private long claim() {
+        long position = buffer.claim();
+        if (position < 0) {
+            dropped.increment();
+        }
+        return position;
+    }
+
+    // Dirección del cliente si el hilo atiende una petición HTTP (el listener y las consultas corren en él)
+    private static String currentClient() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest().getRemoteAddr() : null;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            running = true;
+            return;
+        }
+        AuditFileWriter writer;
+        try {
+            writer = new AuditFileWriter(file, maxFileBytes, maxFiles);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open the audit log " + file, e);
+        }
+        running = true;
+        consumer = new Thread(() -> consume(writer), "note-audit-writer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    // Vacía la cola por lotes con un flush por lote; sin registros espera flush-interval-ms
+    private void consume(AuditFileWriter writer) {
+        try (writer) {
+            while (true) {
+                boolean stopping = !running;
+                int drained = drain(writer);
+                if (drained == 0) {
+                    if (stopping) {
+                        break;
+                    }
+                    LockSupport.parkNanos(idleNanos);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not close the audit log {}", file, e);
+        }
+    }
+
+    private int drain(AuditFileWriter writer) {
+        try {
+            int drained = buffer.drain(writer::write, DRAIN_BATCH_SIZE);
+            if (drained > 0) {
+                writer.flush();
+                written.addAndGet(drained);
+            }
+            return drained;
+        } catch (IOException | RuntimeException e) {
+            // Se pierde como mucho el lote en curso; el siguiente se intenta de nuevo
+            writeErrors.incrementAndGet();
+            log.warn("Could not write to the audit log {}", file, e);
+            LockSupport.parkNanos(idleNanos);
+            return 0;
+        }
+    }
+
+    // Después del servidor web y del último flush del autoguardado: escribe lo que quede en la cola
+    @Override
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            consumer = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    public int getPending() {
+        return enabled ? buffer.size() : 0;
+    }
+
+    public int getCapacity() {
+        return enabled ? buffer.capacity() : 0;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getWriteErrors() {
+        return writeErrors.get();
+    }
+}
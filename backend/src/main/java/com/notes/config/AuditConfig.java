@@ -0,0 +1,61 @@
+package com.notes.config;
+
+import com.notes.audit.NoteAuditLog;
+import com.notes.datasource.BulkheadDataSource;
+import com.notes.datasource.SlowQueryDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas lentas en la auditoría (ver {@link NoteAuditLog}): las que pasan de {@code notes.audit.slow-query-ms}
+ * se publican en su cola. Con {@code slow-query-ms <= 0} el DataSource no se envuelve.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notes.audit.enabled", havingValue = "true", matchIfMissing = true)
+public class AuditConfig {
+
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(Environment environment,
+                                                                     ObjectProvider<NoteAuditLog> auditLog) {
+        return new SlowQueryDataSourcePostProcessor(environment, auditLog);
+    }
+
+    // Antes que el bulkhead (sin orden): este queda dentro y el bulkhead sigue siendo el bean "dataSource"
+    private static final class SlowQueryDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        private final Environment environment;
+        private final ObjectProvider<NoteAuditLog> auditLog;
+
+        private SlowQueryDataSourcePostProcessor(Environment environment, ObjectProvider<NoteAuditLog> auditLog) {
+            this.environment = environment;
+            this.auditLog = auditLog;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                    || bean instanceof SlowQueryDataSource || bean instanceof BulkheadDataSource) {
+                return bean;
+            }
+            long slowQueryMs = environment.getProperty("notes.audit.slow-query-ms", Long.class, 200L);
+            if (slowQueryMs <= 0) {
+                return bean;
+            }
+            NoteAuditLog log = auditLog.getObject();
+            return new SlowQueryDataSource(dataSource, TimeUnit.MILLISECONDS.toNanos(slowQueryMs), log::recordSlowQuery);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.notes.config;
+
+import com.notes.dto.NoteSummaryDto;
+import com.notes.model.ContentCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configura {@link ContentCodec}: la entidad {@code Note} no es un bean y lo usa de forma estática.
+ * El principio sin comprimir cubre la vista previa de los listados resumidos.
+ */
+@Configuration
+public class ContentCompressionConfig {
+
+    public ContentCompressionConfig(@Value("${notes.content.compression.algorithm:LZ4}") ContentCodec.Algorithm algorithm,
+                                    @Value("${notes.content.compression.threshold-bytes:4096}") int thresholdBytes,
+                                    @Value("${notes.content.compression.deflate-level:1}") int deflateLevel) {
+        ContentCodec.configure(algorithm, thresholdBytes, deflateLevel, NoteSummaryDto.PREVIEW_LENGTH);
+    }
+}
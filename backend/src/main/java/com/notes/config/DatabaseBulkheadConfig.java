@@ -0,0 +1,57 @@
+package com.notes.config;
+
+import com.notes.datasource.BulkheadDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Bulkhead delante del pool de conexiones (ver {@link BulkheadDataSource}).
+ * Por defecto se activa junto con los hilos virtuales ({@code spring.threads.virtual.enabled}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "notes.db.bulkhead.enabled", havingValue = "true")
+public class DatabaseBulkheadConfig {
+
+    // Envuelve el DataSource principal (el pool o, con réplicas, el proxy de enrutado)
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                        || bean instanceof BulkheadDataSource) {
+                    return bean;
+                }
+                int maxConcurrent = environment.getProperty("notes.db.bulkhead.max-concurrent", Integer.class, 10);
+                long acquireTimeoutMs = environment.getProperty("notes.db.bulkhead.acquire-timeout-ms", Long.class, 5000L);
+                return new BulkheadDataSource(dataSource, maxConcurrent, acquireTimeoutMs);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder databaseBulkheadMetrics(DataSource dataSource) {
+        return registry -> {
+            if (!(dataSource instanceof BulkheadDataSource bulkhead)) {
+                return;
+            }
+            Gauge.builder("notes.db.bulkhead.in.use", bulkhead, BulkheadDataSource::getInUse)
+                    .register(registry);
+            Gauge.builder("notes.db.bulkhead.waiting", bulkhead, BulkheadDataSource::getWaiting)
+                    .description("Threads queued for a connection permit")
+                    .register(registry);
+            Gauge.builder("notes.db.bulkhead.max", bulkhead, BulkheadDataSource::getMaxConcurrent)
+                    .register(registry);
+            FunctionCounter.builder("notes.db.bulkhead.rejected", bulkhead, BulkheadDataSource::getRejected)
+                    .register(registry);
+        };
+    }
+}
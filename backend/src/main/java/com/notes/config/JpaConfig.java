@@ -1,9 +1,11 @@
 package com.notes.config;
 
+import com.notes.store.ConditionalOnJpaStore;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
 @Configuration
+@ConditionalOnJpaStore
 @EnableJpaAuditing
 public class JpaConfig {
 }
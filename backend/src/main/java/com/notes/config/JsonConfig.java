@@ -0,0 +1,18 @@
+package com.notes.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.notes.json.NoteJsonCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JsonConfig {
+
+    // Spring Boot registra los Module en el ObjectMapper: los NoteDto de todas las respuestas salen de NoteJsonCache
+    @Bean
+    @ConditionalOnProperty(name = "notes.json-cache.enabled", havingValue = "true", matchIfMissing = true)
+    public Module noteJsonCacheModule(NoteJsonCache noteJsonCache) {
+        return noteJsonCache.module();
+    }
+}
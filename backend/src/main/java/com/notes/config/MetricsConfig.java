@@ -0,0 +1,247 @@
+package com.notes.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.notes.audit.NoteAuditLog;
+import com.notes.feed.NoteChangeFeed;
+import com.notes.json.NoteJsonCache;
+import com.notes.metrics.StatementCountingDataSource;
+import com.notes.ratelimit.ClientRateLimiter;
+import com.notes.ratelimit.LoadShedder;
+import com.notes.ratelimit.RateLimitInterceptor;
+import com.notes.service.ContentCompressionMigrator;
+import com.notes.service.NoteArchiver;
+import com.notes.service.NoteCache;
+import com.notes.service.NoteHistogramService;
+import com.notes.service.NoteReadCoalescer;
+import com.notes.service.NoteSearchIndex;
+import com.notes.service.SingleFlight;
+import com.notes.store.ConditionalOnJpaStore;
+import com.notes.store.memory.MemoryNoteStore;
+import com.notes.writebehind.NoteWriteBehindBuffer;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class MetricsConfig {
+
+    // Habilita @Timed en los beans de servicio
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    // Sentencias SQL por petición contadas en el DataSource (ver RequestMetricsFilter). Después del de consultas
+    // lentas y antes que el bulkhead (sin orden), que sigue siendo el bean "dataSource" más externo
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new StatementCountingPostProcessor();
+    }
+
+    private static final class StatementCountingPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                    || bean instanceof StatementCountingDataSource) {
+                return bean;
+            }
+            return new StatementCountingDataSource(dataSource);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE + 1;
+        }
+    }
+
+    // Aciertos/fallos de la caché de notas y de su JSON serializado, y estado del índice de búsqueda
+    @Bean
+    public MeterBinder noteCacheMetrics(NoteCache noteCache, NoteJsonCache jsonCache, NoteSearchIndex searchIndex) {
+        return registry -> {
+            Cache<Long, ?> notes = noteCache.getNotes();
+            CaffeineCacheMetrics.monitor(registry, notes, "notes");
+            CaffeineCacheMetrics.monitor(registry, jsonCache.getFragments(), "notes.json");
+            FunctionCounter.builder("notes.cache.recent.requests", noteCache, NoteCache::getRecentHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("notes.cache.recent.requests", noteCache, NoteCache::getRecentMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("notes.search.index.size", searchIndex, NoteSearchIndex::size)
+                    .description("Notes currently held by the search index")
+                    .register(registry);
+            Gauge.builder("notes.search.index.ready", searchIndex, index -> index.isReady() ? 1 : 0)
+                    .register(registry);
+        };
+    }
+
+    // Intervalos cerrados del histograma servidos desde memoria frente a los que se contaron en la base de datos
+    @Bean
+    public MeterBinder noteHistogramMetrics(NoteHistogramService histogramService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, histogramService.getClosedBuckets(), "notes.histogram");
+    }
+
+    // Peticiones rechazadas por el límite por cliente (429) o por el descarte de carga (503)
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimitInterceptor interceptor, ClientRateLimiter limiter, LoadShedder shedder) {
+        return registry -> {
+            FunctionCounter.builder("notes.ratelimit.rejected", interceptor, RateLimitInterceptor::getLimited)
+                    .tag("reason", "rate-limit")
+                    .register(registry);
+            FunctionCounter.builder("notes.ratelimit.rejected", shedder, LoadShedder::getShedInFlight)
+                    .tag("reason", "in-flight")
+                    .register(registry);
+            FunctionCounter.builder("notes.ratelimit.rejected", shedder, LoadShedder::getShedPoolWait)
+                    .tag("reason", "pool-wait")
+                    .register(registry);
+            Gauge.builder("notes.ratelimit.clients", limiter, ClientRateLimiter::getTrackedClients)
+                    .register(registry);
+            Gauge.builder("notes.loadshedding.in.flight", shedder, LoadShedder::getInFlight)
+                    .register(registry);
+            Gauge.builder("notes.loadshedding.pool.wait", shedder, LoadShedder::getPoolWaitMs)
+                    .description("Average wait for a pooled connection during the last sample interval")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+
+    // Lecturas que ejecutaron la consulta frente a las que se unieron a una idéntica en curso
+    @Bean
+    public MeterBinder noteReadCoalescerMetrics(NoteReadCoalescer coalescer) {
+        return registry -> {
+            bindSingleFlight(registry, coalescer.byId(), "findById");
+            bindSingleFlight(registry, coalescer.byFilters(), "findByFilters");
+        };
+    }
+
+    private static void bindSingleFlight(MeterRegistry registry, SingleFlight<?, ?> flight, String query) {
+        FunctionCounter.builder("notes.singleflight.requests", flight, SingleFlight::getExecutions)
+                .tag("query", query)
+                .tag("result", "executed")
+                .register(registry);
+        FunctionCounter.builder("notes.singleflight.requests", flight, SingleFlight::getCoalesced)
+                .tag("query", query)
+                .tag("result", "coalesced")
+                .register(registry);
+    }
+
+    // Suscriptores del feed SSE, cambios emitidos y desconexiones por cliente lento
+    @Bean
+    public MeterBinder noteChangeFeedMetrics(NoteChangeFeed feed) {
+        return registry -> {
+            Gauge.builder("notes.feed.subscribers", feed, NoteChangeFeed::getSubscriberCount)
+                    .register(registry);
+            FunctionCounter.builder("notes.feed.events", feed, NoteChangeFeed::getPublished)
+                    .register(registry);
+            FunctionCounter.builder("notes.feed.disconnects", feed, NoteChangeFeed::getSlowConsumerDisconnects)
+                    .tag("reason", "slow-consumer")
+                    .register(registry);
+            FunctionCounter.builder("notes.feed.resets", feed, NoteChangeFeed::getResets)
+                    .description("Resets sent: Last-Event-ID no longer in the replay buffer, or changes made by "
+                            + "other instances that could not be read")
+                    .register(registry);
+            FunctionCounter.builder("notes.feed.remote-changes", feed, NoteChangeFeed::getRemoteChanges)
+                    .description("Changes made by other instances and read from the store")
+                    .register(registry);
+        };
+    }
+
+    // Autoguardado: ediciones pendientes, agrupadas, escritas y descartadas por conflicto, y tamaño del diario local
+    @Bean
+    public MeterBinder noteWriteBehindMetrics(NoteWriteBehindBuffer buffer) {
+        return registry -> {
+            Gauge.builder("notes.writebehind.pending", buffer, NoteWriteBehindBuffer::getPendingCount)
+                    .register(registry);
+            Gauge.builder("notes.writebehind.journal.bytes", buffer, NoteWriteBehindBuffer::getJournalBytes)
+                    .register(registry);
+            FunctionCounter.builder("notes.writebehind.edits", buffer, NoteWriteBehindBuffer::getAccepted)
+                    .tag("result", "accepted")
+                    .register(registry);
+            FunctionCounter.builder("notes.writebehind.edits", buffer, NoteWriteBehindBuffer::getCoalesced)
+                    .tag("result", "coalesced")
+                    .register(registry);
+            FunctionCounter.builder("notes.writebehind.written", buffer, NoteWriteBehindBuffer::getWritten)
+                    .description("Notes written to the database by write-behind flushes")
+                    .register(registry);
+            FunctionCounter.builder("notes.writebehind.flushes", buffer, NoteWriteBehindBuffer::getFlushes)
+                    .tag("result", "success")
+                    .register(registry);
+            FunctionCounter.builder("notes.writebehind.flushes", buffer, NoteWriteBehindBuffer::getFailedFlushes)
+                    .tag("result", "failure")
+                    .register(registry);
+            FunctionCounter.builder("notes.writebehind.conflicts", buffer, NoteWriteBehindBuffer::getConflicts)
+                    .description("Notes whose pending edits were discarded because another instance changed them")
+                    .register(registry);
+        };
+    }
+
+    // Migración en segundo plano del contenido a formato comprimido
+    @Bean
+    @ConditionalOnJpaStore
+    public MeterBinder contentCompressionMetrics(ContentCompressionMigrator migrator) {
+        return registry -> {
+            FunctionCounter.builder("notes.content.compression.migrated", migrator, ContentCompressionMigrator::getCompressedRows)
+                    .register(registry);
+            FunctionCounter.builder("notes.content.compression.saved", migrator, ContentCompressionMigrator::getBytesSaved)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("notes.content.compression.migration.finished", migrator, m -> m.isFinished() ? 1 : 0)
+                    .register(registry);
+        };
+    }
+
+    // Auditoría: registros escritos, descartados con la cola llena y pendientes de escribir
+    @Bean
+    public MeterBinder noteAuditMetrics(NoteAuditLog auditLog) {
+        return registry -> {
+            FunctionCounter.builder("notes.audit.written", auditLog, NoteAuditLog::getWritten)
+                    .register(registry);
+            FunctionCounter.builder("notes.audit.dropped", auditLog, NoteAuditLog::getDropped)
+                    .description("Audit records discarded because the buffer was full")
+                    .register(registry);
+            FunctionCounter.builder("notes.audit.write.errors", auditLog, NoteAuditLog::getWriteErrors)
+                    .register(registry);
+            Gauge.builder("notes.audit.pending", auditLog, NoteAuditLog::getPending)
+                    .register(registry);
+            Gauge.builder("notes.audit.capacity", auditLog, NoteAuditLog::getCapacity)
+                    .register(registry);
+        };
+    }
+
+    // Notas movidas al archivo (nivel frío) por NoteArchiver
+    @Bean
+    @ConditionalOnJpaStore
+    public MeterBinder noteArchiveMetrics(NoteArchiver archiver) {
+        return registry -> FunctionCounter.builder("notes.archive.archived", archiver, NoteArchiver::getArchivedNotes)
+                .register(registry);
+    }
+
+    // Motor de almacenamiento en memoria: notas, diario pendiente de snapshot y fsync agrupados
+    @Bean
+    @ConditionalOnProperty(name = "notes.store.engine", havingValue = "memory")
+    public MeterBinder memoryNoteStoreMetrics(MemoryNoteStore store) {
+        return registry -> {
+            Gauge.builder("notes.store.memory.notes", store, MemoryNoteStore::size)
+                    .register(registry);
+            Gauge.builder("notes.store.memory.log.size", store, MemoryNoteStore::getLogBytes)
+                    .description("Log bytes written since the last snapshot")
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("notes.store.memory.log.syncs", store, MemoryNoteStore::getLogSyncs)
+                    .register(registry);
+            FunctionCounter.builder("notes.store.memory.snapshots", store, MemoryNoteStore::getSnapshots)
+                    .register(registry);
+        };
+    }
+}
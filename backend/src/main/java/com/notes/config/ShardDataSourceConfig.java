@@ -0,0 +1,76 @@
+package com.notes.config;
+
+import com.notes.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shards: se activa al definir {@code notes.datasource.shards.urls}. Cada URL es una base de datos con la
+ * tabla completa y una parte de las notas, repartidas por id (ver {@code NoteIdGenerator}); el orden de la
+ * lista fija el número de cada shard y no debe cambiar. Las migraciones se aplican en todos (ver
+ * {@link StartupConfig}) y {@code ShardedNoteStore} dirige cada operación a su shard o la lanza en paralelo
+ * a todos. No se combina con las réplicas de lectura.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notes.datasource.shards.urls")
+public class ShardDataSourceConfig {
+
+    // Configuración del pool (spring.datasource.hikari.*) que comparten todos los shards
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig shardPoolConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            HikariConfig shardPoolConfig,
+            DataSourceProperties properties,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${notes.datasource.shards.urls}") String[] shardUrls,
+            @Value("${notes.datasource.shards.username:}") String username,
+            @Value("${notes.datasource.shards.password:}") String password) {
+        List<DataSource> shards = new ArrayList<>(shardUrls.length);
+        for (int i = 0; i < shardUrls.length; i++) {
+            HikariConfig config = new HikariConfig();
+            shardPoolConfig.copyStateTo(config);
+            config.setJdbcUrl(shardUrls[i].trim());
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setUsername(username.isEmpty() ? properties.determineUsername() : username);
+            config.setPassword(password.isEmpty() ? properties.determinePassword() : password);
+            config.setPoolName("shard-" + i);
+            meterRegistry.ifAvailable(registry -> config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            shards.add(new HikariDataSource(config));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    // Transacciones de cada operación en su shard; las de los servicios las lleva StoreTransactionManager
+    @Bean
+    public JpaTransactionManager shardTransactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,40 @@
+package com.notes.config;
+
+import com.notes.datasource.ShardRoutingDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class StartupConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupConfig.class);
+
+    // En el arranque de entrenamiento del archivo CDS (spring.context.exit=onRefresh) no hay base de
+    // datos: se omite la migración; el resto del arranque no abre conexiones. Con shards, se migra cada uno
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${spring.context.exit:}") String contextExit,
+                                                           ObjectProvider<ShardRoutingDataSource> shards) {
+        return flyway -> {
+            if ("onRefresh".equals(contextExit)) {
+                log.info("Training run: skipping schema migration");
+                return;
+            }
+            ShardRoutingDataSource routing = shards.getIfAvailable();
+            if (routing == null) {
+                flyway.migrate();
+                return;
+            }
+            for (DataSource shard : routing.getShards()) {
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(shard).load().migrate();
+            }
+        };
+    }
+}
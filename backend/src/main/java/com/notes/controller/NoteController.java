@@ -1,39 +1,160 @@
 package com.notes.controller;
 
+import com.notes.dto.AutosaveConflictDto;
+import com.notes.dto.BatchItemResult;
+import com.notes.dto.BatchUpdateNoteDto;
 import com.notes.dto.CreateNoteDto;
+import com.notes.dto.CursorPage;
+import com.notes.dto.NoteHistogram;
 import com.notes.dto.NoteDto;
+import com.notes.dto.NoteSummaryDto;
 import com.notes.dto.UpdateNoteDto;
+import com.notes.exception.PreconditionFailedException;
+import com.notes.feed.NoteChangeFeed;
 import com.notes.model.Note;
+import com.notes.service.NoteExportService;
+import com.notes.service.NoteHistogramService;
 import com.notes.service.NoteService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/notes")
 @CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
 public class NoteController {
 
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final MediaType EXPORT_NDJSON = MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+    private static final MediaType EXPORT_GZIP = MediaType.parseMediaType("application/gzip");
+    // Un ETag de la lista de If-Match: débil, entre comillas o (clientes antiguos) sin ellas
+    private static final Pattern IF_MATCH_ETAG = Pattern.compile("(W/\"[^\"]*\")|\"([^\"]*)\"|([^\\s,\"]+)");
+
     private final NoteService noteService;
+    private final NoteExportService noteExportService;
+    private final NoteHistogramService noteHistogramService;
+    private final NoteChangeFeed noteChangeFeed;
 
-    public NoteController(NoteService noteService) {
+    public NoteController(NoteService noteService, NoteExportService noteExportService,
+                          NoteHistogramService noteHistogramService, NoteChangeFeed noteChangeFeed) {
         this.noteService = noteService;
+        this.noteExportService = noteExportService;
+        this.noteHistogramService = noteHistogramService;
+        this.noteChangeFeed = noteChangeFeed;
     }
 
+    // Feed de cambios (SSE) para no tener que sondear /api/notes y /stats.
+    // Last-Event-ID (o ?lastEventId= para clientes que no pueden fijar cabeceras) reanuda desde ese cambio
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam,
+            @RequestParam(value = "category", required = false) Set<String> categories) {
+        if (noteChangeFeed.isFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        String lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        SseEmitter emitter = noteChangeFeed.subscribe(lastEventId, categories != null ? categories : Set.of());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    // GET condicionales: si el ETag coincide con If-None-Match se responde 304 sin cargar ni serializar.
+    // ?includeArchived=true añade las notas archivadas (aquí y en /{id} y /filter)
     @GetMapping
-    public ResponseEntity<ApiResponse<List<NoteDto>>> getAllNotes() {
-        List<NoteDto> notes = noteService.getAllNotes();
+    public ResponseEntity<ApiResponse<List<NoteDto>>> getAllNotes(
+            @RequestParam(defaultValue = "false") boolean includeArchived, WebRequest request) {
+        String etagPrefix = includeArchived ? "\"all-archived-" : "\"all-";
+        if (request.checkNotModified(etagPrefix + noteService.getNotesChangeMarker() + "\"")) {
+            return null;
+        }
+        List<NoteDto> notes = noteService.getAllNotes(includeArchived);
         return ResponseEntity.ok(new ApiResponse<>("success", "Notes retrieved successfully", notes));
     }
 
+    // Vistas resumidas (?view=summary): sin el contenido completo, con vista previa opcional (?preview=true)
+    @GetMapping(params = {"view=summary", "!limit"})
+    public ResponseEntity<ApiResponse<List<NoteSummaryDto>>> getAllNoteSummaries(
+            @RequestParam(defaultValue = "false") boolean preview) {
+        List<NoteSummaryDto> notes = noteService.getNoteSummaries(null, null, preview);
+        return ResponseEntity.ok(new ApiResponse<>("success", "Notes retrieved successfully", notes));
+    }
+
+    // Variantes paginadas por cursor: se activan al enviar ?limit=N (y ?after=<cursor> para seguir)
+    @GetMapping(params = "limit")
+    public ResponseEntity<ApiResponse<CursorPage<NoteDto>>> getNotesPage(
+            @RequestParam(required = false) String after,
+            @RequestParam Integer limit) {
+        CursorPage<NoteDto> page = noteService.getNotesPage(null, null, null, after, limit);
+        return ResponseEntity.ok(new ApiResponse<>("success", "Notes retrieved successfully", page));
+    }
+
+    // Exportación completa en NDJSON (opcionalmente gzip) para copias de seguridad. El cuerpo lo escribe el
+    // ejecutor asíncrono de MVC (con hilos virtuales si están activados), no el hilo de Tomcat de la petición
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportNotes(@RequestParam(defaultValue = "false") boolean gzip) {
+        String filename = gzip ? "notes-export.ndjson.gz" : "notes-export.ndjson";
+        StreamingResponseBody body = responseOut -> {
+            OutputStream out = new BufferedOutputStream(responseOut, EXPORT_BUFFER_SIZE);
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, EXPORT_BUFFER_SIZE)) {
+                    noteExportService.exportNdjson(gzipOut);
+                }
+            } else {
+                noteExportService.exportNdjson(out);
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? EXPORT_GZIP : EXPORT_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    // Si se descartaron ediciones de autoguardado ya aceptadas (conflicto en el flush), se indica en la cabecera
+    // X-Autosave-Conflict y en el mensaje, nunca con un 304
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<NoteDto>> getNoteById(@PathVariable Long id) {
-        NoteDto note = noteService.getNoteById(id);
+    public ResponseEntity<ApiResponse<NoteDto>> getNoteById(@PathVariable Long id,
+                                                        @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                        WebRequest request) {
+        NoteDto note = noteService.getNoteById(id, includeArchived);
+        AutosaveConflictDto conflict = noteService.getAutosaveConflict(id);
+        if (conflict != null) {
+            return ResponseEntity.ok()
+                    .header("X-Autosave-Conflict", "accepted-version=" + conflict.getAcceptedOnVersion()
+                            + ", current-version=" + conflict.getCurrentVersion()
+                            + ", discarded-edits=" + conflict.getDiscardedEdits())
+                    .body(new ApiResponse<>("success", "Note found; earlier autosaved changes were discarded "
+                            + "because the note was modified concurrently", note));
+        }
+        long lastModified = note.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (request.checkNotModified(noteEtag(note), lastModified)) {
+            return null;
+        }
         return ResponseEntity.ok(new ApiResponse<>("success", "Note found", note));
     }
 
@@ -44,36 +165,111 @@ public class NoteController {
                 .body(new ApiResponse<>("success", "Note created successfully", createdNote));
     }
 
+    // ?autosave=true: con notes.write-behind.enabled la edición se confirma al quedar en el diario (202)
+    // y se escribe después en batch; sin él es un PUT normal. Si se descartaron ediciones anteriores por un
+    // conflicto, el siguiente autoguardado de la nota responde 409 con los cambios perdidos
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<NoteDto>> updateNote(@PathVariable Long id,
-                                                       @Valid @RequestBody UpdateNoteDto updateNoteDto) {
-        NoteDto updatedNote = noteService.updateNote(id, updateNoteDto);
-        return ResponseEntity.ok(new ApiResponse<>("success", "Note updated successfully", updatedNote));
+                                                       @Valid @RequestBody UpdateNoteDto updateNoteDto,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                       @RequestParam(defaultValue = "false") boolean autosave) {
+        if (autosave && noteService.isAutosaveEnabled()) {
+            NoteDto savedNote = noteService.autosaveNote(id, updateNoteDto, expectedVersions(id, ifMatch));
+            return ResponseEntity.accepted()
+                    .eTag(noteEtag(savedNote))
+                    .body(new ApiResponse<>("success", "Note changes accepted", savedNote));
+        }
+        NoteDto updatedNote = noteService.updateNote(id, updateNoteDto, expectedVersions(id, ifMatch));
+        return ResponseEntity.ok()
+                .eTag(noteEtag(updatedNote))
+                .body(new ApiResponse<>("success", "Note updated successfully", updatedNote));
+    }
+
+    // Devuelve una nota archivada a las activas
+    @PostMapping("/{id}/restore")
+    public ResponseEntity<ApiResponse<NoteDto>> restoreNote(@PathVariable Long id) {
+        NoteDto restoredNote = noteService.restoreNote(id);
+        return ResponseEntity.ok()
+                .eTag(noteEtag(restoredNote))
+                .body(new ApiResponse<>("success", "Note restored successfully", restoredNote));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<ApiResponse<Void>> deleteNote(@PathVariable Long id) {
-        noteService.deleteNote(id);
+    public ResponseEntity<ApiResponse<Void>> deleteNote(@PathVariable Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        noteService.deleteNote(id, expectedVersions(id, ifMatch));
         return ResponseEntity.ok(new ApiResponse<>("success", "Note deleted successfully", null));
     }
 
+    // Operaciones masivas: cada elemento obtiene su propio resultado (ver BatchItemResult)
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchItemResult>>> createNotes(@RequestBody List<CreateNoteDto> notes) {
+        return batchResponse("created", noteService.createNotes(notes));
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchItemResult>>> updateNotes(@RequestBody List<BatchUpdateNoteDto> notes) {
+        return batchResponse("updated", noteService.updateNotes(notes));
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchItemResult>>> deleteNotes(@RequestBody List<Long> ids) {
+        return batchResponse("deleted", noteService.deleteNotes(ids));
+    }
+
+    private ResponseEntity<ApiResponse<List<BatchItemResult>>> batchResponse(String action, List<BatchItemResult> results) {
+        long failed = results.stream().filter(r -> "error".equals(r.getStatus())).count();
+        String status = failed == 0 ? "success" : "partial";
+        String message = (results.size() - failed) + " notes " + action + ", " + failed + " failed";
+        return ResponseEntity.ok(new ApiResponse<>(status, message, results));
+    }
+
+    // Con palabra clave se devuelven las notas con todas las palabras buscadas (cada una completa o como
+    // comienzo de una palabra de la nota), hasta notes.search.max-results. Si quedaron fuera notas que casaban
+    // se indica con la cabecera X-Results-Truncated y en el mensaje; ?limit= pagina todas las coincidencias
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<List<NoteDto>>> searchNotes(@RequestParam String keyword) {
-        List<NoteDto> notes = noteService.searchNotes(keyword);
+        NoteService.SearchResult result = noteService.searchNotes(keyword);
+        List<NoteDto> notes = result.getNotes();
         String message = notes.isEmpty() ? "No notes found with keyword: " + keyword :
                        "Found " + notes.size() + " notes";
-        return ResponseEntity.ok(new ApiResponse<>("success", message, notes));
+        return searchResponse(result, message);
     }
 
     @GetMapping("/filter")
     public ResponseEntity<ApiResponse<List<NoteDto>>> filterNotes(
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) String category,
-            @RequestParam(required = false) Note.Priority priority) {
-        List<NoteDto> notes = noteService.filterNotes(keyword, category, priority);
+            @RequestParam(required = false) Note.Priority priority,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        NoteService.SearchResult result = noteService.filterNotes(keyword, category, priority, includeArchived);
+        List<NoteDto> notes = result.getNotes();
         String message = notes.isEmpty() ? "No notes found with the applied filters" :
                        "Found " + notes.size() + " notes";
-        return ResponseEntity.ok(new ApiResponse<>("success", message, notes));
+        return searchResponse(result, message);
+    }
+
+    private ResponseEntity<ApiResponse<List<NoteDto>>> searchResponse(NoteService.SearchResult result, String message) {
+        if (!result.isTruncated()) {
+            return ResponseEntity.ok(new ApiResponse<>("success", message, result.getNotes()));
+        }
+        return ResponseEntity.ok()
+                .header("X-Results-Truncated", "true")
+                .body(new ApiResponse<>("success", message + " (only the most relevant are returned; "
+                        + "refine the keyword or page with ?limit= to get all)", result.getNotes()));
+    }
+
+    @GetMapping(value = "/filter", params = "limit")
+    public ResponseEntity<ApiResponse<CursorPage<NoteDto>>> filterNotesPage(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Note.Priority priority,
+            @RequestParam(required = false) String after,
+            @RequestParam Integer limit) {
+        CursorPage<NoteDto> page = noteService.getNotesPage(keyword, category, priority, after, limit);
+        String message = page.getItems().isEmpty() ? "No notes found with the applied filters" :
+                       "Found " + page.getItems().size() + " notes";
+        return ResponseEntity.ok(new ApiResponse<>("success", message, page));
     }
 
     @GetMapping("/category/{category}")
@@ -84,6 +280,27 @@ public class NoteController {
         return ResponseEntity.ok(new ApiResponse<>("success", message, notes));
     }
 
+    @GetMapping(value = "/category/{category}", params = {"view=summary", "!limit"})
+    public ResponseEntity<ApiResponse<List<NoteSummaryDto>>> getNoteSummariesByCategory(
+            @PathVariable String category,
+            @RequestParam(defaultValue = "false") boolean preview) {
+        List<NoteSummaryDto> notes = noteService.getNoteSummaries(category, null, preview);
+        String message = notes.isEmpty() ? "No notes in category: " + category :
+                       "Found " + notes.size() + " notes in category: " + category;
+        return ResponseEntity.ok(new ApiResponse<>("success", message, notes));
+    }
+
+    @GetMapping(value = "/category/{category}", params = "limit")
+    public ResponseEntity<ApiResponse<CursorPage<NoteDto>>> getNotesByCategoryPage(
+            @PathVariable String category,
+            @RequestParam(required = false) String after,
+            @RequestParam Integer limit) {
+        CursorPage<NoteDto> page = noteService.getNotesPage(null, category, null, after, limit);
+        String message = page.getItems().isEmpty() ? "No notes in category: " + category :
+                       "Found " + page.getItems().size() + " notes in category: " + category;
+        return ResponseEntity.ok(new ApiResponse<>("success", message, page));
+    }
+
     @GetMapping("/categories")
     public ResponseEntity<ApiResponse<List<String>>> getCategories() {
         List<String> categories = noteService.getAllCategories();
@@ -98,12 +315,68 @@ public class NoteController {
         return ResponseEntity.ok(new ApiResponse<>("success", message, notes));
     }
 
+    @GetMapping(value = "/priority/{priority}", params = {"view=summary", "!limit"})
+    public ResponseEntity<ApiResponse<List<NoteSummaryDto>>> getNoteSummariesByPriority(
+            @PathVariable Note.Priority priority,
+            @RequestParam(defaultValue = "false") boolean preview) {
+        List<NoteSummaryDto> notes = noteService.getNoteSummaries(null, priority, preview);
+        String message = notes.isEmpty() ? "No notes with priority: " + priority.name() :
+                       "Found " + notes.size() + " notes with priority: " + priority.name();
+        return ResponseEntity.ok(new ApiResponse<>("success", message, notes));
+    }
+
+    @GetMapping(value = "/priority/{priority}", params = "limit")
+    public ResponseEntity<ApiResponse<CursorPage<NoteDto>>> getNotesByPriorityPage(
+            @PathVariable Note.Priority priority,
+            @RequestParam(required = false) String after,
+            @RequestParam Integer limit) {
+        CursorPage<NoteDto> page = noteService.getNotesPage(null, null, priority, after, limit);
+        String message = page.getItems().isEmpty() ? "No notes with priority: " + priority.name() :
+                       "Found " + page.getItems().size() + " notes with priority: " + priority.name();
+        return ResponseEntity.ok(new ApiResponse<>("success", message, page));
+    }
+
     @GetMapping("/recent")
-    public ResponseEntity<ApiResponse<List<NoteDto>>> getRecentNotes() {
+    public ResponseEntity<ApiResponse<List<NoteDto>>> getRecentNotes(WebRequest request) {
         List<NoteDto> notes = noteService.getRecentNotes();
+        if (request.checkNotModified(recentEtag(notes))) {
+            return null;
+        }
         return ResponseEntity.ok(new ApiResponse<>("success", "Recent notes retrieved", notes));
     }
 
+    @GetMapping(value = "/recent", params = "view=summary")
+    public ResponseEntity<ApiResponse<List<NoteSummaryDto>>> getRecentNoteSummaries(
+            @RequestParam(defaultValue = "false") boolean preview) {
+        List<NoteSummaryDto> notes = noteService.getRecentNoteSummaries(preview);
+        return ResponseEntity.ok(new ApiResponse<>("success", "Recent notes retrieved", notes));
+    }
+
+    // Notas creadas en un rango de fechas (ISO, p. ej. 2024-05-01T00:00), paginadas por cursor
+    @GetMapping("/range")
+    public ResponseEntity<ApiResponse<CursorPage<NoteDto>>> getNotesCreatedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<NoteDto> page = noteService.getNotesCreatedBetween(from, to, after, limit);
+        String message = page.getItems().isEmpty() ? "No notes created in the given range" :
+                       "Found " + page.getItems().size() + " notes";
+        return ResponseEntity.ok(new ApiResponse<>("success", message, page));
+    }
+
+    // Histograma de actividad: ?interval=hour|day|week&field=created|updated&groupBy=category|priority
+    @GetMapping("/histogram")
+    public ResponseEntity<ApiResponse<NoteHistogram>> getHistogram(
+            @RequestParam(defaultValue = "day") String interval,
+            @RequestParam(defaultValue = "created") String field,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        NoteHistogram histogram = noteHistogramService.getHistogram(field, interval, groupBy, from, to);
+        return ResponseEntity.ok(new ApiResponse<>("success", "Histogram retrieved", histogram));
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<ApiResponse<NoteService.NoteStats>> getStats() {
         NoteService.NoteStats stats = noteService.getStats();
@@ -119,6 +392,54 @@ public class NoteController {
         return ResponseEntity.ok(health);
     }
 
+    private static String noteEtag(NoteDto note) {
+        return "\"" + note.getId() + "." + note.getVersion() + "\"";
+    }
+
+    private static String recentEtag(List<NoteDto> notes) {
+        StringBuilder sb = new StringBuilder("\"recent");
+        for (NoteDto note : notes) {
+            sb.append('-').append(note.getId()).append('.').append(note.getVersion());
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Versiones aceptadas por If-Match, que puede traer una lista de ETags ({@code "id.version"}) separados por
+     * comas: basta con que coincida uno. {@code null} si no se envía o es {@code *}. La comparación es fuerte:
+     * los ETags débiles y los de otras notas nunca coinciden, y si no queda ninguno se responde 412.
+     */
+    static Set<Long> expectedVersions(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = id + ".";
+        Set<Long> versions = new LinkedHashSet<>();
+        boolean weak = false;
+        Matcher matcher = IF_MATCH_ETAG.matcher(ifMatch);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                weak = true;
+                continue;
+            }
+            String etag = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            if (!etag.startsWith(prefix)) {
+                continue;
+            }
+            try {
+                versions.add(Long.parseLong(etag.substring(prefix.length())));
+            } catch (NumberFormatException e) {
+                throw new PreconditionFailedException("Malformed If-Match header: " + ifMatch);
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException(weak
+                    ? "Weak ETags cannot be used with If-Match"
+                    : "If-Match does not match note " + id);
+        }
+        return versions;
+    }
+
     public static class ApiResponse<T> {
         private String status;
         private String message;
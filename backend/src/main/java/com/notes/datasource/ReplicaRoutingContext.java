@@ -0,0 +1,43 @@
+package com.notes.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Indica, para el hilo de la petición en curso, que las lecturas deben ir al primario
+ * (ventana de read-your-writes tras una escritura del propio cliente).
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    public static void forcePrimary() {
+        FORCE_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static boolean isPrimaryForced() {
+        return FORCE_PRIMARY.get() != null;
+    }
+
+    public static void clear() {
+        FORCE_PRIMARY.remove();
+    }
+
+    /**
+     * Ejecuta {@code action} con las lecturas en el primario y deja el hilo como estaba. Para las cargas que
+     * alimentan estado de larga vida en memoria: leídas de una réplica con retraso, lo dejarían desfasado.
+     */
+    public static <T> T callOnPrimary(Supplier<T> action) {
+        boolean forced = isPrimaryForced();
+        forcePrimary();
+        try {
+            return action.get();
+        } finally {
+            if (!forced) {
+                clear();
+            }
+        }
+    }
+}
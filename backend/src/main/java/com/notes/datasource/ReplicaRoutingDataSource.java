@@ -0,0 +1,77 @@
+package com.notes.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envía las transacciones de solo lectura a una réplica sana (round-robin) y el resto al primario.
+ * Debe envolverse en un {@code LazyConnectionDataSourceProxy}: así la conexión se pide cuando el
+ * flag read-only de la transacción ya está establecido. Las cargas internas que alimentan estado de larga vida
+ * (caché de notas, contadores, índice de búsqueda, histograma) van al primario con
+ * {@link ReplicaRoutingContext#callOnPrimary}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final Map<String, DataSource> replicas;
+    private volatile List<String> healthyReplicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.replicas = replicas;
+        this.healthyReplicas = List.copyOf(replicas.keySet());
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || ReplicaRoutingContext.isPrimaryForced()) {
+            return PRIMARY;
+        }
+        List<String> candidates = healthyReplicas;
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${notes.datasource.replicas.health-check-interval-ms:10000}")
+    public void checkReplicas() {
+        List<String> healthy = new ArrayList<>(replicas.size());
+        replicas.forEach((name, dataSource) -> {
+            try (Connection connection = dataSource.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    healthy.add(name);
+                }
+            } catch (Exception e) {
+                log.debug("Replica {} failed health check: {}", name, e.getMessage());
+            }
+        });
+        if (!healthy.equals(healthyReplicas)) {
+            log.warn("Healthy read replicas changed: {} -> {}", healthyReplicas, healthy);
+        }
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+}
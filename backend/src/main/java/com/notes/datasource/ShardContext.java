@@ -0,0 +1,35 @@
+package com.notes.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard al que van las consultas del hilo actual (ver {@link ShardRoutingDataSource}).
+ * Sin shard fijado se usa el primero.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /** Shard del hilo actual, o {@code null} si no se ha fijado. */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    /** Ejecuta {@code action} con las consultas dirigidas a {@code shard} y restaura el anterior al terminar. */
+    public static <T> T call(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
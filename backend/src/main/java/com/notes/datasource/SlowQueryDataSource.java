@@ -0,0 +1,83 @@
+package com.notes.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Mide cada ejecución de sentencia ({@code execute*}) de las conexiones y avisa a {@code listener} con el SQL
+ * y la duración de las que pasan de {@code thresholdNanos}. Cubre todo el acceso a la base de datos
+ * (Hibernate, {@code JdbcTemplate}, Flyway); las rápidas solo cuestan dos lecturas de {@code nanoTime}.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    private final long thresholdNanos;
+    private final ObjLongConsumer<String> listener;
+
+    public SlowQueryDataSource(DataSource target, long thresholdNanos, ObjLongConsumer<String> listener) {
+        super(target);
+        this.thresholdNanos = thresholdNanos;
+        this.listener = listener;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    // Las sentencias creadas por la conexión se envuelven con el SQL con que se prepararon
+    private Connection timed(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return timed(statement, method.getReturnType(), sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement timed(Statement statement, Class<?> type, String preparedSql) {
+        Class<?> statementType = type == CallableStatement.class || type == PreparedStatement.class ? type : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{statementType},
+                (proxy, method, args) -> {
+                    if (!method.getName().startsWith("execute")) {
+                        return invoke(statement, method, args);
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        return invoke(statement, method, args);
+                    } finally {
+                        long elapsed = System.nanoTime() - start;
+                        if (elapsed >= thresholdNanos) {
+                            String sql = preparedSql != null ? preparedSql
+                                    : args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                            listener.accept(sql, elapsed);
+                        }
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
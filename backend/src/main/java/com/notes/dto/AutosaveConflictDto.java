@@ -0,0 +1,21 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ediciones de autoguardado ya confirmadas (202) que no se llegaron a escribir porque la nota cambió
+ * entretanto en otra instancia o por otra vía. {@code discardedChanges} son los campos que se perdieron.
+ */
+@Data
+@AllArgsConstructor
+public class AutosaveConflictDto {
+    private Long noteId;
+    private long acceptedOnVersion;
+    private long currentVersion;
+    private int discardedEdits;
+    private UpdateNoteDto discardedChanges;
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,25 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Resultado de un elemento dentro de una operación masiva; {@code index} es su posición en la petición.
+ */
+@Data
+@AllArgsConstructor
+public class BatchItemResult {
+    private int index;
+    private Long id;
+    private String status;
+    private String message;
+    private NoteDto data;
+
+    public static BatchItemResult success(int index, Long id, NoteDto data) {
+        return new BatchItemResult(index, id, "success", null, data);
+    }
+
+    public static BatchItemResult error(int index, Long id, String message) {
+        return new BatchItemResult(index, id, "error", message, null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.notes.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BatchUpdateNoteDto extends UpdateNoteDto {
+    @NotNull(message = "Id is mandatory")
+    private Long id;
+}
@@ -0,0 +1,13 @@
+package com.notes.dto;
+
+import com.notes.model.Note;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CategoryPriorityCount {
+    private String category;
+    private Note.Priority priority;
+    private Long total;
+}
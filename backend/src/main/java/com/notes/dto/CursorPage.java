@@ -0,0 +1,18 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Página de resultados paginada por cursor (keyset).
+ * {@code nextCursor} es opaco para el cliente y se envía tal cual en {@code ?after=}.
+ */
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package com.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Intervalo del histograma de actividad. {@code counts} solo aparece con desglose
+ * (por categoría o prioridad) y omite los valores sin notas.
+ */
+@Getter
+@AllArgsConstructor
+public class HistogramBucket {
+    private final LocalDateTime start;
+    private final long total;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Map<String, Long> counts;
+}
@@ -0,0 +1,22 @@
+package com.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.notes.model.Note;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Cambio emitido por el feed SSE ({@code /api/notes/changes}).
+ * {@code note} es el estado tras el cambio (ausente al eliminar); los campos {@code previous*}
+ * permiten al cliente ajustar sus contadores por categoría y prioridad sin volver a pedir {@code /stats}.
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NoteChangeDto {
+    private String type;
+    private Long noteId;
+    private NoteDto note;
+    private String previousCategory;
+    private Note.Priority previousPriority;
+}
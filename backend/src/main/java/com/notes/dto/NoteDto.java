@@ -2,6 +2,7 @@ package com.notes.dto;
 
 import java.time.LocalDateTime;
 
+import com.notes.model.Note;
 import lombok.Data;
 
 @Data
@@ -10,7 +11,9 @@ public class NoteDto {
     private String title;
     private String content;
     private String category;
+    private Note.Priority priority;
     private boolean published;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private long version;
 }
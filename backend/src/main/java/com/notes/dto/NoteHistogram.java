@@ -0,0 +1,22 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Número de notas por hora, día o semana según su fecha de creación o de última modificación.
+ * Incluye los intervalos vacíos, de {@code from} (inclusive) a {@code to} (exclusive).
+ */
+@Getter
+@AllArgsConstructor
+public class NoteHistogram {
+    private final String field;
+    private final String interval;
+    private final String groupBy;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final List<HistogramBucket> buckets;
+}
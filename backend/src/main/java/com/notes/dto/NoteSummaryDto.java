@@ -0,0 +1,34 @@
+package com.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.notes.model.Note;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vista resumida de una nota para los listados: se construye directamente desde la consulta
+ * (proyección JPQL), sin cargar la entidad ni la columna TEXT completa.
+ * {@code contentPreview} solo se rellena cuando se pide la vista previa.
+ */
+@Getter
+@AllArgsConstructor
+public class NoteSummaryDto {
+    public static final int PREVIEW_LENGTH = 160;
+
+    private final Long id;
+    private final String title;
+    private final String category;
+    private final Note.Priority priority;
+    private final boolean published;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String contentPreview;
+
+    public NoteSummaryDto(Long id, String title, String category, Note.Priority priority, boolean published,
+                          LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, title, category, priority, published, createdAt, updatedAt, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la consulta agrupada del histograma: notas de un intervalo (hora o día) y, si se pide,
+ * de un valor de categoría o prioridad ({@code group} es {@code null} sin desglose).
+ */
+@Data
+@AllArgsConstructor
+public class TimeBucketCount {
+    private LocalDateTime bucket;
+    private String group;
+    private Long total;
+}
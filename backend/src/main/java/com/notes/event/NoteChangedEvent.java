@@ -0,0 +1,49 @@
+package com.notes.event;
+
+import com.notes.dto.NoteDto;
+
+/**
+ * Evento publicado por {@code NoteService} en cada escritura.
+ * Los listeners lo consumen tras el commit para mantener estructuras derivadas (índices, cachés...).
+ */
+public class NoteChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Long noteId;
+    private final NoteDto previous;
+    private final NoteDto note;
+
+    private NoteChangedEvent(Type type, Long noteId, NoteDto previous, NoteDto note) {
+        this.type = type;
+        this.noteId = noteId;
+        this.previous = previous;
+        this.note = note;
+    }
+
+    public static NoteChangedEvent created(NoteDto note) {
+        return new NoteChangedEvent(Type.CREATED, note.getId(), null, note);
+    }
+
+    public static NoteChangedEvent updated(NoteDto previous, NoteDto note) {
+        return new NoteChangedEvent(Type.UPDATED, note.getId(), previous, note);
+    }
+
+    public static NoteChangedEvent deleted(NoteDto previous) {
+        return new NoteChangedEvent(Type.DELETED, previous.getId(), previous, null);
+    }
+
+    public Type getType() { return type; }
+    public Long getNoteId() { return noteId; }
+
+    /** Estado de la nota antes del cambio; {@code null} cuando se creó. */
+    public NoteDto getPrevious() { return previous; }
+
+    /** Estado de la nota tras el cambio; {@code null} cuando se eliminó. */
+    public NoteDto getNote() { return note; }
+}
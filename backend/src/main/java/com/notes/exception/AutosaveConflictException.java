@@ -0,0 +1,26 @@
+package com.notes.exception;
+
+import com.notes.dto.AutosaveConflictDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Las ediciones de autoguardado anteriores de la nota se descartaron por un conflicto; el cliente debe
+ * recargarla y volver a aplicar {@link AutosaveConflictDto#getDiscardedChanges()} si procede.
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class AutosaveConflictException extends RuntimeException {
+
+    private final AutosaveConflictDto conflict;
+
+    public AutosaveConflictException(AutosaveConflictDto conflict) {
+        super("Earlier autosaved changes of note " + conflict.getNoteId() + " were discarded: accepted on version "
+                + conflict.getAcceptedOnVersion() + " but the note was modified to version "
+                + conflict.getCurrentVersion() + "; reload it and reapply them");
+        this.conflict = conflict;
+    }
+
+    public AutosaveConflictDto getConflict() {
+        return conflict;
+    }
+}
@@ -1,12 +1,18 @@
 package com.notes.exception;
 
 import com.notes.controller.NoteController.ApiResponse;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.stream.Collectors;
 
@@ -28,6 +34,65 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    // Parámetros que faltan o no se pueden convertir (fechas, enumerados): error del cliente
+    @ExceptionHandler({MissingServletRequestParameterException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<ApiResponse<Object>> handleBadParameter(Exception ex, WebRequest request) {
+        String message = ex instanceof MethodArgumentTypeMismatchException mismatch
+                ? "Invalid value for '" + mismatch.getName() + "': " + mismatch.getValue()
+                : ex.getMessage();
+        ApiResponse<Object> response = new ApiResponse<>("error", message, null);
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ApiResponse<Object>> handlePreconditionFailed(PreconditionFailedException ex, WebRequest request) {
+        ApiResponse<Object> response = new ApiResponse<>("error", ex.getMessage(), null);
+        return new ResponseEntity<>(response, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(AutosaveConflictException.class)
+    public ResponseEntity<ApiResponse<Object>> handleAutosaveConflict(AutosaveConflictException ex, WebRequest request) {
+        ApiResponse<Object> response = new ApiResponse<>("error", ex.getMessage(), ex.getConflict());
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiResponse<Object>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex, WebRequest request) {
+        ApiResponse<Object> response = new ApiResponse<>("error", "The note was modified concurrently, reload and retry", null);
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiResponse<Object>> handleTooManyRequests(TooManyRequestsException ex, WebRequest request) {
+        ApiResponse<Object> response = new ApiResponse<>("error", ex.getMessage(), null);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleServiceOverloaded(ServiceOverloadedException ex, WebRequest request) {
+        ApiResponse<Object> response = new ApiResponse<>("error", ex.getMessage(), null);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    // Sin conexión disponible (pool o bulkhead agotados): es sobrecarga transitoria, no un error del servidor
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ApiResponse<Object>> handleConnectionUnavailable(Exception ex, WebRequest request) {
+        ApiResponse<Object> response = new ApiResponse<>("error", "Service temporarily overloaded, retry later", null);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ApiResponse<Object>> handleIllegalArgument(IllegalArgumentException ex, WebRequest request) {
+        ApiResponse<Object> response = new ApiResponse<>("error", ex.getMessage(), null);
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<Object>> handleGlobalException(Exception ex, WebRequest request) {
         ApiResponse<Object> response = new ApiResponse<>("error", "An unexpected error occurred: " + ex.getMessage(), null);
@@ -0,0 +1,59 @@
+package com.notes.feed;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+/**
+ * Evento ya serializado, compartido por todos los suscriptores.
+ * El {@link SseEmitter.SseEventBuilder} es mutable, así que se construye uno por envío.
+ */
+final class FeedEntry {
+
+    static final FeedEntry HEARTBEAT = new FeedEntry(null, null, Set.of(), null);
+    static final FeedEntry CONNECTED = new FeedEntry(null, null, Set.of(), null);
+
+    private static final long RECONNECT_DELAY_MS = 3000;
+    private static final String RESET = "reset";
+
+    private final String id;
+    private final String name;
+    private final Set<String> categories;
+    private final String json;
+
+    FeedEntry(String id, String name, Set<String> categories, String json) {
+        this.id = id;
+        this.name = name;
+        this.categories = categories;
+        this.json = json;
+    }
+
+    /** Aviso de que hay que recargar los listados: lo reciben todos los suscriptores, con o sin filtro. */
+    static FeedEntry reset(String id) {
+        return new FeedEntry(id, RESET, Set.of(), "{\"type\":\"RESET\"}");
+    }
+
+    /** Un filtro vacío lo recibe todo; si no, basta con que coincida la categoría anterior o la nueva. */
+    boolean matches(Set<String> filter) {
+        if (filter.isEmpty() || json == null || RESET.equals(name)) {
+            return true;
+        }
+        for (String category : categories) {
+            if (filter.contains(category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    SseEmitter.SseEventBuilder toEvent() {
+        if (this == HEARTBEAT) {
+            return SseEmitter.event().comment("heartbeat");
+        }
+        if (this == CONNECTED) {
+            return SseEmitter.event().reconnectTime(RECONNECT_DELAY_MS).comment("connected");
+        }
+        return SseEmitter.event().id(id).name(name).data(json, MediaType.APPLICATION_JSON);
+    }
+}
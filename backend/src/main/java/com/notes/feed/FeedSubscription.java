@@ -0,0 +1,67 @@
+package com.notes.feed;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conexión SSE abierta con su cola acotada de eventos pendientes.
+ * Nunca hay más de una tarea de envío por suscriptor ({@code scheduled}), así se conserva el orden.
+ */
+final class FeedSubscription {
+
+    private final SseEmitter emitter;
+    private final Set<String> categories;
+    private final ArrayBlockingQueue<FeedEntry> pending;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    FeedSubscription(SseEmitter emitter, Set<String> categories, int capacity) {
+        this.emitter = emitter;
+        this.categories = categories;
+        this.pending = new ArrayBlockingQueue<>(capacity);
+    }
+
+    SseEmitter getEmitter() { return emitter; }
+    Set<String> getCategories() { return categories; }
+
+    int remainingCapacity() {
+        return pending.remainingCapacity();
+    }
+
+    /** {@code false} si la cola está llena: el cliente no consume al ritmo al que llegan los cambios. */
+    boolean offer(FeedEntry entry) {
+        return pending.offer(entry);
+    }
+
+    FeedEntry poll() {
+        return pending.poll();
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    boolean markScheduled() {
+        return scheduled.compareAndSet(false, true);
+    }
+
+    void unmarkScheduled() {
+        scheduled.set(false);
+    }
+
+    /** Devuelve {@code true} solo la primera vez, para cerrar y contar una única vez. */
+    boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        pending.clear();
+        return true;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+}
@@ -0,0 +1,470 @@
+package com.notes.feed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notes.datasource.ReplicaRoutingContext;
+import com.notes.dto.NoteChangeDto;
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.repository.NoteRevisionRepository;
+import com.notes.store.NoteStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feed de cambios de notas por Server-Sent Events.
+ * <p>
+ * Las conexiones abiertas son peticiones asíncronas del servlet: mientras no hay cambios no ocupan
+ * ningún hilo. Los envíos los hace un pool pequeño y fijo, cada suscriptor con su cola acotada; si la
+ * cola se llena el cliente se desconecta y, al reconectar con {@code Last-Event-ID}, recupera lo perdido
+ * del buffer circular de cambios recientes. Si ese id ya no está en el buffer (o viene de otro pod o de
+ * un arranque anterior) recibe un evento {@code reset} y debe recargar los listados.
+ * <p>
+ * Los eventos de escritura solo llegan de esta instancia. Las altas y modificaciones de las demás se leen del
+ * almacén cada {@code notes.feed.poll-interval-ms} (por {@code updatedAt, id}, como la puesta al día del índice de
+ * búsqueda) y se emiten sin los campos {@code previous*}. Las bajas y el archivo de otras instancias no dejan
+ * rastro que leer: si la revisión de las notas sube más de lo que explican las transacciones propias y los
+ * cambios leídos, se emite un {@code reset} a todos (y queda en el buffer para quien reconecte).
+ */
+@Component
+public class NoteChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteChangeFeed.class);
+
+    private static final int POLL_BATCH_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final NoteStore noteStore;
+    // null con el motor en memoria: un solo proceso, todos los cambios llegan como eventos
+    private final NoteRevisionRepository revisions;
+    private final long pollOverlapMs;
+    private final int queueSize;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final Executor dispatcher;
+
+    // Prefijo de los ids: distingue este proceso de otros pods y de arranques anteriores
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // Buffer circular de los últimos cambios, protegido por "ring"
+    private final FeedEntry[] ring;
+    private long lastSequence = 0;
+    // Última versión emitida de cada nota reciente, propia o leída del almacén, para no emitirla dos veces
+    private final Map<Long, Long> publishedVersions;
+
+    // Estado de la lectura del almacén; solo lo toca pollClusterChanges
+    private LocalDateTime polledUpTo;
+    private long polledRevision;
+    private long polledLocalChanges;
+    private long unexplainedChanges;
+
+    private final Set<FeedSubscription> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong remoteChanges = new AtomicLong();
+
+    @Autowired
+    public NoteChangeFeed(ObjectMapper objectMapper, NoteStore noteStore,
+                          ObjectProvider<NoteRevisionRepository> revisions, Environment environment,
+                          @Value("${notes.feed.replay-buffer-size:1024}") int replayBufferSize,
+                          @Value("${notes.feed.subscriber-queue-size:256}") int queueSize,
+                          @Value("${notes.feed.max-subscribers:10000}") int maxSubscribers,
+                          @Value("${notes.feed.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${notes.feed.dispatcher-threads:4}") int dispatcherThreads,
+                          @Value("${notes.feed.poll-overlap-ms:10000}") long pollOverlapMs) {
+        this(objectMapper, noteStore, revisions.getIfAvailable(), replayBufferSize, queueSize, maxSubscribers,
+                timeoutMs, pollOverlapMs, createDispatcher(environment, dispatcherThreads));
+    }
+
+    NoteChangeFeed(ObjectMapper objectMapper, NoteStore noteStore, NoteRevisionRepository revisions,
+                   int replayBufferSize, int queueSize, int maxSubscribers, long timeoutMs, long pollOverlapMs,
+                   Executor dispatcher) {
+        this.objectMapper = objectMapper;
+        this.noteStore = noteStore;
+        this.revisions = revisions;
+        this.pollOverlapMs = pollOverlapMs;
+        this.ring = new FeedEntry[replayBufferSize];
+        this.publishedVersions = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > ring.length;
+            }
+        };
+        this.queueSize = queueSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+        this.dispatcher = dispatcher;
+    }
+
+    // Con hilos virtuales cada envío usa el suyo; si no, un pool fijo y pequeño
+    private static Executor createDispatcher(Environment environment, int dispatcherThreads) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("note-feed-");
+            executor.setVirtualThreads(true);
+            executor.setTaskTerminationTimeout(1000);
+            return executor;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "note-feed-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isFull() {
+        return subscribers.size() >= maxSubscribers;
+    }
+
+    /**
+     * Abre una suscripción.
+     *
+     * @param lastEventId último id recibido por el cliente, o {@code null} para recibir solo cambios nuevos
+     * @param categories  categorías a recibir; vacío para todas
+     */
+    public SseEmitter subscribe(String lastEventId, Set<String> categories) {
+        SseEmitter emitter = createEmitter(timeoutMs);
+        FeedSubscription subscription = new FeedSubscription(emitter, Set.copyOf(categories), queueSize);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(error -> unsubscribe(subscription));
+
+        // El primer envío manda las cabeceras y fija el intervalo de reconexión del EventSource
+        subscription.offer(FeedEntry.CONNECTED);
+
+        // Reenvío y alta bajo el mismo cerrojo que la publicación: ni huecos ni duplicados
+        synchronized (ring) {
+            List<FeedEntry> missed = lastEventId == null ? List.of() : missedSince(lastEventId);
+            if (missed == null || missed.size() > subscription.remainingCapacity()) {
+                resets.incrementAndGet();
+                subscription.offer(resetEntry());
+            } else {
+                for (FeedEntry entry : missed) {
+                    if (entry.matches(subscription.getCategories())) {
+                        subscription.offer(entry);
+                    }
+                }
+            }
+            subscribers.add(subscription);
+        }
+        schedule(subscription);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        NoteDto previous = event.getPrevious();
+        NoteDto current = event.getNote();
+        NoteChangeDto change = new NoteChangeDto(event.getType().name(), event.getNoteId(), current,
+                previous != null ? previous.getCategory() : null,
+                previous != null ? previous.getPriority() : null);
+        Set<String> categories = new LinkedHashSet<>();
+        if (previous != null) {
+            categories.add(previous.getCategory());
+        }
+        if (current != null) {
+            categories.add(current.getCategory());
+        }
+        publish(change, categories);
+    }
+
+    /**
+     * Emite las altas y modificaciones hechas por otras instancias y, si la revisión ha subido por cambios que no
+     * se pueden leer (bajas, archivo), un {@code reset}. Se relee un margen de {@code notes.feed.poll-overlap-ms}
+     * hacia atrás para no perder las escrituras que se confirmaron tarde; las versiones ya emitidas se saltan.
+     */
+    @Scheduled(initialDelayString = "${notes.feed.poll-interval-ms:5000}",
+               fixedDelayString = "${notes.feed.poll-interval-ms:5000}")
+    public synchronized void pollClusterChanges() {
+        if (revisions == null) {
+            return;
+        }
+        try {
+            if (polledUpTo == null) {
+                polledUpTo = newestUpdatedAt();
+                polledLocalChanges = revisions.getLocalChanges();
+                polledRevision = ReplicaRoutingContext.callOnPrimary(noteStore::findRevision);
+                return;
+            }
+            List<NoteDto> changed = readChangedSince(polledUpTo.minusNanos(pollOverlapMs * 1_000_000));
+            // En este orden: una transacción que se confirma entre dos lecturas queda sin explicar en esta
+            // pasada y se compensa en la siguiente, nunca al revés
+            long localChanges = revisions.getLocalChanges();
+            long revision = ReplicaRoutingContext.callOnPrimary(noteStore::findRevision);
+
+            int found = 0;
+            if (changed == null) {
+                // Más cambios de los que caben en el buffer: se salta al más reciente y los clientes recargan
+                polledUpTo = newestUpdatedAt();
+                publishReset();
+            } else {
+                for (NoteDto note : changed) {
+                    if (polledUpTo.isBefore(note.getUpdatedAt())) {
+                        polledUpTo = note.getUpdatedAt();
+                    }
+                    String type = (note.getVersion() == 0 ? NoteChangedEvent.Type.CREATED
+                            : NoteChangedEvent.Type.UPDATED).name();
+                    Set<String> categories = new LinkedHashSet<>();
+                    categories.add(note.getCategory());
+                    if (publish(new NoteChangeDto(type, note.getId(), note, null, null), categories)) {
+                        found++;
+                    }
+                }
+                remoteChanges.addAndGet(found);
+            }
+
+            // Cada cambio leído explica como mucho una transacción; lo que sobre son bajas o archivo de otras
+            // instancias. Solo se avisa si sigue sin explicar tras una segunda pasada
+            long pending = unexplainedChanges;
+            long unexplained = Math.max(0, pending + (revision - polledRevision)
+                    - (localChanges - polledLocalChanges) - found);
+            if (unexplained > 0 && pending > 0 && changed != null) {
+                publishReset();
+                unexplained = 0;
+            }
+            unexplainedChanges = changed == null ? 0 : unexplained;
+            polledRevision = revision;
+            polledLocalChanges = localChanges;
+        } catch (RuntimeException e) {
+            // Se reintenta en la siguiente pasada desde el mismo punto
+            log.warn("Change feed poll failed: {}", e.toString());
+        }
+    }
+
+    // Mantiene vivas las conexiones a través de proxies y detecta los clientes que ya se fueron
+    @Scheduled(fixedDelayString = "${notes.feed.heartbeat-interval-ms:20000}")
+    public void sendHeartbeats() {
+        for (FeedSubscription subscription : subscribers) {
+            if (subscription.offer(FeedEntry.HEARTBEAT)) {
+                schedule(subscription);
+            } else {
+                disconnectSlowConsumer(subscription);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.get();
+    }
+
+    public long getResets() {
+        return resets.get();
+    }
+
+    public long getRemoteChanges() {
+        return remoteChanges.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        } else if (dispatcher instanceof SimpleAsyncTaskExecutor executor) {
+            executor.close();
+        }
+        for (FeedSubscription subscription : subscribers) {
+            if (subscription.close()) {
+                subscription.getEmitter().complete();
+            }
+        }
+        subscribers.clear();
+    }
+
+    /** Cambios posteriores a {@code lastEventId}, o {@code null} si ya no se pueden reconstruir. */
+    private List<FeedEntry> missedSince(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return null;
+        }
+        long since;
+        try {
+            since = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long oldest = Math.max(1, lastSequence - ring.length + 1);
+        if (since > lastSequence || since < oldest - 1) {
+            return null;
+        }
+        List<FeedEntry> missed = new ArrayList<>((int) (lastSequence - since));
+        for (long sequence = since + 1; sequence <= lastSequence; sequence++) {
+            missed.add(ring[(int) (sequence % ring.length)]);
+        }
+        return missed;
+    }
+
+    private FeedEntry resetEntry() {
+        // El id del reset es la posición actual: tras recargar, el cliente continúa desde aquí
+        return FeedEntry.reset(epoch + "-" + lastSequence);
+    }
+
+    // Con el SseEmitter de Spring; los tests lo sustituyen para ver lo enviado
+    SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    /** Añade el cambio al buffer y lo encola a los suscriptores; {@code false} si esa versión ya se emitió. */
+    private boolean publish(NoteChangeDto change, Set<String> categories) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize change of note {} for the feed", change.getNoteId(), e);
+            return false;
+        }
+        String name = change.getType().toLowerCase();
+        List<FeedSubscription> toSchedule;
+        synchronized (ring) {
+            NoteDto note = change.getNote();
+            if (note == null) {
+                publishedVersions.remove(change.getNoteId());
+            } else {
+                Long published = publishedVersions.get(change.getNoteId());
+                if (published != null && published >= note.getVersion()) {
+                    return false;
+                }
+                publishedVersions.put(change.getNoteId(), note.getVersion());
+            }
+            toSchedule = append(new FeedEntry(epoch + "-" + (lastSequence + 1), name, categories, json));
+        }
+        published.incrementAndGet();
+        toSchedule.forEach(this::schedule);
+        return true;
+    }
+
+    // Reset que ocupa una posición del buffer: quien reconecte desde antes también lo recibe
+    private void publishReset() {
+        List<FeedSubscription> toSchedule;
+        synchronized (ring) {
+            toSchedule = append(FeedEntry.reset(epoch + "-" + (lastSequence + 1)));
+        }
+        resets.incrementAndGet();
+        toSchedule.forEach(this::schedule);
+    }
+
+    // Con el cerrojo de "ring"; devuelve los suscriptores a los que hay que programar un envío
+    private List<FeedSubscription> append(FeedEntry entry) {
+        long sequence = ++lastSequence;
+        ring[(int) (sequence % ring.length)] = entry;
+        List<FeedSubscription> toSchedule = new ArrayList<>();
+        for (FeedSubscription subscription : subscribers) {
+            if (entry.matches(subscription.getCategories())) {
+                if (subscription.offer(entry)) {
+                    toSchedule.add(subscription);
+                } else {
+                    disconnectSlowConsumer(subscription);
+                }
+            }
+        }
+        return toSchedule;
+    }
+
+    // Notas modificadas desde "since", o null si son más de las que caben en el buffer
+    private List<NoteDto> readChangedSince(LocalDateTime since) {
+        List<NoteDto> changed = new ArrayList<>();
+        LocalDateTime lastUpdatedAt = since;
+        long lastId = 0L;
+        List<NoteDto> batch;
+        do {
+            LocalDateTime afterUpdatedAt = lastUpdatedAt;
+            long afterId = lastId;
+            batch = ReplicaRoutingContext.callOnPrimary(
+                    () -> noteStore.findUpdatedAfter(afterUpdatedAt, afterId, POLL_BATCH_SIZE));
+            for (NoteDto note : batch) {
+                changed.add(note);
+                lastUpdatedAt = note.getUpdatedAt();
+                lastId = note.getId();
+            }
+            if (changed.size() > ring.length) {
+                return null;
+            }
+        } while (batch.size() == POLL_BATCH_SIZE);
+        return changed;
+    }
+
+    // Marca de partida leída del almacén, no del reloj de este pod
+    private LocalDateTime newestUpdatedAt() {
+        List<NoteDto> newest = ReplicaRoutingContext.callOnPrimary(() -> noteStore.findRecent(1));
+        return newest.isEmpty() ? LocalDateTime.of(1970, 1, 1, 0, 0) : newest.get(0).getUpdatedAt();
+    }
+
+    private void schedule(FeedSubscription subscription) {
+        if (subscription.hasPending() && subscription.markScheduled()) {
+            try {
+                dispatcher.execute(() -> drain(subscription));
+            } catch (RejectedExecutionException e) {
+                subscription.unmarkScheduled();
+            }
+        }
+    }
+
+    private void drain(FeedSubscription subscription) {
+        try {
+            do {
+                FeedEntry entry;
+                while ((entry = subscription.poll()) != null) {
+                    subscription.getEmitter().send(entry.toEvent());
+                }
+                subscription.unmarkScheduled();
+                // Un evento encolado justo antes de desmarcar se quedaría sin tarea: se revisa de nuevo
+            } while (subscription.hasPending() && subscription.markScheduled());
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Feed subscriber gone: {}", e.getMessage());
+            unsubscribe(subscription);
+        }
+    }
+
+    private void disconnectSlowConsumer(FeedSubscription subscription) {
+        if (subscription.close()) {
+            subscribers.remove(subscription);
+            slowConsumerDisconnects.incrementAndGet();
+            // Se cierra desde el pool: complete() espera a un envío en curso y aquí se tiene el cerrojo
+            try {
+                dispatcher.execute(subscription.getEmitter()::complete);
+            } catch (RejectedExecutionException e) {
+                subscription.getEmitter().complete();
+            }
+        }
+    }
+
+    private void unsubscribe(FeedSubscription subscription) {
+        subscribers.remove(subscription);
+        subscription.close();
+    }
+}
@@ -0,0 +1,75 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.notes.dto.NoteDto;
+
+import java.io.IOException;
+
+/**
+ * Serializa {@link NoteDto} desde {@link NoteJsonCache}: en un acierto copia los bytes cacheados, en un fallo
+ * serializa con el serializador de Jackson de siempre ({@code delegate}) en un buffer aparte y lo guarda.
+ * Si la escritura lleva el atributo {@link NoteJsonCache#READ_ONLY} (exportación) usa la caché pero no la llena.
+ */
+final class CachingNoteSerializer extends StdSerializer<NoteDto> implements ContextualSerializer, ResolvableSerializer {
+
+    private static final JsonFactory FALLBACK_FACTORY = new JsonFactory();
+
+    private final JsonSerializer<Object> delegate;
+    private final NoteJsonCache cache;
+
+    @SuppressWarnings("unchecked")
+    CachingNoteSerializer(JsonSerializer<?> delegate, NoteJsonCache cache) {
+        super(NoteDto.class);
+        this.delegate = (JsonSerializer<Object>) delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public void serialize(NoteDto note, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        RawJson json = cache.get(note);
+        if (json == null) {
+            json = new RawJson(note.getVersion(), render(note, gen, provider));
+            if (provider.getAttribute(NoteJsonCache.READ_ONLY) == null) {
+                cache.put(note, json);
+            }
+        }
+        gen.writeRawValue(json);
+    }
+
+    private byte[] render(NoteDto note, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        JsonFactory factory = gen.getCodec() != null ? gen.getCodec().getFactory() : FALLBACK_FACTORY;
+        try (ByteArrayBuilder buffer = new ByteArrayBuilder(512)) {
+            try (JsonGenerator fragment = factory.createGenerator(buffer)) {
+                delegate.serialize(note, fragment, provider);
+            }
+            return buffer.toByteArray();
+        }
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        if (delegate instanceof ContextualSerializer contextual) {
+            JsonSerializer<?> contextualized = contextual.createContextual(provider, property);
+            if (contextualized != delegate) {
+                return new CachingNoteSerializer(contextualized, cache);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (delegate instanceof ResolvableSerializer resolvable) {
+            resolvable.resolve(provider);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * JSON de cada nota ya serializado (bytes UTF-8) por id y versión, para no repetir Jackson con las mismas notas
+ * en cada lectura. Los listados se componen pegando estos fragmentos en el stream de la respuesta.
+ * <p>
+ * La versión forma parte de la clave, así que una entrada antigua nunca se sirve para un estado posterior;
+ * los {@link NoteChangedEvent} además la liberan en cuanto cambia. El tamaño se acota en bytes.
+ */
+@Component
+public class NoteJsonCache {
+
+    /** Atributo de escritura de Jackson: usar la caché sin añadir entradas (recorridos completos como la exportación). */
+    public static final String READ_ONLY = NoteJsonCache.class.getName() + ".readOnly";
+
+    private final Cache<Long, RawJson> fragments;
+
+    public NoteJsonCache(@Value("${notes.json-cache.max-bytes:67108864}") long maxBytes) {
+        this.fragments = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, RawJson json) -> json.length())
+                .recordStats()
+                .build();
+    }
+
+    RawJson get(NoteDto note) {
+        if (note.getId() == null) {
+            return null;
+        }
+        RawJson json = fragments.getIfPresent(note.getId());
+        return json != null && json.getVersion() == note.getVersion() ? json : null;
+    }
+
+    void put(NoteDto note, RawJson json) {
+        if (note.getId() != null) {
+            fragments.put(note.getId(), json);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        fragments.invalidate(event.getNoteId());
+    }
+
+    public Cache<Long, ?> getFragments() {
+        return fragments;
+    }
+
+    /** Módulo de Jackson que sustituye el serializador de {@link NoteDto} por uno que pasa por esta caché. */
+    public Module module() {
+        SimpleModule module = new SimpleModule("NoteJsonCache");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                                      JsonSerializer<?> serializer) {
+                return beanDesc.getBeanClass() == NoteDto.class
+                        ? new CachingNoteSerializer(serializer, NoteJsonCache.this)
+                        : serializer;
+            }
+        });
+        return module;
+    }
+}
@@ -0,0 +1,119 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.core.SerializableString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON ya serializado de una versión concreta de una nota, en UTF-8.
+ * <p>
+ * Se escribe con {@code JsonGenerator.writeRawValue}: el generador UTF-8 de las respuestas HTTP copia los bytes
+ * tal cual (o los manda directamente al stream si no caben en su buffer). Solo los generadores basados en
+ * {@code Writer} (p. ej. {@code writeValueAsString}) pasan por {@link #getValue()}, que decodifica.
+ */
+final class RawJson implements SerializableString {
+
+    private final long version;
+    private final byte[] utf8;
+
+    RawJson(long version, byte[] utf8) {
+        this.version = version;
+        this.utf8 = utf8;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    int length() {
+        return utf8.length;
+    }
+
+    @Override
+    public String getValue() {
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int charLength() {
+        return getValue().length();
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+        return utf8;
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int offset) {
+        if (offset + utf8.length > buffer.length) {
+            return -1;
+        }
+        System.arraycopy(utf8, 0, buffer, offset, utf8.length);
+        return utf8.length;
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        out.write(utf8);
+        return utf8.length;
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer buffer) {
+        if (utf8.length > buffer.remaining()) {
+            return -1;
+        }
+        buffer.put(utf8);
+        return utf8.length;
+    }
+
+    @Override
+    public int appendUnquoted(char[] buffer, int offset) {
+        String value = getValue();
+        if (offset + value.length() > buffer.length) {
+            return -1;
+        }
+        value.getChars(0, value.length(), buffer, offset);
+        return value.length();
+    }
+
+    // Un valor JSON en bruto nunca se usa como nombre de campo ni como cadena entrecomillada
+    @Override
+    public char[] asQuotedChars() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return getValue();
+    }
+}
@@ -10,20 +10,47 @@ import org.springframework.stereotype.Component;
 public class NoteMapper {
 
     public NoteDto toDto(Note note) {
+        NoteDto dto = toMetadataDto(note);
+        if (dto != null) {
+            dto.setContent(note.getContent());
+        }
+        return dto;
+    }
+
+    // Sin el contenido: no lo carga si la entidad se leyó sin él
+    public NoteDto toMetadataDto(Note note) {
         if (note == null) {
             return null;
         }
         NoteDto dto = new NoteDto();
         dto.setId(note.getId());
         dto.setTitle(note.getTitle());
-        dto.setContent(note.getContent());
         dto.setCategory(note.getCategory());
+        dto.setPriority(note.getPriority());
         dto.setPublished(note.isPublished());
         dto.setCreatedAt(note.getCreatedAt());
         dto.setUpdatedAt(note.getUpdatedAt());
+        dto.setVersion(note.getVersion());
         return dto;
     }
 
+    public NoteDto copy(NoteDto source) {
+        if (source == null) {
+            return null;
+        }
+        NoteDto copy = new NoteDto();
+        copy.setId(source.getId());
+        copy.setTitle(source.getTitle());
+        copy.setContent(source.getContent());
+        copy.setCategory(source.getCategory());
+        copy.setPriority(source.getPriority());
+        copy.setPublished(source.isPublished());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        copy.setVersion(source.getVersion());
+        return copy;
+    }
+
     public Note toEntity(CreateNoteDto dto) {
         if (dto == null) {
             return null;
@@ -53,4 +80,22 @@ public class NoteMapper {
             entity.setPublished(dto.getPublished());
         }
     }
+
+    public void updateDtoFromDto(UpdateNoteDto dto, NoteDto target) {
+        if (dto == null || target == null) {
+            return;
+        }
+        if (dto.getTitle() != null) {
+            target.setTitle(dto.getTitle());
+        }
+        if (dto.getContent() != null) {
+            target.setContent(dto.getContent());
+        }
+        if (dto.getCategory() != null) {
+            target.setCategory(Note.normalizeCategory(dto.getCategory()));
+        }
+        if (dto.getPublished() != null) {
+            target.setPublished(dto.getPublished());
+        }
+    }
 }
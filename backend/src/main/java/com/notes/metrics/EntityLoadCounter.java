@@ -0,0 +1,14 @@
+package com.notes.metrics;
+
+import jakarta.persistence.PostLoad;
+
+/**
+ * Listener JPA que cuenta las entidades cargadas desde la base de datos.
+ */
+public class EntityLoadCounter {
+
+    @PostLoad
+    public void onLoad(Object entity) {
+        RequestQueryStats.entityLoaded();
+    }
+}
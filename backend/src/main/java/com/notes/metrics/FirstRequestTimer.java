@@ -0,0 +1,55 @@
+package com.notes.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tiempo desde el arranque de la JVM hasta que se sirve la primera petición de la API.
+ * Complementa {@code application.started.time} y {@code application.ready.time} de Spring Boot,
+ * que no incluyen el calentamiento de la primera petición (JIT, cachés, pool de conexiones).
+ */
+@Component
+public class FirstRequestTimer extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(FirstRequestTimer.class);
+
+    private final AtomicBoolean recorded = new AtomicBoolean();
+    private volatile double millis = Double.NaN;
+
+    public FirstRequestTimer(MeterRegistry meterRegistry) {
+        TimeGauge.builder("notes.startup.first.request", this, TimeUnit.MILLISECONDS, timer -> timer.millis)
+                .description("Time from JVM start until the first API request was served")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return recorded.get() || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (recorded.compareAndSet(false, true)) {
+                millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                log.info("First API request served {} ms after JVM start", (long) millis);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.notes.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Contadores de las sentencias SQL y entidades cargadas durante la petición en curso.
+ * {@link RequestMetricsFilter} los reinicia al empezar cada petición y los publica al terminar; las tareas que
+ * la petición reparte entre otros hilos (consultas en paralelo a los shards) cuentan en los mismos con
+ * {@link #propagate(Supplier)}.
+ */
+public final class RequestQueryStats {
+
+    private static final ThreadLocal<Counters> COUNTERS = ThreadLocal.withInitial(Counters::new);
+
+    private RequestQueryStats() {
+    }
+
+    // Contadores nuevos: lo que sumen tareas de una petición anterior que aún no hayan acabado no llega a esta
+    public static void reset() {
+        COUNTERS.set(new Counters());
+    }
+
+    public static void clear() {
+        COUNTERS.remove();
+    }
+
+    /** {@code task} contará en los contadores del hilo que llama, se ejecute en el hilo que se ejecute. */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        Counters counters = COUNTERS.get();
+        return () -> {
+            Counters previous = COUNTERS.get();
+            COUNTERS.set(counters);
+            try {
+                return task.get();
+            } finally {
+                COUNTERS.set(previous);
+            }
+        };
+    }
+
+    static void statementsExecuted(long count) {
+        COUNTERS.get().statements.add(count);
+    }
+
+    static void entityLoaded() {
+        COUNTERS.get().entityLoads.increment();
+    }
+
+    public static long statements() {
+        return COUNTERS.get().statements.sum();
+    }
+
+    public static long entityLoads() {
+        return COUNTERS.get().entityLoads.sum();
+    }
+
+    private static final class Counters {
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder entityLoads = new LongAdder();
+    }
+}
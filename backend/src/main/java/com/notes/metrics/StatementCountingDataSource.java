@@ -0,0 +1,69 @@
+package com.notes.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Cuenta en {@link RequestQueryStats} cada sentencia que se ejecuta por las conexiones del DataSource, venga de
+ * Hibernate, de {@code JdbcTemplate} o de las consultas en paralelo a los shards. Un lote cuenta tantas
+ * sentencias como filas tiene.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counted(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counted(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection counted(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return result instanceof Statement statement ? counted(statement, method.getReturnType()) : result;
+                });
+    }
+
+    private Statement counted(Statement statement, Class<?> type) {
+        Class<?> statementType = type == CallableStatement.class || type == PreparedStatement.class ? type : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{statementType},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("execute") && !name.endsWith("Batch")) {
+                        RequestQueryStats.statementsExecuted(1);
+                    }
+                    Object result = invoke(statement, method, args);
+                    if (name.equals("executeBatch")) {
+                        RequestQueryStats.statementsExecuted(((int[]) result).length);
+                    } else if (name.equals("executeLargeBatch")) {
+                        RequestQueryStats.statementsExecuted(((long[]) result).length);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
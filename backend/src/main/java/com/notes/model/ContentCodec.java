@@ -0,0 +1,157 @@
+package com.notes.model;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresión del contenido de las notas largas.
+ * <p>
+ * Formato: 1 byte con el algoritmo, 4 bytes con la longitud en UTF-8 sin comprimir y los datos.
+ * El algoritmo va en cada valor, así que cambiar {@code notes.content.compression.algorithm} no impide
+ * leer lo ya guardado. La configuración la fija {@code ContentCompressionConfig} al arrancar.
+ */
+public final class ContentCodec {
+
+    public enum Algorithm {
+        NONE(0), DEFLATE(1), LZ4(2);
+
+        private final byte id;
+
+        Algorithm(int id) {
+            this.id = (byte) id;
+        }
+    }
+
+    private static final int HEADER_LENGTH = 5;
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private static volatile Algorithm algorithm = Algorithm.NONE;
+    private static volatile int thresholdBytes = Integer.MAX_VALUE;
+    private static volatile int deflateLevel = Deflater.DEFAULT_COMPRESSION;
+    private static volatile int prefixLength = 0;
+
+    private ContentCodec() {
+    }
+
+    /**
+     * @param prefixLength caracteres que se guardan también sin comprimir (vista previa de los listados)
+     */
+    public static void configure(Algorithm algorithm, int thresholdBytes, int deflateLevel, int prefixLength) {
+        ContentCodec.algorithm = algorithm;
+        ContentCodec.thresholdBytes = thresholdBytes;
+        ContentCodec.deflateLevel = deflateLevel;
+        ContentCodec.prefixLength = prefixLength;
+    }
+
+    public static Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public static int getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    /** Contenido comprimido con el algoritmo configurado, o {@code null} si no supera el umbral o no compensa. */
+    public static byte[] encode(String content) {
+        if (content == null || algorithm == Algorithm.NONE || content.length() * 3 < thresholdBytes) {
+            return null;
+        }
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < thresholdBytes) {
+            return null;
+        }
+        byte[] encoded = encode(raw, algorithm, deflateLevel);
+        return encoded.length < raw.length ? encoded : null;
+    }
+
+    public static byte[] encode(byte[] raw, Algorithm algorithm, int deflateLevel) {
+        return switch (algorithm) {
+            case DEFLATE -> deflate(raw, deflateLevel);
+            case LZ4 -> lz4(raw);
+            case NONE -> throw new IllegalArgumentException("Nothing to encode with algorithm NONE");
+        };
+    }
+
+    public static String decode(byte[] encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        byte id = buffer.get();
+        int length = buffer.getInt();
+        byte[] raw = new byte[length];
+        if (id == Algorithm.DEFLATE.id) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(encoded, HEADER_LENGTH, encoded.length - HEADER_LENGTH);
+                int read = 0;
+                while (read < length && !inflater.finished()) {
+                    read += inflater.inflate(raw, read, length - read);
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupted compressed note content", e);
+            } finally {
+                inflater.end();
+            }
+        } else if (id == Algorithm.LZ4.id) {
+            LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+            decompressor.decompress(encoded, HEADER_LENGTH, raw, 0, length);
+        } else {
+            throw new IllegalStateException("Unknown note content encoding " + id);
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    /** Principio del contenido que se guarda sin comprimir, sin partir un par sustituto. */
+    public static String prefix(String content) {
+        if (content.length() <= prefixLength) {
+            return content;
+        }
+        int end = prefixLength;
+        if (end > 0 && Character.isHighSurrogate(content.charAt(end - 1))) {
+            end--;
+        }
+        return content.substring(0, end);
+    }
+
+    private static byte[] deflate(byte[] raw, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + HEADER_LENGTH);
+            writeHeader(out, Algorithm.DEFLATE, raw.length);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] lz4(byte[] raw) {
+        LZ4Compressor compressor = LZ4.fastCompressor();
+        byte[] out = new byte[HEADER_LENGTH + compressor.maxCompressedLength(raw.length)];
+        out[0] = Algorithm.LZ4.id;
+        ByteBuffer.wrap(out, 1, 4).putInt(raw.length);
+        int written = compressor.compress(raw, 0, raw.length, out, HEADER_LENGTH);
+        byte[] result = new byte[HEADER_LENGTH + written];
+        System.arraycopy(out, 0, result, 0, result.length);
+        return result;
+    }
+
+    private static void writeHeader(ByteArrayOutputStream out, Algorithm algorithm, int length) {
+        out.write(algorithm.id);
+        out.write(length >>> 24);
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+    }
+}
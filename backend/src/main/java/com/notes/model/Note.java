@@ -1,12 +1,15 @@
 package com.notes.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.notes.metrics.EntityLoadCounter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.LazyGroup;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -17,15 +20,26 @@ import java.time.LocalDateTime;
 @Table(name = "notes", indexes = {
     @Index(name = "idx_category", columnList = "category"),
     @Index(name = "idx_created_at", columnList = "created_at"),
-    @Index(name = "idx_priority", columnList = "priority")
+    @Index(name = "idx_priority", columnList = "priority"),
+    @Index(name = "idx_updated_at_id", columnList = "updated_at, id"),
+    @Index(name = "idx_category_updated_at_id", columnList = "category, updated_at, id"),
+    @Index(name = "idx_priority_updated_at_id", columnList = "priority, updated_at, id")
+})
+@EntityListeners({AuditingEntityListener.class, EntityLoadCounter.class})
+@NamedEntityGraph(name = Note.WITH_CONTENT, attributeNodes = {
+    @NamedAttributeNode("content"),
+    @NamedAttributeNode("contentCompressed")
 })
-@EntityListeners(AuditingEntityListener.class)
 @NoArgsConstructor
 @Getter
 @Setter
 public class Note {
+
+    // Grafo para las consultas que necesitan el contenido (ver NoteRepository)
+    public static final String WITH_CONTENT = "Note.withContent";
+
+    // Lo asigna NoteIdGenerator antes del alta (el id indica el shard de la nota)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @NotBlank(message = "Title is mandatory")
@@ -33,9 +47,28 @@ public class Note {
     @Column(nullable = false)
     private String title;
 
+    // Contenido completo o, si está comprimido, solo su principio (vista previa y búsquedas LIKE).
+    // Perezoso: las dos columnas se cargan juntas (grupo "content") solo si se leen o la consulta lo pide
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("content")
     @Column(columnDefinition = "TEXT")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
     private String content;
 
+    // Contenido completo comprimido (ver ContentCodec); null si se guarda tal cual
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("content")
+    @Column(name = "content_compressed", columnDefinition = "MEDIUMBLOB")
+    @Setter(AccessLevel.NONE)
+    private byte[] contentCompressed;
+
+    // Se descomprime la primera vez que alguien lee el contenido
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String decodedContent;
+
     @Column(nullable = false)
     private boolean published = false;
 
@@ -57,6 +90,11 @@ public class Note {
     @Column(nullable = false)
     private Priority priority = Priority.MEDIUM;
 
+    // Bloqueo optimista; también sirve de ETag de la nota
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public enum Priority {
         LOW("Low"),
         MEDIUM("Medium"),
@@ -75,21 +113,48 @@ public class Note {
 
     public Note(String title, String content) {
         this.title = title;
-        this.content = content;
+        setContent(content);
         this.category = "General";
         this.priority = Priority.MEDIUM;
     }
 
     public Note(String title, String content, String category, Priority priority, boolean published) {
         this.title = title;
-        this.content = content;
+        setContent(content);
         this.category = category != null ? category : "General";
         this.priority = priority != null ? priority : Priority.MEDIUM;
         this.published = published;
     }
 
+    public String getContent() {
+        if (contentCompressed == null) {
+            return content;
+        }
+        if (decodedContent == null) {
+            decodedContent = ContentCodec.decode(contentCompressed);
+        }
+        return decodedContent;
+    }
+
+    public void setContent(String content) {
+        byte[] compressed = ContentCodec.encode(content);
+        this.contentCompressed = compressed;
+        this.content = compressed == null ? content : ContentCodec.prefix(content);
+        this.decodedContent = compressed == null ? null : content;
+    }
+
+    /** Valor de la columna {@code content} tal como se guarda (para las escrituras por JDBC). */
+    public String getStoredContent() {
+        return content;
+    }
+
     public void setCategory(String category) {
-        this.category = category != null && !category.trim().isEmpty() ? category : "General";
+        this.category = normalizeCategory(category);
+    }
+
+    /** Categoría que se guarda: sin categoría o en blanco queda en "General" (también en los UPDATE directos). */
+    public static String normalizeCategory(String category) {
+        return category != null && !category.trim().isEmpty() ? category : "General";
     }
     
     public void setPriority(Priority priority) {
@@ -103,6 +168,7 @@ public class Note {
                 ", title='" + title + '\'' +
                 ", category='" + category + '\'' +
                 ", priority=" + priority +
+                ", version=" + version +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 '}';
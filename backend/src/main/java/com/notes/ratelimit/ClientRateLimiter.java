@@ -0,0 +1,80 @@
+package com.notes.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cubo de tokens por cliente: se repone a {@code tokens-per-second} y admite ráfagas de hasta {@code burst}.
+ * <p>
+ * El estado de cada cliente es un único {@code long} que se actualiza con CAS, sin cerrojos (GCRA: el instante
+ * en que su cubo volvería a estar lleno). Los clientes viven en una caché Caffeine acotada que expira al cabo
+ * del tiempo de reponer una ráfaga completa sin peticiones: para entonces su cubo ya estaría lleno, así que
+ * olvidarlo no regala tokens. El tiempo (de los cubos y de la caducidad) lo da un {@link Ticker}, el del
+ * sistema salvo en las pruebas.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private final Cache<String, AtomicLong> clients;
+    private final long nanosPerToken;
+    private final int burst;
+    private final long burstNanos;
+    private final Ticker ticker;
+
+    @Autowired
+    public ClientRateLimiter(@Value("${notes.rate-limit.tokens-per-second:20}") double tokensPerSecond,
+                             @Value("${notes.rate-limit.burst:40}") int burst,
+                             @Value("${notes.rate-limit.max-clients:100000}") long maxClients) {
+        this(tokensPerSecond, burst, maxClients, Ticker.systemTicker());
+    }
+
+    ClientRateLimiter(double tokensPerSecond, int burst, long maxClients, Ticker ticker) {
+        if (tokensPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("notes.rate-limit.tokens-per-second and burst must be positive");
+        }
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        this.burst = burst;
+        this.burstNanos = nanosPerToken * burst;
+        this.ticker = ticker;
+        this.clients = Caffeine.newBuilder()
+                .ticker(ticker)
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(burstNanos).plusSeconds(1))
+                .build();
+    }
+
+    /**
+     * Consume {@code cost} tokens del cliente si los tiene. Un coste mayor que la ráfaga se limita a la ráfaga:
+     * la petición necesita el cubo lleno, pero no queda prohibida.
+     *
+     * @return 0 si se admite; si no, nanosegundos hasta que el cliente tenga tokens suficientes
+     */
+    public long tryAcquire(String client, int cost) {
+        AtomicLong fullAt = clients.get(client, key -> new AtomicLong(ticker.read()));
+        long increment = nanosPerToken * Math.min(Math.max(cost, 1), burst);
+        long now = ticker.read();
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + increment;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public long getTrackedClients() {
+        return clients.estimatedSize();
+    }
+}
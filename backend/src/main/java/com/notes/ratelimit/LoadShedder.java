@@ -0,0 +1,137 @@
+package com.notes.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.notes.datasource.BulkheadDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Descarte de carga adaptativo, común a todos los clientes.
+ * <ul>
+ *   <li>Con {@code max-in-flight} peticiones en curso se rechaza cualquier petición nueva.</li>
+ *   <li>Si la espera media por una conexión del último intervalo supera {@code max-pool-wait-ms}, se rechazan
+ *       las peticiones que cuestan más de {@code max-cost-under-pressure} tokens (listados completos, búsquedas,
+ *       exportaciones, lotes); las lecturas por id, las páginas y las escrituras sueltas siguen pasando.</li>
+ * </ul>
+ * La espera se calcula con el timer {@code hikaricp.connections.acquire}; si en el intervalo nadie consiguió
+ * conexión pero hay hilos esperando (en el pool o en el bulkhead), se toma el intervalo entero como espera.
+ */
+@Component
+public class LoadShedder {
+
+    public enum Decision { ADMIT, IN_FLIGHT, POOL_WAIT }
+
+    private final MeterRegistry meterRegistry;
+    private final DataSource dataSource;
+    private final int maxInFlight;
+    private final long maxPoolWaitMs;
+    private final int maxCostUnderPressure;
+    private final Ticker ticker;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong shedInFlight = new AtomicLong();
+    private final AtomicLong shedPoolWait = new AtomicLong();
+    private volatile double poolWaitMs;
+
+    // Solo los usa sample(), desde el hilo del planificador
+    private double lastAcquireTotalMs;
+    private long lastAcquireCount;
+    private long lastSampleNanos;
+
+    @Autowired
+    public LoadShedder(MeterRegistry meterRegistry, ObjectProvider<DataSource> dataSource,
+                       @Value("${notes.load-shedding.max-in-flight:200}") int maxInFlight,
+                       @Value("${notes.load-shedding.max-pool-wait-ms:200}") long maxPoolWaitMs,
+                       @Value("${notes.load-shedding.max-cost-under-pressure:1}") int maxCostUnderPressure) {
+        // Con el motor en memoria puede no haber base de datos: sin pool no hay espera que medir
+        this(meterRegistry, dataSource.getIfAvailable(), maxInFlight, maxPoolWaitMs, maxCostUnderPressure,
+                Ticker.systemTicker());
+    }
+
+    LoadShedder(MeterRegistry meterRegistry, DataSource dataSource, int maxInFlight, long maxPoolWaitMs,
+                int maxCostUnderPressure, Ticker ticker) {
+        this.meterRegistry = meterRegistry;
+        this.dataSource = dataSource;
+        this.maxInFlight = maxInFlight;
+        this.maxPoolWaitMs = maxPoolWaitMs;
+        this.maxCostUnderPressure = maxCostUnderPressure;
+        this.ticker = ticker;
+        this.lastSampleNanos = ticker.read();
+    }
+
+    /** Si devuelve {@link Decision#ADMIT}, la petición cuenta como en curso hasta llamar a {@link #exit()}. */
+    public Decision tryEnter(int cost) {
+        if (cost > maxCostUnderPressure && poolWaitMs > maxPoolWaitMs) {
+            shedPoolWait.incrementAndGet();
+            return Decision.POOL_WAIT;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            shedInFlight.incrementAndGet();
+            return Decision.IN_FLIGHT;
+        }
+        return Decision.ADMIT;
+    }
+
+    public void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${notes.load-shedding.sample-interval-ms:1000}")
+    public void sample() {
+        double totalMs = 0;
+        long count = 0;
+        for (Timer timer : meterRegistry.find("hikaricp.connections.acquire").timers()) {
+            totalMs += timer.totalTime(TimeUnit.MILLISECONDS);
+            count += timer.count();
+        }
+        long now = ticker.read();
+        long acquired = count - lastAcquireCount;
+        if (acquired > 0) {
+            poolWaitMs = (totalMs - lastAcquireTotalMs) / acquired;
+        } else {
+            poolWaitMs = waitingForConnection() > 0 ? TimeUnit.NANOSECONDS.toMillis(now - lastSampleNanos) : 0;
+        }
+        lastAcquireTotalMs = totalMs;
+        lastAcquireCount = count;
+        lastSampleNanos = now;
+    }
+
+    private int waitingForConnection() {
+        double pending = 0;
+        for (Gauge gauge : meterRegistry.find("hikaricp.connections.pending").gauges()) {
+            pending += gauge.value();
+        }
+        if (dataSource instanceof BulkheadDataSource bulkhead) {
+            pending += bulkhead.getWaiting();
+        }
+        return (int) pending;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getPoolWaitMs() {
+        return poolWaitMs;
+    }
+
+    public long getShedInFlight() {
+        return shedInFlight.get();
+    }
+
+    public long getShedPoolWait() {
+        return shedPoolWait.get();
+    }
+}
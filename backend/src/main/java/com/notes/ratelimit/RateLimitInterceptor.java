@@ -0,0 +1,111 @@
+package com.notes.ratelimit;
+
+import com.notes.exception.ServiceOverloadedException;
+import com.notes.exception.TooManyRequestsException;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Límite por cliente (429) y descarte de carga (503) delante de los controladores de la API.
+ * <p>
+ * Es un interceptor y no un filtro porque el coste depende del patrón del endpoint, que solo se conoce tras
+ * el mapeo. Las excepciones las traduce {@code GlobalExceptionHandler}, con {@code Retry-After}.
+ * El cliente es la cabecera {@code client-key-header} si se configura (solo tiene sentido si un gateway la
+ * valida) y si no la IP; detrás del balanceador la IP real llega con {@code server.forward-headers-strategy}.
+ */
+@Component
+public class RateLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ADMITTED = RateLimitInterceptor.class.getName() + ".admitted";
+
+    private final ClientRateLimiter rateLimiter;
+    private final LoadShedder loadShedder;
+    private final RequestCosts requestCosts;
+    private final boolean rateLimitEnabled;
+    private final boolean loadSheddingEnabled;
+    private final String clientKeyHeader;
+    private final long shedRetryAfterSeconds;
+    private final AtomicLong limited = new AtomicLong();
+
+    public RateLimitInterceptor(ClientRateLimiter rateLimiter, LoadShedder loadShedder, RequestCosts requestCosts,
+                                @Value("${notes.rate-limit.enabled:true}") boolean rateLimitEnabled,
+                                @Value("${notes.load-shedding.enabled:true}") boolean loadSheddingEnabled,
+                                @Value("${notes.rate-limit.client-key-header:}") String clientKeyHeader,
+                                @Value("${notes.load-shedding.retry-after-seconds:2}") long shedRetryAfterSeconds) {
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+        this.requestCosts = requestCosts;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.loadSheddingEnabled = loadSheddingEnabled;
+        this.clientKeyHeader = clientKeyHeader.isBlank() ? null : clientKeyHeader.trim();
+        this.shedRetryAfterSeconds = shedRetryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // El despacho final de una respuesta asíncrona (SSE) vuelve a pasar por aquí: ya se contó al entrar
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        int cost = requestCosts.costOf(request);
+        if (rateLimitEnabled) {
+            long waitNanos = rateLimiter.tryAcquire(clientKey(request), cost);
+            if (waitNanos > 0) {
+                limited.incrementAndGet();
+                throw new TooManyRequestsException("Rate limit exceeded, retry later", toRetryAfterSeconds(waitNanos));
+            }
+        }
+        if (loadSheddingEnabled) {
+            LoadShedder.Decision decision = loadShedder.tryEnter(cost);
+            if (decision != LoadShedder.Decision.ADMIT) {
+                throw new ServiceOverloadedException("Service temporarily overloaded, retry later", shedRetryAfterSeconds);
+            }
+            request.setAttribute(ADMITTED, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Una petición asíncrona ya no ocupa hilo: deja de contar como en curso
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    private void release(HttpServletRequest request) {
+        if (request.getAttribute(ADMITTED) != null) {
+            request.removeAttribute(ADMITTED);
+            loadShedder.exit();
+        }
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        if (clientKeyHeader != null) {
+            String key = request.getHeader(clientKeyHeader);
+            if (key != null && !key.isBlank()) {
+                return "key:" + key.trim();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public long getLimited() {
+        return limited.get();
+    }
+}
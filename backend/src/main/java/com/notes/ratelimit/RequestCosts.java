@@ -0,0 +1,53 @@
+package com.notes.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tokens que cuesta cada endpoint. Se configura en {@code notes.rate-limit.costs} como una lista
+ * {@code MÉTODO patrón=coste} separada por comas, con el patrón tal como aparece en el controlador
+ * (p. ej. {@code GET /api/notes/category/{category}=5}). Las peticiones paginadas ({@code ?limit=})
+ * cuestan {@code paged-cost} aunque su endpoint sin paginar sea caro.
+ */
+@Component
+public class RequestCosts {
+
+    private final Map<String, Integer> costs = new HashMap<>();
+    private final int defaultCost;
+    private final int pagedCost;
+
+    public RequestCosts(@Value("${notes.rate-limit.costs:}") String costs,
+                        @Value("${notes.rate-limit.default-cost:1}") int defaultCost,
+                        @Value("${notes.rate-limit.paged-cost:1}") int pagedCost) {
+        this.defaultCost = defaultCost;
+        this.pagedCost = pagedCost;
+        for (String entry : costs.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int eq = entry.lastIndexOf('=');
+            String[] route = eq < 0 ? new String[0] : entry.substring(0, eq).trim().split("\\s+");
+            if (route.length != 2) {
+                throw new IllegalArgumentException("Invalid notes.rate-limit.costs entry: " + entry.trim());
+            }
+            this.costs.put(route[0].toUpperCase() + " " + route[1], Integer.parseInt(entry.substring(eq + 1).trim()));
+        }
+    }
+
+    /** Coste de la petición; el patrón lo deja el mapeo de handlers, así que solo vale desde un interceptor. */
+    public int costOf(HttpServletRequest request) {
+        if (request.getParameter("limit") != null) {
+            return pagedCost;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return defaultCost;
+        }
+        return costs.getOrDefault(request.getMethod() + " " + pattern, defaultCost);
+    }
+}
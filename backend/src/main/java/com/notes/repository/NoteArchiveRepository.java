@@ -0,0 +1,114 @@
+package com.notes.repository;
+
+import com.notes.dto.NoteDto;
+import com.notes.model.ContentCodec;
+import com.notes.model.Note;
+import com.notes.store.ConditionalOnJpaStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tabla {@code notes_archive} (nivel frío) por JDBC: mover notas entre las dos tablas y leer las archivadas.
+ * Las consultas de {@link NoteRepository} nunca la leen; participa en la transacción en curso.
+ */
+@Repository
+@ConditionalOnJpaStore
+public class NoteArchiveRepository {
+
+    private static final String COLUMNS =
+            "id, title, content, content_compressed, published, created_at, updated_at, category, priority, version";
+
+    private static final String ARCHIVE_SQL =
+            "INSERT INTO notes_archive (" + COLUMNS + ", archived_at) SELECT " + COLUMNS + ", ? FROM notes WHERE id IN (%s)";
+    private static final String DELETE_HOT_SQL = "DELETE FROM notes WHERE id IN (%s)";
+
+    // Al restaurar la nota cuenta como modificada: nueva versión (ETag) y updated_at actual, para que el
+    // siguiente archivado no la devuelva enseguida al nivel frío
+    private static final String RESTORE_SQL =
+            "INSERT INTO notes (id, title, content, content_compressed, published, created_at, updated_at, category, priority, version) " +
+            "SELECT id, title, content, content_compressed, published, created_at, ?, category, priority, version + 1 " +
+            "FROM notes_archive WHERE id = ?";
+    private static final String DELETE_ARCHIVED_SQL = "DELETE FROM notes_archive WHERE id = ?";
+
+    private static final String SELECT_BY_ID_SQL = "SELECT " + COLUMNS + " FROM notes_archive WHERE id = ?";
+
+    private static final RowMapper<NoteDto> NOTE_MAPPER = (rs, rowNum) -> {
+        NoteDto note = new NoteDto();
+        note.setId(rs.getLong("id"));
+        note.setTitle(rs.getString("title"));
+        byte[] compressed = rs.getBytes("content_compressed");
+        note.setContent(compressed == null ? rs.getString("content") : ContentCodec.decode(compressed));
+        note.setPublished(rs.getBoolean("published"));
+        note.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        note.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        note.setCategory(rs.getString("category"));
+        note.setPriority(Note.Priority.valueOf(rs.getString("priority")));
+        note.setVersion(rs.getLong("version"));
+        return note;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NoteArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Copia las notas a la tabla de archivo y las borra de {@code notes}; devuelve las filas movidas. */
+    public int archive(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS)));
+        args.addAll(ids);
+        int archived = jdbcTemplate.update(String.format(ARCHIVE_SQL, placeholders), args.toArray());
+        jdbcTemplate.update(String.format(DELETE_HOT_SQL, placeholders), ids.toArray());
+        return archived;
+    }
+
+    /** Devuelve la nota a {@code notes}; {@code false} si no está archivada. */
+    public boolean restore(Long id, LocalDateTime updatedAt) {
+        if (jdbcTemplate.update(RESTORE_SQL, Timestamp.valueOf(updatedAt.truncatedTo(ChronoUnit.MICROS)), id) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(DELETE_ARCHIVED_SQL, id);
+        return true;
+    }
+
+    public Optional<NoteDto> findById(Long id) {
+        return jdbcTemplate.query(SELECT_BY_ID_SQL, NOTE_MAPPER, id).stream().findFirst();
+    }
+
+    /** Como {@link NoteRepository#findByFilters}: todos los filtros admiten {@code null}. */
+    public List<NoteDto> findByFilters(String keyword, String category, Note.Priority priority) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM notes_archive WHERE 1 = 1");
+        List<Object> args = new ArrayList<>(4);
+        if (keyword != null) {
+            String pattern = "%" + keyword.toLowerCase() + "%";
+            sql.append(" AND (LOWER(title) LIKE ? OR LOWER(content) LIKE ?)");
+            args.add(pattern);
+            args.add(pattern);
+        }
+        if (category != null) {
+            sql.append(" AND category = ?");
+            args.add(category);
+        }
+        if (priority != null) {
+            sql.append(" AND priority = ?");
+            args.add(priority.name());
+        }
+        sql.append(" ORDER BY updated_at DESC, id DESC");
+        return jdbcTemplate.query(sql.toString(), NOTE_MAPPER, args.toArray());
+    }
+}
@@ -0,0 +1,125 @@
+package com.notes.repository;
+
+import com.notes.dto.UpdateNoteDto;
+import com.notes.model.ContentCodec;
+import com.notes.model.Note;
+import com.notes.store.ConditionalOnJpaStore;
+import com.notes.store.PartialUpdate;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escrituras masivas por JDBC, sin pasar por el contexto de persistencia. Los INSERT se envían como un único
+ * batch; con {@code rewriteBatchedStatements=true} el driver de MySQL lo reescribe como INSERT multi-fila.
+ */
+@Repository
+@ConditionalOnJpaStore
+public class NoteBatchWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notes (id, title, content, content_compressed, category, priority, published, created_at, updated_at, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    // Solo cambian las columnas enviadas; la versión sube una vez por cada edición agrupada.
+    // El contenido son dos columnas (texto o principio + comprimido): se sustituyen juntas o ninguna
+    private static final String PARTIAL_UPDATE_SQL =
+            "UPDATE notes SET title = COALESCE(?, title), " +
+            "content = CASE WHEN ? = 1 THEN ? ELSE content END, " +
+            "content_compressed = CASE WHEN ? = 1 THEN ? ELSE content_compressed END, " +
+            "category = COALESCE(?, category), published = COALESCE(?, published), " +
+            "updated_at = ?, version = version + ? WHERE id = ? AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NoteBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Inserta las notas (con el id ya asignado) y les pone las fechas de auditoría. Participa en la transacción en curso. */
+    public void insertAll(List<Note> notes) {
+        if (notes.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Note note = notes.get(i);
+                ps.setLong(1, note.getId());
+                ps.setString(2, note.getTitle());
+                ps.setString(3, note.getStoredContent());
+                ps.setBytes(4, note.getContentCompressed());
+                ps.setString(5, note.getCategory());
+                ps.setString(6, note.getPriority().name());
+                ps.setBoolean(7, note.isPublished());
+                ps.setTimestamp(8, timestamp);
+                ps.setTimestamp(9, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return notes.size();
+            }
+        });
+
+        for (Note note : notes) {
+            note.setCreatedAt(now);
+            note.setUpdatedAt(now);
+        }
+    }
+
+    /**
+     * Aplica cambios parciales en un único batch de UPDATE, sin cargar las entidades. Participa en la
+     * transacción en curso; las notas que ya no existen o han cambiado de versión no se actualizan ({@code false}).
+     */
+    public List<Boolean> updatePartial(List<PartialUpdate> updates) {
+        if (updates.isEmpty()) {
+            return List.of();
+        }
+        int[] counts = jdbcTemplate.batchUpdate(PARTIAL_UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PartialUpdate update = updates.get(i);
+                UpdateNoteDto changes = update.getChanges();
+                String content = changes.getContent();
+                byte[] compressed = ContentCodec.encode(content);
+                int contentChanged = content != null ? 1 : 0;
+                ps.setObject(1, changes.getTitle(), Types.VARCHAR);
+                ps.setInt(2, contentChanged);
+                ps.setObject(3, compressed == null ? content : ContentCodec.prefix(content), Types.VARCHAR);
+                ps.setInt(4, contentChanged);
+                ps.setBytes(5, compressed);
+                ps.setObject(6, changes.getCategory(), Types.VARCHAR);
+                ps.setObject(7, changes.getPublished(), Types.BOOLEAN);
+                ps.setTimestamp(8, Timestamp.valueOf(update.getUpdatedAt().truncatedTo(ChronoUnit.MICROS)));
+                ps.setInt(9, update.getVersionIncrement());
+                ps.setLong(10, update.getId());
+                ps.setLong(11, update.getExpectedVersion());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return updates.size();
+            }
+        });
+        // SUCCESS_NO_INFO: el driver no informa de las filas, se da por aplicado
+        List<Boolean> applied = new ArrayList<>(counts.length);
+        for (int count : counts) {
+            applied.add(count > 0 || count == Statement.SUCCESS_NO_INFO);
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,22 @@
+package com.notes.repository;
+
+import com.notes.dto.TimeBucketCount;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Recuentos de notas por intervalos de tiempo en una única consulta agrupada.
+ */
+public interface NoteHistogramRepository {
+
+    /**
+     * Notas con {@code timestamp} en {@code [from, to)} agrupadas por hora ({@code hourly}) o por día y,
+     * opcionalmente, por {@code groupBy}.
+     *
+     * @param timestamp atributo de fecha: {@code createdAt} o {@code updatedAt}
+     * @param groupBy   {@code category}, {@code priority} o {@code null} para no desglosar
+     */
+    List<TimeBucketCount> countByTimeBucket(String timestamp, boolean hourly, String groupBy,
+                                            LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,60 @@
+package com.notes.repository;
+
+import com.notes.dto.TimeBucketCount;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class NoteHistogramRepositoryImpl implements NoteHistogramRepository {
+
+    // La consulta se compone con nombres de atributos: solo se aceptan estos
+    private static final Set<String> TIMESTAMPS = Set.of("createdAt", "updatedAt");
+    private static final Set<String> GROUPS = Set.of("category", "priority");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TimeBucketCount> countByTimeBucket(String timestamp, boolean hourly, String groupBy,
+                                                   LocalDateTime from, LocalDateTime to) {
+        if (!TIMESTAMPS.contains(timestamp) || (groupBy != null && !GROUPS.contains(groupBy))) {
+            throw new IllegalArgumentException("Unsupported histogram attributes: " + timestamp + ", " + groupBy);
+        }
+        // year/month/day/hour se traducen a EXTRACT: agrupa por la fecha tal cual está guardada,
+        // sin depender de la zona horaria de la sesión ni de funciones propias de cada base de datos
+        String t = "n." + timestamp;
+        StringBuilder keys = new StringBuilder()
+                .append("year(").append(t).append("), month(").append(t).append("), day(").append(t).append(")");
+        if (hourly) {
+            keys.append(", hour(").append(t).append(")");
+        }
+        if (groupBy != null) {
+            keys.append(", n.").append(groupBy);
+        }
+        String jpql = "SELECT " + keys + ", COUNT(n) FROM Note n " +
+                "WHERE " + t + " >= :from AND " + t + " < :to GROUP BY " + keys;
+
+        List<Tuple> rows = entityManager.createQuery(jpql, Tuple.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+
+        List<TimeBucketCount> counts = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            int column = 0;
+            int year = row.get(column++, Integer.class);
+            int month = row.get(column++, Integer.class);
+            int day = row.get(column++, Integer.class);
+            int hour = hourly ? row.get(column++, Integer.class) : 0;
+            String group = groupBy != null ? String.valueOf(row.get(column++)) : null;
+            long total = row.get(column, Long.class);
+            counts.add(new TimeBucketCount(LocalDateTime.of(year, month, day, hour, 0), group, total));
+        }
+        return counts;
+    }
+}
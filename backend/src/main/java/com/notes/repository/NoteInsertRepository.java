@@ -0,0 +1,15 @@
+package com.notes.repository;
+
+import com.notes.model.Note;
+
+/**
+ * Altas con el id ya asignado (ver {@code NoteIdGenerator}).
+ */
+public interface NoteInsertRepository {
+
+    /**
+     * {@code persist} directo: con el id relleno, {@code save} tomaría la nota por existente y haría un
+     * {@code merge} (una SELECT antes del INSERT).
+     */
+    Note insert(Note note);
+}
@@ -0,0 +1,17 @@
+package com.notes.repository;
+
+import com.notes.model.Note;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class NoteInsertRepositoryImpl implements NoteInsertRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Note insert(Note note) {
+        entityManager.persist(note);
+        return note;
+    }
+}
@@ -1,37 +1,163 @@
 // src/main/java/com/notes/repository/NoteRepository.java
 package com.notes.repository;
 
+import com.notes.dto.CategoryPriorityCount;
+import com.notes.dto.NoteSummaryDto;
 import com.notes.model.Note;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface NoteRepository extends JpaRepository<Note, Long> {
+public interface NoteRepository extends JpaRepository<Note, Long>, NoteStreamingRepository, NoteUpdateRepository,
+        NoteInsertRepository, NoteHistogramRepository {
     
+    // Las consultas que devuelven notas completas (NoteDto) cargan el contenido en la misma SELECT;
+    // findById y las de solo metadatos lo dejan sin cargar (Note.content es perezoso)
+    @EntityGraph(Note.WITH_CONTENT)
+    List<Note> findAll(Sort sort);
+
+    @EntityGraph(Note.WITH_CONTENT)
+    List<Note> findAllById(Iterable<Long> ids);
+
+    @EntityGraph(Note.WITH_CONTENT)
+    @Query("SELECT n FROM Note n WHERE n.id = :id")
+    Optional<Note> findWithContentById(@Param("id") Long id);
+
+    // Solo metadatos, para las bajas masivas
+    List<Note> findByIdIn(Collection<Long> ids);
+
+    // Baja directa, sin pasar por la entidad: 0 filas si no existe o ha cambiado de versión
+    @Modifying
+    @Query("DELETE FROM Note n WHERE n.id = :id AND n.version = :version")
+    int deleteByIdAndVersion(@Param("id") Long id, @Param("version") long version);
+
     // Búsquedas básicas
+    @EntityGraph(Note.WITH_CONTENT)
     List<Note> findByCategory(String category, Sort sort);
+    @EntityGraph(Note.WITH_CONTENT)
     List<Note> findByPriority(Note.Priority priority, Sort sort);
     
-    // Búsqueda por palabras clave
+    // Búsqueda por palabras clave (respaldo SQL mientras el índice de búsqueda no está listo).
+    // En las notas con contenido comprimido LIKE solo ve su principio; el índice ve el texto completo
+    @EntityGraph(Note.WITH_CONTENT)
     @Query("SELECT n FROM Note n WHERE LOWER(n.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(n.content) LIKE LOWER(CONCAT('%', :keyword, '%')) ORDER BY n.updatedAt DESC")
     List<Note> findByKeyword(@Param("keyword") String keyword);
     
-    // Búsqueda combinada
+    // Búsqueda combinada (respaldo SQL)
+    @EntityGraph(Note.WITH_CONTENT)
     @Query("SELECT n FROM Note n WHERE " +
            "(:keyword IS NULL OR LOWER(n.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(n.content) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
            "(:category IS NULL OR n.category = :category) AND " +
            "(:priority IS NULL OR n.priority = :priority) " +
-           "ORDER BY n.updatedAt DESC")
+           "ORDER BY n.updatedAt DESC, n.id DESC")
     List<Note> findByFilters(@Param("keyword") String keyword, 
                            @Param("category") String category, 
                            @Param("priority") Note.Priority priority);
     
+    // Filtros sobre los candidatos devueltos por el índice de búsqueda
+    @EntityGraph(Note.WITH_CONTENT)
+    @Query("SELECT n FROM Note n WHERE n.id IN :ids AND " +
+           "(:category IS NULL OR n.category = :category) AND " +
+           "(:priority IS NULL OR n.priority = :priority) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<Note> findByIdInAndFilters(@Param("ids") Collection<Long> ids,
+                                    @Param("category") String category,
+                                    @Param("priority") Note.Priority priority);
+    
+    // Paginación por cursor entre los candidatos del índice de búsqueda: primera página
+    @EntityGraph(Note.WITH_CONTENT)
+    @Query("SELECT n FROM Note n WHERE n.id IN :ids AND " +
+           "(:category IS NULL OR n.category = :category) AND " +
+           "(:priority IS NULL OR n.priority = :priority) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<Note> findFirstPageByIdIn(@Param("ids") Collection<Long> ids,
+                                   @Param("category") String category,
+                                   @Param("priority") Note.Priority priority,
+                                   Pageable pageable);
+
+    // Paginación por cursor entre los candidatos del índice de búsqueda: páginas siguientes
+    @EntityGraph(Note.WITH_CONTENT)
+    @Query("SELECT n FROM Note n WHERE n.id IN :ids AND " +
+           "(n.updatedAt < :updatedAt OR (n.updatedAt = :updatedAt AND n.id < :id)) AND " +
+           "(:category IS NULL OR n.category = :category) AND " +
+           "(:priority IS NULL OR n.priority = :priority) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<Note> findPageByIdInAfter(@Param("ids") Collection<Long> ids,
+                                   @Param("updatedAt") LocalDateTime updatedAt,
+                                   @Param("id") Long id,
+                                   @Param("category") String category,
+                                   @Param("priority") Note.Priority priority,
+                                   Pageable pageable);
+
+    // Recorrido por lotes (reconstrucción del índice de búsqueda)
+    @EntityGraph(Note.WITH_CONTENT)
+    List<Note> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Cambios posteriores a (updatedAt, id), del más antiguo al más reciente (puesta al día del índice)
+    @EntityGraph(Note.WITH_CONTENT)
+    @Query("SELECT n FROM Note n WHERE " +
+           "n.updatedAt > :updatedAt OR (n.updatedAt = :updatedAt AND n.id > :id) " +
+           "ORDER BY n.updatedAt ASC, n.id ASC")
+    List<Note> findUpdatedAfter(@Param("updatedAt") LocalDateTime updatedAt,
+                                @Param("id") Long id,
+                                Pageable pageable);
+    
+    // Paginación por cursor (keyset) sobre (updatedAt, id): primera página
+    @EntityGraph(Note.WITH_CONTENT)
+    @Query("SELECT n FROM Note n WHERE " +
+           "(:category IS NULL OR n.category = :category) AND " +
+           "(:priority IS NULL OR n.priority = :priority) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<Note> findFirstPage(@Param("category") String category,
+                             @Param("priority") Note.Priority priority,
+                             Pageable pageable);
+
+    // Paginación por cursor: páginas siguientes, buscando a partir de la última fila vista
+    @EntityGraph(Note.WITH_CONTENT)
+    @Query("SELECT n FROM Note n WHERE " +
+           "(n.updatedAt < :updatedAt OR (n.updatedAt = :updatedAt AND n.id < :id)) AND " +
+           "(:category IS NULL OR n.category = :category) AND " +
+           "(:priority IS NULL OR n.priority = :priority) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<Note> findPageAfter(@Param("updatedAt") LocalDateTime updatedAt,
+                             @Param("id") Long id,
+                             @Param("category") String category,
+                             @Param("priority") Note.Priority priority,
+                             Pageable pageable);
+    
+    // Listados resumidos: proyección por constructor que no lee la columna content
+    @Query("SELECT new com.notes.dto.NoteSummaryDto(n.id, n.title, n.category, n.priority, n.published, n.createdAt, n.updatedAt) " +
+           "FROM Note n WHERE " +
+           "(:category IS NULL OR n.category = :category) AND " +
+           "(:priority IS NULL OR n.priority = :priority) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<NoteSummaryDto> findSummaries(@Param("category") String category,
+                                       @Param("priority") Note.Priority priority,
+                                       Pageable pageable);
+
+    // Igual que findSummaries, con los primeros caracteres del contenido
+    @Query("SELECT new com.notes.dto.NoteSummaryDto(n.id, n.title, n.category, n.priority, n.published, n.createdAt, n.updatedAt, " +
+           "SUBSTRING(n.content, 1, " + NoteSummaryDto.PREVIEW_LENGTH + ")) " +
+           "FROM Note n WHERE " +
+           "(:category IS NULL OR n.category = :category) AND " +
+           "(:priority IS NULL OR n.priority = :priority) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<NoteSummaryDto> findSummariesWithPreview(@Param("category") String category,
+                                                  @Param("priority") Note.Priority priority,
+                                                  Pageable pageable);
+    
     // Obtener categorías únicas
     @Query("SELECT DISTINCT n.category FROM Note n WHERE n.category IS NOT NULL ORDER BY n.category ASC")
     List<String> findDistinctCategories();
@@ -43,11 +169,33 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     @Query("SELECT COUNT(n) FROM Note n WHERE n.category = :category")
     Long countByCategory(@Param("category") String category);
     
-    // Notas recientes
-    List<Note> findTop10ByOrderByUpdatedAtDesc();
+    // Todos los contadores (por categoría y prioridad) en una única consulta agrupada
+    @Query("SELECT new com.notes.dto.CategoryPriorityCount(n.category, n.priority, COUNT(n)) " +
+           "FROM Note n GROUP BY n.category, n.priority")
+    List<CategoryPriorityCount> countGroupedByCategoryAndPriority();
+    
+    // Notas por rango de fechas de creación (idx_created_at), en orden (createdAt DESC, id DESC):
+    // primera página y páginas siguientes a partir de la última fila vista
+    @EntityGraph(Note.WITH_CONTENT)
+    List<Note> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
+
+    @EntityGraph(Note.WITH_CONTENT)
+    @Query("SELECT n FROM Note n WHERE n.createdAt >= :start AND " +
+           "(n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Note> findCreatedPageAfter(@Param("start") LocalDateTime start,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
     
-    // Notas por rango de fechas
-    List<Note> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end, Sort sort);
+    // Archivado (ver NoteArchiver): notas sin modificar desde "before", de la más antigua a la más reciente
+    // (idx_updated_at_id). Solo metadatos
+    List<Note> findByUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(LocalDateTime before, Pageable pageable);
+
+    // Bloquea (SELECT ... FOR UPDATE) las que siguen sin modificar mientras se mueven a notes_archive
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n FROM Note n WHERE n.id IN :ids AND n.updatedAt < :before")
+    List<Note> lockNotUpdatedSince(@Param("ids") Collection<Long> ids, @Param("before") LocalDateTime before);
     
     // Buscar por ID con validación
     @Query("SELECT n FROM Note n WHERE n.id = :id")
@@ -0,0 +1,78 @@
+package com.notes.repository;
+
+import com.notes.store.ConditionalOnJpaStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revisión de la tabla de notas ({@code notes_revision}): la suma de sus filas crece en cada transacción que
+ * escribe notas, sin depender de los relojes ni de la precisión de {@code updated_at}. Sirve de ETag de los
+ * listados. Cada transacción suma 1 a una fila al azar justo antes del commit: el bloqueo de la fila dura
+ * solo el commit y las escrituras concurrentes se reparten entre {@link #SLOTS} filas.
+ * <p>
+ * También cuenta las transacciones confirmadas por esta instancia ({@link #getLocalChanges()}): lo que suba
+ * la revisión por encima de eso lo han escrito otras.
+ */
+@Repository
+@ConditionalOnJpaStore
+public class NoteRevisionRepository {
+
+    // Las filas que crea la migración V5
+    static final int SLOTS = 16;
+
+    private static final String BUMP_SQL = "UPDATE notes_revision SET revision = revision + 1 WHERE slot = ?";
+    private static final String SELECT_SQL = "SELECT COALESCE(SUM(revision), 0) FROM notes_revision";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong localChanges = new AtomicLong();
+
+    public NoteRevisionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** La transacción en curso ha modificado notas; la revisión sube una vez al confirmarla. */
+    public void markChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump();
+            localChanges.incrementAndGet();
+            return;
+        }
+        boolean registered = TransactionSynchronizationManager.getSynchronizations().stream()
+                .anyMatch(synchronization -> synchronization instanceof RevisionBump);
+        if (!registered) {
+            TransactionSynchronizationManager.registerSynchronization(new RevisionBump());
+        }
+    }
+
+    public long current() {
+        Long revision = jdbcTemplate.queryForObject(SELECT_SQL, Long.class);
+        return revision != null ? revision : 0;
+    }
+
+    /** Transacciones de esta instancia que han subido la revisión desde el arranque (se cuentan tras el commit). */
+    public long getLocalChanges() {
+        return localChanges.get();
+    }
+
+    private void bump() {
+        jdbcTemplate.update(BUMP_SQL, ThreadLocalRandom.current().nextInt(SLOTS));
+    }
+
+    // En la propia transacción: si el commit falla, la revisión tampoco cambia
+    private final class RevisionBump implements TransactionSynchronization {
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            bump();
+        }
+
+        @Override
+        public void afterCommit() {
+            localChanges.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.notes.repository;
+
+import com.notes.model.Note;
+
+import java.util.stream.Stream;
+
+/**
+ * Lecturas de solo avance para recorrer la tabla completa sin materializarla en memoria.
+ */
+public interface NoteStreamingRepository {
+
+    /**
+     * Recorre todas las notas por id ascendente. Cada entidad se desvincula del contexto de
+     * persistencia al consumirse. Debe usarse dentro de una transacción y cerrarse al terminar.
+     */
+    Stream<Note> streamAll(int fetchSize);
+}
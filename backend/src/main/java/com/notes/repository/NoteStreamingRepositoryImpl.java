@@ -0,0 +1,26 @@
+package com.notes.repository;
+
+import com.notes.model.Note;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+
+import java.util.stream.Stream;
+
+public class NoteStreamingRepositoryImpl implements NoteStreamingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Note> streamAll(int fetchSize) {
+        return entityManager.createQuery("SELECT n FROM Note n ORDER BY n.id", Note.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                // El contenido se lee en la misma consulta: la entidad se desvincula antes de usarla
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, entityManager.getEntityGraph(Note.WITH_CONTENT))
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+}
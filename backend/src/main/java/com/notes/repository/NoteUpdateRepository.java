@@ -0,0 +1,19 @@
+package com.notes.repository;
+
+import com.notes.dto.UpdateNoteDto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Actualizaciones parciales sin cargar la entidad.
+ */
+public interface NoteUpdateRepository {
+
+    /**
+     * {@code UPDATE} solo de los campos no nulos de {@code changes}, más {@code updated_at} y la versión,
+     * si la nota sigue en {@code expectedVersion}.
+     *
+     * @return filas actualizadas: 0 si la nota no existe o ha cambiado de versión
+     */
+    int updateFields(Long id, long expectedVersion, UpdateNoteDto changes, LocalDateTime updatedAt);
+}
@@ -0,0 +1,50 @@
+package com.notes.repository;
+
+import com.notes.dto.UpdateNoteDto;
+import com.notes.model.Note;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+
+public class NoteUpdateRepositoryImpl implements NoteUpdateRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int updateFields(Long id, long expectedVersion, UpdateNoteDto changes, LocalDateTime updatedAt) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Note> update = cb.createCriteriaUpdate(Note.class);
+        Root<Note> note = update.from(Note.class);
+
+        if (changes.getTitle() != null) {
+            update.set(note.<String>get("title"), changes.getTitle());
+        }
+        if (changes.getContent() != null) {
+            // Las dos columnas del contenido van juntas: texto completo, o principio + comprimido
+            Note encoded = new Note();
+            encoded.setContent(changes.getContent());
+            update.set(note.<String>get("content"), encoded.getStoredContent());
+            if (encoded.getContentCompressed() != null) {
+                update.set(note.<byte[]>get("contentCompressed"), encoded.getContentCompressed());
+            } else {
+                update.set(note.<byte[]>get("contentCompressed"), cb.nullLiteral(byte[].class));
+            }
+        }
+        if (changes.getCategory() != null) {
+            update.set(note.<String>get("category"), Note.normalizeCategory(changes.getCategory()));
+        }
+        if (changes.getPublished() != null) {
+            update.set(note.<Boolean>get("published"), changes.getPublished());
+        }
+        update.set(note.<LocalDateTime>get("updatedAt"), updatedAt);
+        update.set(note.<Long>get("version"), cb.sum(note.<Long>get("version"), 1L));
+        update.where(cb.equal(note.get("id"), id), cb.equal(note.get("version"), expectedVersion));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -0,0 +1,162 @@
+package com.notes.service;
+
+import com.notes.datasource.ShardContext;
+import com.notes.datasource.ShardRoutingDataSource;
+import com.notes.model.ContentCodec;
+import com.notes.store.ConditionalOnJpaStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Comprime en segundo plano el contenido largo de las notas guardadas antes de activar la compresión.
+ * <p>
+ * Recorre la tabla (la de cada shard, si hay varios) por id en lotes pequeños, con una pausa entre lotes
+ * para no competir con el tráfico.
+ * Cada fila se actualiza solo si su versión no ha cambiado desde la lectura, y sin tocar ni la versión
+ * ni {@code updated_at}: el contenido es el mismo, así que cachés, ETags y listados siguen siendo válidos.
+ */
+@Component
+@ConditionalOnJpaStore
+public class ContentCompressionMigrator implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentCompressionMigrator.class);
+
+    private static final String SELECT_SQL =
+            "SELECT id, content, version FROM notes " +
+            "WHERE id > ? AND content_compressed IS NULL AND OCTET_LENGTH(content) >= ? ORDER BY id LIMIT ?";
+    // updated_at = updated_at evita el ON UPDATE CURRENT_TIMESTAMP de MySQL
+    private static final String UPDATE_SQL =
+            "UPDATE notes SET content = ?, content_compressed = ?, updated_at = updated_at " +
+            "WHERE id = ? AND version = ? AND content_compressed IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int shardCount;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pauseMs;
+
+    private final AtomicLong compressedRows = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private volatile boolean finished;
+
+    public ContentCompressionMigrator(JdbcTemplate jdbcTemplate, ObjectProvider<ShardRoutingDataSource> shards,
+                                      @Value("${notes.content.compression.migration.enabled:true}") boolean enabled,
+                                      @Value("${notes.content.compression.migration.batch-size:200}") int batchSize,
+                                      @Value("${notes.content.compression.migration.pause-ms:200}") long pauseMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        ShardRoutingDataSource routing = shards.getIfAvailable();
+        this.shardCount = routing == null ? 1 : routing.getShardCount();
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || ContentCodec.getAlgorithm() == ContentCodec.Algorithm.NONE) {
+            finished = true;
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "content-compression-migrator");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    void migrate() {
+        long start = System.currentTimeMillis();
+        try {
+            for (int shard = 0; shard < shardCount; shard++) {
+                int current = shard;
+                if (!ShardContext.call(shard, () -> migrateShard(current))) {
+                    return;
+                }
+            }
+            log.info("Content compression migration finished: {} notes compressed in {} ms",
+                    compressedRows.get(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Content compression migration stopped; it resumes on the next start", e);
+        } finally {
+            finished = true;
+        }
+    }
+
+    // Devuelve false si se interrumpió
+    private boolean migrateShard(int shard) {
+        long lastId = 0;
+        try {
+            List<Row> batch;
+            do {
+                batch = jdbcTemplate.query(SELECT_SQL,
+                        (rs, rowNum) -> new Row(rs.getLong("id"), rs.getString("content"), rs.getLong("version")),
+                        lastId, ContentCodec.getThresholdBytes(), batchSize);
+                List<Object[]> updates = new ArrayList<>(batch.size());
+                List<Long> savings = new ArrayList<>(batch.size());
+                for (Row row : batch) {
+                    lastId = row.id;
+                    byte[] compressed = ContentCodec.encode(row.content);
+                    if (compressed != null) {
+                        String prefix = ContentCodec.prefix(row.content);
+                        updates.add(new Object[]{prefix, compressed, row.id, row.version});
+                        savings.add((long) row.content.getBytes(StandardCharsets.UTF_8).length
+                                - compressed.length - prefix.getBytes(StandardCharsets.UTF_8).length);
+                    }
+                }
+                if (!updates.isEmpty()) {
+                    int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+                    for (int i = 0; i < counts.length; i++) {
+                        // Una nota editada entre la lectura y la escritura ya se guardó comprimida al editarla
+                        if (counts[i] != 0) {
+                            compressedRows.incrementAndGet();
+                            bytesSaved.addAndGet(savings.get(i));
+                        }
+                    }
+                }
+                if (batch.size() == batchSize && pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            } while (batch.size() == batchSize);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Stopped at note " + lastId + " of shard " + shard, e);
+        }
+    }
+
+    public long getCompressedRows() {
+        return compressedRows.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private static final class Row {
+        private final long id;
+        private final String content;
+        private final long version;
+
+        private Row(long id, String content, long version) {
+            this.id = id;
+            this.content = content;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.notes.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria: término -> (id de nota -> frecuencia ponderada).
+ * Las palabras del título pesan más que las del contenido y el ranking es un TF-IDF simple.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.search.engine", havingValue = "memory", matchIfMissing = true)
+public class InMemoryNoteSearchIndex implements NoteSearchIndex {
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    // El orden lexicográfico de los términos permite resolver prefijos con subMap
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Set<String>> termsByNote = new HashMap<>();
+    // Versión indexada de cada nota
+    private final Map<Long, Long> versions = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : NON_WORD.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    @Override
+    public void index(Long id, long version, String title, String content) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(title)) {
+            frequencies.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(content)) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Long indexed = versions.get(id);
+            if (indexed != null && indexed > version) {
+                return;
+            }
+            removeUnlocked(id);
+            frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+            termsByNote.put(id, frequencies.keySet());
+            versions.put(id, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(Long id) {
+        versions.remove(id);
+        Set<String> terms = termsByNote.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsByNote.clear();
+            versions.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int totalDocs = Math.max(1, termsByNote.size());
+            Map<Long, Double> scores = null;
+            for (String term : queryTerms) {
+                Map<Long, Double> termScores = scoreTerm(term, totalDocs);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Todos los términos deben aparecer en la nota
+                    Map<Long, Double> partial = termScores;
+                    scores.keySet().retainAll(partial.keySet());
+                    scores.replaceAll((id, score) -> score + partial.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreTerm(String term, int totalDocs) {
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Long, Integer>> entry
+                : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            double factor = entry.getKey().equals(term) ? 1.0 : PREFIX_MATCH_FACTOR;
+            Map<Long, Integer> docs = entry.getValue();
+            double idf = Math.log(1.0 + (double) totalDocs / docs.size());
+            docs.forEach((id, tf) -> scores.merge(id, tf * idf * factor, Double::sum));
+        }
+        return scores;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termsByNote.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
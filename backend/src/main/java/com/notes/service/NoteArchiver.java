@@ -0,0 +1,122 @@
+package com.notes.service;
+
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.store.ConditionalOnJpaStore;
+import com.notes.store.NoteStore;
+import com.notes.store.PartialWriteException;
+import com.notes.writebehind.NoteWriteBehindBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Archivado de las notas frías: las que llevan {@code notes.archive.after-days} días sin modificarse pasan,
+ * por lotes, a la tabla {@code notes_archive}. Así {@code notes} y sus índices solo guardan las notas activas
+ * y los listados, búsquedas y recuentos no recorren las antiguas.
+ * <p>
+ * Para el resto de la aplicación archivar es una baja: se publica {@link NoteChangedEvent#deleted} y cachés,
+ * índice de búsqueda y estadísticas dejan de contar la nota. Restaurarla ({@link NoteService#restoreNote})
+ * es un alta. Las ediciones pendientes de autoguardado se escriben antes, y la nota deja de ser fría.
+ */
+@Component
+@ConditionalOnJpaStore
+public class NoteArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteArchiver.class);
+
+    private final NoteStore noteStore;
+    private final NoteWriteBehindBuffer writeBehind;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int afterDays;
+    private final int batchSize;
+    private final long pauseMs;
+
+    private final AtomicLong archivedNotes = new AtomicLong();
+
+    public NoteArchiver(NoteStore noteStore, NoteWriteBehindBuffer writeBehind,
+                        ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                        @Value("${notes.archive.enabled:false}") boolean enabled,
+                        @Value("${notes.archive.after-days:365}") int afterDays,
+                        @Value("${notes.archive.batch-size:500}") int batchSize,
+                        @Value("${notes.archive.pause-ms:200}") long pauseMs) {
+        this.noteStore = noteStore;
+        this.writeBehind = writeBehind;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.afterDays = afterDays;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    @Scheduled(initialDelayString = "${notes.archive.initial-delay-ms:60000}",
+               fixedDelayString = "${notes.archive.interval-ms:3600000}")
+    public void archiveColdNotes() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(afterDays);
+        long start = System.currentTimeMillis();
+        long total = 0;
+        try {
+            List<NoteDto> candidates;
+            do {
+                candidates = noteStore.findNotUpdatedSince(before, batchSize);
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                total += archiveBatch(candidates, before);
+                if (candidates.size() == batchSize && pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            } while (candidates.size() == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Note archival stopped after {} notes; it resumes on the next run", total, e);
+            return;
+        }
+        if (total > 0) {
+            log.info("Archived {} notes not updated since {} in {} ms", total, before,
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    // Un lote por transacción; las notas editadas desde la consulta no se mueven. Con varios shards, si solo
+    // fallan algunos, lo que sí se movió se publica igualmente y la pasada se detiene con el error
+    private int archiveBatch(List<NoteDto> candidates, LocalDateTime before) {
+        List<NoteDto> archived;
+        try {
+            archived = transactionTemplate.execute(status -> {
+                candidates.forEach(note -> writeBehind.applyPending(note.getId()));
+                List<NoteDto> moved = noteStore.archiveAll(candidates.stream().map(NoteDto::getId).toList(), before);
+                moved.forEach(note -> eventPublisher.publishEvent(NoteChangedEvent.deleted(note)));
+                return moved;
+            });
+        } catch (PartialWriteException e) {
+            List<NoteDto> moved = e.<NoteDto>getResults().stream().filter(Objects::nonNull).toList();
+            moved.forEach(note -> eventPublisher.publishEvent(NoteChangedEvent.deleted(note)));
+            archivedNotes.addAndGet(moved.size());
+            throw e;
+        }
+        archivedNotes.addAndGet(archived.size());
+        return archived.size();
+    }
+
+    public long getArchivedNotes() {
+        return archivedNotes.get();
+    }
+}
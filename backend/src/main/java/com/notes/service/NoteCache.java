@@ -0,0 +1,149 @@
+package com.notes.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Caché de lectura de {@link NoteDto} ya mapeados, más la lista materializada de las notas recientes.
+ * Se invalida con precisión a partir de los {@link NoteChangedEvent} confirmados; el TTL acota
+ * lo desactualizada que puede quedar respecto a escrituras hechas por otros pods.
+ */
+@Component
+public class NoteCache {
+
+    public static final int RECENT_SIZE = 10;
+
+    private final Cache<Long, NoteDto> notes;
+    private final long ttlNanos;
+
+    // Lista de recientes: null mientras no esté materializada
+    private volatile RecentSnapshot recent;
+    private final Object recentLock = new Object();
+    private long recentGeneration = 0;
+    private final AtomicLong recentHits = new AtomicLong();
+    private final AtomicLong recentMisses = new AtomicLong();
+
+    public NoteCache(@Value("${notes.cache.max-size:10000}") long maxSize,
+                     @Value("${notes.cache.ttl:60s}") Duration ttl) {
+        this.notes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /** Devuelve la nota cacheada o la carga con {@code loader}; las cargas concurrentes del mismo id se comparten. */
+    public NoteDto get(Long id, Function<Long, NoteDto> loader) {
+        return notes.get(id, loader);
+    }
+
+    /** Consulta la caché sin cargar ni contar en las estadísticas de aciertos/fallos. */
+    public NoteDto getIfPresent(Long id) {
+        return notes.policy().getIfPresentQuietly(id);
+    }
+
+    public List<NoteDto> getRecent(Supplier<List<NoteDto>> loader) {
+        RecentSnapshot snapshot = recent;
+        if (snapshot != null && !snapshot.isExpired(ttlNanos)) {
+            recentHits.incrementAndGet();
+            return snapshot.notes;
+        }
+        recentMisses.incrementAndGet();
+
+        long generation;
+        synchronized (recentLock) {
+            generation = recentGeneration;
+        }
+        List<NoteDto> loaded = List.copyOf(loader.get());
+        synchronized (recentLock) {
+            // Si hubo una escritura durante la carga, el resultado puede estar obsoleto: no se publica
+            if (generation == recentGeneration) {
+                recent = new RecentSnapshot(loaded);
+            }
+        }
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        Long id = event.getNoteId();
+        if (event.getType() == NoteChangedEvent.Type.DELETED) {
+            notes.invalidate(id);
+        } else {
+            notes.put(id, event.getNote());
+        }
+
+        synchronized (recentLock) {
+            recentGeneration++;
+            RecentSnapshot snapshot = recent;
+            if (snapshot == null) {
+                return;
+            }
+            if (event.getType() == NoteChangedEvent.Type.DELETED) {
+                if (snapshot.notes.stream().noneMatch(n -> n.getId().equals(id))) {
+                    return;
+                }
+                // Falta la nota que pasaría a ocupar el último hueco: se recarga en la próxima lectura
+                recent = null;
+                return;
+            }
+            // La nota creada/actualizada es la más reciente: pasa al principio de la lista
+            List<NoteDto> updated = new ArrayList<>(RECENT_SIZE);
+            updated.add(event.getNote());
+            for (NoteDto note : snapshot.notes) {
+                if (updated.size() == RECENT_SIZE) {
+                    break;
+                }
+                if (!note.getId().equals(id)) {
+                    updated.add(note);
+                }
+            }
+            recent = new RecentSnapshot(List.copyOf(updated), snapshot.loadedAt);
+        }
+    }
+
+    public void invalidateAll() {
+        notes.invalidateAll();
+        synchronized (recentLock) {
+            recentGeneration++;
+            recent = null;
+        }
+    }
+
+    public Cache<Long, NoteDto> getNotes() { return notes; }
+    public CacheStats getNoteStats() { return notes.stats(); }
+    public long getRecentHits() { return recentHits.get(); }
+    public long getRecentMisses() { return recentMisses.get(); }
+
+    private static final class RecentSnapshot {
+        private final List<NoteDto> notes;
+        private final long loadedAt;
+
+        private RecentSnapshot(List<NoteDto> notes) {
+            this(notes, System.nanoTime());
+        }
+
+        private RecentSnapshot(List<NoteDto> notes, long loadedAt) {
+            this.notes = notes;
+            this.loadedAt = loadedAt;
+        }
+
+        private boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - loadedAt > ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.notes.service;
+
+import com.notes.dto.NoteDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posición dentro de un orden estable {@code (fecha DESC, id DESC)}: {@code updatedAt} en los listados,
+ * {@code createdAt} en las consultas por rango de creación.
+ * Se serializa como base64url para que el cliente lo trate como un token opaco.
+ */
+final class NoteCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime timestamp;
+    private final Long id;
+
+    private NoteCursor(LocalDateTime timestamp, Long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    static NoteCursor of(NoteDto note) {
+        return new NoteCursor(note.getUpdatedAt(), note.getId());
+    }
+
+    static NoteCursor ofCreated(NoteDto note) {
+        return new NoteCursor(note.getCreatedAt(), note.getId());
+    }
+
+    static NoteCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(SEPARATOR);
+            return new NoteCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    /** {@code true} si la nota va después del cursor en el orden {@code (updatedAt DESC, id DESC)}. */
+    boolean comesBefore(NoteDto note) {
+        int cmp = note.getUpdatedAt().compareTo(timestamp);
+        return cmp < 0 || (cmp == 0 && note.getId() < id);
+    }
+
+    String encode() {
+        String raw = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    LocalDateTime getTimestamp() { return timestamp; }
+    Long getId() { return id; }
+}
@@ -0,0 +1,61 @@
+package com.notes.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.notes.dto.NoteDto;
+import com.notes.json.NoteJsonCache;
+import com.notes.store.NoteStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Exportación de todas las notas en NDJSON (un objeto JSON por línea) escrita directamente
+ * sobre el stream de salida, con memoria constante sea cual sea el tamaño de la tabla.
+ */
+@Service
+public class NoteExportService {
+
+    private final NoteStore noteStore;
+    private final ObjectWriter ndjsonWriter;
+    private final int fetchSize;
+
+    /**
+     * @param fetchSize filas por viaje al servidor. Con MySQL, {@code Integer.MIN_VALUE} activa el modo
+     *                  streaming del driver (fila a fila); otros motores necesitan un valor positivo.
+     */
+    public NoteExportService(NoteStore noteStore, ObjectMapper objectMapper,
+                             @Value("${notes.export.fetch-size:-2147483648}") int fetchSize) {
+        this.noteStore = noteStore;
+        // Un recorrido completo aprovecha el JSON cacheado pero no lo llena con notas que nadie está leyendo
+        this.ndjsonWriter = objectMapper.writerFor(NoteDto.class)
+                .withAttribute(NoteJsonCache.READ_ONLY, Boolean.TRUE)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.fetchSize = fetchSize;
+    }
+
+    /** Escribe todas las notas en {@code out} y devuelve cuántas se exportaron. No cierra {@code out}. */
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<NoteDto> notes = noteStore.streamAll(fetchSize);
+             SequenceWriter sequence = ndjsonWriter.writeValues(out)) {
+            for (NoteDto note : (Iterable<NoteDto>) notes::iterator) {
+                sequence.write(note);
+                count++;
+            }
+        }
+        if (count > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        return count;
+    }
+}
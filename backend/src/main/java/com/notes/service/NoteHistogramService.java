@@ -0,0 +1,285 @@
+package com.notes.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notes.datasource.ReplicaRoutingContext;
+import com.notes.dto.HistogramBucket;
+import com.notes.dto.NoteDto;
+import com.notes.dto.NoteHistogram;
+import com.notes.dto.TimeBucketCount;
+import com.notes.event.NoteChangedEvent;
+import com.notes.store.NoteStore;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Histograma de actividad: notas por hora, día o semana según su fecha de creación o de modificación,
+ * opcionalmente desglosadas por categoría o prioridad.
+ * <p>
+ * Cada petición hace como mucho una consulta agrupada. Los intervalos ya cerrados se guardan en memoria,
+ * así un panel que se refresca solo vuelve a contar el intervalo en curso. Aun cerrados pueden cambiar
+ * (una baja, o una edición que mueve la nota al intervalo actual): los {@link NoteChangedEvent} invalidan
+ * los intervalos de las fechas afectadas y el TTL acota lo que no se ve desde otros pods.
+ */
+@Service
+@Transactional(readOnly = true)
+@Timed(value = "notes.service", histogram = true)
+public class NoteHistogramService {
+
+    public enum Field {
+        CREATED("createdAt"),
+        UPDATED("updatedAt");
+
+        private final String attribute;
+
+        Field(String attribute) {
+            this.attribute = attribute;
+        }
+
+        LocalDateTime of(NoteDto note) {
+            return this == CREATED ? note.getCreatedAt() : note.getUpdatedAt();
+        }
+    }
+
+    public enum Interval {
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS),
+        // Semanas ISO: empiezan en lunes
+        WEEK(ChronoUnit.WEEKS);
+
+        private final ChronoUnit unit;
+
+        Interval(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        LocalDateTime start(LocalDateTime time) {
+            return switch (this) {
+                case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+                case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+                case WEEK -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            };
+        }
+
+        LocalDateTime next(LocalDateTime start) {
+            return start.plus(1, unit);
+        }
+    }
+
+    public enum GroupBy {
+        NONE(null),
+        CATEGORY("category"),
+        PRIORITY("priority");
+
+        private final String attribute;
+
+        GroupBy(String attribute) {
+            this.attribute = attribute;
+        }
+    }
+
+    // Clave del recuento sin desglose dentro del mapa de cada intervalo
+    private static final String ALL = "";
+
+    private final NoteStore noteStore;
+    private final int maxBuckets;
+    private final int defaultBuckets;
+
+    // Recuentos de intervalos cerrados; generation cambia con cada invalidación (protegido por "this")
+    private final Cache<BucketKey, Map<String, Long>> closedBuckets;
+    private long generation = 0;
+
+    public NoteHistogramService(NoteStore noteStore,
+                                @Value("${notes.histogram.max-buckets:1000}") int maxBuckets,
+                                @Value("${notes.histogram.default-buckets:24}") int defaultBuckets,
+                                @Value("${notes.histogram.cache.max-size:50000}") long cacheMaxSize,
+                                @Value("${notes.histogram.cache.ttl:10m}") Duration cacheTtl) {
+        this.noteStore = noteStore;
+        this.maxBuckets = maxBuckets;
+        this.defaultBuckets = defaultBuckets;
+        this.closedBuckets = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param from inicio (se redondea al principio de su intervalo); por defecto los últimos
+     *             {@code notes.histogram.default-buckets} intervalos
+     * @param to   fin exclusivo (se redondea al final de su intervalo); por defecto ahora
+     */
+    public NoteHistogram getHistogram(String field, String interval, String groupBy,
+                                      LocalDateTime from, LocalDateTime to) {
+        Field timestamp = parse(Field.class, field, "field");
+        Interval unit = parse(Interval.class, interval, "interval");
+        GroupBy split = groupBy == null || groupBy.isBlank() ? GroupBy.NONE : parse(GroupBy.class, groupBy, "groupBy");
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime end = to != null ? to : now;
+        LocalDateTime last = unit.start(end);
+        end = last.equals(end) && to != null ? last : unit.next(last);
+        LocalDateTime start = from != null ? unit.start(from) : end.minus(defaultBuckets, unit.unit);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (LocalDateTime bucket = start; bucket.isBefore(end); bucket = unit.next(bucket)) {
+            if (starts.size() == maxBuckets) {
+                throw new IllegalArgumentException("Too many buckets, at most " + maxBuckets + " per request");
+            }
+            starts.add(bucket);
+        }
+
+        // Los intervalos que faltan se cuentan en una sola consulta, del primero al último que falte
+        Map<LocalDateTime, Map<String, Long>> counts = new HashMap<>();
+        LocalDateTime missingFrom = null;
+        LocalDateTime missingTo = null;
+        for (LocalDateTime bucket : starts) {
+            Map<String, Long> cached = isClosed(unit, bucket, now)
+                    ? closedBuckets.getIfPresent(new BucketKey(timestamp, unit, split, bucket))
+                    : null;
+            if (cached != null) {
+                counts.put(bucket, cached);
+            } else {
+                missingFrom = missingFrom == null ? bucket : missingFrom;
+                missingTo = unit.next(bucket);
+            }
+        }
+        if (missingFrom != null) {
+            load(timestamp, unit, split, missingFrom, missingTo, now, counts);
+        }
+
+        List<HistogramBucket> buckets = new ArrayList<>(starts.size());
+        for (LocalDateTime bucket : starts) {
+            Map<String, Long> bucketCounts = counts.get(bucket);
+            long total = bucketCounts.values().stream().mapToLong(Long::longValue).sum();
+            buckets.add(new HistogramBucket(bucket, total, split == GroupBy.NONE ? null : bucketCounts));
+        }
+        return new NoteHistogram(timestamp.name().toLowerCase(Locale.ROOT), unit.name().toLowerCase(Locale.ROOT),
+                split == GroupBy.NONE ? null : split.name().toLowerCase(Locale.ROOT), start, end, buckets);
+    }
+
+    private void load(Field timestamp, Interval unit, GroupBy split, LocalDateTime from, LocalDateTime to,
+                      LocalDateTime now, Map<LocalDateTime, Map<String, Long>> counts) {
+        long generationBefore;
+        synchronized (this) {
+            generationBefore = generation;
+        }
+        // Las semanas se cuentan por días y se suman aquí: la semana ISO no se extrae igual en todas las bases de datos
+        // Del primario: los intervalos cerrados se guardan sin caducidad y una réplica con retraso los dejaría cortos
+        List<TimeBucketCount> rows = ReplicaRoutingContext.callOnPrimary(() -> noteStore.countByTimeBucket(
+                timestamp.attribute, unit == Interval.HOUR, split.attribute, from, to));
+        Map<LocalDateTime, Map<String, Long>> loaded = new HashMap<>();
+        for (TimeBucketCount row : rows) {
+            loaded.computeIfAbsent(unit.start(row.getBucket()), bucket -> new TreeMap<>())
+                    .merge(row.getGroup() != null ? row.getGroup() : ALL, row.getTotal(), Long::sum);
+        }
+
+        synchronized (this) {
+            // Si hubo una escritura durante la consulta, el resultado puede estar obsoleto: se usa pero no se guarda
+            boolean cacheable = generationBefore == generation;
+            for (LocalDateTime bucket = from; bucket.isBefore(to); bucket = unit.next(bucket)) {
+                if (counts.containsKey(bucket)) {
+                    continue;
+                }
+                Map<String, Long> bucketCounts = Collections.unmodifiableMap(loaded.getOrDefault(bucket, new TreeMap<>()));
+                counts.put(bucket, bucketCounts);
+                if (cacheable && isClosed(unit, bucket, now)) {
+                    closedBuckets.put(new BucketKey(timestamp, unit, split, bucket), bucketCounts);
+                }
+            }
+        }
+    }
+
+    private static boolean isClosed(Interval unit, LocalDateTime bucket, LocalDateTime now) {
+        return !unit.next(bucket).isAfter(now);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        List<BucketKey> stale = new ArrayList<>();
+        addBuckets(stale, event.getPrevious());
+        addBuckets(stale, event.getNote());
+        synchronized (this) {
+            generation++;
+            closedBuckets.invalidateAll(stale);
+        }
+    }
+
+    private static void addBuckets(List<BucketKey> keys, NoteDto note) {
+        if (note == null) {
+            return;
+        }
+        for (Field timestamp : Field.values()) {
+            LocalDateTime time = timestamp.of(note);
+            if (time == null) {
+                continue;
+            }
+            for (Interval unit : Interval.values()) {
+                for (GroupBy split : GroupBy.values()) {
+                    keys.add(new BucketKey(timestamp, unit, split, unit.start(time)));
+                }
+            }
+        }
+    }
+
+    public Cache<?, ?> getClosedBuckets() {
+        return closedBuckets;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String parameter) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid " + parameter + ": " + value);
+        }
+    }
+
+    private static final class BucketKey {
+        private final Field timestamp;
+        private final Interval unit;
+        private final GroupBy split;
+        private final LocalDateTime start;
+
+        private BucketKey(Field timestamp, Interval unit, GroupBy split, LocalDateTime start) {
+            this.timestamp = timestamp;
+            this.unit = unit;
+            this.split = split;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return timestamp == other.timestamp && unit == other.unit && split == other.split
+                    && start.equals(other.start);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(timestamp, unit, split, start);
+        }
+    }
+}
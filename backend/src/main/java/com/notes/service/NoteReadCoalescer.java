@@ -0,0 +1,77 @@
+package com.notes.service;
+
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Agrupa las lecturas idénticas y concurrentes de {@link NoteService} (misma nota, mismos filtros)
+ * en una sola consulta a la base de datos.
+ * Cada escritura abre una generación nueva dos veces: al publicarse el evento (dentro de la transacción)
+ * y tras el commit, de modo que ninguna lectura posterior al commit comparte una consulta anterior a él.
+ */
+@Component
+public class NoteReadCoalescer {
+
+    private final SingleFlight<Long, NoteDto> byId = new SingleFlight<>();
+    private final SingleFlight<FilterKey, NoteService.SearchResult> byFilters = new SingleFlight<>();
+
+    public SingleFlight<Long, NoteDto> byId() {
+        return byId;
+    }
+
+    public SingleFlight<FilterKey, NoteService.SearchResult> byFilters() {
+        return byFilters;
+    }
+
+    @EventListener
+    public void onNoteChanging(NoteChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        byId.invalidate();
+        byFilters.invalidate();
+    }
+
+    /**
+     * Clave de un filtro ya normalizado. La palabra clave no distingue mayúsculas (ni el índice ni la
+     * consulta SQL lo hacen), así que "Java" y "java" comparten consulta.
+     */
+    public static final class FilterKey {
+        private final String keyword;
+        private final String category;
+        private final Note.Priority priority;
+
+        public FilterKey(String keyword, String category, Note.Priority priority) {
+            this.keyword = keyword == null ? null : keyword.toLowerCase(Locale.ROOT);
+            this.category = category;
+            this.priority = priority;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FilterKey other)) return false;
+            return Objects.equals(keyword, other.keyword)
+                    && Objects.equals(category, other.category)
+                    && priority == other.priority;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(keyword, category, priority);
+        }
+    }
+}
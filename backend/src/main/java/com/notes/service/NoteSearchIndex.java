@@ -0,0 +1,34 @@
+package com.notes.service;
+
+import java.util.List;
+
+/**
+ * Motor de búsqueda de texto sobre título y contenido de las notas.
+ * {@link NoteService} lo usa en lugar de los {@code LIKE '%kw%'} de {@code NoteRepository}.
+ */
+public interface NoteSearchIndex {
+
+    /**
+     * Indexa (o reindexa) una nota. Si ya está indexada una versión posterior no se hace nada: una lectura
+     * hecha antes de una escritura concurrente no pisa el resultado de esa escritura.
+     */
+    void index(Long id, long version, String title, String content);
+
+    void remove(Long id);
+
+    void clear();
+
+    /**
+     * Ids de las notas que contienen todos los términos de la consulta, de mayor a menor relevancia.
+     * Cada término también casa como prefijo de una palabra indexada. Con {@code limit} igual a
+     * {@link Integer#MAX_VALUE} se devuelven todas.
+     */
+    List<Long> search(String query, int limit);
+
+    /** {@code false} mientras se reconstruye el índice; en ese caso se consulta la base de datos. */
+    boolean isReady();
+
+    void setReady(boolean ready);
+
+    int size();
+}
@@ -0,0 +1,133 @@
+package com.notes.service;
+
+import com.notes.datasource.ReplicaRoutingContext;
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.store.NoteStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reconstruye el {@link NoteSearchIndex} al arrancar y lo mantiene al día con cada escritura confirmada.
+ * Los eventos solo llegan de las escrituras de esta instancia: las de las demás se recogen con una puesta
+ * al día periódica que relee las notas modificadas desde la última pasada (por {@code updatedAt, id}).
+ * Las notas borradas en otras instancias siguen en el índice, pero las búsquedas cargan los candidatos
+ * del almacén y las descartan. Ambos recorridos leen del primario: con réplicas, una con retraso dejaría
+ * el índice sin las últimas escrituras hasta la siguiente pasada.
+ */
+@Component
+public class NoteSearchIndexMaintainer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteSearchIndexMaintainer.class);
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    // Punto de partida de la puesta al día si la reconstrucción no encontró ninguna nota
+    private static final LocalDateTime NO_NOTES = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final NoteSearchIndex searchIndex;
+    private final NoteStore noteStore;
+    private final long catchUpOverlapMs;
+    // Hasta dónde se han leído los cambios; solo lo tocan la reconstrucción y la puesta al día
+    private volatile LocalDateTime caughtUpTo;
+
+    public NoteSearchIndexMaintainer(NoteSearchIndex searchIndex, NoteStore noteStore,
+                                     @Value("${notes.search.catch-up-overlap-ms:10000}") long catchUpOverlapMs) {
+        this.searchIndex = searchIndex;
+        this.noteStore = noteStore;
+        this.catchUpOverlapMs = catchUpOverlapMs;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    /**
+     * La puesta al día siguiente parte del {@code updatedAt} más reciente leído, no del reloj de esta instancia:
+     * las fechas las ponen las instancias que escriben y un reloj adelantado aquí se saltaría sus cambios. Lo
+     * que cambie mientras se recorre queda después de ese punto o dentro del margen que se relee.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        searchIndex.setReady(false);
+        searchIndex.clear();
+
+        // Recorre las notas por lotes ordenados por id para no cargarlas todas a la vez
+        long lastId = 0L;
+        LocalDateTime newestUpdatedAt = NO_NOTES;
+        List<NoteDto> batch;
+        do {
+            long after = lastId;
+            batch = ReplicaRoutingContext.callOnPrimary(() -> noteStore.findBatchAfter(after, REBUILD_BATCH_SIZE));
+            for (NoteDto note : batch) {
+                searchIndex.index(note.getId(), note.getVersion(), note.getTitle(), note.getContent());
+                lastId = note.getId();
+                if (note.getUpdatedAt() != null && note.getUpdatedAt().isAfter(newestUpdatedAt)) {
+                    newestUpdatedAt = note.getUpdatedAt();
+                }
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        caughtUpTo = newestUpdatedAt;
+        searchIndex.setReady(true);
+        log.info("Search index rebuilt with {} notes in {} ms", searchIndex.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indexa las notas modificadas desde la pasada anterior, también por otras instancias. Se relee un margen
+     * de {@code notes.search.catch-up-overlap-ms} hacia atrás para no perder las escrituras que se confirmaron
+     * tarde o con el reloj algo desfasado; reindexar una nota ya al día no cambia nada.
+     */
+    @Scheduled(initialDelayString = "${notes.search.catch-up-interval-ms:30000}",
+               fixedDelayString = "${notes.search.catch-up-interval-ms:30000}")
+    public synchronized void catchUp() {
+        LocalDateTime from = caughtUpTo;
+        if (from == null || !searchIndex.isReady()) {
+            return;
+        }
+        try {
+            LocalDateTime lastUpdatedAt = from.minusNanos(catchUpOverlapMs * 1_000_000);
+            long lastId = 0L;
+            int indexed = 0;
+            List<NoteDto> batch;
+            do {
+                LocalDateTime afterUpdatedAt = lastUpdatedAt;
+                long afterId = lastId;
+                batch = ReplicaRoutingContext.callOnPrimary(
+                        () -> noteStore.findUpdatedAfter(afterUpdatedAt, afterId, REBUILD_BATCH_SIZE));
+                for (NoteDto note : batch) {
+                    searchIndex.index(note.getId(), note.getVersion(), note.getTitle(), note.getContent());
+                    lastUpdatedAt = note.getUpdatedAt();
+                    lastId = note.getId();
+                }
+                indexed += batch.size();
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            if (lastUpdatedAt.isAfter(from)) {
+                caughtUpTo = lastUpdatedAt;
+            }
+            log.debug("Search index caught up with {} changed notes", indexed);
+        } catch (RuntimeException e) {
+            // Se reintenta en la siguiente pasada desde el mismo punto
+            log.warn("Search index catch-up failed: {}", e.toString());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        if (event.getType() == NoteChangedEvent.Type.DELETED) {
+            searchIndex.remove(event.getNoteId());
+        } else {
+            NoteDto note = event.getNote();
+            searchIndex.index(event.getNoteId(), note.getVersion(), note.getTitle(), note.getContent());
+        }
+    }
+}
@@ -1,121 +1,706 @@
 package com.notes.service;
 
+import com.notes.datasource.ReplicaRoutingContext;
+import com.notes.dto.AutosaveConflictDto;
+import com.notes.dto.BatchItemResult;
+import com.notes.dto.BatchUpdateNoteDto;
 import com.notes.dto.CreateNoteDto;
+import com.notes.dto.CursorPage;
 import com.notes.dto.NoteDto;
+import com.notes.dto.NoteSummaryDto;
 import com.notes.dto.UpdateNoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.exception.PreconditionFailedException;
 import com.notes.exception.ResourceNotFoundException;
 import com.notes.mapper.NoteMapper;
 import com.notes.model.Note;
-import com.notes.repository.NoteRepository;
-import org.springframework.data.domain.Sort;
+import com.notes.store.NoteStore;
+import com.notes.store.PartialWriteException;
+import com.notes.writebehind.NoteWriteBehindBuffer;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
-@Transactional
+@Transactional(readOnly = true)
+@Timed(value = "notes.service", histogram = true)
 public class NoteService {
 
-    private final NoteRepository noteRepository;
+    private static final Logger log = LoggerFactory.getLogger(NoteService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    // Candidatos del índice de búsqueda por consulta (tamaño de la lista IN)
+    private static final int SEARCH_CANDIDATE_CHUNK = 1000;
+    private static final Comparator<NoteDto> RECENT_FIRST =
+            Comparator.comparing(NoteDto::getUpdatedAt).thenComparing(NoteDto::getId).reversed();
+
+    private final NoteStore noteStore;
     private final NoteMapper noteMapper;
+    private final NoteSearchIndex searchIndex;
+    private final NoteCache noteCache;
+    private final NoteReadCoalescer readCoalescer;
+    private final NoteWriteBehindBuffer writeBehind;
+    private final NoteStatsTracker statsTracker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int searchMaxResults;
+    private final int batchMaxSize;
+    private final int batchChunkSize;
 
-    public NoteService(NoteRepository noteRepository, NoteMapper noteMapper) {
-        this.noteRepository = noteRepository;
+    public NoteService(NoteStore noteStore, NoteMapper noteMapper, NoteSearchIndex searchIndex,
+                       NoteCache noteCache, NoteReadCoalescer readCoalescer, NoteWriteBehindBuffer writeBehind,
+                       NoteStatsTracker statsTracker, ApplicationEventPublisher eventPublisher,
+                       Validator validator, PlatformTransactionManager transactionManager,
+                       @Value("${notes.search.max-results:500}") int searchMaxResults,
+                       @Value("${notes.batch.max-size:5000}") int batchMaxSize,
+                       @Value("${notes.batch.chunk-size:500}") int batchChunkSize) {
+        this.noteStore = noteStore;
         this.noteMapper = noteMapper;
+        this.searchIndex = searchIndex;
+        this.noteCache = noteCache;
+        this.readCoalescer = readCoalescer;
+        this.writeBehind = writeBehind;
+        this.statsTracker = statsTracker;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.searchMaxResults = searchMaxResults;
+        this.batchMaxSize = batchMaxSize;
+        this.batchChunkSize = batchChunkSize;
     }
 
     public List<NoteDto> getAllNotes() {
-        Sort sort = Sort.by(Sort.Direction.DESC, "updatedAt");
-        return noteRepository.findAll(sort).stream()
-                .map(noteMapper::toDto)
-                .collect(Collectors.toList());
+        return noteStore.findAll();
+    }
+
+    /** Con {@code includeArchived} añade las notas archivadas (ver {@link NoteArchiver}) en el mismo orden. */
+    public List<NoteDto> getAllNotes(boolean includeArchived) {
+        List<NoteDto> notes = getAllNotes();
+        return includeArchived ? withArchived(notes, noteStore.findArchivedByFilters(null, null, null)) : notes;
     }
 
+    // SUPPORTS: un acierto de caché no abre transacción ni toma conexión del pool
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public NoteDto getNoteById(Long id) {
-        Note note = noteRepository.findById(id)
+        // Con autoguardado, las ediciones aceptadas y aún no escritas se ven ya en las lecturas por id
+        NoteDto buffered = writeBehind.getPending(id);
+        if (buffered != null) {
+            return buffered;
+        }
+        NoteDto cached = noteCache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        // Fallo de caché: las peticiones concurrentes por el mismo id esperan a una única carga
+        return readCoalescer.byId().execute(id, key -> noteCache.get(key, this::loadNote));
+    }
+
+    /** Con {@code includeArchived}, si no está entre las activas se busca en el archivo (sin caché). */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public NoteDto getNoteById(Long id, boolean includeArchived) {
+        if (!includeArchived) {
+            return getNoteById(id);
+        }
+        try {
+            return getNoteById(id);
+        } catch (ResourceNotFoundException e) {
+            return noteStore.findArchivedById(id).orElseThrow(() -> e);
+        }
+    }
+
+    // Lo que se carga se queda en la caché hasta el TTL: se lee del primario, no de una réplica con retraso
+    private NoteDto loadNote(Long id) {
+        return ReplicaRoutingContext.callOnPrimary(() -> noteStore.findById(id))
                 .orElseThrow(() -> new ResourceNotFoundException("Note not found with id: " + id));
-        return noteMapper.toDto(note);
     }
 
+    @Transactional
     public NoteDto createNote(CreateNoteDto createNoteDto) {
         if (createNoteDto == null) {
             throw new IllegalArgumentException("Note cannot be null");
         }
-        Note note = noteMapper.toEntity(createNoteDto);
-        return noteMapper.toDto(noteRepository.save(note));
+        NoteDto created = noteStore.insert(createNoteDto);
+        eventPublisher.publishEvent(NoteChangedEvent.created(created));
+        return created;
     }
 
+    @Transactional
     public NoteDto updateNote(Long id, UpdateNoteDto updateNoteDto) {
-        Note existingNote = noteRepository.findById(id)
+        return updateNote(id, updateNoteDto, null);
+    }
+
+    /**
+     * Actualización parcial: lee solo los metadatos de la nota y envía un {@code UPDATE} con los campos
+     * recibidos. El contenido no se lee de la base de datos salvo que no cambie y no esté en caché.
+     *
+     * @param expectedVersions versiones que el cliente acepta como actuales (If-Match); {@code null} para no
+     *                         comprobarlas. Un cambio concurrente entre la lectura y el UPDATE deja 0 filas
+     *                         actualizadas (409).
+     */
+    @Transactional
+    public NoteDto updateNote(Long id, UpdateNoteDto updateNoteDto, Set<Long> expectedVersions) {
+        writeBehind.applyPending(id);
+        NoteDto previous = noteStore.findMetadataById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Note not found with id: " + id));
+        checkVersion(previous, expectedVersions);
+
+        if (updateNoteDto.getTitle() == null && updateNoteDto.getContent() == null
+                && updateNoteDto.getCategory() == null && updateNoteDto.getPublished() == null) {
+            previous.setContent(currentContent(previous));
+            return previous;
+        }
+
+        NoteDto updated = noteMapper.copy(previous);
+        noteMapper.updateDtoFromDto(updateNoteDto, updated);
+        validateState(updated);
+        if (updateNoteDto.getContent() == null) {
+            updated.setContent(currentContent(previous));
+        }
+
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (noteStore.updateFields(id, previous.getVersion(), updateNoteDto, now) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Note.class, id);
+        }
+        updated.setUpdatedAt(now);
+        updated.setVersion(previous.getVersion() + 1);
+        eventPublisher.publishEvent(NoteChangedEvent.updated(previous, updated));
+        return updated;
+    }
+
+    // Contenido sin cambios para la respuesta: de la caché si está al día, si no se carga ahora
+    private String currentContent(NoteDto note) {
+        NoteDto cached = noteCache.getIfPresent(note.getId());
+        if (cached != null && cached.getVersion() == note.getVersion()) {
+            return cached.getContent();
+        }
+        return noteStore.findContent(note.getId());
+    }
+
+    // Las reglas de la entidad sobre el estado resultante (el UPDATE directo no pasa por ella)
+    private void validateState(NoteDto state) {
+        Set<ConstraintViolation<Note>> violations = validateEntity(state.getTitle(), state.getCategory());
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Validation errors: " + describe(violations));
+        }
+    }
+
+    private Set<ConstraintViolation<Note>> validateEntity(String title, String category) {
+        Note candidate = new Note();
+        candidate.setTitle(title);
+        candidate.setCategory(category);
+        return validator.validate(candidate);
+    }
+
+    public boolean isAutosaveEnabled() {
+        return writeBehind.isEnabled();
+    }
+
+    /** Ediciones de autoguardado de la nota descartadas por un conflicto que el cliente aún no conoce, o {@code null}. */
+    public AutosaveConflictDto getAutosaveConflict(Long id) {
+        return writeBehind.getConflict(id);
+    }
 
-        noteMapper.updateEntityFromDto(updateNoteDto, existingNote);
-        return noteMapper.toDto(noteRepository.save(existingNote));
+    /**
+     * Autoguardado: la edición se confirma en cuanto está en el diario local y se escribe en la base de
+     * datos en el siguiente flush, agrupada con las demás ediciones de la misma nota (ver {@link NoteWriteBehindBuffer}).
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public NoteDto autosaveNote(Long id, UpdateNoteDto updateNoteDto, Set<Long> expectedVersions) {
+        if (!writeBehind.isEnabled()) {
+            throw new IllegalStateException("Autosave is not enabled");
+        }
+        return writeBehind.accept(id, updateNoteDto, getNoteById(id), expectedVersions);
     }
 
+    @Transactional
     public void deleteNote(Long id) {
-        Note note = noteRepository.findById(id)
+        deleteNote(id, null);
+    }
+
+    /** Lee solo los metadatos (para el evento) y borra con un {@code DELETE} directo por id y versión. */
+    @Transactional
+    public void deleteNote(Long id, Set<Long> expectedVersions) {
+        writeBehind.discardPending(id);
+        NoteDto previous = noteStore.findMetadataById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Note not found with id: " + id));
-        noteRepository.delete(note);
+        checkVersion(previous, expectedVersions);
+        if (noteStore.deleteByIdAndVersion(id, previous.getVersion()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Note.class, id);
+        }
+        eventPublisher.publishEvent(NoteChangedEvent.deleted(previous));
+    }
+
+    /**
+     * Devuelve una nota archivada a las activas, como modificada ahora (nueva versión). Para cachés, índice
+     * y estadísticas es un alta.
+     */
+    @Transactional
+    public NoteDto restoreNote(Long id) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        NoteDto restored = noteStore.restore(id, now)
+                .orElseThrow(() -> new ResourceNotFoundException("Archived note not found with id: " + id));
+        eventPublisher.publishEvent(NoteChangedEvent.created(restored));
+        return restored;
+    }
+
+    private void checkVersion(NoteDto note, Set<Long> expectedVersions) {
+        if (expectedVersions != null && !expectedVersions.contains(note.getVersion())) {
+            throw new PreconditionFailedException("Note " + note.getId() + " was modified: expected version "
+                    + expectedVersions + " but current is " + note.getVersion());
+        }
+    }
+
+    /**
+     * Marca que cambia con cada alta, baja o modificación de notas (la revisión del almacén); sirve para el
+     * ETag de los listados sin tener que cargarlos.
+     */
+    public String getNotesChangeMarker() {
+        return Long.toString(noteStore.findRevision());
+    }
+
+    /**
+     * Crea las notas por bloques de {@code notes.batch.chunk-size}, cada bloque en su propia transacción
+     * y con una única escritura al almacén. Los elementos inválidos se informan sin abortar el resto.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchItemResult> createNotes(List<CreateNoteDto> dtos) {
+        checkBatchSize(dtos);
+        BatchItemResult[] results = new BatchItemResult[dtos.size()];
+        List<Integer> valid = validateItems(dtos, results);
+
+        for (List<Integer> chunk : chunks(valid)) {
+            writeChunk(chunk, results, index -> null,
+                    () -> noteStore.insertAll(chunk.stream().map(dtos::get).toList()),
+                    (created, index) -> {
+                        results[index] = BatchItemResult.success(index, created.getId(), created);
+                        eventPublisher.publishEvent(NoteChangedEvent.created(created));
+                    });
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Actualiza las notas por bloques, cada uno en su transacción y con una única escritura al almacén
+     * (con JPA, una consulta para cargar el bloque y un batch de UPDATE).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchItemResult> updateNotes(List<BatchUpdateNoteDto> dtos) {
+        checkBatchSize(dtos);
+        BatchItemResult[] results = new BatchItemResult[dtos.size()];
+        List<Integer> valid = validateItems(dtos, results);
+
+        for (List<Integer> chunk : chunks(valid)) {
+            writeChunk(chunk, results, index -> dtos.get(index).getId(), () -> {
+                chunk.forEach(i -> writeBehind.applyPending(dtos.get(i).getId()));
+                return noteStore.updateAll(chunk.stream().map(dtos::get).toList());
+            }, (change, index) -> {
+                if (change == null) {
+                    results[index] = BatchItemResult.error(index, dtos.get(index).getId(),
+                            "Note not found with id: " + dtos.get(index).getId());
+                    return;
+                }
+                NoteDto updated = change.getCurrent();
+                results[index] = BatchItemResult.success(index, updated.getId(), updated);
+                eventPublisher.publishEvent(NoteChangedEvent.updated(change.getPrevious(), updated));
+            });
+        }
+        return List.of(results);
+    }
+
+    /** Elimina las notas por bloques con una única baja en el almacén ({@code DELETE ... WHERE id IN (...)}) por bloque. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchItemResult> deleteNotes(List<Long> ids) {
+        checkBatchSize(ids);
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        List<Integer> valid = new ArrayList<>(ids.size());
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null) {
+                results[i] = BatchItemResult.error(i, null, "Id is mandatory");
+            } else if (!seen.add(id)) {
+                results[i] = BatchItemResult.error(i, id, "Duplicate id in request: " + id);
+            } else {
+                valid.add(i);
+            }
+        }
+
+        for (List<Integer> chunk : chunks(valid)) {
+            writeChunk(chunk, results, ids::get, () -> {
+                chunk.forEach(i -> writeBehind.discardPending(ids.get(i)));
+                Map<Long, NoteDto> deleted = noteStore.deleteAll(chunk.stream().map(ids::get).toList()).stream()
+                        .collect(Collectors.toMap(NoteDto::getId, Function.identity()));
+                // Alineadas con el bloque, como las de las altas y actualizaciones
+                return chunk.stream().map(index -> deleted.get(ids.get(index))).toList();
+            }, (note, index) -> {
+                if (note == null) {
+                    results[index] = BatchItemResult.error(index, ids.get(index), "Note not found with id: " + ids.get(index));
+                } else {
+                    results[index] = BatchItemResult.success(index, note.getId(), null);
+                    eventPublisher.publishEvent(NoteChangedEvent.deleted(note));
+                }
+            });
+        }
+        return List.of(results);
+    }
+
+    private void checkBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty");
+        }
+        if (items.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Batch cannot exceed " + batchMaxSize + " items");
+        }
+    }
+
+    /**
+     * Escribe un bloque en su transacción: {@code write} devuelve un resultado por elemento, en el orden del bloque,
+     * y {@code onWritten} lo recibe con la posición del elemento en el lote. Si falla (error de la base de datos,
+     * conflicto de versión), el bloque se deshace y sus elementos se marcan como erróneos; los bloques ya
+     * confirmados y los siguientes no cambian.
+     * <p>
+     * Con varios shards el bloque es atómico en cada shard pero no entre ellos: si solo fallan algunos
+     * ({@link PartialWriteException}), lo que sí se escribió se da por bueno (con sus eventos) y solo se marcan
+     * como erróneos los elementos de los shards que fallaron, para que el cliente no repita altas ya hechas.
+     */
+    private <R> void writeChunk(List<Integer> chunk, BatchItemResult[] results, IntFunction<Long> idOf,
+                                Supplier<List<R>> write, ObjIntConsumer<R> onWritten) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<R> written = write.get();
+                for (int i = 0; i < chunk.size(); i++) {
+                    onWritten.accept(written.get(i), chunk.get(i));
+                }
+            });
+        } catch (PartialWriteException e) {
+            log.warn("Batch chunk of {} notes only partly written", chunk.size(), e);
+            List<R> written = e.getResults();
+            for (int i = 0; i < chunk.size(); i++) {
+                int index = chunk.get(i);
+                if (e.isApplied(i)) {
+                    onWritten.accept(written.get(i), index);
+                } else {
+                    results[index] = BatchItemResult.error(index, idOf.apply(index),
+                            "Could not write this note, it was not applied (the rest of the chunk may have been);"
+                                    + " retry only this note");
+                }
+            }
+        } catch (DataAccessException | TransactionException | PersistenceException e) {
+            log.warn("Batch chunk of {} notes rolled back", chunk.size(), e);
+            // Sin el mensaje de la excepción: puede llevar el SQL y los valores
+            String message = e instanceof OptimisticLockingFailureException
+                    || e instanceof OptimisticLockException
+                    ? "A note in this chunk was modified concurrently, no change was applied; reload and retry"
+                    : "Could not write this chunk of the batch, no change was applied; retry later";
+            for (Integer index : chunk) {
+                results[index] = BatchItemResult.error(index, idOf.apply(index), message);
+            }
+        }
+    }
+
+    // Valida todos los elementos de una pasada; devuelve los índices válidos y marca los erróneos.
+    // Además de las anotaciones del DTO, las reglas de la entidad: las escrituras masivas no pasan por ella
+    private <T> List<Integer> validateItems(List<T> items, BatchItemResult[] results) {
+        List<Integer> valid = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (item == null) {
+                results[i] = BatchItemResult.error(i, null, "Note cannot be null");
+                continue;
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(item);
+            String errors = violations.isEmpty() ? describeEntityViolations(item) : describe(violations);
+            if (errors == null) {
+                valid.add(i);
+            } else {
+                Long id = item instanceof BatchUpdateNoteDto update ? update.getId() : null;
+                results[i] = BatchItemResult.error(i, id, "Validation errors: " + errors);
+            }
+        }
+        return valid;
+    }
+
+    // En una actualización solo se comprueban los campos enviados; null si no hay errores
+    private String describeEntityViolations(Object item) {
+        Set<ConstraintViolation<Note>> violations = new HashSet<>();
+        if (item instanceof CreateNoteDto create) {
+            violations.addAll(validateEntity(create.getTitle(), create.getCategory()));
+        } else if (item instanceof UpdateNoteDto update) {
+            if (update.getTitle() != null) {
+                violations.addAll(validator.validateValue(Note.class, "title", update.getTitle()));
+            }
+            if (update.getCategory() != null) {
+                violations.addAll(validator.validateValue(Note.class, "category",
+                        Note.normalizeCategory(update.getCategory())));
+            }
+        }
+        return violations.isEmpty() ? null : describe(violations);
+    }
+
+    private static <T> String describe(Set<ConstraintViolation<T>> violations) {
+        return violations.stream()
+                .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .collect(Collectors.joining(", "));
+    }
+
+    private List<List<Integer>> chunks(List<Integer> indexes) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < indexes.size(); from += batchChunkSize) {
+            chunks.add(indexes.subList(from, Math.min(from + batchChunkSize, indexes.size())));
+        }
+        return chunks;
     }
 
-    public List<NoteDto> searchNotes(String keyword) {
+    /**
+     * Búsqueda por palabra clave. Con el índice listo una nota casa si contiene todas las palabras de
+     * {@code keyword}, cada una completa o como comienzo de una palabra de la nota ("conf" encuentra
+     * "configuración", pero "figura" no), y se devuelven solo las {@code notes.search.max-results} más
+     * relevantes, marcando {@link SearchResult#isTruncated()} si había más. Mientras el índice se reconstruye
+     * se busca la subcadena con LIKE, sin límite.
+     */
+    public SearchResult searchNotes(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
-            return getAllNotes();
+            return new SearchResult(getAllNotes(), false);
+        }
+        if (!searchIndex.isReady()) {
+            return new SearchResult(noteStore.findByKeyword(keyword.trim()), false);
+        }
+
+        return findRanked(keyword, null, null);
+    }
+
+    /**
+     * Las {@code searchMaxResults} notas más relevantes para {@code keyword} que cumplen los filtros, por orden
+     * de relevancia. Los candidatos del índice se filtran por tramos antes de cortar, así un filtro muy
+     * selectivo no se queda sin resultados por culpa de candidatos que no lo cumplen. Se busca una de más
+     * para saber si el corte ha dejado alguna fuera.
+     */
+    private SearchResult findRanked(String keyword, String category, Note.Priority priority) {
+        List<Long> rankedIds = searchIndex.search(keyword, Integer.MAX_VALUE);
+        List<NoteDto> result = new ArrayList<>();
+        for (int from = 0; from < rankedIds.size() && result.size() <= searchMaxResults;
+             from += SEARCH_CANDIDATE_CHUNK) {
+            List<Long> chunk = rankedIds.subList(from, Math.min(from + SEARCH_CANDIDATE_CHUNK, rankedIds.size()));
+            Map<Long, NoteDto> notesById = noteStore.findByIdInAndFilters(chunk, category, priority).stream()
+                    .collect(Collectors.toMap(NoteDto::getId, Function.identity()));
+            // Se conserva el orden del índice; faltan las que no cumplen los filtros o ya no existen
+            for (Long id : chunk) {
+                NoteDto note = notesById.get(id);
+                if (note != null && result.size() <= searchMaxResults) {
+                    result.add(note);
+                }
+            }
         }
-        return noteRepository.findByKeyword(keyword.trim()).stream()
-                .map(noteMapper::toDto)
-                .collect(Collectors.toList());
+        if (result.size() > searchMaxResults) {
+            return new SearchResult(new ArrayList<>(result.subList(0, searchMaxResults)), true);
+        }
+        return new SearchResult(result, false);
     }
 
-    public List<NoteDto> filterNotes(String keyword, String category, Note.Priority priority) {
+    // SUPPORTS: quien espera el resultado de otra petición idéntica no retiene una conexión mientras tanto
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public SearchResult filterNotes(String keyword, String category, Note.Priority priority) {
         String normalizedKeyword = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim() : null;
         String normalizedCategory = (category != null && !category.trim().isEmpty()) ? category.trim() : null;
 
-        return noteRepository.findByFilters(normalizedKeyword, normalizedCategory, priority).stream()
-                .map(noteMapper::toDto)
-                .collect(Collectors.toList());
+        // El resultado se comparte entre peticiones: lista inmutable
+        return readCoalescer.byFilters().execute(
+                new NoteReadCoalescer.FilterKey(normalizedKeyword, normalizedCategory, priority),
+                key -> {
+                    SearchResult found = findFiltered(normalizedKeyword, normalizedCategory, priority);
+                    return new SearchResult(List.copyOf(found.getNotes()), found.isTruncated());
+                });
+    }
+
+    /**
+     * Con {@code includeArchived} añade las archivadas que cumplen los filtros. En ellas la palabra clave se
+     * busca con LIKE (el índice de búsqueda solo tiene las activas).
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public SearchResult filterNotes(String keyword, String category, Note.Priority priority, boolean includeArchived) {
+        SearchResult result = filterNotes(keyword, category, priority);
+        if (!includeArchived) {
+            return result;
+        }
+        String normalizedKeyword = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim() : null;
+        String normalizedCategory = (category != null && !category.trim().isEmpty()) ? category.trim() : null;
+        List<NoteDto> archived = noteStore.findArchivedByFilters(normalizedKeyword, normalizedCategory, priority);
+        return new SearchResult(withArchived(result.getNotes(), archived), result.isTruncated());
+    }
+
+    // Activas y archivadas juntas en orden (updatedAt DESC, id DESC)
+    private static List<NoteDto> withArchived(List<NoteDto> notes, List<NoteDto> archived) {
+        if (archived.isEmpty()) {
+            return notes;
+        }
+        List<NoteDto> all = new ArrayList<>(notes.size() + archived.size());
+        all.addAll(notes);
+        all.addAll(archived);
+        all.sort(RECENT_FIRST);
+        return all;
+    }
+
+    // Con palabra clave los candidatos salen del índice de búsqueda; sin ella basta con el almacén
+    private SearchResult findFiltered(String keyword, String category, Note.Priority priority) {
+        if (keyword == null || !searchIndex.isReady()) {
+            return new SearchResult(noteStore.findByFilters(keyword, category, priority), false);
+        }
+        SearchResult result = findRanked(keyword, category, priority);
+        result.getNotes().sort(RECENT_FIRST);
+        return result;
+    }
+
+    /**
+     * Página de una búsqueda por palabra clave: todas las coincidencias del índice (sin el límite de
+     * searchMaxResults), filtradas y ordenadas en el almacén por tramos de candidatos. De cada tramo basta
+     * con sus primeras {@code limit} filas después del cursor.
+     */
+    private List<NoteDto> findKeywordPage(String keyword, String category, Note.Priority priority,
+                                          NoteCursor cursor, int limit) {
+        List<Long> candidateIds = searchIndex.search(keyword, Integer.MAX_VALUE);
+        List<NoteDto> rows = new ArrayList<>();
+        for (int from = 0; from < candidateIds.size(); from += SEARCH_CANDIDATE_CHUNK) {
+            List<Long> chunk = candidateIds.subList(from, Math.min(from + SEARCH_CANDIDATE_CHUNK, candidateIds.size()));
+            rows.addAll(cursor == null
+                    ? noteStore.findPageByIdIn(chunk, category, priority, null, null, limit)
+                    : noteStore.findPageByIdIn(chunk, category, priority, cursor.getTimestamp(), cursor.getId(), limit));
+        }
+        rows.sort(RECENT_FIRST);
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
     }
 
     public List<NoteDto> getNotesByCategory(String category) {
         if (category == null || category.trim().isEmpty()) {
             return getAllNotes();
         }
-        Sort sort = Sort.by(Sort.Direction.DESC, "updatedAt");
-        return noteRepository.findByCategory(category.trim(), sort).stream()
-                .map(noteMapper::toDto)
-                .collect(Collectors.toList());
+        return noteStore.findByCategory(category.trim());
     }
 
     public List<NoteDto> getNotesByPriority(Note.Priority priority) {
         if (priority == null) {
             return getAllNotes();
         }
-        Sort sort = Sort.by(Sort.Direction.DESC, "updatedAt");
-        return noteRepository.findByPriority(priority, sort).stream()
-                .map(noteMapper::toDto)
-                .collect(Collectors.toList());
+        return noteStore.findByPriority(priority);
+    }
+
+    /**
+     * Página de notas ordenadas por {@code (updatedAt DESC, id DESC)} a partir del cursor {@code after}.
+     * Usa una consulta de búsqueda por clave (seek) en lugar de OFFSET, así el coste no depende
+     * de la profundidad de la página. Todos los filtros son opcionales.
+     */
+    public CursorPage<NoteDto> getNotesPage(String keyword, String category, Note.Priority priority,
+                                            String after, Integer limit) {
+        String normalizedKeyword = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim() : null;
+        String normalizedCategory = (category != null && !category.trim().isEmpty()) ? category.trim() : null;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        NoteCursor cursor = (after == null || after.isBlank()) ? null : NoteCursor.decode(after.trim());
+
+        List<NoteDto> rows;
+        if (normalizedKeyword != null && searchIndex.isReady()) {
+            rows = findKeywordPage(normalizedKeyword, normalizedCategory, priority, cursor, pageSize + 1);
+        } else if (normalizedKeyword != null) {
+            // Índice en reconstrucción: búsqueda con LIKE en el almacén, paginada en memoria
+            rows = noteStore.findByFilters(normalizedKeyword, normalizedCategory, priority).stream()
+                    .filter(note -> cursor == null || cursor.comesBefore(note))
+                    .limit(pageSize + 1L)
+                    .collect(Collectors.toList());
+        } else {
+            // Se pide una fila de más para saber si existe una página siguiente
+            rows = cursor == null
+                    ? noteStore.findPage(normalizedCategory, priority, null, null, pageSize + 1)
+                    : noteStore.findPage(normalizedCategory, priority, cursor.getTimestamp(), cursor.getId(),
+                            pageSize + 1);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<NoteDto> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? NoteCursor.of(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+
+    /**
+     * Notas creadas en {@code [from, to]}, de la más reciente a la más antigua, paginadas por cursor
+     * sobre {@code (createdAt, id)}.
+     */
+    public CursorPage<NoteDto> getNotesCreatedBetween(LocalDateTime from, LocalDateTime to,
+                                                      String after, Integer limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        if (from.isAfter(end)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        NoteCursor cursor = (after == null || after.isBlank()) ? null : NoteCursor.decode(after.trim());
+
+        List<NoteDto> rows = cursor == null
+                ? noteStore.findCreatedBetween(from, end, null, null, pageSize + 1)
+                : noteStore.findCreatedBetween(from, end, cursor.getTimestamp(), cursor.getId(), pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<NoteDto> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? NoteCursor.ofCreated(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<String> getAllCategories() {
-        return noteRepository.findDistinctCategories();
+        return statsTracker.getCategories();
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<NoteDto> getRecentNotes() {
-        return noteRepository.findTop10ByOrderByUpdatedAtDesc().stream()
-                .map(noteMapper::toDto)
-                .collect(Collectors.toList());
+        return noteCache.getRecent(
+                () -> ReplicaRoutingContext.callOnPrimary(() -> noteStore.findRecent(NoteCache.RECENT_SIZE)));
     }
 
-    public NoteStats getStats() {
-        long total = noteRepository.count();
-        long high = noteRepository.countByPriority(Note.Priority.HIGH);
-        long medium = noteRepository.countByPriority(Note.Priority.MEDIUM);
-        long low = noteRepository.countByPriority(Note.Priority.LOW);
+    /**
+     * Listado resumido (sin contenido) de las notas, opcionalmente filtrado por categoría o prioridad.
+     * Las filas llegan ya como DTO de solo lectura: no hay entidades gestionadas ni snapshots de dirty-checking.
+     */
+    public List<NoteSummaryDto> getNoteSummaries(String category, Note.Priority priority, boolean preview) {
+        String normalizedCategory = (category != null && !category.trim().isEmpty()) ? category.trim() : null;
+        return noteStore.findSummaries(normalizedCategory, priority, preview, 0);
+    }
 
-        return new NoteStats(total, high, medium, low);
+    public List<NoteSummaryDto> getRecentNoteSummaries(boolean preview) {
+        return noteStore.findSummaries(null, null, preview, NoteCache.RECENT_SIZE);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public NoteStats getStats() {
+        return statsTracker.getStats();
     }
 
     public static class NoteStats {
@@ -123,17 +708,34 @@ public class NoteService {
         private final long high;
         private final long medium;
         private final long low;
+        private final Map<String, Long> byCategory;
 
-        public NoteStats(long total, long high, long medium, long low) {
+        public NoteStats(long total, long high, long medium, long low, Map<String, Long> byCategory) {
             this.total = total;
             this.high = high;
             this.medium = medium;
             this.low = low;
+            this.byCategory = byCategory;
         }
 
         public long getTotal() { return total; }
         public long getHigh() { return high; }
         public long getMedium() { return medium; }
         public long getLow() { return low; }
+        public Map<String, Long> getByCategory() { return byCategory; }
+    }
+
+    /** Notas de una búsqueda; {@code truncated} si el límite de resultados dejó fuera alguna que casaba. */
+    public static class SearchResult {
+        private final List<NoteDto> notes;
+        private final boolean truncated;
+
+        public SearchResult(List<NoteDto> notes, boolean truncated) {
+            this.notes = notes;
+            this.truncated = truncated;
+        }
+
+        public List<NoteDto> getNotes() { return notes; }
+        public boolean isTruncated() { return truncated; }
     }
 }
\ No newline at end of file
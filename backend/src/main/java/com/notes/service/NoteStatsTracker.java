@@ -0,0 +1,187 @@
+package com.notes.service;
+
+import com.notes.datasource.ReplicaRoutingContext;
+import com.notes.dto.CategoryPriorityCount;
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.store.NoteStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contadores por prioridad y por categoría mantenidos en memoria.
+ * Cada escritura confirmada los ajusta y una tarea periódica los reconcilia con una única
+ * consulta agrupada, de modo que {@code /stats} y {@code /categories} se sirven sin ir a la base de datos.
+ * Los eventos solo llegan de las escrituras de esta instancia: las de las demás las recoge la reconciliación,
+ * que se hace siempre que la revisión del almacén ha cambiado desde la anterior.
+ */
+@Component
+public class NoteStatsTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteStatsTracker.class);
+
+    private final NoteStore noteStore;
+
+    // Estado mutable protegido por "this"; las lecturas usan la instantánea inmutable
+    private final Map<Note.Priority, Long> byPriority = new EnumMap<>(Note.Priority.class);
+    private final Map<String, Long> byCategory = new TreeMap<>();
+    // Ajustes de las escrituras confirmadas durante un recuento; null si no hay ninguno en curso
+    private Map<Note.Priority, Long> priorityDeltas;
+    private Map<String, Long> categoryDeltas;
+    // Algún ajuste desde el último recuento: su commit puede estar ya en ese recuento (contado dos veces)
+    private boolean adjustedSinceCount;
+    private long reconciledRevision;
+    private volatile Snapshot snapshot;
+    // Un único recuento a la vez: el programado y el del primer acceso pueden coincidir
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    public NoteStatsTracker(NoteStore noteStore) {
+        this.noteStore = noteStore;
+    }
+
+    public NoteService.NoteStats getStats() {
+        return currentSnapshot().stats;
+    }
+
+    public List<String> getCategories() {
+        return currentSnapshot().categories;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            reconcile();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Recuenta en el primario (una réplica con retraso dejaría los contadores desfasados hasta la siguiente
+     * pasada) y suma los ajustes de las escrituras confirmadas mientras tanto, que la consulta no ve. No se
+     * descarta nunca: aunque haya escrituras continuas, cada pasada deja los contadores al día.
+     * <p>
+     * Un ajuste que llega durante el recuento (o después, si el evento se retrasa) puede ser de un commit que la
+     * consulta ya contó, y no hay forma de saberlo: queda contado dos veces. Por eso solo se evita el recuento si
+     * la revisión del almacén no ha cambiado y además no ha habido ningún ajuste desde el anterior; el error dura
+     * como mucho hasta la pasada siguiente.
+     */
+    @Scheduled(initialDelayString = "${notes.stats.reconcile-interval-ms:60000}",
+               fixedDelayString = "${notes.stats.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            boolean adjusted;
+            synchronized (this) {
+                // Se empieza a capturar antes de leer la revisión: ningún commit posterior se pierde
+                adjusted = adjustedSinceCount;
+                adjustedSinceCount = false;
+                priorityDeltas = new EnumMap<>(Note.Priority.class);
+                categoryDeltas = new TreeMap<>();
+            }
+
+            long revision;
+            List<CategoryPriorityCount> rows;
+            try {
+                revision = ReplicaRoutingContext.callOnPrimary(noteStore::findRevision);
+                synchronized (this) {
+                    if (snapshot != null && revision == reconciledRevision && !adjusted && !adjustedSinceCount) {
+                        priorityDeltas = null;
+                        categoryDeltas = null;
+                        return;
+                    }
+                }
+                rows = ReplicaRoutingContext.callOnPrimary(noteStore::countByCategoryAndPriority);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    priorityDeltas = null;
+                    categoryDeltas = null;
+                    adjustedSinceCount = true;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                byPriority.clear();
+                byCategory.clear();
+                for (CategoryPriorityCount row : rows) {
+                    byPriority.merge(row.getPriority(), row.getTotal(), Long::sum);
+                    byCategory.merge(row.getCategory(), row.getTotal(), Long::sum);
+                }
+                priorityDeltas.forEach((priority, delta) -> byPriority.merge(priority, delta, Long::sum));
+                categoryDeltas.forEach((category, delta) -> byCategory.merge(category, delta, Long::sum));
+                byCategory.values().removeIf(total -> total <= 0);
+                priorityDeltas = null;
+                categoryDeltas = null;
+                reconciledRevision = revision;
+                publishSnapshot();
+            }
+            log.debug("Stats reconciled at store revision {}", revision);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onNoteChanged(NoteChangedEvent event) {
+        NoteDto previous = event.getPrevious();
+        NoteDto current = event.getNote();
+        if (previous != null && current != null
+                && previous.getPriority() == current.getPriority()
+                && previous.getCategory().equals(current.getCategory())) {
+            return;
+        }
+        if (previous != null) {
+            adjust(previous, -1);
+        }
+        if (current != null) {
+            adjust(current, 1);
+        }
+        if (snapshot != null) {
+            publishSnapshot();
+        }
+    }
+
+    private void adjust(NoteDto note, long delta) {
+        adjustedSinceCount = true;
+        byPriority.merge(note.getPriority(), delta, Long::sum);
+        byCategory.merge(note.getCategory(), delta, Long::sum);
+        byCategory.remove(note.getCategory(), 0L);
+        if (priorityDeltas != null) {
+            priorityDeltas.merge(note.getPriority(), delta, Long::sum);
+            categoryDeltas.merge(note.getCategory(), delta, Long::sum);
+        }
+    }
+
+    private void publishSnapshot() {
+        long high = byPriority.getOrDefault(Note.Priority.HIGH, 0L);
+        long medium = byPriority.getOrDefault(Note.Priority.MEDIUM, 0L);
+        long low = byPriority.getOrDefault(Note.Priority.LOW, 0L);
+        Map<String, Long> categories = Collections.unmodifiableMap(new LinkedHashMap<>(byCategory));
+        snapshot = new Snapshot(
+                new NoteService.NoteStats(high + medium + low, high, medium, low, categories),
+                List.copyOf(categories.keySet()));
+    }
+
+    private static final class Snapshot {
+        private final NoteService.NoteStats stats;
+        private final List<String> categories;
+
+        private Snapshot(NoteService.NoteStats stats, List<String> categories) {
+            this.stats = stats;
+            this.categories = categories;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.notes.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ejecución compartida ("single-flight"): las llamadas concurrentes con la misma clave esperan al
+ * resultado de la que ya está en curso en lugar de repetir la consulta.
+ * <p>
+ * {@link #invalidate()} abre una nueva generación: una llamada que llega después de una escritura no se
+ * une a una ejecución empezada antes, así que nunca recibe un resultado anterior a esa escritura.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V execute(K key, Function<K, V> loader) {
+        Flight<V> flight = new Flight<>(generation.get());
+        while (true) {
+            Flight<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                break;
+            }
+            if (existing.generation == flight.generation) {
+                coalesced.incrementAndGet();
+                return await(existing);
+            }
+            // Ejecución anterior a una escritura: se reemplaza para que las siguientes se unan a esta
+            if (inFlight.replace(key, existing, flight)) {
+                break;
+            }
+        }
+
+        executions.incrementAndGet();
+        try {
+            V value = loader.apply(key);
+            flight.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /** Llamadas que ejecutaron la consulta. */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /** Llamadas que reutilizaron el resultado de otra en curso. */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private V await(Flight<V> flight) {
+        try {
+            return flight.result.join();
+        } catch (CompletionException e) {
+            // Se relanza la misma excepción que recibió la llamada que ejecutó la consulta
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Flight<V> {
+        private final long generation;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+}
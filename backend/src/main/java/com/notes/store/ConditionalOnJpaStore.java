@@ -0,0 +1,17 @@
+package com.notes.store;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Solo con el motor {@code jpa} (el de por defecto): los beans que necesitan la base de datos. */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Documented
+@ConditionalOnProperty(name = "notes.store.engine", havingValue = "jpa", matchIfMissing = true)
+public @interface ConditionalOnJpaStore {
+}
@@ -0,0 +1,301 @@
+package com.notes.store;
+
+import com.notes.dto.BatchUpdateNoteDto;
+import com.notes.dto.CategoryPriorityCount;
+import com.notes.dto.CreateNoteDto;
+import com.notes.dto.NoteDto;
+import com.notes.dto.NoteSummaryDto;
+import com.notes.dto.TimeBucketCount;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.mapper.NoteMapper;
+import com.notes.model.Note;
+import com.notes.repository.NoteArchiveRepository;
+import com.notes.repository.NoteBatchWriter;
+import com.notes.repository.NoteRepository;
+import com.notes.repository.NoteRevisionRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Motor por defecto: las notas en MySQL a través de {@link NoteRepository} (JPA) y {@link NoteBatchWriter} (JDBC).
+ * Las consultas y su coste son las mismas que cuando los servicios usaban el repositorio directamente;
+ * las entidades se convierten a DTO dentro de la transacción del llamador.
+ */
+@Component
+@ConditionalOnJpaStore
+public class JpaNoteStore implements NoteStore {
+
+    // Orden estable: el id desempata notas con el mismo updatedAt
+    private static final Sort RECENT_FIRST = Sort.by(Sort.Direction.DESC, "updatedAt", "id");
+    private static final Sort CREATED_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    private final NoteRepository noteRepository;
+    private final NoteBatchWriter batchWriter;
+    private final NoteMapper noteMapper;
+    private final NoteIdGenerator idGenerator;
+    private final NoteArchiveRepository archiveRepository;
+    private final NoteRevisionRepository revisionRepository;
+
+    public JpaNoteStore(NoteRepository noteRepository, NoteBatchWriter batchWriter, NoteMapper noteMapper,
+                        NoteIdGenerator idGenerator, NoteArchiveRepository archiveRepository,
+                        NoteRevisionRepository revisionRepository) {
+        this.noteRepository = noteRepository;
+        this.batchWriter = batchWriter;
+        this.noteMapper = noteMapper;
+        this.idGenerator = idGenerator;
+        this.archiveRepository = archiveRepository;
+        this.revisionRepository = revisionRepository;
+    }
+
+    @Override
+    public List<NoteDto> findAll() {
+        return toDtos(noteRepository.findAll(RECENT_FIRST));
+    }
+
+    @Override
+    public Optional<NoteDto> findById(Long id) {
+        return noteRepository.findWithContentById(id).map(noteMapper::toDto);
+    }
+
+    @Override
+    public Optional<NoteDto> findMetadataById(Long id) {
+        return noteRepository.findById(id).map(noteMapper::toMetadataDto);
+    }
+
+    // Dentro de la misma transacción findById devuelve la entidad ya cargada y solo se lee el grupo "content"
+    @Override
+    public String findContent(Long id) {
+        return noteRepository.findById(id).map(Note::getContent).orElse(null);
+    }
+
+    @Override
+    public List<NoteDto> findAllById(Collection<Long> ids) {
+        return toDtos(noteRepository.findAllById(ids));
+    }
+
+    @Override
+    public List<NoteDto> findByCategory(String category) {
+        return toDtos(noteRepository.findByCategory(category, RECENT_FIRST));
+    }
+
+    @Override
+    public List<NoteDto> findByPriority(Note.Priority priority) {
+        return toDtos(noteRepository.findByPriority(priority, RECENT_FIRST));
+    }
+
+    @Override
+    public List<NoteDto> findByKeyword(String keyword) {
+        return toDtos(noteRepository.findByKeyword(keyword));
+    }
+
+    @Override
+    public List<NoteDto> findByFilters(String keyword, String category, Note.Priority priority) {
+        return toDtos(noteRepository.findByFilters(keyword, category, priority));
+    }
+
+    @Override
+    public List<NoteDto> findByIdInAndFilters(Collection<Long> ids, String category, Note.Priority priority) {
+        return toDtos(noteRepository.findByIdInAndFilters(ids, category, priority));
+    }
+
+    @Override
+    public List<NoteDto> findPage(String category, Note.Priority priority, LocalDateTime updatedAt, Long id, int limit) {
+        Pageable pageable = PageRequest.of(0, limit);
+        return toDtos(updatedAt == null
+                ? noteRepository.findFirstPage(category, priority, pageable)
+                : noteRepository.findPageAfter(updatedAt, id, category, priority, pageable));
+    }
+
+    @Override
+    public List<NoteDto> findPageByIdIn(Collection<Long> ids, String category, Note.Priority priority,
+                                        LocalDateTime updatedAt, Long id, int limit) {
+        Pageable pageable = PageRequest.of(0, limit);
+        return toDtos(updatedAt == null
+                ? noteRepository.findFirstPageByIdIn(ids, category, priority, pageable)
+                : noteRepository.findPageByIdInAfter(ids, updatedAt, id, category, priority, pageable));
+    }
+
+    @Override
+    public List<NoteDto> findCreatedBetween(LocalDateTime from, LocalDateTime to, LocalDateTime createdAt, Long id,
+                                            int limit) {
+        return toDtos(createdAt == null
+                ? noteRepository.findByCreatedAtBetween(from, to, PageRequest.of(0, limit, CREATED_FIRST))
+                : noteRepository.findCreatedPageAfter(from, createdAt, id, PageRequest.of(0, limit)));
+    }
+
+    @Override
+    public List<NoteDto> findRecent(int limit) {
+        return toDtos(noteRepository.findFirstPage(null, null, PageRequest.of(0, limit)));
+    }
+
+    @Override
+    public List<NoteDto> findBatchAfter(long lastId, int size) {
+        return toDtos(noteRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, size)));
+    }
+
+    @Override
+    public List<NoteDto> findUpdatedAfter(LocalDateTime updatedAt, long id, int limit) {
+        return toDtos(noteRepository.findUpdatedAfter(updatedAt, id, PageRequest.of(0, limit)));
+    }
+
+    @Override
+    public Stream<NoteDto> streamAll(int fetchSize) {
+        return noteRepository.streamAll(fetchSize).map(noteMapper::toDto);
+    }
+
+    @Override
+    public List<NoteSummaryDto> findSummaries(String category, Note.Priority priority, boolean preview, int limit) {
+        Pageable pageable = limit > 0 ? PageRequest.of(0, limit) : Pageable.unpaged();
+        return preview
+                ? noteRepository.findSummariesWithPreview(category, priority, pageable)
+                : noteRepository.findSummaries(category, priority, pageable);
+    }
+
+    @Override
+    public long findRevision() {
+        return revisionRepository.current();
+    }
+
+    @Override
+    public List<CategoryPriorityCount> countByCategoryAndPriority() {
+        return noteRepository.countGroupedByCategoryAndPriority();
+    }
+
+    @Override
+    public List<TimeBucketCount> countByTimeBucket(String timestamp, boolean hourly, String groupBy,
+                                                   LocalDateTime from, LocalDateTime to) {
+        return noteRepository.countByTimeBucket(timestamp, hourly, groupBy, from, to);
+    }
+
+    @Override
+    public NoteDto insert(CreateNoteDto note) {
+        Note entity = noteMapper.toEntity(note);
+        entity.setId(idGenerator.nextId());
+        revisionRepository.markChanged();
+        return noteMapper.toDto(noteRepository.insert(entity));
+    }
+
+    // Un único batch JDBC (ver NoteBatchWriter)
+    @Override
+    public List<NoteDto> insertAll(List<CreateNoteDto> notes) {
+        List<Note> entities = notes.stream().map(noteMapper::toEntity).collect(Collectors.toList());
+        entities.forEach(entity -> entity.setId(idGenerator.nextId()));
+        batchWriter.insertAll(entities);
+        revisionRepository.markChanged();
+        return toDtos(entities);
+    }
+
+    @Override
+    public int updateFields(Long id, long expectedVersion, UpdateNoteDto changes, LocalDateTime updatedAt) {
+        return changed(noteRepository.updateFields(id, expectedVersion, changes, updatedAt));
+    }
+
+    // Una consulta para cargar las notas y un flush que Hibernate envía como batch de UPDATE
+    @Override
+    public List<Change> updateAll(List<BatchUpdateNoteDto> updates) {
+        Map<Long, Note> existing = noteRepository.findAllById(updates.stream().map(BatchUpdateNoteDto::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+        List<NoteDto> previous = new ArrayList<>(updates.size());
+        for (BatchUpdateNoteDto update : updates) {
+            Note note = existing.get(update.getId());
+            previous.add(note == null ? null : noteMapper.toDto(note));
+            noteMapper.updateEntityFromDto(update, note);
+        }
+        noteRepository.flush();
+        revisionRepository.markChanged();
+
+        List<Change> changes = new ArrayList<>(updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            Note note = existing.get(updates.get(i).getId());
+            changes.add(note == null ? null : new Change(previous.get(i), noteMapper.toDto(note)));
+        }
+        return changes;
+    }
+
+    @Override
+    public List<Boolean> updatePartial(List<PartialUpdate> updates) {
+        List<Boolean> applied = batchWriter.updatePartial(updates);
+        if (applied.contains(true)) {
+            revisionRepository.markChanged();
+        }
+        return applied;
+    }
+
+    @Override
+    public int deleteByIdAndVersion(Long id, long version) {
+        return changed(noteRepository.deleteByIdAndVersion(id, version));
+    }
+
+    // Un único DELETE ... WHERE id IN (...)
+    @Override
+    public List<NoteDto> deleteAll(Collection<Long> ids) {
+        List<Note> existing = noteRepository.findByIdIn(ids);
+        if (!existing.isEmpty()) {
+            noteRepository.deleteAllByIdInBatch(existing.stream().map(Note::getId).toList());
+            revisionRepository.markChanged();
+        }
+        return existing.stream().map(noteMapper::toMetadataDto).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<NoteDto> findNotUpdatedSince(LocalDateTime before, int limit) {
+        return noteRepository.findByUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(before, PageRequest.of(0, limit)).stream()
+                .map(noteMapper::toMetadataDto)
+                .collect(Collectors.toList());
+    }
+
+    // Las filas se bloquean antes de copiarlas: una edición concurrente espera y falla después (0 filas)
+    @Override
+    public List<NoteDto> archiveAll(Collection<Long> ids, LocalDateTime before) {
+        List<Note> notes = noteRepository.lockNotUpdatedSince(ids, before);
+        if (!notes.isEmpty()) {
+            archiveRepository.archive(notes.stream().map(Note::getId).toList());
+            revisionRepository.markChanged();
+        }
+        return notes.stream().map(noteMapper::toMetadataDto).collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<NoteDto> findArchivedById(Long id) {
+        return archiveRepository.findById(id);
+    }
+
+    @Override
+    public List<NoteDto> findArchivedByFilters(String keyword, String category, Note.Priority priority) {
+        return archiveRepository.findByFilters(keyword, category, priority);
+    }
+
+    @Override
+    public Optional<NoteDto> restore(Long id, LocalDateTime updatedAt) {
+        if (!archiveRepository.restore(id, updatedAt)) {
+            return Optional.empty();
+        }
+        revisionRepository.markChanged();
+        return noteRepository.findWithContentById(id).map(noteMapper::toDto);
+    }
+
+    // Escritura de filas sueltas: la revisión solo sube si cambió alguna
+    private int changed(int rows) {
+        if (rows > 0) {
+            revisionRepository.markChanged();
+        }
+        return rows;
+    }
+
+    private List<NoteDto> toDtos(List<Note> notes) {
+        return notes.stream().map(noteMapper::toDto).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+package com.notes.store;
+
+import com.notes.datasource.ShardContext;
+import com.notes.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ids de las notas nuevas, sustituye al {@code AUTO_INCREMENT} de la tabla. El id lleva el shard de la nota:
+ * {@code id = n * shards + shard}, de modo que {@link #shardOf(long)} es el resto de dividir entre el número de
+ * shards. Cada shard numera {@code n} con su propia secuencia ({@code note_id_sequence}), reservada por bloques
+ * de {@code block-size} en una transacción aparte para no retener el bloqueo de la fila durante el alta.
+ * <p>
+ * Las reservas usan un pool propio de {@code notes.id.pool-size} conexiones por shard, fuera del pool de la
+ * aplicación y de su bulkhead: quien pide un id ya tiene una conexión de ese pool (la de su transacción), y si
+ * todas estuvieran ocupadas por altas esperando el bloque, la reserva no conseguiría la suya hasta el timeout.
+ * <p>
+ * Con un único shard el id es el de la secuencia, que continúa el {@code AUTO_INCREMENT} anterior.
+ * Un bloque sin agotar se pierde al reiniciar (huecos en la numeración, nunca repeticiones).
+ */
+@Component
+@ConditionalOnJpaStore
+public class NoteIdGenerator {
+
+    private static final String RESERVE_SQL = "UPDATE note_id_sequence SET next_value = next_value + ?";
+    private static final String SELECT_SQL = "SELECT next_value FROM note_id_sequence";
+
+    private final List<DataSource> sequences;
+    private final int shardCount;
+    private final int blockSize;
+    private final Block[] blocks;
+
+    @Autowired
+    public NoteIdGenerator(DataSourceProperties properties, ObjectProvider<ShardRoutingDataSource> shards,
+                           @Value("${notes.id.block-size:100}") int blockSize,
+                           @Value("${notes.id.pool-size:2}") int poolSize) {
+        this(sequencePools(properties, shards.getIfAvailable(), poolSize), blockSize);
+    }
+
+    NoteIdGenerator(List<DataSource> sequences, int blockSize) {
+        this.sequences = List.copyOf(sequences);
+        this.shardCount = sequences.size();
+        this.blockSize = blockSize;
+        this.blocks = new Block[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            blocks[i] = new Block();
+        }
+    }
+
+    // Un pool pequeño por shard con la misma base de datos (y credenciales) que el del shard o el primario
+    private static List<DataSource> sequencePools(DataSourceProperties properties, ShardRoutingDataSource routing,
+                                                  int poolSize) {
+        List<DataSource> pools = new ArrayList<>();
+        if (routing == null) {
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            pools.add(configure(pool, "note-id", poolSize));
+            return pools;
+        }
+        for (int i = 0; i < routing.getShardCount(); i++) {
+            DataSource shard = routing.getShards().get(i);
+            if (shard instanceof HikariDataSource shardPool) {
+                HikariDataSource pool = new HikariDataSource();
+                pool.setJdbcUrl(shardPool.getJdbcUrl());
+                pool.setDriverClassName(shardPool.getDriverClassName());
+                pool.setUsername(shardPool.getUsername());
+                pool.setPassword(shardPool.getPassword());
+                pool.setDataSourceProperties(shardPool.getDataSourceProperties());
+                pools.add(configure(pool, "note-id-" + i, poolSize));
+            } else {
+                pools.add(shard);
+            }
+        }
+        return pools;
+    }
+
+    private static HikariDataSource configure(HikariDataSource pool, String name, int poolSize) {
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(poolSize);
+        pool.setMinimumIdle(0);
+        return pool;
+    }
+
+    /** Id nuevo en el shard fijado en {@link ShardContext} (el primero si no hay ninguno). */
+    public long nextId() {
+        Integer current = ShardContext.current();
+        int shard = current == null ? 0 : current;
+        Block block = blocks[shard];
+        block.lock.lock();
+        try {
+            if (block.next == block.end) {
+                block.end = reserve(shard);
+                block.next = block.end - blockSize;
+            }
+            return block.next++ * shardCount + shard;
+        } finally {
+            block.lock.unlock();
+        }
+    }
+
+    public int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shardCount);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    // Conexión del pool de reservas (fuera de la transacción del llamador) del shard; devuelve el final del bloque
+    private long reserve(int shard) {
+        try (Connection connection = sequences.get(shard).getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement reserve = connection.prepareStatement(RESERVE_SQL);
+                 PreparedStatement select = connection.prepareStatement(SELECT_SQL)) {
+                reserve.setInt(1, blockSize);
+                if (reserve.executeUpdate() != 1) {
+                    throw new IllegalStateException("note_id_sequence must contain exactly one row");
+                }
+                long end;
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                    end = rs.getLong(1);
+                }
+                connection.commit();
+                return end;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Could not reserve note ids", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (DataSource sequence : sequences) {
+            if (sequence instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        }
+    }
+
+    private static final class Block {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long next;
+        private long end;
+    }
+}
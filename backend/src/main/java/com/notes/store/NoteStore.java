@@ -0,0 +1,170 @@
+package com.notes.store;
+
+import com.notes.dto.BatchUpdateNoteDto;
+import com.notes.dto.CategoryPriorityCount;
+import com.notes.dto.CreateNoteDto;
+import com.notes.dto.NoteDto;
+import com.notes.dto.NoteSummaryDto;
+import com.notes.dto.TimeBucketCount;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.model.Note;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Almacenamiento de las notas. {@code NoteService} y los demás servicios solo hablan con esta interfaz;
+ * el motor se elige con {@code notes.store.engine}: {@code jpa} (MySQL, por defecto, ver {@link JpaNoteStore})
+ * o {@code memory} (en el propio proceso con diario y snapshots, ver {@code MemoryNoteStore}). Con
+ * {@code notes.datasource.shards.urls}, {@link ShardedNoteStore} reparte el motor {@code jpa} entre varias bases de datos.
+ * <p>
+ * Todo se intercambia como DTO: las notas devueltas son copias que el llamador puede modificar.
+ * Los listados van en orden {@code (updatedAt DESC, id DESC)} salvo que se indique otro.
+ * Las escrituras participan en la transacción en curso si el motor las tiene.
+ *
+ * @see com.notes.service.NoteService
+ */
+public interface NoteStore {
+
+    /** Todas las notas, con contenido. */
+    List<NoteDto> findAll();
+
+    Optional<NoteDto> findById(Long id);
+
+    /** Solo metadatos ({@code content} a {@code null}): no lee el contenido. */
+    Optional<NoteDto> findMetadataById(Long id);
+
+    /** Contenido de una nota leída antes con {@link #findMetadataById(Long)}; {@code null} si ya no existe. */
+    String findContent(Long id);
+
+    /** Notas con contenido, sin orden definido; los ids inexistentes se omiten. */
+    List<NoteDto> findAllById(Collection<Long> ids);
+
+    List<NoteDto> findByCategory(String category);
+
+    List<NoteDto> findByPriority(Note.Priority priority);
+
+    /** Búsqueda por subcadena en título y contenido (respaldo mientras el índice de búsqueda no está listo). */
+    List<NoteDto> findByKeyword(String keyword);
+
+    /** Como {@link #findByKeyword(String)} con filtros opcionales; todos los parámetros admiten {@code null}. */
+    List<NoteDto> findByFilters(String keyword, String category, Note.Priority priority);
+
+    /** Filtros opcionales sobre los candidatos del índice de búsqueda. */
+    List<NoteDto> findByIdInAndFilters(Collection<Long> ids, String category, Note.Priority priority);
+
+    /**
+     * Página por cursor sobre {@code (updatedAt, id)}: las notas que van después de {@code (updatedAt, id)},
+     * o desde el principio si {@code updatedAt} es {@code null}.
+     */
+    List<NoteDto> findPage(String category, Note.Priority priority, LocalDateTime updatedAt, Long id, int limit);
+
+    /** Como {@link #findPage} pero solo entre {@code ids} (los candidatos de una búsqueda). */
+    List<NoteDto> findPageByIdIn(Collection<Long> ids, String category, Note.Priority priority,
+                                 LocalDateTime updatedAt, Long id, int limit);
+
+    /**
+     * Notas creadas en {@code [from, to]} en orden {@code (createdAt DESC, id DESC)}; con cursor, solo las que
+     * van después de {@code (createdAt, id)} (y siguen siendo posteriores a {@code from}).
+     */
+    List<NoteDto> findCreatedBetween(LocalDateTime from, LocalDateTime to, LocalDateTime createdAt, Long id, int limit);
+
+    List<NoteDto> findRecent(int limit);
+
+    /** Lote en orden de id a partir de {@code lastId} (recorridos completos por partes). */
+    List<NoteDto> findBatchAfter(long lastId, int size);
+
+    /**
+     * Notas modificadas después de {@code (updatedAt, id)}, de la más antigua a la más reciente: recorrido
+     * incremental de los cambios hechos por cualquier instancia.
+     */
+    List<NoteDto> findUpdatedAfter(LocalDateTime updatedAt, long id, int limit);
+
+    /** Todas las notas en orden de id sin cargarlas a la vez; hay que cerrar el stream. */
+    Stream<NoteDto> streamAll(int fetchSize);
+
+    /** Resúmenes sin contenido (o con vista previa); {@code limit <= 0} para no limitar. */
+    List<NoteSummaryDto> findSummaries(String category, Note.Priority priority, boolean preview, int limit);
+
+    /**
+     * Revisión de las notas: sube con cada transacción que las modifica (altas, bajas, modificaciones, archivo y
+     * restauración) y nunca baja. Sirve de marca de cambios de los listados.
+     */
+    long findRevision();
+
+    List<CategoryPriorityCount> countByCategoryAndPriority();
+
+    /**
+     * Notas con {@code timestamp} ({@code createdAt} o {@code updatedAt}) en {@code [from, to)} agrupadas por
+     * hora o día y, opcionalmente, por {@code groupBy} ({@code category} o {@code priority}).
+     */
+    List<TimeBucketCount> countByTimeBucket(String timestamp, boolean hourly, String groupBy,
+                                            LocalDateTime from, LocalDateTime to);
+
+    /** Da de alta la nota con id, fechas y versión 0. */
+    NoteDto insert(CreateNoteDto note);
+
+    /** Alta masiva; devuelve las notas creadas en el mismo orden. */
+    List<NoteDto> insertAll(List<CreateNoteDto> notes);
+
+    /**
+     * Modifica los campos no nulos de {@code changes} si la nota sigue en {@code expectedVersion} y sube la
+     * versión en uno. Devuelve las filas modificadas (0 si no existe o cambió de versión).
+     */
+    int updateFields(Long id, long expectedVersion, UpdateNoteDto changes, LocalDateTime updatedAt);
+
+    /**
+     * Aplica los cambios en orden y devuelve, en la misma posición, el estado anterior y el nuevo de cada nota
+     * ({@code null} si no existe). Un cambio concurrente hace fallar la llamada entera (bloqueo optimista).
+     */
+    List<Change> updateAll(List<BatchUpdateNoteDto> updates);
+
+    /**
+     * Cambios acumulados del autoguardado. Devuelve, alineado con {@code updates}, si cada uno se aplicó:
+     * {@code false} si la nota ya no existe o ya no está en la versión esperada (otra instancia la cambió).
+     */
+    List<Boolean> updatePartial(List<PartialUpdate> updates);
+
+    /** Borra la nota si sigue en {@code version}; devuelve las filas borradas. */
+    int deleteByIdAndVersion(Long id, long version);
+
+    /** Borra las notas que existan y devuelve sus metadatos. */
+    List<NoteDto> deleteAll(Collection<Long> ids);
+
+    // ---- Archivo (nivel frío, ver com.notes.service.NoteArchiver) ----
+    // El resto de métodos solo ven las notas activas; un motor sin archivo no devuelve nada en estos
+
+    /** Metadatos de las notas activas sin modificar desde {@code before}, de la más antigua a la más reciente. */
+    List<NoteDto> findNotUpdatedSince(LocalDateTime before, int limit);
+
+    /**
+     * Mueve al archivo las notas de {@code ids} que siguen sin modificar desde {@code before} y devuelve
+     * sus metadatos; las demás se quedan como están.
+     */
+    List<NoteDto> archiveAll(Collection<Long> ids, LocalDateTime before);
+
+    Optional<NoteDto> findArchivedById(Long id);
+
+    /** Como {@link #findByFilters(String, String, Note.Priority)} sobre las notas archivadas. */
+    List<NoteDto> findArchivedByFilters(String keyword, String category, Note.Priority priority);
+
+    /** Devuelve la nota archivada a las activas con {@code updatedAt} y una versión más; vacío si no está archivada. */
+    Optional<NoteDto> restore(Long id, LocalDateTime updatedAt);
+
+    /** Estado de una nota antes y después de {@link #updateAll(List)}. */
+    final class Change {
+        private final NoteDto previous;
+        private final NoteDto current;
+
+        public Change(NoteDto previous, NoteDto current) {
+            this.previous = previous;
+            this.current = current;
+        }
+
+        public NoteDto getPrevious() { return previous; }
+        public NoteDto getCurrent() { return current; }
+    }
+}
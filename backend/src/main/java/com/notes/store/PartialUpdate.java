@@ -0,0 +1,32 @@
+package com.notes.store;
+
+import com.notes.dto.UpdateNoteDto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cambios de una nota para {@link NoteStore#updatePartial(java.util.List)}; los campos nulos no se modifican.
+ * Solo se aplican si la nota sigue en {@code expectedVersion}.
+ */
+public final class PartialUpdate {
+    private final Long id;
+    private final UpdateNoteDto changes;
+    private final LocalDateTime updatedAt;
+    private final long expectedVersion;
+    private final int versionIncrement;
+
+    public PartialUpdate(Long id, UpdateNoteDto changes, LocalDateTime updatedAt, long expectedVersion,
+                         int versionIncrement) {
+        this.id = id;
+        this.changes = changes;
+        this.updatedAt = updatedAt;
+        this.expectedVersion = expectedVersion;
+        this.versionIncrement = versionIncrement;
+    }
+
+    public Long getId() { return id; }
+    public UpdateNoteDto getChanges() { return changes; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public long getExpectedVersion() { return expectedVersion; }
+    public int getVersionIncrement() { return versionIncrement; }
+}
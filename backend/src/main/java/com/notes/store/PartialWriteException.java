@@ -0,0 +1,36 @@
+package com.notes.store;
+
+import org.springframework.dao.DataAccessException;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Escritura por lotes repartida entre varios shards en la que unos la confirmaron y otros fallaron
+ * (ver {@link ShardedNoteStore}): lo confirmado no se deshace. La causa es el error del primer shard que falló.
+ * <p>
+ * {@link #getResults()} va alineada con los elementos pedidos, con el resultado de cada uno en los shards que
+ * confirmaron y {@code null} en los demás; {@link #isApplied(int)} dice qué posiciones quedaron escritas.
+ */
+public class PartialWriteException extends DataAccessException {
+
+    private final List<?> results;
+    private final BitSet applied;
+
+    public PartialWriteException(RuntimeException cause, List<?> results, BitSet applied) {
+        super("Write applied on " + applied.cardinality() + " of " + results.size()
+                + " items; the shard of the rest failed", cause);
+        this.results = results;
+        this.applied = applied;
+    }
+
+    /** Resultado de cada elemento, como el de la operación, en el orden de la petición. */
+    @SuppressWarnings("unchecked")
+    public <R> List<R> getResults() {
+        return (List<R>) results;
+    }
+
+    public boolean isApplied(int position) {
+        return applied.get(position);
+    }
+}
@@ -0,0 +1,532 @@
+package com.notes.store;
+
+import com.notes.datasource.ShardContext;
+import com.notes.dto.BatchUpdateNoteDto;
+import com.notes.dto.CategoryPriorityCount;
+import com.notes.dto.CreateNoteDto;
+import com.notes.dto.NoteDto;
+import com.notes.dto.NoteSummaryDto;
+import com.notes.dto.TimeBucketCount;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.metrics.RequestQueryStats;
+import com.notes.model.Note;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Notas repartidas en varias bases de datos (ver {@code ShardDataSourceConfig}). Cada shard se consulta con
+ * {@link JpaNoteStore}, fijando antes el shard en {@link ShardContext} y abriendo una transacción en él.
+ * <ul>
+ *   <li>Por id: el shard sale del propio id ({@link NoteIdGenerator#shardOf(long)}); las altas se reparten
+ *       en round-robin y el generador da a la nota un id de ese shard.</li>
+ *   <li>Por lotes de ids: una llamada por shard con sus ids, en paralelo.</li>
+ *   <li>Listados y recuentos: la misma consulta en todos los shards en paralelo; las listas (ya ordenadas en
+ *       cada shard) se mezclan por orden, con el mismo límite, y los recuentos se suman.</li>
+ * </ul>
+ * Cada llamada es atómica dentro de cada shard, no entre shards: un lote que toca varios puede quedar aplicado
+ * en unos y no en otros si uno falla. En ese caso se espera a todos y se lanza {@link PartialWriteException}
+ * con lo que sí se escribió; si no se aplicó nada, el error del shard tal cual.
+ */
+@Component
+@Primary
+@ConditionalOnJpaStore
+@ConditionalOnProperty(name = "notes.datasource.shards.urls")
+public class ShardedNoteStore implements NoteStore {
+
+    // El mismo orden que las consultas de cada shard
+    private static final Comparator<NoteDto> RECENT_FIRST =
+            Comparator.comparing(NoteDto::getUpdatedAt).thenComparing(NoteDto::getId).reversed();
+    private static final Comparator<NoteDto> CREATED_FIRST =
+            Comparator.comparing(NoteDto::getCreatedAt).thenComparing(NoteDto::getId).reversed();
+    private static final Comparator<NoteDto> BY_ID = Comparator.comparing(NoteDto::getId);
+    private static final Comparator<NoteDto> OLDEST_FIRST =
+            Comparator.comparing(NoteDto::getUpdatedAt).thenComparing(NoteDto::getId);
+    private static final Comparator<NoteSummaryDto> SUMMARIES_RECENT_FIRST =
+            Comparator.comparing(NoteSummaryDto::getUpdatedAt).thenComparing(NoteSummaryDto::getId).reversed();
+
+    private static final int STREAM_BATCH_SIZE = 1000;
+
+    private final JpaNoteStore shardStore;
+    private final NoteIdGenerator idGenerator;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final Executor fanOut;
+    private final int shardCount;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ShardedNoteStore(JpaNoteStore shardStore, NoteIdGenerator idGenerator,
+                            @Qualifier("shardTransactionManager") PlatformTransactionManager transactionManager,
+                            Environment environment,
+                            @Value("${notes.datasource.shards.fan-out-threads:16}") int fanOutThreads) {
+        this.shardStore = shardStore;
+        this.idGenerator = idGenerator;
+        this.shardCount = idGenerator.getShardCount();
+        // Siempre una transacción nueva: la del hilo, si la hay, puede ser de otro shard
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.fanOut = createFanOutExecutor(environment, fanOutThreads);
+    }
+
+    // Con hilos virtuales cada consulta usa el suyo; si no, un pool fijo
+    private static Executor createFanOutExecutor(Environment environment, int threads) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("note-shard-");
+            executor.setVirtualThreads(true);
+            executor.setTaskTerminationTimeout(1000);
+            return executor;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "note-shard-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ---- Lecturas ----
+
+    @Override
+    public List<NoteDto> findAll() {
+        return merge(onAllShards(true, shard -> shardStore.findAll()), RECENT_FIRST, 0);
+    }
+
+    @Override
+    public Optional<NoteDto> findById(Long id) {
+        return onShard(idGenerator.shardOf(id), true, () -> shardStore.findById(id));
+    }
+
+    @Override
+    public Optional<NoteDto> findMetadataById(Long id) {
+        return onShard(idGenerator.shardOf(id), true, () -> shardStore.findMetadataById(id));
+    }
+
+    @Override
+    public String findContent(Long id) {
+        return onShard(idGenerator.shardOf(id), true, () -> shardStore.findContent(id));
+    }
+
+    @Override
+    public List<NoteDto> findAllById(Collection<Long> ids) {
+        return concat(onShardsOf(ids, true, shardStore::findAllById));
+    }
+
+    @Override
+    public List<NoteDto> findByCategory(String category) {
+        return merge(onAllShards(true, shard -> shardStore.findByCategory(category)), RECENT_FIRST, 0);
+    }
+
+    @Override
+    public List<NoteDto> findByPriority(Note.Priority priority) {
+        return merge(onAllShards(true, shard -> shardStore.findByPriority(priority)), RECENT_FIRST, 0);
+    }
+
+    @Override
+    public List<NoteDto> findByKeyword(String keyword) {
+        return merge(onAllShards(true, shard -> shardStore.findByKeyword(keyword)), RECENT_FIRST, 0);
+    }
+
+    @Override
+    public List<NoteDto> findByFilters(String keyword, String category, Note.Priority priority) {
+        return merge(onAllShards(true, shard -> shardStore.findByFilters(keyword, category, priority)),
+                RECENT_FIRST, 0);
+    }
+
+    @Override
+    public List<NoteDto> findByIdInAndFilters(Collection<Long> ids, String category, Note.Priority priority) {
+        return merge(onShardsOf(ids, true, shardIds -> shardStore.findByIdInAndFilters(shardIds, category, priority)),
+                RECENT_FIRST, 0);
+    }
+
+    // Cada shard devuelve sus primeras "limit" y de la mezcla se toman las primeras "limit"
+    @Override
+    public List<NoteDto> findPage(String category, Note.Priority priority, LocalDateTime updatedAt, Long id, int limit) {
+        return merge(onAllShards(true, shard -> shardStore.findPage(category, priority, updatedAt, id, limit)),
+                RECENT_FIRST, limit);
+    }
+
+    @Override
+    public List<NoteDto> findPageByIdIn(Collection<Long> ids, String category, Note.Priority priority,
+                                        LocalDateTime updatedAt, Long id, int limit) {
+        return merge(onShardsOf(ids, true,
+                        shardIds -> shardStore.findPageByIdIn(shardIds, category, priority, updatedAt, id, limit)),
+                RECENT_FIRST, limit);
+    }
+
+    @Override
+    public List<NoteDto> findCreatedBetween(LocalDateTime from, LocalDateTime to, LocalDateTime createdAt, Long id,
+                                            int limit) {
+        return merge(onAllShards(true, shard -> shardStore.findCreatedBetween(from, to, createdAt, id, limit)),
+                CREATED_FIRST, limit);
+    }
+
+    @Override
+    public List<NoteDto> findRecent(int limit) {
+        return merge(onAllShards(true, shard -> shardStore.findRecent(limit)), RECENT_FIRST, limit);
+    }
+
+    @Override
+    public List<NoteDto> findBatchAfter(long lastId, int size) {
+        return merge(onAllShards(true, shard -> shardStore.findBatchAfter(lastId, size)), BY_ID, size);
+    }
+
+    @Override
+    public List<NoteDto> findUpdatedAfter(LocalDateTime updatedAt, long id, int limit) {
+        return merge(onAllShards(true, shard -> shardStore.findUpdatedAfter(updatedAt, id, limit)),
+                OLDEST_FIRST, limit);
+    }
+
+    // Por lotes en orden de id (una transacción por lote y shard) en lugar de un cursor abierto en cada shard
+    @Override
+    public Stream<NoteDto> streamAll(int fetchSize) {
+        int batchSize = fetchSize > 0 ? fetchSize : STREAM_BATCH_SIZE;
+        return Stream.iterate(findBatchAfter(0, batchSize),
+                        batch -> !batch.isEmpty(),
+                        batch -> batch.size() < batchSize
+                                ? List.of()
+                                : findBatchAfter(batch.get(batch.size() - 1).getId(), batchSize))
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public List<NoteSummaryDto> findSummaries(String category, Note.Priority priority, boolean preview, int limit) {
+        return merge(onAllShards(true, shard -> shardStore.findSummaries(category, priority, preview, limit)),
+                SUMMARIES_RECENT_FIRST, limit);
+    }
+
+    // La suma de las revisiones de los shards también sube con cada escritura en cualquiera de ellos
+    @Override
+    public long findRevision() {
+        return onAllShards(true, shard -> shardStore.findRevision()).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<CategoryPriorityCount> countByCategoryAndPriority() {
+        Map<List<Object>, Long> totals = sum(concat(onAllShards(true, shard -> shardStore.countByCategoryAndPriority())),
+                row -> Arrays.asList(row.getCategory(), row.getPriority()), CategoryPriorityCount::getTotal);
+        return totals.entrySet().stream()
+                .map(entry -> new CategoryPriorityCount((String) entry.getKey().get(0),
+                        (Note.Priority) entry.getKey().get(1), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<TimeBucketCount> countByTimeBucket(String timestamp, boolean hourly, String groupBy,
+                                                   LocalDateTime from, LocalDateTime to) {
+        Map<List<Object>, Long> totals = sum(
+                concat(onAllShards(true, shard -> shardStore.countByTimeBucket(timestamp, hourly, groupBy, from, to))),
+                row -> Arrays.asList(row.getBucket(), row.getGroup()), TimeBucketCount::getTotal);
+        return totals.entrySet().stream()
+                .map(entry -> new TimeBucketCount((LocalDateTime) entry.getKey().get(0),
+                        (String) entry.getKey().get(1), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    // ---- Escrituras ----
+
+    @Override
+    public NoteDto insert(CreateNoteDto note) {
+        return onShard(nextShard(), false, () -> shardStore.insert(note));
+    }
+
+    @Override
+    public List<NoteDto> insertAll(List<CreateNoteDto> notes) {
+        Map<Integer, List<Integer>> positions = new TreeMap<>();
+        for (int i = 0; i < notes.size(); i++) {
+            positions.computeIfAbsent(nextShard(), shard -> new ArrayList<>()).add(i);
+        }
+        return scatter(positions, notes, shardStore::insertAll);
+    }
+
+    @Override
+    public int updateFields(Long id, long expectedVersion, UpdateNoteDto changes, LocalDateTime updatedAt) {
+        return onShard(idGenerator.shardOf(id), false,
+                () -> shardStore.updateFields(id, expectedVersion, changes, updatedAt));
+    }
+
+    @Override
+    public List<Change> updateAll(List<BatchUpdateNoteDto> updates) {
+        return scatter(positionsByShard(updates, BatchUpdateNoteDto::getId), updates, shardStore::updateAll);
+    }
+
+    @Override
+    public List<Boolean> updatePartial(List<PartialUpdate> updates) {
+        return scatter(positionsByShard(updates, PartialUpdate::getId), updates, shardStore::updatePartial);
+    }
+
+    @Override
+    public int deleteByIdAndVersion(Long id, long version) {
+        return onShard(idGenerator.shardOf(id), false, () -> shardStore.deleteByIdAndVersion(id, version));
+    }
+
+    @Override
+    public List<NoteDto> deleteAll(Collection<Long> ids) {
+        return writeByIds(ids, shardStore::deleteAll);
+    }
+
+    // ---- Archivo ----
+
+    @Override
+    public List<NoteDto> findNotUpdatedSince(LocalDateTime before, int limit) {
+        return merge(onAllShards(true, shard -> shardStore.findNotUpdatedSince(before, limit)), OLDEST_FIRST, limit);
+    }
+
+    @Override
+    public List<NoteDto> archiveAll(Collection<Long> ids, LocalDateTime before) {
+        return writeByIds(ids, shardIds -> shardStore.archiveAll(shardIds, before));
+    }
+
+    @Override
+    public Optional<NoteDto> findArchivedById(Long id) {
+        return onShard(idGenerator.shardOf(id), true, () -> shardStore.findArchivedById(id));
+    }
+
+    @Override
+    public List<NoteDto> findArchivedByFilters(String keyword, String category, Note.Priority priority) {
+        return merge(onAllShards(true, shard -> shardStore.findArchivedByFilters(keyword, category, priority)),
+                RECENT_FIRST, 0);
+    }
+
+    @Override
+    public Optional<NoteDto> restore(Long id, LocalDateTime updatedAt) {
+        return onShard(idGenerator.shardOf(id), false, () -> shardStore.restore(id, updatedAt));
+    }
+
+    // ---- Reparto y mezcla ----
+
+    private int nextShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), shardCount);
+    }
+
+    private <T> T onShard(int shard, boolean readOnly, Supplier<T> action) {
+        TransactionTemplate transaction = readOnly ? readTransaction : writeTransaction;
+        return ShardContext.call(shard, () -> transaction.execute(status -> action.get()));
+    }
+
+    private <T> List<T> onAllShards(boolean readOnly, IntFunction<T> action) {
+        return onShards(IntStream.range(0, shardCount).boxed().collect(Collectors.toList()), readOnly, action);
+    }
+
+    // Una llamada por shard con sus ids
+    private <T> List<List<T>> onShardsOf(Collection<Long> ids, boolean readOnly,
+                                         Function<List<Long>, List<T>> action) {
+        Map<Integer, List<Long>> byShard = ids.stream()
+                .collect(Collectors.groupingBy(idGenerator::shardOf, TreeMap::new, Collectors.toList()));
+        return onShards(new ArrayList<>(byShard.keySet()), readOnly, shard -> action.apply(byShard.get(shard)));
+    }
+
+    /** En paralelo si hay más de un shard; devuelve los resultados en el orden de {@code shards}. */
+    private <T> List<T> onShards(List<Integer> shards, boolean readOnly, IntFunction<T> action) {
+        List<Outcome<T>> outcomes = onShardsSettled(shards, readOnly, action);
+        List<T> results = new ArrayList<>(outcomes.size());
+        for (Outcome<T> outcome : outcomes) {
+            if (outcome.failure() != null) {
+                throw outcome.failure();
+            }
+            results.add(outcome.result());
+        }
+        return results;
+    }
+
+    // Como onShards, pero espera a todos: en las escrituras hay que saber qué shards confirmaron
+    private <T> List<Outcome<T>> onShardsSettled(List<Integer> shards, boolean readOnly, IntFunction<T> action) {
+        if (shards.size() == 1) {
+            int shard = shards.get(0);
+            try {
+                return List.of(new Outcome<>(onShard(shard, readOnly, () -> action.apply(shard)), null));
+            } catch (RuntimeException e) {
+                return List.of(new Outcome<>(null, e));
+            }
+        }
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(RequestQueryStats.propagate(
+                        () -> onShard(shard, readOnly, () -> action.apply(shard))), fanOut))
+                .collect(Collectors.toList());
+        List<Outcome<T>> outcomes = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                outcomes.add(new Outcome<>(future.join(), null));
+            } catch (CompletionException e) {
+                outcomes.add(new Outcome<>(null, e.getCause() instanceof RuntimeException cause ? cause : e));
+            }
+        }
+        return outcomes;
+    }
+
+    private <T> Map<Integer, List<Integer>> positionsByShard(List<T> items, Function<T, Long> id) {
+        Map<Integer, List<Integer>> positions = new TreeMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            positions.computeIfAbsent(idGenerator.shardOf(id.apply(items.get(i))), shard -> new ArrayList<>()).add(i);
+        }
+        return positions;
+    }
+
+    /**
+     * Envía a cada shard sus elementos de {@code items} (posiciones en {@code positions}) y coloca cada resultado
+     * en la posición de su elemento: {@code action} devuelve una lista alineada con la que recibe.
+     */
+    private <T, R> List<R> scatter(Map<Integer, List<Integer>> positions, List<T> items,
+                                   Function<List<T>, List<R>> action) {
+        List<Integer> shards = new ArrayList<>(positions.keySet());
+        List<Outcome<List<R>>> outcomes = onShardsSettled(shards, false, shard -> action.apply(
+                positions.get(shard).stream().map(items::get).collect(Collectors.toList())));
+        List<R> gathered = new ArrayList<>(Collections.nCopies(items.size(), null));
+        BitSet applied = new BitSet(items.size());
+        RuntimeException failure = null;
+        for (int s = 0; s < shards.size(); s++) {
+            Outcome<List<R>> outcome = outcomes.get(s);
+            if (outcome.failure() != null) {
+                failure = failure == null ? outcome.failure() : failure;
+                continue;
+            }
+            List<Integer> shardPositions = positions.get(shards.get(s));
+            for (int i = 0; i < shardPositions.size(); i++) {
+                gathered.set(shardPositions.get(i), outcome.result().get(i));
+                applied.set(shardPositions.get(i));
+            }
+        }
+        return checkApplied(failure, gathered, applied);
+    }
+
+    // Bajas y archivado: cada shard devuelve las notas que ha escrito de entre sus ids
+    private List<NoteDto> writeByIds(Collection<Long> ids, Function<List<Long>, List<NoteDto>> action) {
+        List<Long> items = new ArrayList<>(ids);
+        Map<Integer, List<Integer>> positions = positionsByShard(items, Function.identity());
+        List<Integer> shards = new ArrayList<>(positions.keySet());
+        List<Outcome<List<NoteDto>>> outcomes = onShardsSettled(shards, false, shard -> action.apply(
+                positions.get(shard).stream().map(items::get).collect(Collectors.toList())));
+        List<NoteDto> written = new ArrayList<>();
+        List<NoteDto> byPosition = new ArrayList<>(Collections.nCopies(items.size(), null));
+        BitSet applied = new BitSet(items.size());
+        RuntimeException failure = null;
+        for (int s = 0; s < shards.size(); s++) {
+            Outcome<List<NoteDto>> outcome = outcomes.get(s);
+            if (outcome.failure() != null) {
+                failure = failure == null ? outcome.failure() : failure;
+                continue;
+            }
+            written.addAll(outcome.result());
+            Map<Long, NoteDto> byId = outcome.result().stream()
+                    .collect(Collectors.toMap(NoteDto::getId, Function.identity()));
+            for (Integer position : positions.get(shards.get(s))) {
+                byPosition.set(position, byId.get(items.get(position)));
+                applied.set(position);
+            }
+        }
+        checkApplied(failure, byPosition, applied);
+        return written;
+    }
+
+    // Si algún shard falló: su error si no se escribió nada, y si no PartialWriteException con lo escrito
+    private static <R> List<R> checkApplied(RuntimeException failure, List<R> results, BitSet applied) {
+        if (failure == null) {
+            return results;
+        }
+        if (applied.isEmpty()) {
+            throw failure;
+        }
+        throw new PartialWriteException(failure, results, applied);
+    }
+
+    private static <T> List<T> concat(List<List<T>> lists) {
+        return lists.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    private static <T> Map<List<Object>, Long> sum(List<T> rows, Function<T, List<Object>> key,
+                                                   Function<T, Long> total) {
+        return rows.stream().collect(Collectors.groupingBy(key, LinkedHashMap::new,
+                Collectors.summingLong(row -> total.apply(row))));
+    }
+
+    /**
+     * Mezcla listas ya ordenadas por {@code order} (k-way merge con una cola por la cabeza de cada lista)
+     * y se queda con las primeras {@code limit}; {@code limit <= 0} para todas.
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        int total = sorted.stream().mapToInt(List::size).sum();
+        int size = limit > 0 ? Math.min(limit, total) : total;
+        List<T> merged = new ArrayList<>(size);
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> order.compare(a.current(), b.current()));
+        for (List<T> list : sorted) {
+            if (!list.isEmpty()) {
+                heads.add(new Head<>(list));
+            }
+        }
+        while (merged.size() < size) {
+            Head<T> head = heads.poll();
+            merged.add(head.current());
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOut instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        } else if (fanOut instanceof SimpleAsyncTaskExecutor executor) {
+            executor.close();
+        }
+    }
+
+    private record Outcome<T>(T result, RuntimeException failure) {
+    }
+
+    private static final class Head<T> {
+        private final List<T> list;
+        private int index;
+
+        private Head(List<T> list) {
+            this.list = list;
+        }
+
+        private T current() {
+            return list.get(index);
+        }
+
+        private boolean advance() {
+            return ++index < list.size();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.notes.store;
+
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Gestor de transacciones de los servicios cuando el propio almacén gestiona las suyas: con el motor
+ * {@code memory} (no hay base de datos) y con shards (cada operación va en una transacción de su shard,
+ * ver {@link ShardedNoteStore}). {@code @Transactional}, los {@code TransactionTemplate} y los
+ * {@code @TransactionalEventListener} siguen funcionando igual (los eventos se publican al "confirmar"),
+ * pero cada escritura del almacén es atómica por sí misma; un rollback no deshace las anteriores.
+ * <p>
+ * Al existir este bean, Spring Boot no crea el {@code JpaTransactionManager}: los servicios no toman
+ * conexiones fuera de las operaciones del almacén.
+ */
+@Component("transactionManager")
+@Primary
+@Conditional(StoreTransactionManager.OnStoreManagedTransactions.class)
+public class StoreTransactionManager extends AbstractPlatformTransactionManager {
+
+    // El único estado es si el hilo ya está dentro de una transacción (para unirse a ella)
+    @Override
+    protected Object doGetTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return (Boolean) transaction;
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        return transaction;
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+
+    static class OnStoreManagedTransactions extends AnyNestedCondition {
+
+        OnStoreManagedTransactions() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(name = "notes.store.engine", havingValue = "memory")
+        static class MemoryEngine {
+        }
+
+        @ConditionalOnProperty(name = "notes.datasource.shards.urls")
+        static class Sharded {
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.notes.store.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lee los registros de un fichero (diario o snapshot) mapeado en memoria por ventanas: la reproducción al
+ * arrancar no copia los datos a buffers intermedios ni hace una llamada al sistema por registro.
+ */
+final class MappedRecordReader implements Closeable {
+
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedRecordReader(Path path, long offset) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        map(Math.min(offset, size), WINDOW_BYTES);
+    }
+
+    /** Datos del siguiente registro, o {@code null} al llegar al final o a un registro incompleto o corrupto. */
+    ByteBuffer next() throws IOException {
+        ByteBuffer payload = NoteRecordCodec.readFrame(window);
+        if (payload != null) {
+            return payload;
+        }
+        long offset = position();
+        boolean windowReachesEnd = windowStart + window.limit() >= size;
+        if (windowReachesEnd) {
+            return null;
+        }
+        // El registro sigue en la ventana siguiente: se remapea a partir de él
+        int frameLength = NoteRecordCodec.frameLength(window, window.position());
+        map(offset, Math.max(WINDOW_BYTES, frameLength));
+        return NoteRecordCodec.readFrame(window);
+    }
+
+    /** Posición en el fichero tras el último registro válido leído. */
+    long position() {
+        return windowStart + window.position();
+    }
+
+    long size() {
+        return size;
+    }
+
+    private void map(long offset, long length) throws IOException {
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(length, size - offset));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,794 @@
+package com.notes.store.memory;
+
+import com.notes.dto.BatchUpdateNoteDto;
+import com.notes.dto.CategoryPriorityCount;
+import com.notes.dto.CreateNoteDto;
+import com.notes.dto.NoteDto;
+import com.notes.dto.NoteSummaryDto;
+import com.notes.dto.TimeBucketCount;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.mapper.NoteMapper;
+import com.notes.model.Note;
+import com.notes.store.NoteStore;
+import com.notes.store.PartialUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Motor {@code memory}: todas las notas en el heap del proceso, sin base de datos en el camino de las peticiones.
+ * <p>
+ * Las notas ({@link StoredNote}, inmutables) están en un mapa concurrente por id; los listados recorren índices
+ * ordenados ({@link ConcurrentSkipListSet}) por {@code (updatedAt DESC, id DESC)} (global, por categoría y por
+ * prioridad), por {@code (createdAt DESC, id DESC)} y por id. Las lecturas no toman cerrojos: un listado
+ * concurrente con una escritura ve la nota antes o después del cambio, nunca dos veces.
+ * <p>
+ * Las escrituras se serializan con un cerrojo corto: se prepara el nuevo estado fuera (incluida la compresión
+ * del contenido) y, dentro, se comprueba que la nota no ha cambiado, se añade el registro al diario
+ * ({@link WriteAheadLog}) y se actualizan mapa e índices. La llamada vuelve cuando el registro está en disco
+ * (group commit con el resto de escrituras concurrentes). Cada {@code snapshot-interval-ms}, si el diario supera
+ * {@code snapshot-min-log-bytes}, se guarda un snapshot ({@link SnapshotFile}) y se borran los segmentos
+ * anteriores; al parar se guarda otro. Al arrancar se carga el último snapshot y se reproduce el diario.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.store.engine", havingValue = "memory")
+public class MemoryNoteStore implements NoteStore, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryNoteStore.class);
+
+    private final NoteMapper noteMapper;
+    private final Path directory;
+    private final boolean fsync;
+    private final long snapshotMinLogBytes;
+
+    private final ConcurrentHashMap<Long, StoredNote> notes = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<OrderKey> byUpdated = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<OrderKey> byCreated = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<OrderKey>> byCategory = new ConcurrentHashMap<>();
+    private final Map<Note.Priority, ConcurrentSkipListSet<OrderKey>> byPriority = new EnumMap<>(Note.Priority.class);
+
+    // Un escritor a la vez: el orden del diario es el orden en que se aplican los cambios
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object snapshotLock = new Object();
+    private long nextId = 1;
+    // Revisión (ver findRevision): sube con cada escritura. Empieza en el instante de arranque en microsegundos
+    // para no repetir tras un reinicio las ya servidas como ETag (salvo más de un millón de escrituras por segundo)
+    private final AtomicLong revision = new AtomicLong(
+            TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    private WriteAheadLog writeAheadLog;
+    private volatile boolean running;
+    // Bytes del diario reproducidos al arrancar que aún no están en ningún snapshot
+    private volatile long replayedBytes;
+
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong replayedRecords = new AtomicLong();
+
+    public MemoryNoteStore(NoteMapper noteMapper,
+                           @Value("${notes.store.memory.directory:data/note-store}") String directory,
+                           @Value("${notes.store.memory.fsync:true}") boolean fsync,
+                           @Value("${notes.store.memory.snapshot-min-log-bytes:67108864}") long snapshotMinLogBytes) {
+        this.noteMapper = noteMapper;
+        this.directory = Path.of(directory);
+        this.fsync = fsync;
+        this.snapshotMinLogBytes = snapshotMinLogBytes;
+        for (Note.Priority priority : Note.Priority.values()) {
+            byPriority.put(priority, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    // ---- Lecturas ----
+
+    @Override
+    public List<NoteDto> findAll() {
+        return collect(byUpdated, true, note -> true, 0, StoredNote::toDto);
+    }
+
+    @Override
+    public Optional<NoteDto> findById(Long id) {
+        return Optional.ofNullable(notes.get(id)).map(StoredNote::toDto);
+    }
+
+    @Override
+    public Optional<NoteDto> findMetadataById(Long id) {
+        return Optional.ofNullable(notes.get(id)).map(StoredNote::toMetadataDto);
+    }
+
+    @Override
+    public String findContent(Long id) {
+        StoredNote note = notes.get(id);
+        return note == null ? null : note.content();
+    }
+
+    @Override
+    public List<NoteDto> findAllById(Collection<Long> ids) {
+        List<NoteDto> result = new ArrayList<>(ids.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            StoredNote note = notes.get(id);
+            if (note != null) {
+                result.add(note.toDto());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<NoteDto> findByCategory(String category) {
+        return collect(categoryIndex(category), true, note -> true, 0, StoredNote::toDto);
+    }
+
+    @Override
+    public List<NoteDto> findByPriority(Note.Priority priority) {
+        return collect(byPriority.get(priority), true, note -> true, 0, StoredNote::toDto);
+    }
+
+    @Override
+    public List<NoteDto> findByKeyword(String keyword) {
+        return findByFilters(keyword, null, null);
+    }
+
+    // Sin índice de texto: se recorre en orden y se compara en minúsculas, como el LIKE de la versión SQL
+    @Override
+    public List<NoteDto> findByFilters(String keyword, String category, Note.Priority priority) {
+        Predicate<StoredNote> filter = filter(null, priority);
+        if (keyword != null) {
+            String needle = keyword.toLowerCase(Locale.ROOT);
+            filter = filter.and(note -> contains(note.title, needle) || contains(note.content(), needle));
+        }
+        return collect(index(category, null), true, filter, 0, StoredNote::toDto);
+    }
+
+    @Override
+    public List<NoteDto> findByIdInAndFilters(Collection<Long> ids, String category, Note.Priority priority) {
+        Predicate<StoredNote> filter = filter(category, priority);
+        return new LinkedHashSet<>(ids).stream()
+                .map(notes::get)
+                .filter(note -> note != null && filter.test(note))
+                .sorted(Comparator.comparing(note -> new OrderKey(note.updatedAt, note.id)))
+                .map(StoredNote::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<NoteDto> findPage(String category, Note.Priority priority, LocalDateTime updatedAt, Long id, int limit) {
+        NavigableSet<OrderKey> index = index(category, priority);
+        if (updatedAt != null) {
+            index = index.tailSet(new OrderKey(StoredNote.toMicros(updatedAt), id), false);
+        }
+        return collect(index, true, filter(category, priority), limit, StoredNote::toDto);
+    }
+
+    @Override
+    public List<NoteDto> findPageByIdIn(Collection<Long> ids, String category, Note.Priority priority,
+                                        LocalDateTime updatedAt, Long id, int limit) {
+        Predicate<StoredNote> filter = filter(category, priority);
+        OrderKey after = updatedAt == null ? null : new OrderKey(StoredNote.toMicros(updatedAt), id);
+        return new LinkedHashSet<>(ids).stream()
+                .map(notes::get)
+                .filter(note -> note != null && filter.test(note)
+                        && (after == null || new OrderKey(note.updatedAt, note.id).compareTo(after) > 0))
+                .sorted(Comparator.comparing(note -> new OrderKey(note.updatedAt, note.id)))
+                .limit(limit)
+                .map(StoredNote::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<NoteDto> findCreatedBetween(LocalDateTime from, LocalDateTime to, LocalDateTime createdAt, Long id,
+                                            int limit) {
+        OrderKey first = createdAt == null
+                ? new OrderKey(StoredNote.toMicros(to), Long.MAX_VALUE)
+                : new OrderKey(StoredNote.toMicros(createdAt), id);
+        OrderKey last = new OrderKey(StoredNote.toMicros(from), Long.MIN_VALUE);
+        if (first.compareTo(last) > 0) {
+            return new ArrayList<>();
+        }
+        return collect(byCreated.subSet(first, createdAt == null, last, true), false, note -> true, limit,
+                StoredNote::toDto);
+    }
+
+    @Override
+    public List<NoteDto> findRecent(int limit) {
+        return collect(byUpdated, true, note -> true, limit, StoredNote::toDto);
+    }
+
+    @Override
+    public List<NoteDto> findBatchAfter(long lastId, int size) {
+        List<NoteDto> batch = new ArrayList<>(size);
+        Iterator<Long> iterator = ids.tailSet(lastId, false).iterator();
+        while (batch.size() < size && iterator.hasNext()) {
+            StoredNote note = notes.get(iterator.next());
+            if (note != null) {
+                batch.add(note.toDto());
+            }
+        }
+        return batch;
+    }
+
+    // byUpdated va de la más reciente a la más antigua: se recorre al revés desde (updatedAt, id)
+    @Override
+    public List<NoteDto> findUpdatedAfter(LocalDateTime updatedAt, long id, int limit) {
+        OrderKey after = new OrderKey(StoredNote.toMicros(updatedAt), id);
+        return collect(byUpdated.headSet(after, false).descendingSet(), true, note -> true, limit, StoredNote::toDto);
+    }
+
+    // Las notas se convierten a DTO según se consumen: memoria constante aunque haya muchas
+    @Override
+    public Stream<NoteDto> streamAll(int fetchSize) {
+        return ids.stream()
+                .map(notes::get)
+                .filter(Objects::nonNull)
+                .map(StoredNote::toDto);
+    }
+
+    @Override
+    public List<NoteSummaryDto> findSummaries(String category, Note.Priority priority, boolean preview, int limit) {
+        return collect(index(category, priority), true, filter(category, priority), limit,
+                note -> note.toSummary(preview));
+    }
+
+    @Override
+    public long findRevision() {
+        return revision.get();
+    }
+
+    @Override
+    public List<CategoryPriorityCount> countByCategoryAndPriority() {
+        Map<String, Map<Note.Priority, Long>> counts = new HashMap<>();
+        for (StoredNote note : notes.values()) {
+            counts.computeIfAbsent(note.category, category -> new EnumMap<>(Note.Priority.class))
+                    .merge(note.priority, 1L, Long::sum);
+        }
+        List<CategoryPriorityCount> rows = new ArrayList<>();
+        counts.forEach((category, byPriority) -> byPriority.forEach((priority, total) ->
+                rows.add(new CategoryPriorityCount(category, priority, total))));
+        return rows;
+    }
+
+    // Recorre solo el tramo [from, to) del índice de la fecha pedida
+    @Override
+    public List<TimeBucketCount> countByTimeBucket(String timestamp, boolean hourly, String groupBy,
+                                                   LocalDateTime from, LocalDateTime to) {
+        boolean updated = "updatedAt".equals(timestamp);
+        if ((!updated && !"createdAt".equals(timestamp))
+                || (groupBy != null && !"category".equals(groupBy) && !"priority".equals(groupBy))) {
+            throw new IllegalArgumentException("Unsupported histogram attributes: " + timestamp + ", " + groupBy);
+        }
+        OrderKey first = new OrderKey(StoredNote.toMicros(to), Long.MIN_VALUE);
+        OrderKey last = new OrderKey(StoredNote.toMicros(from), Long.MIN_VALUE);
+        if (first.compareTo(last) >= 0) {
+            return new ArrayList<>();
+        }
+        Function<StoredNote, String> group = groupBy == null ? note -> null
+                : "category".equals(groupBy) ? note -> note.category : note -> note.priority.name();
+        ChronoUnit unit = hourly ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+
+        Map<LocalDateTime, Map<String, Long>> counts = new HashMap<>();
+        for (OrderKey key : (updated ? byUpdated : byCreated).subSet(first, false, last, true)) {
+            StoredNote note = notes.get(key.id);
+            if (note == null || (updated ? note.updatedAt : note.createdAt) != key.time) {
+                continue;
+            }
+            counts.computeIfAbsent(StoredNote.toDateTime(key.time).truncatedTo(unit), bucket -> new HashMap<>())
+                    .merge(group.apply(note), 1L, Long::sum);
+        }
+        List<TimeBucketCount> rows = new ArrayList<>();
+        counts.forEach((bucket, byGroup) -> byGroup.forEach((value, total) ->
+                rows.add(new TimeBucketCount(bucket, value, total))));
+        return rows;
+    }
+
+    // ---- Escrituras ----
+
+    @Override
+    public NoteDto insert(CreateNoteDto note) {
+        return insertAll(List.of(note)).get(0);
+    }
+
+    @Override
+    public List<NoteDto> insertAll(List<CreateNoteDto> dtos) {
+        // La entidad aplica los valores por defecto y comprime el contenido, fuera del cerrojo
+        List<Note> entities = dtos.stream().map(noteMapper::toEntity).toList();
+        long now = StoredNote.toMicros(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        List<StoredNote> created = new ArrayList<>(entities.size());
+        long position;
+        writeLock.lock();
+        try {
+            List<byte[]> frames = new ArrayList<>(entities.size());
+            for (Note entity : entities) {
+                StoredNote note = StoredNote.create(nextId++, entity, now);
+                created.add(note);
+                frames.add(NoteRecordCodec.put(note));
+            }
+            position = writeAheadLog.append(frames);
+            created.forEach(this::apply);
+            revision.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+        writeAheadLog.sync(position);
+
+        List<NoteDto> result = new ArrayList<>(created.size());
+        for (int i = 0; i < created.size(); i++) {
+            NoteDto dto = created.get(i).toMetadataDto();
+            dto.setContent(dtos.get(i).getContent());
+            result.add(dto);
+        }
+        return result;
+    }
+
+    @Override
+    public int updateFields(Long id, long expectedVersion, UpdateNoteDto changes, LocalDateTime updatedAt) {
+        long time = StoredNote.toMicros(updatedAt);
+        while (true) {
+            StoredNote current = notes.get(id);
+            if (current == null || current.version != expectedVersion) {
+                return 0;
+            }
+            StoredNote updated = current.with(changes, time, 1);
+            if (commit(Map.of(id, current), List.of(updated), List.of())) {
+                return 1;
+            }
+        }
+    }
+
+    // Cada nota sube una versión aunque aparezca varias veces, como con el flush de JPA
+    @Override
+    public List<Change> updateAll(List<BatchUpdateNoteDto> updates) {
+        long now = StoredNote.toMicros(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        while (true) {
+            Map<Long, StoredNote> base = new HashMap<>();
+            Map<Long, StoredNote> working = new LinkedHashMap<>();
+            List<NoteDto> previous = new ArrayList<>(updates.size());
+            for (BatchUpdateNoteDto update : updates) {
+                StoredNote current = working.containsKey(update.getId())
+                        ? working.get(update.getId())
+                        : base.computeIfAbsent(update.getId(), notes::get);
+                if (current == null) {
+                    previous.add(null);
+                    continue;
+                }
+                previous.add(current.toDto());
+                working.put(update.getId(), current.with(update, current.updatedAt, 0));
+            }
+            List<StoredNote> updated = working.values().stream()
+                    .map(note -> note.withVersion(now, base.get(note.id).version + 1))
+                    .toList();
+            if (!commit(base, updated, List.of())) {
+                continue;
+            }
+
+            Map<Long, StoredNote> current = updated.stream()
+                    .collect(Collectors.toMap(note -> note.id, Function.identity()));
+            List<Change> changes = new ArrayList<>(updates.size());
+            for (int i = 0; i < updates.size(); i++) {
+                changes.add(previous.get(i) == null ? null
+                        : new Change(previous.get(i), current.get(updates.get(i).getId()).toDto()));
+            }
+            return changes;
+        }
+    }
+
+    @Override
+    public List<Boolean> updatePartial(List<PartialUpdate> updates) {
+        while (true) {
+            Map<Long, StoredNote> base = new HashMap<>();
+            Map<Long, StoredNote> working = new LinkedHashMap<>();
+            List<Boolean> applied = new ArrayList<>(updates.size());
+            for (PartialUpdate update : updates) {
+                StoredNote current = working.containsKey(update.getId())
+                        ? working.get(update.getId())
+                        : base.computeIfAbsent(update.getId(), notes::get);
+                boolean matches = current != null && current.version == update.getExpectedVersion();
+                if (matches) {
+                    working.put(update.getId(), current.with(update.getChanges(),
+                            StoredNote.toMicros(update.getUpdatedAt().truncatedTo(ChronoUnit.MICROS)),
+                            update.getVersionIncrement()));
+                }
+                applied.add(matches);
+            }
+            if (commit(base, new ArrayList<>(working.values()), List.of())) {
+                return applied;
+            }
+        }
+    }
+
+    @Override
+    public int deleteByIdAndVersion(Long id, long version) {
+        while (true) {
+            StoredNote current = notes.get(id);
+            if (current == null || current.version != version) {
+                return 0;
+            }
+            if (commit(Map.of(id, current), List.of(), List.of(id))) {
+                return 1;
+            }
+        }
+    }
+
+    @Override
+    public List<NoteDto> deleteAll(Collection<Long> ids) {
+        while (true) {
+            Map<Long, StoredNote> base = new HashMap<>();
+            for (Long id : ids) {
+                StoredNote current = notes.get(id);
+                if (current != null) {
+                    base.put(id, current);
+                }
+            }
+            if (commit(base, List.of(), new ArrayList<>(base.keySet()))) {
+                return base.values().stream().map(StoredNote::toMetadataDto).collect(Collectors.toList());
+            }
+        }
+    }
+
+    // Sin nivel frío: todas las notas están en memoria, no hay nada que archivar ni restaurar
+
+    @Override
+    public List<NoteDto> findNotUpdatedSince(LocalDateTime before, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public List<NoteDto> archiveAll(Collection<Long> ids, LocalDateTime before) {
+        return List.of();
+    }
+
+    @Override
+    public Optional<NoteDto> findArchivedById(Long id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<NoteDto> findArchivedByFilters(String keyword, String category, Note.Priority priority) {
+        return List.of();
+    }
+
+    @Override
+    public Optional<NoteDto> restore(Long id, LocalDateTime updatedAt) {
+        return Optional.empty();
+    }
+
+    /**
+     * Escribe y aplica los cambios si las notas de {@code expected} siguen en ese estado (o siguen sin existir,
+     * si el valor es {@code null}); si no, devuelve {@code false} y el llamador vuelve a prepararlos.
+     */
+    private boolean commit(Map<Long, StoredNote> expected, List<StoredNote> puts, List<Long> deletes) {
+        if (puts.isEmpty() && deletes.isEmpty()) {
+            return true;
+        }
+        List<byte[]> frames = new ArrayList<>(puts.size() + deletes.size());
+        puts.forEach(note -> frames.add(NoteRecordCodec.put(note)));
+        deletes.forEach(id -> frames.add(NoteRecordCodec.delete(id)));
+
+        long position;
+        writeLock.lock();
+        try {
+            for (Map.Entry<Long, StoredNote> entry : expected.entrySet()) {
+                if (notes.get(entry.getKey()) != entry.getValue()) {
+                    return false;
+                }
+            }
+            position = writeAheadLog.append(frames);
+            puts.forEach(this::apply);
+            deletes.forEach(this::remove);
+            revision.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+        writeAheadLog.sync(position);
+        return true;
+    }
+
+    // ---- Índices ----
+
+    // Primero el mapa y luego los índices: quien recorre un índice descarta las claves que ya no coinciden
+    private void apply(StoredNote note) {
+        StoredNote old = notes.put(note.id, note);
+        OrderKey key = new OrderKey(note.updatedAt, note.id);
+        if (old == null) {
+            ids.add(note.id);
+            byCreated.add(new OrderKey(note.createdAt, note.id));
+        } else {
+            OrderKey oldKey = new OrderKey(old.updatedAt, old.id);
+            boolean moved = !oldKey.equals(key);
+            if (moved) {
+                byUpdated.remove(oldKey);
+            }
+            if (moved || !old.category.equals(note.category)) {
+                categoryIndex(old.category).remove(oldKey);
+            }
+            if (moved || old.priority != note.priority) {
+                byPriority.get(old.priority).remove(oldKey);
+            }
+        }
+        byUpdated.add(key);
+        byCategory.computeIfAbsent(note.category, category -> new ConcurrentSkipListSet<>()).add(key);
+        byPriority.get(note.priority).add(key);
+    }
+
+    private void remove(long id) {
+        StoredNote old = notes.remove(id);
+        if (old == null) {
+            return;
+        }
+        OrderKey key = new OrderKey(old.updatedAt, old.id);
+        byUpdated.remove(key);
+        categoryIndex(old.category).remove(key);
+        byPriority.get(old.priority).remove(key);
+        byCreated.remove(new OrderKey(old.createdAt, old.id));
+        ids.remove(id);
+    }
+
+    private NavigableSet<OrderKey> categoryIndex(String category) {
+        NavigableSet<OrderKey> index = byCategory.get(category);
+        return index != null ? index : new ConcurrentSkipListSet<>();
+    }
+
+    // El índice más selectivo disponible; el otro filtro se aplica al recorrerlo
+    private NavigableSet<OrderKey> index(String category, Note.Priority priority) {
+        if (category != null) {
+            return categoryIndex(category);
+        }
+        return priority != null ? byPriority.get(priority) : byUpdated;
+    }
+
+    private static Predicate<StoredNote> filter(String category, Note.Priority priority) {
+        return note -> (category == null || category.equals(note.category))
+                && (priority == null || priority == note.priority);
+    }
+
+    private <T> List<T> collect(NavigableSet<OrderKey> index, boolean updatedOrder, Predicate<StoredNote> filter,
+                                int limit, Function<StoredNote, T> mapper) {
+        List<T> result = new ArrayList<>();
+        for (OrderKey key : index) {
+            if (limit > 0 && result.size() >= limit) {
+                break;
+            }
+            StoredNote note = notes.get(key.id);
+            if (note == null || (updatedOrder ? note.updatedAt : note.createdAt) != key.time || !filter.test(note)) {
+                continue;
+            }
+            result.add(mapper.apply(note));
+        }
+        return result;
+    }
+
+    private static boolean contains(String text, String needle) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    // ---- Diario, snapshots y arranque ----
+
+    /** Guarda un snapshot si el diario ha crecido lo suficiente desde el último. */
+    @Scheduled(initialDelayString = "${notes.store.memory.snapshot-interval-ms:60000}",
+               fixedDelayString = "${notes.store.memory.snapshot-interval-ms:60000}")
+    public void snapshotIfNeeded() {
+        if (running && getLogBytes() >= snapshotMinLogBytes) {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Note store snapshot failed, will retry", e);
+            }
+        }
+    }
+
+    /**
+     * Empieza un segmento nuevo del diario y guarda el estado de ese instante. El cerrojo de escritura solo se
+     * toma para copiar las referencias a las notas (inmutables); el fichero se escribe sin bloquear a nadie.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long start = System.currentTimeMillis();
+            long segment;
+            long snapshotNextId;
+            List<StoredNote> state;
+            writeLock.lock();
+            try {
+                segment = writeAheadLog.roll();
+                replayedBytes = 0;
+                snapshotNextId = nextId;
+                state = new ArrayList<>(notes.values());
+            } finally {
+                writeLock.unlock();
+            }
+            SnapshotFile.write(directory, segment, snapshotNextId, state);
+            writeAheadLog.deleteBefore(segment);
+            SnapshotFile.deleteBefore(directory, segment);
+            snapshots.incrementAndGet();
+            log.info("Note store snapshot with {} notes written in {} ms", state.size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private void recover() throws IOException {
+        long start = System.currentTimeMillis();
+        Files.createDirectories(directory);
+        NoteRecordCodec.Visitor loader = new NoteRecordCodec.Visitor() {
+            @Override
+            public void put(StoredNote note) {
+                apply(note);
+                nextId = Math.max(nextId, note.id + 1);
+            }
+
+            @Override
+            public void delete(long id) {
+                remove(id);
+            }
+        };
+
+        long firstSegment = 0;
+        List<Long> snapshotFiles = SnapshotFile.snapshots(directory);
+        if (!snapshotFiles.isEmpty()) {
+            firstSegment = snapshotFiles.get(snapshotFiles.size() - 1);
+            nextId = Math.max(nextId, SnapshotFile.read(SnapshotFile.path(directory, firstSegment), loader));
+        }
+        int loaded = notes.size();
+
+        List<Long> segments = WriteAheadLog.segments(directory);
+        long lastSegment = segments.isEmpty() ? -1 : segments.get(segments.size() - 1);
+        long nextSegment = lastSegment + 1;
+        for (long segment : segments) {
+            if (segment >= firstSegment) {
+                long valid = replay(WriteAheadLog.path(directory, segment), segment == lastSegment, loader);
+                replayedBytes += valid;
+                // Un último segmento vacío (arranque sin escrituras) se reutiliza en vez de acumular ficheros
+                if (segment == lastSegment && valid == 0) {
+                    nextSegment = segment;
+                }
+            }
+        }
+        writeAheadLog = new WriteAheadLog(directory, Math.max(firstSegment, nextSegment), fsync);
+        log.info("Note store recovered {} notes ({} from snapshot, {} log records) in {} ms", notes.size(), loaded,
+                replayedRecords.get(), System.currentTimeMillis() - start);
+    }
+
+    // Solo el último segmento puede acabar a medias (caída durante una escritura): se recorta ahí
+    private long replay(Path segment, boolean last, NoteRecordCodec.Visitor loader) throws IOException {
+        long valid;
+        long size;
+        try (MappedRecordReader reader = new MappedRecordReader(segment, 0)) {
+            ByteBuffer payload;
+            while ((payload = reader.next()) != null) {
+                NoteRecordCodec.decode(payload, loader);
+                replayedRecords.incrementAndGet();
+            }
+            valid = reader.position();
+            size = reader.size();
+        }
+        if (valid < size) {
+            if (!last) {
+                throw new IllegalStateException("Corrupt note store log " + segment + " at offset " + valid);
+            }
+            log.warn("Discarding {} bytes of incomplete records at the end of {}", size - valid, segment);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        return valid;
+    }
+
+    @Override
+    public void start() {
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover the note store from " + directory, e);
+        }
+        running = true;
+    }
+
+    // Al parar se deja un snapshot: el siguiente arranque no tiene que reproducir el diario
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            if (getLogBytes() > 0) {
+                snapshot();
+            }
+            writeAheadLog.close();
+        } catch (IOException e) {
+            log.warn("Could not close the note store cleanly; the log will be replayed on startup", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Arranca antes (y para después) que el autoguardado, que escribe en el almacén
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    public int size() {
+        return notes.size();
+    }
+
+    /** Bytes del diario desde el último snapshot (lo que habría que reproducir al arrancar). */
+    public long getLogBytes() {
+        WriteAheadLog current = writeAheadLog;
+        return current == null ? 0 : replayedBytes + current.segmentBytes();
+    }
+
+    public long getLogSyncs() {
+        WriteAheadLog current = writeAheadLog;
+        return current == null ? 0 : current.getSyncs();
+    }
+
+    public long getSnapshots() {
+        return snapshots.get();
+    }
+
+    /**
+     * Posición en un índice ordenado de más reciente a más antiguo: {@code (time DESC, id DESC)}.
+     * {@code time} es {@code updatedAt} o {@code createdAt} según el índice, en microsegundos.
+     */
+    private static final class OrderKey implements Comparable<OrderKey> {
+        final long time;
+        final long id;
+
+        OrderKey(long time, long id) {
+            this.time = time;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(OrderKey other) {
+            int cmp = Long.compare(other.time, time);
+            return cmp != 0 ? cmp : Long.compare(other.id, id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof OrderKey other && other.time == time && other.id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(time) * 31 + Long.hashCode(id);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.notes.store.memory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** Ficheros numerados del directorio de datos ({@code <prefijo><n><sufijo>}). */
+final class MemoryStoreFiles {
+
+    private MemoryStoreFiles() {
+    }
+
+    /** Números de los ficheros con ese prefijo y sufijo, de menor a mayor. */
+    static List<Long> list(Path directory, String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> name.substring(prefix.length(), name.length() - suffix.length()))
+                    .filter(number -> !number.isEmpty() && number.chars().allMatch(Character::isDigit))
+                    .map(Long::parseLong)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /** {@code fsync} del directorio para que un renombrado o un fichero nuevo sobrevivan a una caída. */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // No todos los sistemas permiten abrir un directorio; el renombrado sigue siendo atómico
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.notes.store.memory;
+
+import com.notes.model.Note;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binario de los registros del diario y del snapshot.
+ * <p>
+ * Cada registro va enmarcado como {@code [longitud int][crc32 int][datos]}: al leer, un registro incompleto
+ * o con el CRC mal (caída a mitad de escritura) marca el final de lo válido. Los datos empiezan por el tipo:
+ * {@link #PUT} con el estado completo de la nota o {@link #DELETE} con su id. Guardar el estado completo hace
+ * la reproducción idempotente: basta con aplicar los registros en orden, sin repetir ninguna lógica.
+ */
+final class NoteRecordCodec {
+
+    static final int FRAME_HEADER = 8;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final Note.Priority[] PRIORITIES = Note.Priority.values();
+
+    /** Destino de los registros leídos. */
+    interface Visitor {
+        void put(StoredNote note);
+
+        void delete(long id);
+    }
+
+    private NoteRecordCodec() {
+    }
+
+    static byte[] put(StoredNote note) {
+        byte[] title = utf8(note.title);
+        byte[] category = utf8(note.category);
+        byte[] content = utf8(note.content);
+        int size = 1 + 4 * Long.BYTES + 2 + length(title) + length(category) + length(content) + length(note.compressed);
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER + size);
+        buffer.position(FRAME_HEADER);
+        buffer.put(PUT)
+                .putLong(note.id)
+                .putLong(note.version)
+                .putLong(note.createdAt)
+                .putLong(note.updatedAt)
+                .put((byte) note.priority.ordinal())
+                .put((byte) (note.published ? 1 : 0));
+        putBytes(buffer, title);
+        putBytes(buffer, category);
+        putBytes(buffer, content);
+        putBytes(buffer, note.compressed);
+        return frame(buffer);
+    }
+
+    static byte[] delete(long id) {
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER + 1 + Long.BYTES);
+        buffer.position(FRAME_HEADER);
+        buffer.put(DELETE).putLong(id);
+        return frame(buffer);
+    }
+
+    /** Aplica al {@code visitor} los datos de un registro ya validado (sin la cabecera del marco). */
+    static void decode(ByteBuffer payload, Visitor visitor) {
+        byte type = payload.get();
+        if (type == DELETE) {
+            visitor.delete(payload.getLong());
+            return;
+        }
+        if (type != PUT) {
+            throw new IllegalStateException("Unknown note store record type: " + type);
+        }
+        long id = payload.getLong();
+        long version = payload.getLong();
+        long createdAt = payload.getLong();
+        long updatedAt = payload.getLong();
+        Note.Priority priority = PRIORITIES[payload.get()];
+        boolean published = payload.get() != 0;
+        String title = string(getBytes(payload));
+        String category = string(getBytes(payload));
+        String content = string(getBytes(payload));
+        byte[] compressed = getBytes(payload);
+        visitor.put(new StoredNote(id, title, category, priority, published, createdAt, updatedAt, version,
+                content, compressed));
+    }
+
+    /**
+     * Valida el marco que empieza en la posición actual de {@code buffer} y devuelve sus datos, avanzando la
+     * posición; {@code null} (sin avanzar) si está incompleto o corrupto.
+     */
+    static ByteBuffer readFrame(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < FRAME_HEADER) {
+            return null;
+        }
+        int length = buffer.getInt(start);
+        int crc = buffer.getInt(start + 4);
+        if (length <= 0 || length > buffer.remaining() - FRAME_HEADER) {
+            return null;
+        }
+        ByteBuffer payload = buffer.slice(start + FRAME_HEADER, length);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.duplicate());
+        if ((int) checksum.getValue() != crc) {
+            return null;
+        }
+        buffer.position(start + FRAME_HEADER + length);
+        return payload;
+    }
+
+    /** Longitud total del marco que empieza en {@code offset}, o -1 si la cabecera no está completa. */
+    static int frameLength(ByteBuffer buffer, int offset) {
+        if (buffer.limit() - offset < FRAME_HEADER) {
+            return -1;
+        }
+        return FRAME_HEADER + Math.max(0, buffer.getInt(offset));
+    }
+
+    private static byte[] frame(ByteBuffer buffer) {
+        byte[] frame = buffer.array();
+        CRC32 checksum = new CRC32();
+        checksum.update(frame, FRAME_HEADER, frame.length - FRAME_HEADER);
+        buffer.putInt(0, frame.length - FRAME_HEADER);
+        buffer.putInt(4, (int) checksum.getValue());
+        return frame;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    // -1 para null
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
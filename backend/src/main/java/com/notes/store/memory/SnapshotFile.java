@@ -0,0 +1,121 @@
+package com.notes.store.memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Snapshot completo de {@link MemoryNoteStore} ({@code snapshot-<n>.snap}): el estado justo antes del segmento
+ * {@code n} del diario, así que al arrancar se carga el último y se reproducen los segmentos desde {@code n}.
+ * <p>
+ * Formato: cabecera ({@code magic}, formato, siguiente id, número de notas) y un registro {@code PUT} por nota.
+ * Se escribe sobre el fichero mapeado en memoria por ventanas, en un temporal que se renombra al terminar:
+ * una caída a mitad deja intacto el snapshot anterior.
+ */
+final class SnapshotFile {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final int MAGIC = 0x4E534E50;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private SnapshotFile() {
+    }
+
+    static Path path(Path directory, long segment) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    static List<Long> snapshots(Path directory) throws IOException {
+        return MemoryStoreFiles.list(directory, PREFIX, SUFFIX);
+    }
+
+    static void write(Path directory, long segment, long nextId, Collection<StoredNote> notes) throws IOException {
+        Path target = path(directory, segment);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).putInt(FORMAT).putLong(nextId).putLong(notes.size())
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            long position = HEADER_BYTES;
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            for (StoredNote note : notes) {
+                byte[] frame = NoteRecordCodec.put(note);
+                if (window == null || position + frame.length > windowStart + window.capacity()) {
+                    if (window != null) {
+                        window.force();
+                    }
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.max(WINDOW_BYTES, frame.length));
+                }
+                window.put((int) (position - windowStart), frame);
+                position += frame.length;
+            }
+            if (window != null) {
+                window.force();
+            }
+            // La última ventana se mapeó entera: se recorta lo que sobra
+            channel.truncate(position);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        MemoryStoreFiles.syncDirectory(directory);
+    }
+
+    /** Carga el snapshot en {@code visitor} y devuelve el siguiente id que había que asignar. */
+    static long read(Path path, NoteRecordCodec.Visitor visitor) throws IOException {
+        long nextId;
+        long expected;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != FORMAT) {
+                throw new IllegalStateException("Not a note store snapshot: " + path);
+            }
+            nextId = header.getLong();
+            expected = header.getLong();
+        }
+
+        long count = 0;
+        try (MappedRecordReader reader = new MappedRecordReader(path, HEADER_BYTES)) {
+            ByteBuffer payload;
+            while ((payload = reader.next()) != null) {
+                NoteRecordCodec.decode(payload, visitor);
+                count++;
+            }
+            if (count != expected || reader.position() != reader.size()) {
+                throw new IllegalStateException("Corrupt note store snapshot " + path + ": read " + count
+                        + " of " + expected + " notes");
+            }
+        }
+        return nextId;
+    }
+
+    static void deleteBefore(Path directory, long segment) throws IOException {
+        for (long old : snapshots(directory)) {
+            if (old < segment) {
+                Files.deleteIfExists(path(directory, old));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.notes.store.memory;
+
+import com.notes.dto.NoteDto;
+import com.notes.dto.NoteSummaryDto;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.model.ContentCodec;
+import com.notes.model.Note;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Estado inmutable de una nota en {@link MemoryNoteStore}: cada escritura crea uno nuevo, así que los lectores
+ * y los snapshots pueden usarlo sin cerrojos. El contenido largo se guarda comprimido igual que en la base de
+ * datos ({@link ContentCodec}); las fechas, en microsegundos UTC como las columnas {@code DATETIME(6)}.
+ */
+final class StoredNote {
+
+    final long id;
+    final String title;
+    final String category;
+    final Note.Priority priority;
+    final boolean published;
+    final long createdAt;
+    final long updatedAt;
+    final long version;
+    // Contenido completo o, si está comprimido, solo su principio
+    final String content;
+    final byte[] compressed;
+
+    StoredNote(long id, String title, String category, Note.Priority priority, boolean published,
+               long createdAt, long updatedAt, long version, String content, byte[] compressed) {
+        this.id = id;
+        this.title = title;
+        this.category = category;
+        this.priority = priority;
+        this.published = published;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.version = version;
+        this.content = content;
+        this.compressed = compressed;
+    }
+
+    /** Nota nueva con las mismas reglas que la entidad (categoría y prioridad por defecto). */
+    static StoredNote create(long id, Note note, long now) {
+        return new StoredNote(id, note.getTitle(), note.getCategory(), note.getPriority(), note.isPublished(),
+                now, now, 0, note.getStoredContent(), note.getContentCompressed());
+    }
+
+    /** Aplica los campos no nulos de {@code changes}. */
+    StoredNote with(UpdateNoteDto changes, long updatedAt, long versionIncrement) {
+        String storedContent = content;
+        byte[] storedCompressed = compressed;
+        if (changes.getContent() != null) {
+            storedCompressed = ContentCodec.encode(changes.getContent());
+            storedContent = storedCompressed == null ? changes.getContent() : ContentCodec.prefix(changes.getContent());
+        }
+        return new StoredNote(id,
+                changes.getTitle() != null ? changes.getTitle() : title,
+                changes.getCategory() != null ? changes.getCategory() : category,
+                priority,
+                changes.getPublished() != null ? changes.getPublished() : published,
+                createdAt, updatedAt, version + versionIncrement, storedContent, storedCompressed);
+    }
+
+    /** Mismo estado con otra fecha de modificación y versión. */
+    StoredNote withVersion(long updatedAt, long version) {
+        return new StoredNote(id, title, category, priority, published, createdAt, updatedAt, version, content, compressed);
+    }
+
+    String content() {
+        return compressed == null ? content : ContentCodec.decode(compressed);
+    }
+
+    NoteDto toDto() {
+        NoteDto dto = toMetadataDto();
+        dto.setContent(content());
+        return dto;
+    }
+
+    NoteDto toMetadataDto() {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle(title);
+        dto.setCategory(category);
+        dto.setPriority(priority);
+        dto.setPublished(published);
+        dto.setCreatedAt(toDateTime(createdAt));
+        dto.setUpdatedAt(toDateTime(updatedAt));
+        dto.setVersion(version);
+        return dto;
+    }
+
+    NoteSummaryDto toSummary(boolean preview) {
+        return new NoteSummaryDto(id, title, category, priority, published, toDateTime(createdAt),
+                toDateTime(updatedAt), preview && content != null ? ContentCodec.prefix(content) : null);
+    }
+
+    static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    static LocalDateTime toDateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,158 @@
+package com.notes.store.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Diario de escritura anticipada de {@link MemoryNoteStore}, repartido en segmentos numerados
+ * ({@code wal-<n>.log}) que solo crecen por el final.
+ * <p>
+ * Igual que el diario del autoguardado: se escribe bajo el cerrojo y el {@code fsync} va fuera, así que varios
+ * hilos que escriben a la vez esperan a un único {@code force} (group commit). Un registro está a salvo cuando
+ * {@link #sync(long)} devuelve con su posición. Cada snapshot empieza un segmento nuevo ({@link #roll()}) y
+ * permite borrar los anteriores.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean fsync;
+
+    // Orden de los cerrojos: syncLock y después writeLock
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    // Posiciones acumuladas desde el arranque, no dentro del segmento
+    private long written;
+    private long synced;
+    private long segmentStart;
+    private long syncs;
+
+    WriteAheadLog(Path directory, long segment, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segment = segment;
+        this.channel = open(segment);
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        FileChannel opened = FileChannel.open(path(directory, segment), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (fsync) {
+            MemoryStoreFiles.syncDirectory(directory);
+        }
+        return opened;
+    }
+
+    static Path path(Path directory, long segment) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    /** Números de los segmentos que hay en {@code directory}, de menor a mayor. */
+    static List<Long> segments(Path directory) throws IOException {
+        return MemoryStoreFiles.list(directory, PREFIX, SUFFIX);
+    }
+
+    /** Añade los registros sin esperar al disco; devuelve la posición que hay que pasar a {@link #sync(long)}. */
+    long append(List<byte[]> frames) {
+        ByteBuffer[] buffers = new ByteBuffer[frames.size()];
+        long total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(frames.get(i));
+            total += buffers[i].remaining();
+        }
+        try {
+            synchronized (writeLock) {
+                for (long done = 0; done < total; ) {
+                    done += channel.write(buffers);
+                }
+                written += total;
+                return written;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the note store log " + path(directory, segment), e);
+        }
+    }
+
+    /** Espera a que todo lo escrito hasta {@code position} esté en disco. */
+    void sync(long position) {
+        if (!fsync) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            try {
+                long target;
+                synchronized (writeLock) {
+                    target = written;
+                }
+                channel.force(false);
+                synced = target;
+                syncs++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not sync the note store log " + path(directory, segment), e);
+            }
+        }
+    }
+
+    /** Cierra el segmento actual (ya en disco) y empieza el siguiente; devuelve su número. */
+    long roll() throws IOException {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                channel.force(false);
+                channel.close();
+                synced = written;
+                segment++;
+                segmentStart = written;
+                channel = open(segment);
+                return segment;
+            }
+        }
+    }
+
+    /** Borra los segmentos anteriores a {@code segment} (ya incluidos en un snapshot). */
+    void deleteBefore(long segment) throws IOException {
+        for (long old : segments(directory)) {
+            if (old < segment) {
+                Files.deleteIfExists(path(directory, old));
+            }
+        }
+    }
+
+    /** Bytes escritos en el segmento actual, es decir, desde el último snapshot. */
+    long segmentBytes() {
+        synchronized (writeLock) {
+            return written - segmentStart;
+        }
+    }
+
+    long getSyncs() {
+        synchronized (syncLock) {
+            return syncs;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                if (fsync) {
+                    channel.force(false);
+                }
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.notes.writebehind;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.notes.dto.UpdateNoteDto;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Línea del diario de autoguardado.
+ * {@code EDIT} lleva la edición acumulada de la nota con su secuencia; {@code DONE} indica que las
+ * ediciones de esa nota hasta {@code seq} ya están en la base de datos o se descartaron.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+class JournalRecord {
+
+    enum Type { EDIT, DONE }
+
+    private Type type;
+    private long seq;
+    private Long id;
+    private Integer edits;
+    private String title;
+    private String content;
+    private String category;
+    private Boolean published;
+
+    static JournalRecord edit(long seq, Long id, int edits, UpdateNoteDto changes) {
+        JournalRecord record = new JournalRecord();
+        record.type = Type.EDIT;
+        record.seq = seq;
+        record.id = id;
+        record.edits = edits;
+        record.title = changes.getTitle();
+        record.content = changes.getContent();
+        record.category = changes.getCategory();
+        record.published = changes.getPublished();
+        return record;
+    }
+
+    static JournalRecord done(long seq, Long id) {
+        JournalRecord record = new JournalRecord();
+        record.type = Type.DONE;
+        record.seq = seq;
+        record.id = id;
+        return record;
+    }
+
+    UpdateNoteDto toChanges() {
+        UpdateNoteDto changes = new UpdateNoteDto();
+        changes.setTitle(title);
+        changes.setContent(content);
+        changes.setCategory(category);
+        changes.setPublished(published);
+        return changes;
+    }
+}
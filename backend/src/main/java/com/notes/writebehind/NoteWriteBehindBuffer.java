@@ -0,0 +1,663 @@
+package com.notes.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notes.dto.AutosaveConflictDto;
+import com.notes.dto.NoteDto;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.exception.AutosaveConflictException;
+import com.notes.exception.PreconditionFailedException;
+import com.notes.model.Note;
+import com.notes.store.NoteStore;
+import com.notes.store.PartialUpdate;
+import com.notes.store.PartialWriteException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Buffer de escritura diferida para el autoguardado ({@code PUT /api/notes/{id}?autosave=true}).
+ * <p>
+ * Cada edición se valida, se fusiona con las pendientes de la misma nota, se anota en el diario local
+ * y se confirma en cuanto el diario está en disco; las lecturas por id ven ya el estado editado.
+ * Las notas pendientes se escriben en un único batch de UPDATE cada {@code flush-interval-ms} o al
+ * llegar a {@code max-batch-size}, publicando los eventos de cambio habituales. Tras una caída, las
+ * ediciones del diario que no constan como escritas se aplican al arrancar.
+ * <p>
+ * Las escrituras síncronas de una nota (PUT sin autosave, DELETE, operaciones masivas) aplican o
+ * descartan antes sus ediciones pendientes dentro de su transacción, así nunca las pisa un flush posterior.
+ * Cada instancia tiene su propio buffer: el flush solo escribe si la nota sigue en la versión sobre la que
+ * se aceptaron las ediciones. Si otra instancia la cambió entretanto, las ediciones se descartan, se avisa
+ * en el log y se cuentan en {@code notes.writebehind.conflicts}. La fecha de modificación es la del flush.
+ * <p>
+ * Como el cliente ya recibió un 202, el conflicto se guarda durante {@code conflict-retention-ms} para
+ * decírselo ({@link #getConflict(Long)}): el GET de la nota lo indica y el siguiente autoguardado de esa nota
+ * se rechaza con 409 y los cambios perdidos. Solo lo sabe la instancia que hizo el flush.
+ * <p>
+ * La recuperación y el último flush van en el ciclo de vida del contexto, antes de que el servidor web
+ * acepte peticiones y después de que deje de hacerlo.
+ */
+@Component
+public class NoteWriteBehindBuffer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteWriteBehindBuffer.class);
+
+    private final boolean enabled;
+    private final NoteStore noteStore;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindJournal journal;
+    private final int maxBatchSize;
+    private final long compactThresholdBytes;
+    private final ExecutorService flusher;
+    // Conflictos recientes por nota, hasta que el cliente los recibe en un autoguardado o caducan
+    private final Cache<Long, AutosaveConflictDto> recentConflicts;
+
+    // Ediciones pendientes por nota en orden de llegada, protegido por pendingLock. ReentrantLock y no
+    // synchronized: se escribe en el diario con él tomado y, con hilos virtuales, no bloquea el hilo portador
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final Map<Long, PendingEdit> pending = new LinkedHashMap<>();
+    private long lastSeq;
+
+    // Un solo flush a la vez; las escrituras síncronas también lo toman para no cruzarse con él
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean running;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public NoteWriteBehindBuffer(NoteStore noteStore, Validator validator, ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                 @Value("${notes.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${notes.write-behind.journal-path:data/write-behind.journal}") String journalPath,
+                                 @Value("${notes.write-behind.fsync:true}") boolean fsync,
+                                 @Value("${notes.write-behind.max-batch-size:500}") int maxBatchSize,
+                                 @Value("${notes.write-behind.compact-threshold-bytes:67108864}") long compactThresholdBytes,
+                                 @Value("${notes.write-behind.conflict-retention-ms:3600000}") long conflictRetentionMs)
+            throws IOException {
+        this.enabled = enabled;
+        this.noteStore = noteStore;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = maxBatchSize;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.recentConflicts = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(conflictRetentionMs))
+                .maximumSize(10_000)
+                .build();
+        this.journal = enabled ? new WriteBehindJournal(Path.of(journalPath), objectMapper, fsync) : null;
+        this.flusher = enabled ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "note-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Estado con las ediciones pendientes de la nota, o {@code null} si no tiene ninguna. */
+    public NoteDto getPending(Long id) {
+        if (!enabled) {
+            return null;
+        }
+        pendingLock.lock();
+        try {
+            PendingEdit edit = pending.get(id);
+            return edit != null ? edit.getView() : null;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /** Ediciones de autoguardado de la nota descartadas por un conflicto y aún no comunicadas, o {@code null}. */
+    public AutosaveConflictDto getConflict(Long id) {
+        return enabled ? recentConflicts.getIfPresent(id) : null;
+    }
+
+    /**
+     * Acepta una edición de autoguardado. Devuelve cuando está en el diario, con el estado que verán las lecturas.
+     *
+     * @param current         estado actual de la nota (incluidas las ediciones pendientes)
+     * @param expectedVersions versiones aceptadas por el If-Match, o {@code null}
+     * @throws AutosaveConflictException si se descartaron ediciones anteriores de la nota (una sola vez)
+     */
+    public NoteDto accept(Long id, UpdateNoteDto changes, NoteDto current, Set<Long> expectedVersions) {
+        long position;
+        NoteDto view;
+        int size;
+        pendingLock.lock();
+        try {
+            // Esta edición se hizo sobre un estado que ya no se escribirá: el cliente tiene que recargar
+            AutosaveConflictDto conflict = recentConflicts.asMap().remove(id);
+            if (conflict != null) {
+                throw new AutosaveConflictException(conflict);
+            }
+            PendingEdit existing = pending.get(id);
+            NoteDto base = existing != null ? existing.getBase() : current;
+            NoteDto from = existing != null ? existing.getView() : current;
+            if (expectedVersions != null && !expectedVersions.contains(from.getVersion())) {
+                throw new PreconditionFailedException("Note " + id + " was modified: expected version "
+                        + expectedVersions + " but current is " + from.getVersion());
+            }
+            int edits = existing != null ? existing.getEdits() + 1 : 1;
+            UpdateNoteDto merged = existing != null ? merge(existing.getChanges(), changes) : merge(new UpdateNoteDto(), changes);
+            view = apply(from, changes, now(), base.getVersion() + edits);
+            validate(view);
+
+            PendingEdit edit = new PendingEdit(id, ++lastSeq, edits, merged, base, view);
+            position = journal.append(JournalRecord.edit(edit.getSeq(), id, edits, merged));
+            pending.put(id, edit);
+            size = pending.size();
+            if (existing != null) {
+                coalesced.incrementAndGet();
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+        // El fsync fuera del cerrojo: las ediciones concurrentes comparten el mismo force()
+        journal.sync(position);
+        accepted.incrementAndGet();
+        if (size >= maxBatchSize) {
+            requestFlush();
+        }
+        return view;
+    }
+
+    /**
+     * Escribe en la transacción en curso las ediciones pendientes de la nota, antes de una escritura
+     * síncrona sobre ella. Si la transacción se deshace, las ediciones vuelven al buffer.
+     */
+    public void applyPending(Long id) {
+        takePending(id, true);
+    }
+
+    /** Descarta las ediciones pendientes de la nota (se va a eliminar en la transacción en curso). */
+    public void discardPending(Long id) {
+        takePending(id, false);
+    }
+
+    private void takePending(Long id, boolean write) {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            PendingEdit edit;
+            pendingLock.lock();
+            try {
+                // Una escritura síncrona parte del estado actual: ya no hay conflicto que comunicar
+                recentConflicts.invalidate(id);
+                edit = pending.remove(id);
+            } finally {
+                pendingLock.unlock();
+            }
+            if (edit == null) {
+                return;
+            }
+            if (write) {
+                if (noteStore.updatePartial(List.of(toPartialUpdate(edit, now()))).get(0)) {
+                    noteStore.findById(id).ifPresent(note ->
+                            eventPublisher.publishEvent(NoteChangedEvent.updated(edit.getBase(), note)));
+                } else {
+                    noteStore.findMetadataById(id).ifPresent(note -> conflict(edit, note));
+                }
+            }
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                markDone(List.of(edit));
+                return;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        markDone(List.of(edit));
+                    } else {
+                        restore(edit);
+                    }
+                }
+            });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Escribe las ediciones pendientes; si falla, se quedan en el buffer y se reintenta en el siguiente ciclo. */
+    @Scheduled(fixedDelayString = "${notes.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (running) {
+                flushPending();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        try {
+            flushRequested.set(false);
+            List<PendingEdit> batch;
+            do {
+                pendingLock.lock();
+                try {
+                    batch = pending.values().stream().limit(maxBatchSize).toList();
+                } finally {
+                    pendingLock.unlock();
+                }
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } while (batch.size() == maxBatchSize);
+            maintainJournal();
+        } catch (RuntimeException | IOException e) {
+            failedFlushes.incrementAndGet();
+            log.warn("Write-behind flush failed, pending edits will be retried", e);
+        }
+    }
+
+    private void write(List<PendingEdit> batch) {
+        LocalDateTime flushedAt = now();
+        // Las notas escritas y, de las que no, las que siguen existiendo (conflicto con otra instancia)
+        Map<Long, NoteDto> updated = new HashMap<>();
+        Map<Long, NoteDto> conflicting = new HashMap<>();
+        // Con varios shards, las de un shard que falló: ni escritas ni en conflicto, siguen pendientes
+        Set<Long> notWritten = new HashSet<>();
+        PartialWriteException partial = transactionTemplate.execute(status -> {
+            List<Boolean> applied;
+            PartialWriteException failure = null;
+            try {
+                applied = noteStore.updatePartial(batch.stream()
+                        .map(edit -> toPartialUpdate(edit, flushedAt)).toList());
+            } catch (PartialWriteException e) {
+                applied = e.getResults();
+                failure = e;
+            }
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (applied.get(i) == null) {
+                    notWritten.add(batch.get(i).getId());
+                } else {
+                    ids.add(batch.get(i).getId());
+                }
+            }
+            Map<Long, NoteDto> after = noteStore.findAllById(ids).stream()
+                    .collect(Collectors.toMap(NoteDto::getId, Function.identity()));
+            for (int i = 0; i < batch.size(); i++) {
+                PendingEdit edit = batch.get(i);
+                NoteDto note = after.get(edit.getId());
+                if (note == null) {
+                    continue;
+                }
+                if (applied.get(i)) {
+                    updated.put(edit.getId(), note);
+                    eventPublisher.publishEvent(NoteChangedEvent.updated(edit.getBase(), note));
+                } else {
+                    conflicting.put(edit.getId(), note);
+                }
+            }
+            return failure;
+        });
+        flushes.incrementAndGet();
+        written.addAndGet(updated.size());
+
+        List<PendingEdit> done = new ArrayList<>(batch.size());
+        pendingLock.lock();
+        try {
+            for (PendingEdit edit : batch) {
+                if (notWritten.contains(edit.getId())) {
+                    continue;
+                }
+                done.add(edit);
+                PendingEdit current = pending.get(edit.getId());
+                NoteDto note = updated.get(edit.getId());
+                if (conflicting.containsKey(edit.getId())) {
+                    // Otra instancia cambió la nota: se descartan también las llegadas durante el flush,
+                    // que se aceptaron sobre la misma versión
+                    pending.remove(edit.getId());
+                    if (current != null && current != edit) {
+                        done.add(current);
+                    }
+                    conflict(current != null ? current : edit, conflicting.get(edit.getId()));
+                } else if (current == edit || note == null) {
+                    // Escrita, o la nota ya no existe
+                    pending.remove(edit.getId(), edit);
+                } else if (current != null) {
+                    // Llegaron más ediciones durante el flush: quedan pendientes sobre el estado ya escrito
+                    int remaining = Math.max(1, current.getEdits() - edit.getEdits());
+                    pending.put(edit.getId(), new PendingEdit(edit.getId(), current.getSeq(), remaining,
+                            current.getChanges(), note, withVersion(current.getView(), note.getVersion() + remaining)));
+                }
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+        markDone(done);
+        if (partial != null) {
+            // Lo demás se reintenta en el siguiente flush
+            throw partial;
+        }
+    }
+
+    // Las ediciones se aceptaron sobre una versión que ya no es la de la base de datos: ganan los cambios ya escritos
+    private void conflict(PendingEdit edit, NoteDto current) {
+        conflicts.incrementAndGet();
+        recentConflicts.put(edit.getId(), new AutosaveConflictDto(edit.getId(), edit.getBase().getVersion(),
+                current.getVersion(), edit.getEdits(), edit.getChanges(), now()));
+        log.warn("Discarding {} autosave edit(s) of note {}: accepted on version {} but it is now at version {}",
+                edit.getEdits(), edit.getId(), edit.getBase().getVersion(), current.getVersion());
+    }
+
+    // Anota en el diario (y en disco) que estas ediciones ya no deben aplicarse al arrancar
+    private void markDone(List<PendingEdit> edits) {
+        if (edits.isEmpty()) {
+            return;
+        }
+        long position = 0;
+        for (PendingEdit edit : edits) {
+            position = journal.append(JournalRecord.done(edit.getSeq(), edit.getId()));
+        }
+        journal.sync(position);
+    }
+
+    // Una transacción síncrona deshecha: sus ediciones vuelven al buffer, fusionadas con las llegadas después
+    private void restore(PendingEdit edit) {
+        long position;
+        pendingLock.lock();
+        try {
+            PendingEdit newer = pending.get(edit.getId());
+            PendingEdit restored = newer == null ? edit
+                    : new PendingEdit(edit.getId(), ++lastSeq, edit.getEdits() + newer.getEdits(),
+                            merge(merge(new UpdateNoteDto(), edit.getChanges()), newer.getChanges()),
+                            edit.getBase(), newer.getView());
+            pending.put(edit.getId(), restored);
+            position = journal.append(JournalRecord.edit(restored.getSeq(), restored.getId(),
+                    restored.getEdits(), restored.getChanges()));
+        } finally {
+            pendingLock.unlock();
+        }
+        journal.sync(position);
+    }
+
+    // Sin pendientes el diario se vacía; si crece demasiado con pendientes, se reescribe solo con ellas
+    private void maintainJournal() throws IOException {
+        pendingLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                if (journal.size() > 0) {
+                    journal.truncate();
+                }
+            } else if (journal.size() > compactThresholdBytes) {
+                journal.rewrite(pending.values().stream()
+                        .map(edit -> JournalRecord.edit(edit.getSeq(), edit.getId(), edit.getEdits(), edit.getChanges()))
+                        .toList());
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Recupera las ediciones confirmadas y no escritas antes de una caída: se cargan en el buffer
+     * sobre el estado actual de la base de datos y se escriben antes de atender peticiones.
+     */
+    @Override
+    public void start() {
+        if (!enabled) {
+            running = true;
+            return;
+        }
+        flushLock.lock();
+        try {
+            recover();
+            running = true;
+            flushPending();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the autosave journal", e);
+        } finally {
+            flushLock.unlock();
+        }
+        int remaining = getPendingCount();
+        if (remaining > 0) {
+            throw new IllegalStateException("Could not apply " + remaining + " autosave edits recovered from the journal");
+        }
+    }
+
+    private void recover() throws IOException {
+        List<JournalRecord> records = journal.readAll();
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<Long, JournalRecord> lastEdit = new HashMap<>();
+        Map<Long, Long> lastDone = new HashMap<>();
+        for (JournalRecord record : records) {
+            lastSeq = Math.max(lastSeq, record.getSeq());
+            if (record.getType() == JournalRecord.Type.EDIT) {
+                lastEdit.merge(record.getId(), record, (a, b) -> b.getSeq() > a.getSeq() ? b : a);
+            } else {
+                lastDone.merge(record.getId(), record.getSeq(), Math::max);
+            }
+        }
+        List<JournalRecord> toReplay = lastEdit.values().stream()
+                .filter(record -> record.getSeq() > lastDone.getOrDefault(record.getId(), 0L))
+                .sorted(Comparator.comparingLong(JournalRecord::getSeq))
+                .toList();
+
+        if (!toReplay.isEmpty()) {
+            Map<Long, NoteDto> current = transactionTemplate.execute(status ->
+                    noteStore.findAllById(toReplay.stream().map(JournalRecord::getId).toList()).stream()
+                            .collect(Collectors.toMap(NoteDto::getId, Function.identity())));
+            LocalDateTime now = now();
+            pendingLock.lock();
+            try {
+                for (JournalRecord record : toReplay) {
+                    NoteDto base = current.get(record.getId());
+                    if (base != null) {
+                        UpdateNoteDto changes = merge(new UpdateNoteDto(), record.toChanges());
+                        int edits = record.getEdits() == null ? 1 : record.getEdits();
+                        pending.put(record.getId(), new PendingEdit(record.getId(), record.getSeq(), edits, changes,
+                                base, apply(base, changes, now, base.getVersion() + edits)));
+                    }
+                }
+            } finally {
+                pendingLock.unlock();
+            }
+            log.info("Replaying {} pending autosave edits from the journal", pending.size());
+        }
+    }
+
+    // Lo que no se llegue a escribir aquí sigue en el diario y se aplica en el próximo arranque
+    @Override
+    public void stop() {
+        if (!enabled) {
+            running = false;
+            return;
+        }
+        flusher.shutdown();
+        flushLock.lock();
+        try {
+            if (running) {
+                flushPending();
+                running = false;
+                journal.close();
+            }
+        } catch (IOException e) {
+            log.warn("Could not close the autosave journal", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Antes que el servidor web al arrancar y después de él al parar
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    public int getPendingCount() {
+        pendingLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    public long getJournalBytes() {
+        return enabled ? journal.size() : 0;
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    // Fecha del flush, no la de aceptación: si no, la nota escrita podría quedar por detrás de otras
+    // modificadas entretanto (orden de las recientes y ETag de los listados)
+    private PartialUpdate toPartialUpdate(PendingEdit edit, LocalDateTime flushedAt) {
+        return new PartialUpdate(edit.getId(), edit.getChanges(), flushedAt, edit.getBase().getVersion(),
+                edit.getEdits());
+    }
+
+    // Valida el estado resultante con las mismas reglas que la entidad
+    private void validate(NoteDto view) {
+        Note note = new Note();
+        note.setTitle(view.getTitle());
+        note.setContent(view.getContent());
+        note.setCategory(view.getCategory());
+        Set<ConstraintViolation<Note>> violations = validator.validate(note);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Validation errors: " + violations.stream()
+                    .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    // Los campos no nulos de "changes" sustituyen a los de "target" (la categoría en blanco queda en "General")
+    private static UpdateNoteDto merge(UpdateNoteDto target, UpdateNoteDto changes) {
+        UpdateNoteDto merged = new UpdateNoteDto();
+        merged.setTitle(changes.getTitle() != null ? changes.getTitle() : target.getTitle());
+        merged.setContent(changes.getContent() != null ? changes.getContent() : target.getContent());
+        merged.setCategory(changes.getCategory() != null ? Note.normalizeCategory(changes.getCategory())
+                : target.getCategory());
+        merged.setPublished(changes.getPublished() != null ? changes.getPublished() : target.getPublished());
+        return merged;
+    }
+
+    private static NoteDto apply(NoteDto from, UpdateNoteDto changes, LocalDateTime updatedAt, long version) {
+        NoteDto view = withVersion(from, version);
+        if (changes.getTitle() != null) {
+            view.setTitle(changes.getTitle());
+        }
+        if (changes.getContent() != null) {
+            view.setContent(changes.getContent());
+        }
+        if (changes.getCategory() != null) {
+            view.setCategory(Note.normalizeCategory(changes.getCategory()));
+        }
+        if (changes.getPublished() != null) {
+            view.setPublished(changes.getPublished());
+        }
+        view.setUpdatedAt(updatedAt);
+        return view;
+    }
+
+    private static NoteDto withVersion(NoteDto from, long version) {
+        NoteDto copy = new NoteDto();
+        copy.setId(from.getId());
+        copy.setTitle(from.getTitle());
+        copy.setContent(from.getContent());
+        copy.setCategory(from.getCategory());
+        copy.setPriority(from.getPriority());
+        copy.setPublished(from.isPublished());
+        copy.setCreatedAt(from.getCreatedAt());
+        copy.setUpdatedAt(from.getUpdatedAt());
+        copy.setVersion(version);
+        return copy;
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,36 @@
+package com.notes.writebehind;
+
+import com.notes.dto.NoteDto;
+import com.notes.dto.UpdateNoteDto;
+
+/**
+ * Ediciones aceptadas de una nota que aún no están en la base de datos, ya fusionadas en una sola.
+ * Inmutable: cada edición nueva sustituye la entrada del buffer por otra.
+ */
+final class PendingEdit {
+
+    private final Long id;
+    private final long seq;
+    private final int edits;
+    private final UpdateNoteDto changes;
+    // Estado en la base de datos antes de estas ediciones (el "previous" del evento al escribirlas)
+    private final NoteDto base;
+    // Lo que ven las lecturas mientras tanto
+    private final NoteDto view;
+
+    PendingEdit(Long id, long seq, int edits, UpdateNoteDto changes, NoteDto base, NoteDto view) {
+        this.id = id;
+        this.seq = seq;
+        this.edits = edits;
+        this.changes = changes;
+        this.base = base;
+        this.view = view;
+    }
+
+    Long getId() { return id; }
+    long getSeq() { return seq; }
+    int getEdits() { return edits; }
+    UpdateNoteDto getChanges() { return changes; }
+    NoteDto getBase() { return base; }
+    NoteDto getView() { return view; }
+}
@@ -0,0 +1,194 @@
+package com.notes.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Diario local (una línea JSON por registro) de las ediciones aceptadas y aún no escritas en la base de datos.
+ * <p>
+ * Las escrituras se hacen bajo el cerrojo del buffer, pero el {@code fsync} va fuera: varios hilos que
+ * escriben a la vez esperan a un único {@code force} (group commit). Un registro está a salvo cuando
+ * {@link #sync(long)} devuelve con su posición. Los cerrojos son {@link ReentrantLock}: se hace E/S con
+ * ellos tomados y, con hilos virtuales, un bloque synchronized bloquearía el hilo portador.
+ */
+final class WriteBehindJournal implements Closeable {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final boolean fsync;
+
+    // Orden de los cerrojos: syncLock y después writeLock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private FileChannel channel;
+    private long written;
+    private long synced;
+
+    WriteBehindJournal(Path path, ObjectMapper objectMapper, boolean fsync) throws IOException {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = open(path);
+        this.written = channel.size();
+        this.synced = written;
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    /** Registros del diario; una última línea incompleta (caída a mitad de escritura) se ignora. */
+    List<JournalRecord> readAll() throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                records.add(objectMapper.readValue(line, JournalRecord.class));
+            } catch (IOException e) {
+                break;
+            }
+        }
+        return records;
+    }
+
+    /** Añade el registro sin esperar al disco; devuelve la posición que hay que pasar a {@link #sync(long)}. */
+    long append(JournalRecord record) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(serialize(record));
+            writeLock.lock();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                written = channel.position();
+                return written;
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the autosave journal " + path, e);
+        }
+    }
+
+    /** Espera a que todo lo escrito hasta {@code position} esté en disco. */
+    void sync(long position) {
+        if (!fsync) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (synced >= position) {
+                return;
+            }
+            long target = size();
+            channel.force(false);
+            synced = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync the autosave journal " + path, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Vacía el diario; solo se llama cuando no queda ninguna edición pendiente. */
+    void truncate() throws IOException {
+        lockAll();
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            written = 0;
+            synced = 0;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Sustituye el diario por uno con solo los registros indicados (las ediciones pendientes).
+     * Se escribe aparte y se renombra, así una caída a mitad deja intacto el diario anterior.
+     */
+    void rewrite(List<JournalRecord> records) throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        lockAll();
+        try {
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (JournalRecord record : records) {
+                    ByteBuffer buffer = ByteBuffer.wrap(serialize(record));
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = open(path);
+            written = channel.size();
+            synced = written;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    long size() {
+        writeLock.lock();
+        try {
+            return written;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void lockAll() {
+        syncLock.lock();
+        writeLock.lock();
+    }
+
+    private void unlockAll() {
+        writeLock.unlock();
+        syncLock.unlock();
+    }
+
+    private byte[] serialize(JournalRecord record) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(record);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lockAll();
+        try {
+            if (fsync) {
+                channel.force(false);
+            }
+            channel.close();
+        } finally {
+            unlockAll();
+        }
+    }
+}
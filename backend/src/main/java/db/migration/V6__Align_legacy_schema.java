@@ -0,0 +1,147 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deja con el esquema de V1 las bases de datos anteriores a Flyway. Se marcaron como versión 1 sin ejecutarla
+ * (baseline-on-migrate), pero las creó el antiguo {@code mysql/init.sql} y después {@code ddl-auto=update}:
+ * fechas TIMESTAMP con precisión de segundos, {@code category} y {@code priority} admitiendo NULL y, según
+ * cuándo se crearon, sin {@code published}, {@code version} o los índices de la paginación por cursor.
+ * <p>
+ * Cada diferencia se comprueba en los metadatos antes de tocar nada, así que en una base de datos creada con
+ * V1 no hace nada. Va en Java porque MySQL no tiene {@code ADD COLUMN IF NOT EXISTS} ni
+ * {@code CREATE INDEX IF NOT EXISTS}.
+ */
+public class V6__Align_legacy_schema extends BaseJavaMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(V6__Align_legacy_schema.class);
+    private static final String TABLE = "notes";
+
+    // Definición de V1 de las columnas que init.sql creaba de otra forma (o que ddl-auto añadía)
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+    private static final Map<String, String> INDEXES = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("created_at", "DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)");
+        COLUMNS.put("updated_at", "DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)");
+        COLUMNS.put("category", "VARCHAR(100) NOT NULL DEFAULT 'General'");
+        COLUMNS.put("priority", "ENUM('LOW', 'MEDIUM', 'HIGH') NOT NULL DEFAULT 'MEDIUM'");
+        COLUMNS.put("published", "BOOLEAN NOT NULL DEFAULT FALSE");
+        COLUMNS.put("version", "BIGINT NOT NULL DEFAULT 0");
+
+        INDEXES.put("idx_category", "category");
+        INDEXES.put("idx_created_at", "created_at");
+        INDEXES.put("idx_priority", "priority");
+        INDEXES.put("idx_updated_at_id", "updated_at, id");
+        INDEXES.put("idx_category_updated_at_id", "category, updated_at, id");
+        INDEXES.put("idx_priority_updated_at_id", "priority, updated_at, id");
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        Map<String, Column> columns = columns(connection);
+        try (Statement statement = connection.createStatement()) {
+            // Primero se rellenan los NULL: si no, el NOT NULL fallaría en las filas antiguas
+            if (isNullable(columns, "category")) {
+                execute(statement, "UPDATE notes SET category = 'General' WHERE category IS NULL OR TRIM(category) = ''");
+            }
+            if (isNullable(columns, "priority")) {
+                execute(statement, "UPDATE notes SET priority = 'MEDIUM' WHERE priority IS NULL");
+            }
+            if (isNullable(columns, "created_at")) {
+                execute(statement, "UPDATE notes SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL");
+            }
+            if (isNullable(columns, "updated_at")) {
+                execute(statement, "UPDATE notes SET updated_at = created_at WHERE updated_at IS NULL");
+            }
+
+            for (Map.Entry<String, String> column : COLUMNS.entrySet()) {
+                Column current = columns.get(column.getKey());
+                if (current == null) {
+                    execute(statement, "ALTER TABLE notes ADD COLUMN " + column.getKey() + " " + column.getValue());
+                } else if (!matchesV1(column.getKey(), current)) {
+                    execute(statement, "ALTER TABLE notes MODIFY COLUMN " + column.getKey() + " " + column.getValue());
+                }
+            }
+
+            Set<String> indexes = indexes(connection);
+            for (Map.Entry<String, String> index : INDEXES.entrySet()) {
+                if (!indexes.contains(index.getKey())) {
+                    execute(statement, "CREATE INDEX " + index.getKey() + " ON notes(" + index.getValue() + ")");
+                }
+            }
+        }
+    }
+
+    // Fechas DATETIME(6) NOT NULL; el resto basta con que sean NOT NULL (init.sql ya usaba los mismos tipos)
+    private static boolean matchesV1(String name, Column column) {
+        if (column.nullable) {
+            return false;
+        }
+        if (name.endsWith("_at")) {
+            return "DATETIME".equals(column.type) && column.fractionDigits == 6;
+        }
+        if (name.equals("published")) {
+            return column.hasDefault;
+        }
+        return true;
+    }
+
+    private static boolean isNullable(Map<String, Column> columns, String name) {
+        Column column = columns.get(name);
+        return column != null && column.nullable;
+    }
+
+    private static void execute(Statement statement, String sql) throws SQLException {
+        log.info("Aligning legacy schema: {}", sql);
+        statement.execute(sql);
+    }
+
+    private static Map<String, Column> columns(Connection connection) throws SQLException {
+        Map<String, Column> columns = new HashMap<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(), TABLE, null)) {
+            while (rs.next()) {
+                columns.put(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT), new Column(
+                        rs.getString("TYPE_NAME").toUpperCase(Locale.ROOT),
+                        rs.getInt("DECIMAL_DIGITS"),
+                        rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls,
+                        rs.getString("COLUMN_DEF") != null));
+            }
+        }
+        return columns;
+    }
+
+    private static Set<String> indexes(Connection connection) throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), TABLE, false, true)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                if (name != null) {
+                    indexes.add(name.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private record Column(String type, int fractionDigits, boolean nullable, boolean hasDefault) {
+    }
+}
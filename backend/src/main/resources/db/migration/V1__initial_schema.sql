@@ -0,0 +1,23 @@
+-- Esquema inicial de la tabla de notas (el que generaba ddl-auto=update).
+-- Las bases de datos existentes se marcan con esta versión sin ejecutarla (baseline-on-migrate);
+-- los cambios posteriores van en nuevas migraciones V2__..., nunca editando esta.
+CREATE TABLE IF NOT EXISTS notes (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    content TEXT,
+    published BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+    category VARCHAR(100) NOT NULL DEFAULT 'General',
+    priority ENUM('LOW', 'MEDIUM', 'HIGH') NOT NULL DEFAULT 'MEDIUM',
+    version BIGINT NOT NULL DEFAULT 0
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE INDEX idx_category ON notes(category);
+CREATE INDEX idx_created_at ON notes(created_at);
+CREATE INDEX idx_priority ON notes(priority);
+
+-- Índices compuestos para la paginación por cursor (orden estable updated_at DESC, id DESC)
+CREATE INDEX idx_updated_at_id ON notes(updated_at, id);
+CREATE INDEX idx_category_updated_at_id ON notes(category, updated_at, id);
+CREATE INDEX idx_priority_updated_at_id ON notes(priority, updated_at, id);
@@ -0,0 +1,3 @@
+-- Contenido comprimido de las notas largas (ver ContentCodec). Cuando está relleno, "content" guarda
+-- solo el principio del texto. Las filas existentes las comprime en segundo plano ContentCompressionMigrator.
+ALTER TABLE notes ADD COLUMN content_compressed MEDIUMBLOB NULL;
@@ -0,0 +1,7 @@
+-- Secuencia de ids de las notas (ver NoteIdGenerator): la aplicación asigna el id antes del INSERT para
+-- poder elegir shard. Empieza donde se quedó el AUTO_INCREMENT, que ya no se usa.
+CREATE TABLE note_id_sequence (
+    next_value BIGINT NOT NULL
+) ENGINE = InnoDB;
+
+INSERT INTO note_id_sequence (next_value) SELECT COALESCE(MAX(id), 0) + 1 FROM notes;
@@ -0,0 +1,19 @@
+-- Nivel frío de las notas (ver NoteArchiver): las notas sin modificar desde hace tiempo se mueven aquí por
+-- lotes, con las mismas columnas y el mismo id. Los listados normales solo leen "notes", que se queda con
+-- las notas activas; las archivadas se consultan aparte (includeArchived) o se restauran.
+CREATE TABLE notes_archive (
+    id BIGINT NOT NULL PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    content TEXT,
+    content_compressed MEDIUMBLOB NULL,
+    published BOOLEAN NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    category VARCHAR(100) NOT NULL,
+    priority ENUM('LOW', 'MEDIUM', 'HIGH') NOT NULL,
+    version BIGINT NOT NULL,
+    archived_at DATETIME(6) NOT NULL
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE INDEX idx_archive_updated_at_id ON notes_archive(updated_at, id);
+CREATE INDEX idx_archive_category ON notes_archive(category);
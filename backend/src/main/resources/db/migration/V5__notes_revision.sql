@@ -0,0 +1,25 @@
+-- Revisión de las notas (ver NoteRevisionRepository): cada transacción que escribe notas suma 1 a una fila;
+-- la revisión es la suma. Es el ETag de los listados: a diferencia de COUNT(*) + MAX(updated_at), cambia con
+-- cualquier escritura aunque su updated_at no sea el mayor o caiga en el mismo segundo.
+CREATE TABLE notes_revision (
+    slot INT NOT NULL PRIMARY KEY,
+    revision BIGINT NOT NULL
+) ENGINE = InnoDB;
+
+INSERT INTO notes_revision (slot, revision) VALUES
+    (0, 0),
+    (1, 0),
+    (2, 0),
+    (3, 0),
+    (4, 0),
+    (5, 0),
+    (6, 0),
+    (7, 0),
+    (8, 0),
+    (9, 0),
+    (10, 0),
+    (11, 0),
+    (12, 0),
+    (13, 0),
+    (14, 0),
+    (15, 0);
@@ -0,0 +1,158 @@
+package com.notes.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditRingBufferTest {
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThatThrownBy(() -> new AuditRingBuffer(6)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void slotsAreReusedInOrderAcrossManyLaps() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        List<Long> drained = new ArrayList<>();
+        long next = 0;
+        for (int lap = 0; lap < 10; lap++) {
+            // Tres por vuelta: las posiciones no coinciden con el principio de la cola
+            for (int i = 0; i < 3; i++) {
+                assertThat(offer(buffer, next)).isTrue();
+                next++;
+            }
+            assertThat(buffer.drain(record -> drained.add(record.noteId), 2)).isEqualTo(2);
+            assertThat(buffer.drain(record -> drained.add(record.noteId), 10)).isEqualTo(1);
+            assertThat(buffer.size()).isZero();
+        }
+
+        assertThat(drained).hasSize(30);
+        for (int i = 0; i < drained.size(); i++) {
+            assertThat(drained.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void fullBufferRejectsUntilTheConsumerFreesASlot() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (long i = 0; i < 4; i++) {
+            assertThat(offer(buffer, i)).isTrue();
+        }
+
+        assertThat(buffer.claim()).isEqualTo(-1);
+        assertThat(buffer.size()).isEqualTo(4);
+
+        assertThat(buffer.drain(record -> { }, 1)).isEqualTo(1);
+        assertThat(offer(buffer, 4)).isTrue();
+        assertThat(buffer.claim()).isEqualTo(-1);
+    }
+
+    @Test
+    void consumerStopsAtTheFirstSlotNotYetPublished() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        long first = buffer.claim();
+        long second = buffer.claim();
+        buffer.get(second).noteId = 2;
+        buffer.publish(second);
+        List<Long> drained = new ArrayList<>();
+
+        assertThat(buffer.drain(record -> drained.add(record.noteId), 10)).isZero();
+
+        buffer.get(first).noteId = 1;
+        buffer.publish(first);
+        assertThat(buffer.drain(record -> drained.add(record.noteId), 10)).isEqualTo(2);
+        assertThat(drained).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void drainedSlotsReleaseTheirReferences() {
+        AuditRingBuffer buffer = new AuditRingBuffer(2);
+        long position = buffer.claim();
+        buffer.get(position).sql = "SELECT 1";
+        buffer.get(position).client = "127.0.0.1";
+        buffer.publish(position);
+
+        buffer.drain(record -> assertThat(record.sql).isEqualTo("SELECT 1"), 1);
+
+        assertThat(buffer.get(position).sql).isNull();
+        assertThat(buffer.get(position).client).isNull();
+    }
+
+    @Test
+    void concurrentProducersLoseNothingButWhatTheyCountAsDropped() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 50_000;
+        AuditRingBuffer buffer = new AuditRingBuffer(256);
+        AtomicLong dropped = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                await(start);
+                for (int i = 0; i < perProducer; i++) {
+                    if (!offer(buffer, (long) producer * perProducer + i)) {
+                        dropped.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Consumidor único: cada productor ve sus registros en el orden en que los publicó, sin repetidos
+        long[] lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        AtomicLong consumed = new AtomicLong();
+        AtomicBoolean outOfOrder = new AtomicBoolean();
+        start.countDown();
+        boolean producing = true;
+        while (producing || buffer.size() > 0) {
+            producing = threads.stream().anyMatch(Thread::isAlive);
+            buffer.drain(record -> {
+                int producer = (int) (record.noteId / perProducer);
+                if (record.noteId <= lastSeen[producer]) {
+                    outOfOrder.set(true);
+                }
+                lastSeen[producer] = record.noteId;
+                consumed.incrementAndGet();
+            }, 64);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(outOfOrder).isFalse();
+        assertThat(consumed.get() + dropped.get()).isEqualTo((long) producers * perProducer);
+        assertThat(buffer.size()).isZero();
+    }
+
+    private static boolean offer(AuditRingBuffer buffer, long noteId) {
+        long position = buffer.claim();
+        if (position < 0) {
+            return false;
+        }
+        AuditRecord record = buffer.get(position);
+        record.type = AuditRecord.Type.NOTE_CREATED;
+        record.noteId = noteId;
+        buffer.publish(position);
+        return true;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
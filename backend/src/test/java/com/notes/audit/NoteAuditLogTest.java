@@ -0,0 +1,97 @@
+package com.notes.audit;
+
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteAuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private NoteAuditLog auditLog;
+
+    @AfterEach
+    void tearDown() {
+        if (auditLog != null) {
+            auditLog.stop();
+        }
+    }
+
+    @Test
+    void stopWritesWhatIsStillQueued() throws IOException {
+        // Con un intervalo tan largo el consumidor está dormido: lo que hay en la cola lo escribe la parada
+        auditLog = auditLog(64, 60_000);
+        auditLog.start();
+        for (long id = 1; id <= 5; id++) {
+            auditLog.onNoteChanged(NoteChangedEvent.created(note(id)));
+        }
+        auditLog.recordSlowQuery("SELECT \"x\"\nFROM notes", 1_500_000_000L);
+
+        auditLog.stop();
+
+        List<String> lines = Files.readAllLines(file());
+        assertThat(lines).hasSize(6);
+        assertThat(lines.get(0)).contains("\"type\":\"note.created\"", "\"noteId\":1", "\"version\":3");
+        assertThat(lines.get(5)).contains("\"type\":\"slow_query\"", "\"durationMs\":1500",
+                "\"sql\":\"SELECT \\\"x\\\"\\nFROM notes\"");
+        assertThat(auditLog.getWritten()).isEqualTo(6);
+        assertThat(auditLog.getPending()).isZero();
+    }
+
+    @Test
+    void recordsThatDoNotFitAreCountedAsDropped() throws IOException {
+        auditLog = auditLog(8, 60_000);
+        // Sin consumidor todavía: la cola se llena y el resto se descarta
+        for (long id = 1; id <= 11; id++) {
+            auditLog.onNoteChanged(NoteChangedEvent.deleted(note(id)));
+        }
+
+        assertThat(auditLog.getDropped()).isEqualTo(3);
+        assertThat(auditLog.getPending()).isEqualTo(8);
+
+        auditLog.start();
+        auditLog.stop();
+
+        assertThat(Files.readAllLines(file())).hasSize(8)
+                .allSatisfy(line -> assertThat(line).contains("\"type\":\"note.deleted\""));
+        assertThat(auditLog.getWritten()).isEqualTo(8);
+        assertThat(auditLog.getDropped()).isEqualTo(3);
+    }
+
+    @Test
+    void disabledLogIgnoresEverything() {
+        auditLog = new NoteAuditLog(false, 8, file().toString(), 1024, 1, 200);
+        auditLog.start();
+
+        auditLog.onNoteChanged(NoteChangedEvent.created(note(1)));
+
+        assertThat(auditLog.getPending()).isZero();
+        assertThat(auditLog.getDropped()).isZero();
+        assertThat(Files.exists(file())).isFalse();
+    }
+
+    private NoteAuditLog auditLog(int bufferSize, long flushIntervalMs) {
+        return new NoteAuditLog(true, bufferSize, file().toString(), 1 << 20, 2, flushIntervalMs);
+    }
+
+    private Path file() {
+        return directory.resolve("audit.ndjson");
+    }
+
+    private static NoteDto note(long id) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setVersion(3);
+        return dto;
+    }
+}
@@ -0,0 +1,45 @@
+package com.notes.controller;
+
+import com.notes.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NoteControllerIfMatchTest {
+
+    @Test
+    void singleEtagGivesItsVersion() {
+        assertThat(NoteController.expectedVersions(7L, "\"7.3\"")).containsExactly(3L);
+    }
+
+    @Test
+    void anyEtagOfTheListForThisNoteIsAccepted() {
+        // Un cliente que guarda varias copias envía todas las que considera válidas
+        assertThat(NoteController.expectedVersions(7L, "\"7.3\", \"8.1\",\"7.4\" , W/\"7.5\""))
+                .containsExactly(3L, 4L);
+    }
+
+    @Test
+    void wildcardSkipsTheCheck() {
+        assertThat(NoteController.expectedVersions(7L, " * ")).isNull();
+        assertThat(NoteController.expectedVersions(7L, null)).isNull();
+    }
+
+    @Test
+    void weakEtagsNeverMatch() {
+        assertThatThrownBy(() -> NoteController.expectedVersions(7L, "W/\"7.3\""))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessageContaining("Weak");
+    }
+
+    @Test
+    void listWithoutAnEtagOfThisNoteFails() {
+        assertThatThrownBy(() -> NoteController.expectedVersions(7L, "\"8.3\", \"70.1\""))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessageContaining("does not match note 7");
+        assertThatThrownBy(() -> NoteController.expectedVersions(7L, "\"7.x\""))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessageContaining("Malformed");
+    }
+}
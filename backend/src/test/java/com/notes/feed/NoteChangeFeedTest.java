@@ -0,0 +1,227 @@
+package com.notes.feed;
+
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.repository.NoteRevisionRepository;
+import com.notes.store.NoteStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NoteChangeFeedTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final Pattern ID = Pattern.compile("id:(\\S+)");
+
+    // Los envíos se ejecutan a mano: sin hilos ni esperas en los tests
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+    private NoteStore noteStore;
+    private NoteRevisionRepository revisions;
+
+    @BeforeEach
+    void setUp() {
+        noteStore = mock(NoteStore.class);
+        revisions = mock(NoteRevisionRepository.class);
+    }
+
+    @Test
+    void reconnectWithLastEventIdReplaysOnlyWhatWasMissed() {
+        NoteChangeFeed feed = feed(8, 16);
+        feed.subscribe(null, Set.of());
+        feed.onNoteChanged(NoteChangedEvent.created(note(1, "Work", 0)));
+        runTasks();
+        String lastSeen = lastId(emitters.get(0));
+
+        feed.onNoteChanged(NoteChangedEvent.created(note(2, "Home", 0)));
+        feed.onNoteChanged(NoteChangedEvent.created(note(3, "Work", 0)));
+        feed.subscribe(lastSeen, Set.of("Work"));
+        runTasks();
+
+        // Solo lo posterior al último id recibido y de la categoría pedida
+        List<String> replayed = emitters.get(1).changes();
+        assertThat(replayed).hasSize(1);
+        assertThat(replayed.get(0)).contains("event:created", "\"noteId\":3");
+        assertThat(feed.getResets()).isZero();
+    }
+
+    @Test
+    void lastEventIdOfAnotherEpochOrOutOfTheBufferGetsAReset() {
+        NoteChangeFeed feed = feed(4, 16);
+        feed.onNoteChanged(NoteChangedEvent.created(note(1, "Work", 0)));
+        feed.subscribe(null, Set.of());
+        for (long id = 2; id <= 7; id++) {
+            feed.onNoteChanged(NoteChangedEvent.created(note(id, "Work", 0)));
+        }
+        runTasks();
+        String firstId = emitters.get(0).changes().get(0).replaceAll("(?s).*id:(\\S+).*", "$1");
+
+        // Otro pod o un arranque anterior
+        feed.subscribe("zzz-3", Set.of());
+        // El 1 ya no está en un buffer de 4
+        feed.subscribe(firstId, Set.of());
+        runTasks();
+
+        assertThat(emitters.get(1).changes()).singleElement().asString().contains("event:reset", "RESET");
+        assertThat(emitters.get(2).changes()).singleElement().asString().contains("event:reset");
+        assertThat(feed.getResets()).isEqualTo(2);
+    }
+
+    @Test
+    void subscriberThatDoesNotKeepUpIsDisconnected() {
+        NoteChangeFeed feed = feed(16, 3);
+        feed.subscribe(null, Set.of());
+        runTasks();
+
+        // Nadie vacía la cola: el tercer cambio ya no cabe
+        feed.onNoteChanged(NoteChangedEvent.created(note(1, "Work", 0)));
+        feed.onNoteChanged(NoteChangedEvent.created(note(2, "Work", 0)));
+        feed.onNoteChanged(NoteChangedEvent.created(note(3, "Work", 0)));
+        feed.onNoteChanged(NoteChangedEvent.created(note(4, "Work", 0)));
+
+        assertThat(feed.getSlowConsumerDisconnects()).isEqualTo(1);
+        assertThat(feed.getSubscriberCount()).isZero();
+        runTasks();
+        assertThat(emitters.get(0).completed).isTrue();
+    }
+
+    @Test
+    void changesOfOtherInstancesAreReadFromTheStoreOnce() {
+        NoteChangeFeed feed = feed(16, 16);
+        when(noteStore.findRecent(1)).thenReturn(List.of(note(1, "Work", 0)));
+        feed.pollClusterChanges();
+        feed.subscribe(null, Set.of());
+        // Una propia y una de otra instancia; las dos se leen del almacén
+        feed.onNoteChanged(NoteChangedEvent.created(note(2, "Work", 0)));
+        when(revisions.getLocalChanges()).thenReturn(1L);
+        when(noteStore.findRevision()).thenReturn(2L);
+        when(noteStore.findUpdatedAfter(any(), anyLong(), anyInt()))
+                .thenReturn(List.of(note(2, "Work", 0), note(3, "Home", 4)));
+
+        feed.pollClusterChanges();
+        // El margen vuelve a leerlas: no se repiten
+        feed.pollClusterChanges();
+        runTasks();
+
+        List<String> changes = emitters.get(0).changes();
+        assertThat(changes).hasSize(2);
+        assertThat(changes.get(0)).contains("event:created", "\"noteId\":2");
+        assertThat(changes.get(1)).contains("event:updated", "\"noteId\":3").doesNotContain("previous");
+        assertThat(feed.getRemoteChanges()).isEqualTo(1);
+        assertThat(feed.getResets()).isZero();
+    }
+
+    @Test
+    void revisionMovedByChangesThatCannotBeReadSendsAReset() {
+        NoteChangeFeed feed = feed(16, 16);
+        when(noteStore.findRecent(1)).thenReturn(List.of());
+        feed.pollClusterChanges();
+        feed.subscribe(null, Set.of("Work"));
+        // Una baja en otra instancia: sube la revisión y no hay nada que leer
+        when(noteStore.findRevision()).thenReturn(1L);
+
+        feed.pollClusterChanges();
+        // Puede ser una transacción confirmada entre dos lecturas: se espera a la pasada siguiente
+        assertThat(feed.getResets()).isZero();
+        feed.pollClusterChanges();
+        runTasks();
+
+        assertThat(feed.getResets()).isEqualTo(1);
+        assertThat(emitters.get(0).changes()).singleElement().asString().contains("event:reset");
+        // Queda en el buffer: quien se desconectó antes también recarga
+        feed.subscribe(lastId(emitters.get(0)).replaceAll("-\\d+$", "-0"), Set.of());
+        runTasks();
+        assertThat(emitters.get(1).changes()).singleElement().asString().contains("event:reset");
+    }
+
+    @Test
+    void transactionSeenByTheRevisionBeforeItsChangesDoesNotSendAReset() {
+        NoteChangeFeed feed = feed(16, 16);
+        when(noteStore.findRecent(1)).thenReturn(List.of());
+        feed.pollClusterChanges();
+        when(noteStore.findRevision()).thenReturn(1L);
+
+        // Confirmada después de leer los cambios y antes de leer la revisión
+        feed.pollClusterChanges();
+        when(noteStore.findUpdatedAfter(any(), anyLong(), anyInt())).thenReturn(List.of(note(5, "Work", 1)));
+        feed.pollClusterChanges();
+
+        assertThat(feed.getResets()).isZero();
+        assertThat(feed.getRemoteChanges()).isEqualTo(1);
+    }
+
+    private NoteChangeFeed feed(int replayBufferSize, int queueSize) {
+        return new NoteChangeFeed(Jackson2ObjectMapperBuilder.json().build(), noteStore, revisions,
+                replayBufferSize, queueSize, 100, 60_000, 10_000, tasks::add) {
+            @Override
+            SseEmitter createEmitter(long timeoutMs) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static String lastId(RecordingEmitter emitter) {
+        List<String> changes = emitter.changes();
+        Matcher matcher = ID.matcher(changes.get(changes.size() - 1));
+        assertThat(matcher.find()).isTrue();
+        return matcher.group(1);
+    }
+
+    private static NoteDto note(long id, String category, long version) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle("note " + id);
+        dto.setCategory(category);
+        dto.setVersion(version);
+        dto.setUpdatedAt(NOW.plusMinutes(id));
+        return dto;
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> sent = new ArrayList<>();
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(part -> event.append(part.getData()));
+            sent.add(event.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        // Sin el comentario inicial ni los latidos
+        List<String> changes() {
+            return sent.stream().filter(event -> event.contains("event:")).toList();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteJsonCacheTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private NoteJsonCache cache;
+    private ObjectMapper mapper;
+    private ObjectMapper plainMapper;
+
+    @BeforeEach
+    void setUp() {
+        cache = new NoteJsonCache(1 << 20);
+        mapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(cache.module()).build();
+        plainMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Test
+    void cachedJsonIsTheSameAsJacksonWouldWrite() throws Exception {
+        List<NoteDto> notes = List.of(note(1L, 0, "uno \"con\" comillas"), note(2L, 3, "dós"));
+
+        String first = mapper.writeValueAsString(notes);
+        String cached = mapper.writeValueAsString(notes);
+
+        assertThat(first).isEqualTo(plainMapper.writeValueAsString(notes));
+        assertThat(cached).isEqualTo(first);
+        assertThat(new String(mapper.writeValueAsBytes(notes), StandardCharsets.UTF_8)).isEqualTo(first);
+        assertThat(cache.getFragments().estimatedSize()).isEqualTo(2);
+    }
+
+    @Test
+    void sameVersionIsServedFromTheCache() throws Exception {
+        NoteDto note = note(1L, 2, "original");
+        mapper.writeValueAsString(note);
+
+        // Misma versión: no se vuelve a serializar
+        note.setTitle("changed without a new version");
+
+        assertThat(mapper.writeValueAsString(note)).contains("original");
+    }
+
+    @Test
+    void entryOfAnotherVersionIsAMiss() throws Exception {
+        mapper.writeValueAsString(note(1L, 2, "old"));
+
+        // Sin evento (p. ej. escrita por otra instancia): la versión de la clave basta
+        String json = mapper.writeValueAsString(note(1L, 3, "new"));
+
+        assertThat(json).contains("\"new\"").doesNotContain("\"old\"");
+        assertThat(mapper.writeValueAsString(note(1L, 3, "ignored"))).contains("\"new\"");
+        // Una lectura anterior que llega tarde tampoco recibe la entrada nueva
+        assertThat(mapper.writeValueAsString(note(1L, 2, "old"))).contains("\"old\"");
+    }
+
+    @Test
+    void readOnlyWritesUseTheCacheWithoutFillingIt() throws Exception {
+        mapper.writeValueAsString(note(1L, 0, "cached"));
+
+        String json = mapper.writer().withAttribute(NoteJsonCache.READ_ONLY, Boolean.TRUE)
+                .writeValueAsString(List.of(note(1L, 0, "ignored"), note(2L, 0, "exported")));
+
+        assertThat(json).contains("\"cached\"", "\"exported\"");
+        assertThat(cache.getFragments().asMap()).containsOnlyKeys(1L);
+    }
+
+    @Test
+    void changeEventReleasesTheEntry() throws Exception {
+        NoteDto note = note(1L, 0, "title");
+        mapper.writeValueAsString(note);
+
+        cache.onNoteChanged(NoteChangedEvent.deleted(note));
+
+        assertThat(cache.getFragments().asMap()).isEmpty();
+    }
+
+    private static NoteDto note(Long id, long version, String title) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle(title);
+        dto.setContent("content " + id);
+        dto.setCategory("Work");
+        dto.setPriority(Note.Priority.MEDIUM);
+        dto.setCreatedAt(UPDATED);
+        dto.setUpdatedAt(UPDATED);
+        dto.setVersion(version);
+        return dto;
+    }
+}
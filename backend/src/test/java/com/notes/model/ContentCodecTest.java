@@ -0,0 +1,114 @@
+package com.notes.model;
+
+import com.notes.dto.NoteSummaryDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentCodecTest {
+
+    private static final int THRESHOLD = 1024;
+
+    private ContentCodec.Algorithm previousAlgorithm;
+    private int previousThreshold;
+
+    @BeforeEach
+    void saveConfiguration() {
+        // La configuración es estática y la comparte el contexto de Spring de otros tests
+        previousAlgorithm = ContentCodec.getAlgorithm();
+        previousThreshold = ContentCodec.getThresholdBytes();
+    }
+
+    @AfterEach
+    void restoreConfiguration() {
+        ContentCodec.configure(previousAlgorithm, previousThreshold, 1, NoteSummaryDto.PREVIEW_LENGTH);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ContentCodec.Algorithm.class, names = {"LZ4", "DEFLATE"})
+    void contentJustBelowTheThresholdIsStoredAsIs(ContentCodec.Algorithm algorithm) {
+        ContentCodec.configure(algorithm, THRESHOLD, 1, 10);
+
+        assertThat(ContentCodec.encode(text(THRESHOLD - 1))).isNull();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ContentCodec.Algorithm.class, names = {"LZ4", "DEFLATE"})
+    void contentFromTheThresholdRoundTrips(ContentCodec.Algorithm algorithm) {
+        ContentCodec.configure(algorithm, THRESHOLD, 1, 10);
+
+        for (int length : new int[] {THRESHOLD, THRESHOLD + 1, 64 * THRESHOLD}) {
+            String content = text(length);
+            byte[] encoded = ContentCodec.encode(content);
+
+            assertThat(encoded).isNotNull().hasSizeLessThan(length);
+            assertThat(ContentCodec.decode(encoded)).isEqualTo(content);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ContentCodec.Algorithm.class, names = {"LZ4", "DEFLATE"})
+    void thresholdIsMeasuredInUtf8Bytes(ContentCodec.Algorithm algorithm) {
+        ContentCodec.configure(algorithm, THRESHOLD, 1, 10);
+        // 2 bytes por carácter: la mitad de caracteres ya llega al umbral
+        String content = "ñ".repeat(THRESHOLD / 2);
+        assertThat(content.getBytes(StandardCharsets.UTF_8)).hasSize(THRESHOLD);
+
+        byte[] encoded = ContentCodec.encode(content);
+
+        assertThat(encoded).isNotNull();
+        assertThat(ContentCodec.decode(encoded)).isEqualTo(content);
+        assertThat(ContentCodec.encode(content.substring(1))).isNull();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ContentCodec.Algorithm.class, names = {"LZ4", "DEFLATE"})
+    void valuesWrittenWithAnotherAlgorithmAreStillReadable(ContentCodec.Algorithm algorithm) {
+        ContentCodec.configure(algorithm, THRESHOLD, 1, 10);
+        ContentCodec.Algorithm other = algorithm == ContentCodec.Algorithm.LZ4
+                ? ContentCodec.Algorithm.DEFLATE : ContentCodec.Algorithm.LZ4;
+        String content = text(4 * THRESHOLD);
+
+        byte[] encoded = ContentCodec.encode(content.getBytes(StandardCharsets.UTF_8), other, 6);
+
+        assertThat(ContentCodec.decode(encoded)).isEqualTo(content);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ContentCodec.Algorithm.class, names = {"LZ4", "DEFLATE"})
+    void noteKeepsAnUncompressedPrefixAndReturnsTheFullContent(ContentCodec.Algorithm algorithm) {
+        ContentCodec.configure(algorithm, THRESHOLD, 1, 10);
+        String content = text(2 * THRESHOLD);
+
+        Note note = new Note("t", content);
+
+        assertThat(note.getStoredContent()).isEqualTo(content.substring(0, 10));
+        assertThat(note.getContentCompressed()).isNotNull();
+        assertThat(note.getContent()).isEqualTo(content);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ContentCodec.Algorithm.class, names = {"LZ4", "DEFLATE"})
+    void unknownEncodingIsReported(ContentCodec.Algorithm algorithm) {
+        ContentCodec.configure(algorithm, THRESHOLD, 1, 10);
+        byte[] encoded = ContentCodec.encode(text(2 * THRESHOLD));
+        encoded[0] = 9;
+
+        assertThatThrownBy(() -> ContentCodec.decode(encoded)).isInstanceOf(IllegalStateException.class);
+    }
+
+    // Texto repetitivo, como el de una nota real: siempre comprime
+    private static String text(int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append("Team meeting: review the plan. ");
+        }
+        return text.substring(0, length);
+    }
+}
@@ -0,0 +1,123 @@
+package com.notes.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClientRateLimiterTest {
+
+    // 10 tokens por segundo: uno cada 100 ms
+    private static final long TOKEN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    void fullBurstIsAdmittedAtOnceAndThenTheClientWaitsForOneToken() {
+        ClientRateLimiter limiter = limiter(5);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("a", 1)).isZero();
+        }
+
+        assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN_NANOS);
+        // Los rechazos no consumen: la espera sigue siendo la misma
+        assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN_NANOS);
+        assertThat(limiter.tryAcquire("b", 1)).isZero();
+    }
+
+    @Test
+    void tokensComeBackAtTheConfiguredRate() {
+        ClientRateLimiter limiter = limiter(5);
+        drain(limiter, "a", 5);
+
+        advance(TOKEN_NANOS - 1);
+        assertThat(limiter.tryAcquire("a", 1)).isEqualTo(1);
+        advance(1);
+        assertThat(limiter.tryAcquire("a", 1)).isZero();
+        assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN_NANOS);
+
+        advance(3 * TOKEN_NANOS);
+        assertThat(limiter.tryAcquire("a", 3)).isZero();
+        assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN_NANOS);
+    }
+
+    @Test
+    void idleTimeDoesNotAccumulateMoreThanTheBurst() {
+        ClientRateLimiter limiter = limiter(5);
+        drain(limiter, "a", 5);
+
+        advance(TimeUnit.MINUTES.toNanos(10));
+
+        drain(limiter, "a", 5);
+        assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN_NANOS);
+    }
+
+    @Test
+    void costIsChargedInTokensAndCappedAtTheBurst() {
+        ClientRateLimiter limiter = limiter(5);
+
+        assertThat(limiter.tryAcquire("a", 3)).isZero();
+        // Faltan dos tokens para otra de coste 4
+        assertThat(limiter.tryAcquire("a", 4)).isEqualTo(2 * TOKEN_NANOS);
+        // Un coste mayor que la ráfaga pide el cubo lleno, nunca más
+        advance(5 * TOKEN_NANOS);
+        assertThat(limiter.tryAcquire("a", 50)).isZero();
+        assertThat(limiter.tryAcquire("a", 50)).isEqualTo(5 * TOKEN_NANOS);
+        // Coste 0 o negativo cuenta como uno
+        advance(TOKEN_NANOS);
+        assertThat(limiter.tryAcquire("a", 0)).isZero();
+        assertThat(limiter.tryAcquire("a", -3)).isEqualTo(TOKEN_NANOS);
+    }
+
+    @Test
+    void clockThatDoesNotMoveOnlyAdmitsTheBurst() {
+        ClientRateLimiter limiter = limiter(3);
+
+        drain(limiter, "a", 3);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.tryAcquire("a", 1)).isPositive();
+        }
+    }
+
+    @Test
+    void nanoTimeOverflowIsHandledLikeAnyOtherInstant() {
+        // nanoTime puede ser negativo y desbordar: solo se comparan diferencias
+        now.set(Long.MAX_VALUE - 2 * TOKEN_NANOS);
+        ClientRateLimiter limiter = limiter(5);
+        drain(limiter, "a", 5);
+        assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN_NANOS);
+
+        advance(3 * TOKEN_NANOS);
+
+        assertThat(now.get()).isNegative();
+        drain(limiter, "a", 3);
+        assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN_NANOS);
+    }
+
+    @Test
+    void rateAndBurstMustBePositive() {
+        assertThatThrownBy(() -> new ClientRateLimiter(0, 5, 100, now::get))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ClientRateLimiter(10, 0, 100, now::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ClientRateLimiter limiter(int burst) {
+        return new ClientRateLimiter(10, burst, 100, now::get);
+    }
+
+    private void advance(long nanos) {
+        now.addAndGet(nanos);
+    }
+
+    private static void drain(ClientRateLimiter limiter, String client, int tokens) {
+        for (int i = 0; i < tokens; i++) {
+            assertThat(limiter.tryAcquire(client, 1)).as("token %d", i).isZero();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.notes.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadShedderTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private SimpleMeterRegistry registry;
+    private Timer acquire;
+    private LoadShedder shedder;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        acquire = registry.timer("hikaricp.connections.acquire");
+        Gauge.builder("hikaricp.connections.pending", pending, AtomicInteger::get).register(registry);
+        // Como mucho 3 en curso; con más de 200 ms de espera media solo pasan las de coste 1
+        shedder = new LoadShedder(registry, null, 3, 200, 1, now::get);
+    }
+
+    @Test
+    void requestsBeyondMaxInFlightAreRejectedUntilOneExits() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(shedder.tryEnter(1)).isEqualTo(LoadShedder.Decision.ADMIT);
+        }
+
+        assertThat(shedder.tryEnter(1)).isEqualTo(LoadShedder.Decision.IN_FLIGHT);
+        assertThat(shedder.getInFlight()).isEqualTo(3);
+
+        shedder.exit();
+        assertThat(shedder.tryEnter(1)).isEqualTo(LoadShedder.Decision.ADMIT);
+        assertThat(shedder.getShedInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyCheapRequestsPassWhileTheAverageWaitIsAboveTheThreshold() {
+        acquire.record(Duration.ofMillis(100));
+        acquire.record(Duration.ofMillis(400));
+        sample(1000);
+
+        assertThat(shedder.getPoolWaitMs()).isEqualTo(250);
+        assertThat(shedder.tryEnter(5)).isEqualTo(LoadShedder.Decision.POOL_WAIT);
+        assertThat(shedder.tryEnter(1)).isEqualTo(LoadShedder.Decision.ADMIT);
+        assertThat(shedder.getShedPoolWait()).isEqualTo(1);
+        // Los rechazos por espera no cuentan como en curso
+        assertThat(shedder.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void waitExactlyAtTheThresholdStillAdmits() {
+        acquire.record(Duration.ofMillis(200));
+        sample(1000);
+
+        assertThat(shedder.tryEnter(5)).isEqualTo(LoadShedder.Decision.ADMIT);
+    }
+
+    @Test
+    void eachSampleOnlyLooksAtItsOwnInterval() {
+        acquire.record(Duration.ofMillis(900));
+        sample(1000);
+        assertThat(shedder.tryEnter(5)).isEqualTo(LoadShedder.Decision.POOL_WAIT);
+
+        // Las esperas anteriores ya no cuentan: la presión ha pasado
+        acquire.record(Duration.ofMillis(10));
+        acquire.record(Duration.ofMillis(30));
+        sample(1000);
+
+        assertThat(shedder.getPoolWaitMs()).isEqualTo(20);
+        assertThat(shedder.tryEnter(5)).isEqualTo(LoadShedder.Decision.ADMIT);
+    }
+
+    @Test
+    void threadsStuckWaitingCountTheWholeIntervalAsWait() {
+        pending.set(4);
+        sample(1500);
+
+        // Nadie ha conseguido conexión en 1,5 s y hay hilos esperando
+        assertThat(shedder.getPoolWaitMs()).isEqualTo(1500);
+        assertThat(shedder.tryEnter(5)).isEqualTo(LoadShedder.Decision.POOL_WAIT);
+
+        pending.set(0);
+        sample(1000);
+        assertThat(shedder.getPoolWaitMs()).isZero();
+        assertThat(shedder.tryEnter(5)).isEqualTo(LoadShedder.Decision.ADMIT);
+    }
+
+    private void sample(long elapsedMs) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(elapsedMs));
+        shedder.sample();
+    }
+}
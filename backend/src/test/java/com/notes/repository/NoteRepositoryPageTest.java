@@ -0,0 +1,84 @@
+package com.notes.repository;
+
+import com.notes.config.JpaConfig;
+import com.notes.model.Note;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Paginación por cursor {@code (updatedAt DESC, id DESC)} con varias notas en el mismo instante. */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(JpaConfig.class)
+class NoteRepositoryPageTest {
+
+    private static final LocalDateTime SAME_INSTANT = LocalDateTime.of(2024, 3, 1, 10, 0, 0, 500_000);
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void pagesCoverEveryNoteOnceWhenUpdatedAtTies() {
+        insert(1L, SAME_INSTANT);
+        insert(2L, SAME_INSTANT.plusMinutes(1));
+        insert(3L, SAME_INSTANT);
+        insert(4L, SAME_INSTANT);
+        insert(5L, SAME_INSTANT.minusMinutes(1));
+        entityManager.clear();
+
+        List<Long> seen = new ArrayList<>();
+        List<Note> page = noteRepository.findFirstPage(null, null, PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            page.forEach(note -> seen.add(note.getId()));
+            // El cursor corta entre dos notas del mismo instante: la página siguiente sigue por id
+            Note last = page.get(page.size() - 1);
+            page = noteRepository.findPageAfter(last.getUpdatedAt(), last.getId(), null, null, PageRequest.of(0, 2));
+        }
+
+        assertThat(seen).containsExactly(2L, 4L, 3L, 1L, 5L);
+    }
+
+    @Test
+    void filtersApplyToTheFollowingPages() {
+        insert(1L, SAME_INSTANT);
+        insert(2L, SAME_INSTANT);
+        insert(3L, SAME_INSTANT, "Home");
+        insert(4L, SAME_INSTANT);
+        entityManager.clear();
+
+        List<Note> page = noteRepository.findPageAfter(SAME_INSTANT, 4L, "Work", null, PageRequest.of(0, 10));
+
+        assertThat(page).extracting(Note::getId).containsExactly(2L, 1L);
+    }
+
+    private void insert(Long id, LocalDateTime updatedAt) {
+        insert(id, updatedAt, "Work");
+    }
+
+    private void insert(Long id, LocalDateTime updatedAt, String category) {
+        Note note = new Note("nota " + id, "contenido", category, Note.Priority.MEDIUM, false);
+        note.setId(id);
+        noteRepository.insert(note);
+        entityManager.flush();
+        // La auditoría pone la hora actual al insertar
+        entityManager.createQuery("UPDATE Note n SET n.updatedAt = :updatedAt WHERE n.id = :id")
+                .setParameter("updatedAt", updatedAt)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+}
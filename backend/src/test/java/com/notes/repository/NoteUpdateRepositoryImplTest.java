@@ -0,0 +1,84 @@
+package com.notes.repository;
+
+import com.notes.config.JpaConfig;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.model.Note;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(JpaConfig.class)
+class NoteUpdateRepositoryImplTest {
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void blankCategoryIsStoredAsGeneral() {
+        Note note = insert("Casa", "Home");
+
+        UpdateNoteDto changes = new UpdateNoteDto();
+        changes.setCategory("  ");
+        int updated = noteRepository.updateFields(note.getId(), note.getVersion(), changes, now());
+
+        assertThat(updated).isEqualTo(1);
+        Note stored = reload(note.getId());
+        assertThat(stored.getCategory()).isEqualTo("General");
+        assertThat(stored.getVersion()).isEqualTo(note.getVersion() + 1);
+    }
+
+    @Test
+    void categoryIsUpdatedAsSent() {
+        Note note = insert("Casa", "Home");
+
+        UpdateNoteDto changes = new UpdateNoteDto();
+        changes.setCategory("Work");
+        noteRepository.updateFields(note.getId(), note.getVersion(), changes, now());
+
+        assertThat(reload(note.getId()).getCategory()).isEqualTo("Work");
+    }
+
+    @Test
+    void staleVersionUpdatesNothing() {
+        Note note = insert("Casa", "Home");
+
+        UpdateNoteDto changes = new UpdateNoteDto();
+        changes.setTitle("Otra");
+        int updated = noteRepository.updateFields(note.getId(), note.getVersion() + 1, changes, now());
+
+        assertThat(updated).isZero();
+        assertThat(reload(note.getId()).getTitle()).isEqualTo("Casa");
+    }
+
+    private Note insert(String title, String category) {
+        Note note = new Note(title, "contenido", category, Note.Priority.MEDIUM, false);
+        note.setId(1L);
+        noteRepository.insert(note);
+        entityManager.flush();
+        return note;
+    }
+
+    private Note reload(Long id) {
+        entityManager.clear();
+        return noteRepository.findById(id).orElseThrow();
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,165 @@
+package com.notes.service;
+
+import com.notes.config.JpaConfig;
+import com.notes.dto.NoteDto;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.mapper.NoteMapper;
+import com.notes.model.Note;
+import com.notes.repository.NoteArchiveRepository;
+import com.notes.repository.NoteBatchWriter;
+import com.notes.repository.NoteRepository;
+import com.notes.repository.NoteRevisionRepository;
+import com.notes.store.JpaNoteStore;
+import com.notes.store.NoteIdGenerator;
+import com.notes.store.NoteStore;
+import com.notes.writebehind.NoteWriteBehindBuffer;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Archivado contra H2: la tabla {@code notes_archive} no es una entidad, así que se crea aquí con el esquema
+ * de la migración (sin los tipos propios de MySQL).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({JpaConfig.class, JpaNoteStore.class, NoteBatchWriter.class, NoteMapper.class, NoteArchiveRepository.class,
+        NoteRevisionRepository.class})
+@Sql(statements = "CREATE TABLE IF NOT EXISTS notes_archive (id BIGINT NOT NULL PRIMARY KEY, "
+        + "title VARCHAR(255) NOT NULL, content CLOB, content_compressed BLOB NULL, published BOOLEAN NOT NULL, "
+        + "created_at TIMESTAMP(6) NOT NULL, updated_at TIMESTAMP(6) NOT NULL, category VARCHAR(100) NOT NULL, "
+        + "priority VARCHAR(10) NOT NULL, version BIGINT NOT NULL, archived_at TIMESTAMP(6) NOT NULL)",
+        config = @SqlConfig(transactionMode = SqlConfig.TransactionMode.ISOLATED))
+class NoteArchiverTest {
+
+    private static final LocalDateTime LONG_AGO = LocalDateTime.now().minusDays(400).truncatedTo(ChronoUnit.MICROS);
+
+    @MockBean
+    private NoteIdGenerator idGenerator;
+
+    @Autowired
+    private JpaNoteStore jpaNoteStore;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Object> published = new ArrayList<>();
+    private NoteStore noteStore;
+
+    @BeforeEach
+    void setUp() {
+        noteStore = mock(NoteStore.class, delegatesTo(jpaNoteStore));
+        insert(1L, LONG_AGO);
+        insert(2L, LONG_AGO.plusMinutes(1));
+        insert(3L, LONG_AGO.plusMinutes(2));
+        insert(4L, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        entityManager.clear();
+    }
+
+    @Test
+    void coldNotesAreMovedAndPublishedAsDeleted() {
+        NoteArchiver archiver = archiver();
+
+        archiver.archiveColdNotes();
+
+        assertThat(noteRepository.findAll()).extracting(Note::getId).containsExactly(4L);
+        assertThat(jpaNoteStore.findArchivedById(2L)).get()
+                .satisfies(note -> assertThat(note.getTitle()).isEqualTo("nota 2"));
+        assertThat(deletedIds()).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(archiver.getArchivedNotes()).isEqualTo(3);
+    }
+
+    @Test
+    void noteEditedBetweenTheSelectAndTheMoveStaysActive() {
+        doAnswer(call -> {
+            List<NoteDto> candidates = jpaNoteStore.findNotUpdatedSince(call.getArgument(0), call.getArgument(1));
+            // Otra petición la modifica cuando ya es candidata
+            UpdateNoteDto changes = new UpdateNoteDto();
+            changes.setTitle("editada");
+            noteRepository.updateFields(2L, 0L, changes, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+            return candidates;
+        }).when(noteStore).findNotUpdatedSince(any(), anyInt());
+        NoteArchiver archiver = archiver();
+
+        archiver.archiveColdNotes();
+
+        assertThat(noteRepository.findAll()).extracting(Note::getId).containsExactlyInAnyOrder(2L, 4L);
+        assertThat(jpaNoteStore.findArchivedById(2L)).isEmpty();
+        assertThat(deletedIds()).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(archiver.getArchivedNotes()).isEqualTo(2);
+    }
+
+    @Test
+    void restoredNoteIsActiveAgainAsANewVersion() {
+        archiver().archiveColdNotes();
+        // La restauración llega en otra petición: sin las entidades que cargó el archivado
+        entityManager.clear();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+        NoteDto restored = jpaNoteStore.restore(1L, now).orElseThrow();
+
+        assertThat(restored.getTitle()).isEqualTo("nota 1");
+        assertThat(restored.getContent()).isEqualTo("contenido 1");
+        assertThat(restored.getVersion()).isEqualTo(1);
+        assertThat(restored.getUpdatedAt()).isEqualTo(now);
+        assertThat(jpaNoteStore.findArchivedById(1L)).isEmpty();
+        // Ya no es fría: la siguiente pasada no la vuelve a mover
+        assertThat(jpaNoteStore.findNotUpdatedSince(LocalDateTime.now().minusDays(365), 10)).isEmpty();
+        assertThat(jpaNoteStore.restore(1L, now)).isEmpty();
+        assertThat(jpaNoteStore.restore(4L, now)).isEmpty();
+    }
+
+    private NoteArchiver archiver() {
+        return new NoteArchiver(noteStore, mock(NoteWriteBehindBuffer.class), published::add, transactionManager,
+                true, 365, 10, 0);
+    }
+
+    private List<Long> deletedIds() {
+        return published.stream()
+                .map(NoteChangedEvent.class::cast)
+                .filter(event -> event.getType() == NoteChangedEvent.Type.DELETED)
+                .map(NoteChangedEvent::getNoteId)
+                .toList();
+    }
+
+    private void insert(Long id, LocalDateTime updatedAt) {
+        Note note = new Note("nota " + id, "contenido " + id, "Work", Note.Priority.MEDIUM, false);
+        note.setId(id);
+        noteRepository.insert(note);
+        entityManager.flush();
+        // La auditoría pone la hora actual al insertar
+        entityManager.createQuery("UPDATE Note n SET n.updatedAt = :updatedAt WHERE n.id = :id")
+                .setParameter("updatedAt", updatedAt)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,57 @@
+package com.notes.service;
+
+import com.notes.dto.NoteDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NoteCursorTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_456_000);
+
+    @Test
+    void encodedCursorDecodesToTheSamePosition() {
+        NoteCursor cursor = NoteCursor.decode(NoteCursor.of(note(42L, UPDATED)).encode());
+
+        // Sin perder los microsegundos: con otra precisión se repetirían o saltarían filas
+        assertThat(cursor.getTimestamp()).isEqualTo(UPDATED);
+        assertThat(cursor.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = NoteCursor.of(note(Long.MAX_VALUE, UPDATED)).encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThatThrownBy(() -> NoteCursor.decode("not a cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+        assertThatThrownBy(() -> NoteCursor.decode("MjAyNC0wMy0wMVQxMDoxNQ"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void notesWithTheSameUpdatedAtAreOrderedByIdDescending() {
+        NoteCursor cursor = NoteCursor.of(note(5L, UPDATED));
+
+        assertThat(cursor.comesBefore(note(4L, UPDATED))).isTrue();
+        assertThat(cursor.comesBefore(note(5L, UPDATED))).isFalse();
+        assertThat(cursor.comesBefore(note(6L, UPDATED))).isFalse();
+        assertThat(cursor.comesBefore(note(9L, UPDATED.minusNanos(1_000)))).isTrue();
+        assertThat(cursor.comesBefore(note(1L, UPDATED.plusNanos(1_000)))).isFalse();
+    }
+
+    private static NoteDto note(Long id, LocalDateTime updatedAt) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setUpdatedAt(updatedAt);
+        return dto;
+    }
+}
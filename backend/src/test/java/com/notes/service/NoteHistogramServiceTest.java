@@ -0,0 +1,149 @@
+package com.notes.service;
+
+import com.notes.dto.HistogramBucket;
+import com.notes.dto.NoteDto;
+import com.notes.dto.NoteHistogram;
+import com.notes.dto.TimeBucketCount;
+import com.notes.event.NoteChangedEvent;
+import com.notes.store.NoteStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NoteHistogramServiceTest {
+
+    // Lunes: todos los intervalos de los tests están cerrados
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private NoteStore noteStore;
+    private NoteHistogramService service;
+
+    @BeforeEach
+    void setUp() {
+        noteStore = mock(NoteStore.class);
+        service = new NoteHistogramService(noteStore, 100, 24, 1000, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void weeksStartOnMondayAndAddUpTheirDays() {
+        when(noteStore.countByTimeBucket(anyString(), anyBoolean(), isNull(), any(), any())).thenReturn(List.of(
+                row(MONDAY.plusDays(6), null, 2),
+                row(MONDAY.plusDays(7), null, 3),
+                row(MONDAY.plusDays(13), null, 1)));
+
+        // Desde un miércoles hasta el lunes siguiente a la segunda semana, exclusive
+        NoteHistogram histogram = service.getHistogram("created", "week", null,
+                MONDAY.plusDays(2).plusHours(10), MONDAY.plusDays(14));
+
+        assertThat(histogram.getFrom()).isEqualTo(MONDAY);
+        assertThat(histogram.getTo()).isEqualTo(MONDAY.plusDays(14));
+        assertThat(histogram.getBuckets()).extracting(HistogramBucket::getStart, HistogramBucket::getTotal)
+                .containsExactly(tuple(MONDAY, 2L), tuple(MONDAY.plusDays(7), 4L));
+        // Se cuenta por días en el rango ya redondeado
+        verify(noteStore).countByTimeBucket("createdAt", false, null, MONDAY, MONDAY.plusDays(14));
+    }
+
+    @Test
+    void endInsideAnIntervalIncludesThatInterval() {
+        when(noteStore.countByTimeBucket(anyString(), anyBoolean(), isNull(), any(), any())).thenReturn(List.of());
+
+        NoteHistogram histogram = service.getHistogram("created", "week", null, MONDAY, MONDAY.plusDays(14).plusMinutes(1));
+
+        assertThat(histogram.getTo()).isEqualTo(MONDAY.plusDays(21));
+        assertThat(histogram.getBuckets()).hasSize(3).allSatisfy(bucket -> assertThat(bucket.getTotal()).isZero());
+    }
+
+    @Test
+    void hourlyBucketsIncludeEmptyOnesWithTheirBreakdown() {
+        when(noteStore.countByTimeBucket(anyString(), anyBoolean(), anyString(), any(), any())).thenReturn(List.of(
+                row(MONDAY.plusHours(10), "Work", 2),
+                row(MONDAY.plusHours(10), "Home", 1),
+                row(MONDAY.plusHours(12), "Work", 1)));
+
+        NoteHistogram histogram = service.getHistogram("updated", "hour", "category",
+                MONDAY.plusHours(10).plusMinutes(30), MONDAY.plusHours(13));
+
+        List<HistogramBucket> buckets = histogram.getBuckets();
+        assertThat(buckets).extracting(HistogramBucket::getStart)
+                .containsExactly(MONDAY.plusHours(10), MONDAY.plusHours(11), MONDAY.plusHours(12));
+        assertThat(buckets).extracting(HistogramBucket::getTotal).containsExactly(3L, 0L, 1L);
+        assertThat(buckets.get(0).getCounts()).isEqualTo(Map.of("Work", 2L, "Home", 1L));
+        assertThat(buckets.get(1).getCounts()).isEmpty();
+        verify(noteStore).countByTimeBucket("updatedAt", true, "category", MONDAY.plusHours(10), MONDAY.plusHours(13));
+    }
+
+    @Test
+    void closedIntervalsAreCountedOnceAndOnlyTheChangedOnesAreRecounted() {
+        when(noteStore.countByTimeBucket(anyString(), anyBoolean(), isNull(), any(), any()))
+                .thenReturn(List.of(row(MONDAY.plusDays(1), null, 1)));
+        service.getHistogram("updated", "day", null, MONDAY, MONDAY.plusDays(4));
+        service.getHistogram("updated", "day", null, MONDAY, MONDAY.plusDays(4));
+        verify(noteStore, times(1)).countByTimeBucket(anyString(), anyBoolean(), isNull(), any(), any());
+
+        // La nota pasa del martes al miércoles
+        service.onNoteChanged(NoteChangedEvent.updated(
+                note(MONDAY.plusDays(1).plusHours(10)), note(MONDAY.plusDays(2).plusHours(9))));
+        when(noteStore.countByTimeBucket(anyString(), anyBoolean(), isNull(), any(), any()))
+                .thenReturn(List.of(row(MONDAY.plusDays(2), null, 1)));
+
+        NoteHistogram histogram = service.getHistogram("updated", "day", null, MONDAY, MONDAY.plusDays(4));
+
+        verify(noteStore).countByTimeBucket("updatedAt", false, null, MONDAY.plusDays(1), MONDAY.plusDays(3));
+        assertThat(histogram.getBuckets()).extracting(HistogramBucket::getTotal).containsExactly(0L, 0L, 1L, 0L);
+    }
+
+    @Test
+    void countThatRacedWithAWriteIsNotCached() {
+        when(noteStore.countByTimeBucket(anyString(), anyBoolean(), isNull(), any(), any())).thenAnswer(call -> {
+            service.onNoteChanged(NoteChangedEvent.created(note(MONDAY.plusDays(10))));
+            return List.of();
+        });
+
+        service.getHistogram("updated", "day", null, MONDAY, MONDAY.plusDays(2));
+        service.getHistogram("updated", "day", null, MONDAY, MONDAY.plusDays(2));
+
+        verify(noteStore, times(2)).countByTimeBucket(anyString(), anyBoolean(), isNull(), any(), any());
+    }
+
+    @Test
+    void invalidRangesAreRejected() {
+        assertThatThrownBy(() -> service.getHistogram("created", "hour", null, MONDAY, MONDAY.plusDays(5)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Too many buckets");
+        assertThatThrownBy(() -> service.getHistogram("created", "day", null, MONDAY.plusDays(1), MONDAY))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'from' must be before 'to'");
+        assertThatThrownBy(() -> service.getHistogram("created", "month", null, MONDAY, MONDAY.plusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid interval");
+    }
+
+    private static TimeBucketCount row(LocalDateTime bucket, String group, long total) {
+        return new TimeBucketCount(bucket, group, total);
+    }
+
+    private static NoteDto note(LocalDateTime updatedAt) {
+        NoteDto dto = new NoteDto();
+        dto.setId(1L);
+        dto.setCategory("Work");
+        dto.setCreatedAt(MONDAY.minusDays(30));
+        dto.setUpdatedAt(updatedAt);
+        return dto;
+    }
+}
@@ -0,0 +1,70 @@
+package com.notes.service;
+
+import com.notes.dto.NoteDto;
+import com.notes.store.NoteStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NoteSearchIndexMaintainerTest {
+
+    // Fechas puestas por otras instancias, muy anteriores al reloj de esta
+    private static final LocalDateTime WRITTEN = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private NoteStore noteStore;
+    private NoteSearchIndex searchIndex;
+    private NoteSearchIndexMaintainer maintainer;
+
+    @BeforeEach
+    void setUp() {
+        noteStore = mock(NoteStore.class);
+        searchIndex = new InMemoryNoteSearchIndex();
+        maintainer = new NoteSearchIndexMaintainer(searchIndex, noteStore, 10_000);
+    }
+
+    @Test
+    void catchUpAfterARebuildStartsFromTheNewestUpdatedAtRead() {
+        when(noteStore.findBatchAfter(0L, 1000))
+                .thenReturn(List.of(note(1L, "first", WRITTEN.plusMinutes(5)), note(2L, "second", WRITTEN)));
+        maintainer.rebuild();
+        // Escrita después por otra instancia con su reloj: sigue siendo anterior a "ahora" en esta
+        when(noteStore.findUpdatedAfter(any(), anyLong(), anyInt()))
+                .thenReturn(List.of(note(3L, "third", WRITTEN.plusMinutes(6))));
+
+        maintainer.catchUp();
+
+        verify(noteStore).findUpdatedAfter(eq(WRITTEN.plusMinutes(5).minusSeconds(10)), eq(0L), eq(1000));
+        assertThat(searchIndex.search("third", Integer.MAX_VALUE)).containsExactly(3L);
+    }
+
+    @Test
+    void catchUpAfterRebuildingAnEmptyStoreReadsEveryNote() {
+        when(noteStore.findBatchAfter(0L, 1000)).thenReturn(List.of());
+        maintainer.rebuild();
+        when(noteStore.findUpdatedAfter(any(), anyLong(), anyInt())).thenReturn(List.of(note(1L, "first", WRITTEN)));
+
+        maintainer.catchUp();
+
+        assertThat(searchIndex.search("first", Integer.MAX_VALUE)).containsExactly(1L);
+    }
+
+    private static NoteDto note(Long id, String title, LocalDateTime updatedAt) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle(title);
+        dto.setContent("");
+        dto.setUpdatedAt(updatedAt);
+        return dto;
+    }
+}
@@ -0,0 +1,149 @@
+package com.notes.service;
+
+import com.notes.dto.BatchItemResult;
+import com.notes.dto.BatchUpdateNoteDto;
+import com.notes.dto.CreateNoteDto;
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.mapper.NoteMapper;
+import com.notes.store.NoteStore;
+import com.notes.store.PartialWriteException;
+import com.notes.writebehind.NoteWriteBehindBuffer;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NoteServiceBatchTest {
+
+    private final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+    private NoteStore noteStore;
+    private ApplicationEventPublisher eventPublisher;
+    private NoteService service;
+
+    @BeforeEach
+    void setUp() {
+        noteStore = mock(NoteStore.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = service(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void entityRulesAreCheckedPerItemBeforeWriting() {
+        when(noteStore.insertAll(anyList())).thenAnswer(call -> List.of(note(1L, "ok")));
+
+        List<BatchItemResult> results = service.createNotes(List.of(create("ok", "Home"), create("b", "x".repeat(120))));
+
+        assertThat(results.get(0).getStatus()).isEqualTo("success");
+        assertThat(results.get(1).getStatus()).isEqualTo("error");
+        assertThat(results.get(1).getMessage()).contains("Category cannot exceed 100 characters");
+    }
+
+    @Test
+    void blankTitleInUpdateIsRejectedWithoutTouchingTheStore() {
+        BatchUpdateNoteDto blank = new BatchUpdateNoteDto();
+        blank.setId(1L);
+        blank.setTitle("");
+
+        List<BatchItemResult> results = service.updateNotes(List.of(blank));
+
+        assertThat(results.get(0).getStatus()).isEqualTo("error");
+        assertThat(results.get(0).getMessage()).contains("Title is mandatory");
+        verify(noteStore, never()).updateAll(anyList());
+    }
+
+    @Test
+    void failedChunkIsReportedPerItemAndOthersAreKept() {
+        when(noteStore.insertAll(anyList()))
+                .thenAnswer(call -> List.of(note(1L, "first")))
+                .thenThrow(new DataIntegrityViolationException("INSERT INTO notes (id, title) VALUES (2, 'second')"));
+
+        List<BatchItemResult> results = service.createNotes(List.of(create("first", "Home"), create("second", "Home")));
+
+        assertThat(results.get(0).getStatus()).isEqualTo("success");
+        assertThat(results.get(1).getStatus()).isEqualTo("error");
+        assertThat(results.get(1).getMessage()).doesNotContain("INSERT");
+    }
+
+    @Test
+    void chunkWrittenOnOnlySomeShardsReportsEachItem() {
+        service = service(10);
+        BitSet applied = new BitSet();
+        applied.set(0);
+        applied.set(2);
+        when(noteStore.insertAll(anyList())).thenThrow(new PartialWriteException(
+                new QueryTimeoutException("shard 1 is down"), Arrays.asList(note(1L, "a"), null, note(3L, "c")), applied));
+
+        List<BatchItemResult> results = service.createNotes(
+                List.of(create("a", "Home"), create("b", "Home"), create("c", "Home")));
+
+        // Las escritas no se deben repetir: éxito con su id y su evento; solo la del shard caído es un error
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly("success", "error", "success");
+        assertThat(results).extracting(BatchItemResult::getId).containsExactly(1L, null, 3L);
+        assertThat(results.get(1).getMessage()).contains("not applied", "retry only this note");
+        verify(eventPublisher, times(2)).publishEvent(any(NoteChangedEvent.class));
+    }
+
+    @Test
+    void deleteWrittenOnOnlySomeShardsKeepsTheNotFoundOfTheShardsThatAnswered() {
+        service = service(10);
+        BitSet applied = new BitSet();
+        applied.set(0);
+        applied.set(1);
+        when(noteStore.deleteAll(anyList())).thenThrow(new PartialWriteException(
+                new QueryTimeoutException("shard 2 is down"), Arrays.asList(note(3L, "a"), null, null), applied));
+
+        List<BatchItemResult> results = service.deleteNotes(List.of(3L, 4L, 5L));
+
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly("success", "error", "error");
+        assertThat(results.get(1).getMessage()).isEqualTo("Note not found with id: 4");
+        assertThat(results.get(2).getMessage()).contains("retry only this note");
+        verify(eventPublisher, times(1)).publishEvent(any(NoteChangedEvent.class));
+    }
+
+    private NoteService service(int chunkSize) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        return new NoteService(noteStore, new NoteMapper(), mock(NoteSearchIndex.class), mock(NoteCache.class),
+                mock(NoteReadCoalescer.class), mock(NoteWriteBehindBuffer.class), mock(NoteStatsTracker.class),
+                eventPublisher, validatorFactory.getValidator(), transactionManager, 500, 100, chunkSize);
+    }
+
+    private static CreateNoteDto create(String title, String category) {
+        CreateNoteDto dto = new CreateNoteDto();
+        dto.setTitle(title);
+        dto.setCategory(category);
+        return dto;
+    }
+
+    private static NoteDto note(Long id, String title) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle(title);
+        return dto;
+    }
+}
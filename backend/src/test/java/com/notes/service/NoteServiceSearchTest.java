@@ -0,0 +1,83 @@
+package com.notes.service;
+
+import com.notes.dto.NoteDto;
+import com.notes.mapper.NoteMapper;
+import com.notes.store.NoteStore;
+import com.notes.writebehind.NoteWriteBehindBuffer;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NoteServiceSearchTest {
+
+    private final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+    private final NoteSearchIndex searchIndex = new InMemoryNoteSearchIndex();
+    private NoteStore noteStore;
+
+    @BeforeEach
+    void setUp() {
+        noteStore = mock(NoteStore.class);
+        Map<Long, NoteDto> notes = Stream.of(note(1L, "java streams"), note(2L, "java"), note(3L, "javascript"),
+                        note(4L, "python"))
+                .collect(Collectors.toMap(NoteDto::getId, Function.identity()));
+        notes.values().forEach(note -> searchIndex.index(note.getId(), 0, note.getTitle(), note.getContent()));
+        searchIndex.setReady(true);
+        when(noteStore.findByIdInAndFilters(anyList(), isNull(), isNull())).thenAnswer(call ->
+                call.<Collection<Long>>getArgument(0).stream().map(notes::get).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void resultsLeftOutByTheLimitAreReported() {
+        NoteService.SearchResult result = service(2).searchNotes("java");
+
+        // "java" casa como palabra y como prefijo de "javascript", no como subcadena
+        assertThat(result.getNotes()).hasSize(2);
+        assertThat(result.isTruncated()).isTrue();
+    }
+
+    @Test
+    void resultsWithinTheLimitAreNotTruncated() {
+        NoteService.SearchResult result = service(3).searchNotes("java");
+
+        assertThat(result.getNotes()).extracting(NoteDto::getId).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(result.isTruncated()).isFalse();
+        assertThat(service(3).searchNotes("ava").getNotes()).isEmpty();
+    }
+
+    private NoteService service(int maxResults) {
+        return new NoteService(noteStore, new NoteMapper(), searchIndex, mock(NoteCache.class),
+                mock(NoteReadCoalescer.class), mock(NoteWriteBehindBuffer.class), mock(NoteStatsTracker.class),
+                mock(ApplicationEventPublisher.class), validatorFactory.getValidator(),
+                mock(PlatformTransactionManager.class), maxResults, 100, 100);
+    }
+
+    private static NoteDto note(Long id, String title) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle(title);
+        dto.setContent("");
+        return dto;
+    }
+}
@@ -0,0 +1,130 @@
+package com.notes.service;
+
+import com.notes.datasource.ReplicaRoutingContext;
+import com.notes.dto.CategoryPriorityCount;
+import com.notes.dto.NoteDto;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.store.NoteStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NoteStatsTrackerTest {
+
+    private NoteStore noteStore;
+    private NoteStatsTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        noteStore = mock(NoteStore.class);
+        tracker = new NoteStatsTracker(noteStore);
+    }
+
+    @Test
+    void writesConfirmedDuringTheCountAreAddedToIt() {
+        when(noteStore.findRevision()).thenReturn(1L);
+        when(noteStore.countByCategoryAndPriority()).thenAnswer(call -> {
+            // Confirmada después de la lectura del recuento: no está en sus filas
+            tracker.onNoteChanged(NoteChangedEvent.created(note(2L, "Home", Note.Priority.LOW)));
+            return List.of(new CategoryPriorityCount("Work", Note.Priority.HIGH, 1L));
+        });
+
+        tracker.reconcile();
+
+        NoteService.NoteStats stats = tracker.getStats();
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.getHigh()).isEqualTo(1);
+        assertThat(stats.getLow()).isEqualTo(1);
+        assertThat(stats.getByCategory()).containsEntry("Work", 1L).containsEntry("Home", 1L);
+    }
+
+    @Test
+    void writesFromOtherInstancesAreCorrectedWhenTheRevisionChanges() {
+        when(noteStore.findRevision()).thenReturn(1L, 1L, 2L);
+        when(noteStore.countByCategoryAndPriority())
+                .thenReturn(List.of(new CategoryPriorityCount("Work", Note.Priority.HIGH, 1L)))
+                .thenReturn(List.of(new CategoryPriorityCount("Work", Note.Priority.HIGH, 3L)));
+
+        tracker.reconcile();
+        tracker.reconcile();
+        assertThat(tracker.getStats().getTotal()).isEqualTo(1);
+        verify(noteStore, times(1)).countByCategoryAndPriority();
+
+        tracker.reconcile();
+        assertThat(tracker.getStats().getTotal()).isEqualTo(3);
+    }
+
+    @Test
+    void commitAlreadyInTheCountWhoseEventArrivesDuringItIsCorrectedOnTheNextRun() {
+        when(noteStore.findRevision()).thenReturn(2L);
+        CategoryPriorityCount work = new CategoryPriorityCount("Work", Note.Priority.HIGH, 1L);
+        CategoryPriorityCount home = new CategoryPriorityCount("Home", Note.Priority.LOW, 1L);
+        when(noteStore.countByCategoryAndPriority())
+                .thenAnswer(call -> {
+                    // La nota 2 ya está en las filas, pero su afterCommit llega con el recuento en curso
+                    tracker.onNoteChanged(NoteChangedEvent.created(note(2L, "Home", Note.Priority.LOW)));
+                    return List.of(work, home);
+                })
+                .thenReturn(List.of(work, home));
+
+        tracker.reconcile();
+        assertThat(tracker.getStats().getTotal()).isEqualTo(3);
+
+        // Misma revisión, pero hubo ajustes durante el recuento: no se da por buena
+        tracker.reconcile();
+        assertThat(tracker.getStats().getTotal()).isEqualTo(2);
+        assertThat(tracker.getStats().getByCategory()).containsEntry("Home", 1L);
+
+        tracker.reconcile();
+        verify(noteStore, times(2)).countByCategoryAndPriority();
+    }
+
+    @Test
+    void lateEventOfACommitAlreadyCountedIsCorrectedOnTheNextRun() {
+        when(noteStore.findRevision()).thenReturn(2L);
+        when(noteStore.countByCategoryAndPriority())
+                .thenReturn(List.of(new CategoryPriorityCount("Home", Note.Priority.LOW, 1L)));
+        tracker.reconcile();
+
+        // El evento de un commit anterior a la revisión leída llega después del recuento
+        tracker.onNoteChanged(NoteChangedEvent.created(note(1L, "Home", Note.Priority.LOW)));
+        assertThat(tracker.getStats().getTotal()).isEqualTo(2);
+
+        tracker.reconcile();
+        assertThat(tracker.getStats().getTotal()).isEqualTo(1);
+        verify(noteStore, times(2)).countByCategoryAndPriority();
+    }
+
+    @Test
+    void countIsReadFromThePrimary() {
+        when(noteStore.findRevision()).thenAnswer(call -> {
+            assertThat(ReplicaRoutingContext.isPrimaryForced()).isTrue();
+            return 1L;
+        });
+        when(noteStore.countByCategoryAndPriority()).thenAnswer(call -> {
+            assertThat(ReplicaRoutingContext.isPrimaryForced()).isTrue();
+            return List.of();
+        });
+
+        tracker.reconcile();
+
+        assertThat(tracker.getStats().getTotal()).isZero();
+        assertThat(ReplicaRoutingContext.isPrimaryForced()).isFalse();
+    }
+
+    private static NoteDto note(Long id, String category, Note.Priority priority) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setCategory(category);
+        dto.setPriority(priority);
+        return dto;
+    }
+}
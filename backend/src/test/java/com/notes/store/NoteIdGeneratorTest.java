@@ -0,0 +1,183 @@
+package com.notes.store;
+
+import com.notes.datasource.BulkheadDataSource;
+import com.notes.datasource.ShardContext;
+import com.notes.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NoteIdGeneratorTest {
+
+    private static final int SHARDS = 3;
+    private static final int BLOCK_SIZE = 10;
+
+    private final List<DataSource> shards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < SHARDS; i++) {
+            DataSource shard = new DriverManagerDataSource(
+                    "jdbc:h2:mem:ids-" + System.nanoTime() + "-" + i + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+            JdbcTemplate jdbc = new JdbcTemplate(shard);
+            jdbc.execute("CREATE TABLE note_id_sequence (next_value BIGINT NOT NULL)");
+            jdbc.execute("INSERT INTO note_id_sequence (next_value) VALUES (1)");
+            shards.add(shard);
+        }
+    }
+
+    @Test
+    void idsAreUniqueAcrossShardsAndCarryTheirShard() throws Exception {
+        NoteIdGenerator generator = generator();
+        Set<Long> ids = new HashSet<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int task = 0; task < 24; task++) {
+                int shard = task % SHARDS;
+                futures.add(executor.submit(() -> ShardContext.call(shard, () -> {
+                    List<Long> generated = new ArrayList<>();
+                    for (int i = 0; i < 25; i++) {
+                        long id = generator.nextId();
+                        assertThat(generator.shardOf(id)).isEqualTo(shard);
+                        generated.add(id);
+                    }
+                    return generated;
+                })));
+            }
+            for (Future<List<Long>> future : futures) {
+                ids.addAll(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(24 * 25);
+    }
+
+    @Test
+    void restartSkipsTheUnusedPartOfTheBlockInsteadOfRepeatingIt() {
+        NoteIdGenerator before = generator();
+        Set<Long> ids = new HashSet<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int current = shard;
+            // Bloque a medias: el reinicio lo pierde
+            for (int i = 0; i < BLOCK_SIZE + 3; i++) {
+                ids.add(ShardContext.call(current, before::nextId));
+            }
+        }
+
+        NoteIdGenerator after = generator();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int current = shard;
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                long id = ShardContext.call(current, after::nextId);
+                assertThat(ids.add(id)).as("id %d repeated after restart", id).isTrue();
+                assertThat(after.shardOf(id)).isEqualTo(current);
+            }
+        }
+        // Tres bloques reservados por shard: el siguiente empieza después de los dos de antes del reinicio
+        assertThat(new JdbcTemplate(shards.get(0)).queryForObject("SELECT next_value FROM note_id_sequence", Long.class))
+                .isEqualTo(1 + 3 * BLOCK_SIZE);
+    }
+
+    @Test
+    void singleShardKeepsTheSequenceNumbers() {
+        NoteIdGenerator generator = new NoteIdGenerator(List.of(shards.get(0)), BLOCK_SIZE);
+
+        assertThat(generator.nextId()).isEqualTo(1L);
+        assertThat(generator.nextId()).isEqualTo(2L);
+        assertThat(generator.shardOf(2L)).isZero();
+    }
+
+    @Test
+    void blockRefillDoesNotNeedAConnectionFromTheApplicationPool() throws Exception {
+        int creates = 4;
+        String url = "jdbc:h2:mem:ids-pool-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(creates);
+        pool.setConnectionTimeout(2000);
+        // Como en la aplicación con hilos virtuales: bulkhead del tamaño del pool
+        DataSource application = new BulkheadDataSource(pool, creates, 2000);
+        JdbcTemplate jdbc = new JdbcTemplate(application);
+        jdbc.execute("CREATE TABLE notes (id BIGINT PRIMARY KEY, title VARCHAR(255))");
+        jdbc.execute("CREATE TABLE note_id_sequence (next_value BIGINT NOT NULL)");
+        jdbc.execute("INSERT INTO note_id_sequence (next_value) VALUES (1)");
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(url);
+        properties.setUsername("sa");
+        properties.setPassword("");
+        properties.afterPropertiesSet();
+        NoteIdGenerator generator = new NoteIdGenerator(properties, provider(null), creates, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(creates);
+        try {
+            // Queda un id en el bloque: todas las altas menos una necesitan el siguiente
+            generator.nextId();
+            generator.nextId();
+            generator.nextId();
+            CyclicBarrier allHoldAConnection = new CyclicBarrier(creates);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < creates; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Connection connection = application.getConnection()) {
+                        connection.setAutoCommit(false);
+                        allHoldAConnection.await(5, TimeUnit.SECONDS);
+                        long id = generator.nextId();
+                        try (PreparedStatement insert = connection.prepareStatement(
+                                "INSERT INTO notes (id, title) VALUES (?, 'x')")) {
+                            insert.setLong(1, id);
+                            insert.executeUpdate();
+                        }
+                        connection.commit();
+                        return id;
+                    }
+                }));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<Long> future : futures) {
+                ids.add(future.get(10, TimeUnit.SECONDS));
+            }
+
+            assertThat(ids).hasSize(creates);
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM notes", Long.class)).isEqualTo(creates);
+        } finally {
+            executor.shutdownNow();
+            generator.close();
+            pool.close();
+        }
+    }
+
+    private NoteIdGenerator generator() {
+        return new NoteIdGenerator(shards, BLOCK_SIZE);
+    }
+
+    private static ObjectProvider<ShardRoutingDataSource> provider(ShardRoutingDataSource routing) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ShardRoutingDataSource> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(routing);
+        return provider;
+    }
+}
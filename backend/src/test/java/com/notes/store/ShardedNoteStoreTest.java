@@ -0,0 +1,204 @@
+package com.notes.store;
+
+import com.notes.datasource.ShardContext;
+import com.notes.dto.BatchUpdateNoteDto;
+import com.notes.dto.NoteDto;
+import com.notes.dto.UpdateNoteDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardedNoteStoreTest {
+
+    private static final int SHARDS = 3;
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final Comparator<NoteDto> RECENT_FIRST =
+            Comparator.comparing(NoteDto::getUpdatedAt).thenComparing(NoteDto::getId).reversed();
+
+    private JpaNoteStore shardStore;
+    private ShardedNoteStore store;
+
+    @BeforeEach
+    void setUp() {
+        shardStore = mock(JpaNoteStore.class);
+        DataSource shard = mock(DataSource.class);
+        NoteIdGenerator idGenerator = new NoteIdGenerator(List.of(shard, shard, shard), 100);
+        store = new ShardedNoteStore(shardStore, idGenerator, new StoreTransactionManager(), new MockEnvironment(), 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void mergeInterleavesSortedListsAndStopsAtTheLimit() {
+        List<List<Integer>> sorted = List.of(List.of(1, 4, 7), List.of(), List.of(2, 3, 9), List.of(5));
+
+        assertThat(ShardedNoteStore.merge(sorted, Comparator.<Integer>naturalOrder(), 0))
+                .containsExactly(1, 2, 3, 4, 5, 7, 9);
+        assertThat(ShardedNoteStore.merge(sorted, Comparator.<Integer>naturalOrder(), 4)).containsExactly(1, 2, 3, 4);
+        assertThat(ShardedNoteStore.merge(sorted, Comparator.<Integer>naturalOrder(), 100)).hasSize(7);
+        assertThat(ShardedNoteStore.merge(List.<List<Integer>>of(), Comparator.<Integer>naturalOrder(), 10)).isEmpty();
+    }
+
+    @Test
+    void cursorPageIsTheFirstPageOfAllShardsTogether() {
+        // Cada shard devuelve su página ya ordenada; las fechas se cruzan entre shards y hay empates
+        List<List<NoteDto>> pages = List.of(
+                List.of(note(9, 50), note(6, 30), note(3, 30), note(0, 10)),
+                List.of(note(10, 60), note(7, 30), note(4, 20), note(1, 5)),
+                List.of(note(11, 40), note(8, 35), note(5, 30), note(2, 1)));
+        when(shardStore.findPage(any(), any(), any(), any(), anyInt()))
+                .thenAnswer(call -> pages.get(ShardContext.current()));
+
+        List<NoteDto> page = store.findPage(null, null, null, null, 6);
+
+        List<NoteDto> expected = pages.stream().flatMap(List::stream).sorted(RECENT_FIRST).limit(6)
+                .collect(Collectors.toList());
+        assertThat(page).extracting(NoteDto::getId).containsExactly(10L, 9L, 11L, 8L, 7L, 6L);
+        assertThat(page).isEqualTo(expected);
+        verify(shardStore, times(SHARDS)).findPage(null, null, null, null, 6);
+    }
+
+    @Test
+    void failureOfOneShardFailsTheWholeReadWithItsOwnException() {
+        QueryTimeoutException failure = new QueryTimeoutException("shard 1 is down");
+        when(shardStore.findAll()).thenAnswer(call -> {
+            if (ShardContext.current() == 1) {
+                throw failure;
+            }
+            return List.of(note(ShardContext.current(), 0));
+        });
+
+        assertThatThrownBy(store::findAll).isSameAs(failure);
+    }
+
+    @Test
+    void writesOnTheOtherShardsAreNotUndoneWhenOneFailsAndAreReported() {
+        QueryTimeoutException failure = new QueryTimeoutException("shard 1 is down");
+        List<Integer> applied = new ArrayList<>();
+        when(shardStore.deleteAll(anyCollection())).thenAnswer(call -> {
+            int shard = ShardContext.current();
+            if (shard == 1) {
+                throw failure;
+            }
+            synchronized (applied) {
+                applied.add(shard);
+            }
+            // El 6 ya no existía: se confirma sin nota
+            Collection<Long> ids = call.getArgument(0);
+            return ids.stream().filter(id -> id != 6L).map(id -> note(id, 0)).collect(Collectors.toList());
+        });
+
+        assertThatThrownBy(() -> store.deleteAll(List.of(3L, 4L, 5L, 6L)))
+                .isInstanceOfSatisfying(PartialWriteException.class, e -> {
+                    assertThat(e.getCause()).isSameAs(failure);
+                    List<NoteDto> deleted = e.getResults();
+                    assertThat(deleted).extracting(note -> note == null ? null : note.getId())
+                            .containsExactly(3L, null, 5L, null);
+                    assertThat(List.of(0, 1, 2, 3)).map(e::isApplied).containsExactly(true, false, true, true);
+                });
+
+        // Cada shard recibe solo sus ids y los que no fallan se aplican igualmente
+        verify(shardStore, timeout(1000)).deleteAll(List.of(3L, 6L));
+        verify(shardStore, timeout(1000)).deleteAll(List.of(4L));
+        verify(shardStore, timeout(1000)).deleteAll(List.of(5L));
+        synchronized (applied) {
+            assertThat(applied).containsExactlyInAnyOrder(0, 2);
+        }
+    }
+
+    @Test
+    void scatteredWriteReportsWhichItemsEachShardCommitted() {
+        QueryTimeoutException failure = new QueryTimeoutException("shard 2 is down");
+        when(shardStore.updateAll(anyList())).thenAnswer(call -> {
+            if (ShardContext.current() == 2) {
+                throw failure;
+            }
+            List<BatchUpdateNoteDto> updates = call.getArgument(0);
+            return updates.stream()
+                    .map(update -> new NoteStore.Change(note(update.getId(), 0), note(update.getId(), 1)))
+                    .collect(Collectors.toList());
+        });
+        List<BatchUpdateNoteDto> updates = List.of(update(8L), update(3L), update(4L), update(5L));
+
+        assertThatThrownBy(() -> store.updateAll(updates))
+                .isInstanceOfSatisfying(PartialWriteException.class, e -> {
+                    assertThat(e.getCause()).isSameAs(failure);
+                    List<NoteStore.Change> changes = e.getResults();
+                    assertThat(changes).extracting(change -> change == null ? null : change.getCurrent().getId())
+                            .containsExactly(null, 3L, 4L, null);
+                    assertThat(List.of(0, 1, 2, 3)).map(e::isApplied).containsExactly(false, true, true, false);
+                });
+    }
+
+    @Test
+    void writeThatNoShardCommittedFailsWithTheShardException() {
+        QueryTimeoutException failure = new QueryTimeoutException("shard 1 is down");
+        when(shardStore.updateAll(anyList())).thenThrow(failure);
+
+        // Todos los elementos en el shard que falla: no se aplicó nada y no es una escritura parcial
+        assertThatThrownBy(() -> store.updateAll(List.of(update(4L), update(7L)))).isSameAs(failure);
+    }
+
+    @Test
+    void scatteredResultsComeBackInTheOrderOfTheRequest() {
+        Map<Integer, List<Long>> received = new ConcurrentHashMap<>();
+        when(shardStore.updatePartial(anyList())).thenAnswer(call -> {
+            List<PartialUpdate> updates = call.getArgument(0);
+            received.put(ShardContext.current(),
+                    updates.stream().map(PartialUpdate::getId).collect(Collectors.toList()));
+            // Aplicadas solo las de id par, para distinguir cada resultado
+            return updates.stream().map(update -> update.getId() % 2 == 0).collect(Collectors.toList());
+        });
+        List<Long> ids = List.of(7L, 3L, 8L, 4L, 5L, 6L);
+
+        List<Boolean> results = store.updatePartial(ids.stream()
+                .map(id -> new PartialUpdate(id, new UpdateNoteDto(), NOW, 0, 1))
+                .collect(Collectors.toList()));
+
+        assertThat(results).containsExactly(false, false, true, true, false, true);
+        assertThat(received).containsOnly(
+                entry(0, List.of(3L, 6L)), entry(1, List.of(7L, 4L)), entry(2, List.of(8L, 5L)));
+    }
+
+    private static BatchUpdateNoteDto update(long id) {
+        BatchUpdateNoteDto update = new BatchUpdateNoteDto();
+        update.setId(id);
+        return update;
+    }
+
+    private static NoteDto note(long id, int minutes) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle("note " + id);
+        dto.setUpdatedAt(NOW.plusMinutes(minutes));
+        return dto;
+    }
+}
@@ -0,0 +1,52 @@
+package com.notes.store;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StoreTransactionManagerTest {
+
+    private final TransactionTemplate transaction = new TransactionTemplate(new StoreTransactionManager());
+
+    @Test
+    void synchronizationsRunOnCommitOfTheOuterTransaction() {
+        List<String> events = new ArrayList<>();
+
+        transaction.executeWithoutResult(outer -> {
+            register(events, "outer");
+            // Se une a la transacción exterior: sus sincronizaciones esperan al final de esta
+            transaction.executeWithoutResult(inner -> register(events, "inner"));
+            assertThat(events).isEmpty();
+        });
+
+        assertThat(events).containsExactly("outer", "inner");
+        assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+    }
+
+    @Test
+    void rollbackSkipsTheCommitCallbacks() {
+        List<String> events = new ArrayList<>();
+
+        transaction.executeWithoutResult(status -> {
+            register(events, "rolled back");
+            status.setRollbackOnly();
+        });
+
+        assertThat(events).isEmpty();
+    }
+
+    private static void register(List<String> events, String name) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                events.add(name);
+            }
+        });
+    }
+}
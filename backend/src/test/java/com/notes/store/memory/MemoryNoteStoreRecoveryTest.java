@@ -0,0 +1,170 @@
+package com.notes.store.memory;
+
+import com.notes.dto.CreateNoteDto;
+import com.notes.dto.NoteDto;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.mapper.NoteMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recuperación del motor en memoria: se escribe, se "mata" la instancia (sin {@code stop()}, así que no deja
+ * snapshot al salir), se arranca otra sobre el mismo directorio y se compara el estado.
+ */
+class MemoryNoteStoreRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<MemoryNoteStore> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(MemoryNoteStore::stop);
+    }
+
+    @Test
+    void logIsReplayedAfterACrash() {
+        MemoryNoteStore store = start();
+        List<NoteDto> created = store.insertAll(List.of(create("a"), create("b"), create("c")));
+        NoteDto first = created.get(0);
+        UpdateNoteDto changes = new UpdateNoteDto();
+        changes.setTitle("a2");
+        changes.setContent("edited");
+        assertThat(store.updateFields(first.getId(), first.getVersion(), changes, LocalDateTime.now())).isEqualTo(1);
+        store.deleteAll(List.of(created.get(1).getId()));
+        List<NoteDto> before = store.findAll();
+
+        MemoryNoteStore recovered = start();
+
+        assertThat(recovered.findAll()).isEqualTo(before);
+        assertThat(recovered.findById(first.getId())).get()
+                .satisfies(note -> {
+                    assertThat(note.getTitle()).isEqualTo("a2");
+                    assertThat(note.getContent()).isEqualTo("edited");
+                    assertThat(note.getVersion()).isEqualTo(first.getVersion() + 1);
+                });
+        // Los ids no se repiten tras el arranque
+        assertThat(recovered.insert(create("d")).getId()).isGreaterThan(created.get(2).getId());
+    }
+
+    @Test
+    void tornLastRecordIsDiscardedAndTheLogKeepsWorking() throws IOException {
+        MemoryNoteStore store = start();
+        NoteDto kept = store.insert(create("kept"));
+        store.insert(create("torn"));
+        Path segment = lastSegment();
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Caída a mitad de escribir el último registro
+            channel.truncate(size - 3);
+        }
+
+        MemoryNoteStore recovered = start();
+
+        assertThat(recovered.findAll()).extracting(NoteDto::getTitle).containsExactly("kept");
+        assertThat(Files.size(segment)).isLessThan(size - 3);
+        // Lo que se escribe después no queda detrás de los restos del registro roto
+        NoteDto after = recovered.insert(create("after"));
+        assertThat(start().findAll()).extracting(NoteDto::getId).containsExactlyInAnyOrder(kept.getId(), after.getId());
+    }
+
+    @Test
+    void garbageAfterTheLastRecordIsDiscarded() throws IOException {
+        MemoryNoteStore store = start();
+        store.insert(create("a"));
+        Files.write(lastSegment(), new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertThat(start().findAll()).extracting(NoteDto::getTitle).containsExactly("a");
+    }
+
+    @Test
+    void snapshotReplacesOlderSegmentsAndOnlyLaterRecordsAreReplayed() throws IOException {
+        MemoryNoteStore store = start();
+        NoteDto a = store.insert(create("a"));
+        NoteDto b = store.insert(create("b"));
+        store.snapshot();
+        long snapshotSegment = SnapshotFile.snapshots(directory).get(0);
+        // El snapshot va con el segmento que empieza: los anteriores ya no hacen falta
+        assertThat(WriteAheadLog.segments(directory)).containsExactly(snapshotSegment);
+
+        store.deleteAll(List.of(b.getId()));
+        NoteDto c = store.insert(create("c"));
+        List<NoteDto> before = store.findAll();
+
+        MemoryNoteStore recovered = start();
+
+        assertThat(recovered.findAll()).isEqualTo(before);
+        assertThat(recovered.findAll()).extracting(NoteDto::getId).containsExactly(c.getId(), a.getId());
+    }
+
+    @Test
+    void crashWhileWritingASnapshotRecoversFromTheLog() throws IOException {
+        MemoryNoteStore store = start();
+        store.insert(create("a"));
+        store.insert(create("b"));
+        List<NoteDto> before = store.findAll();
+        // Caída después de empezar el segmento nuevo y antes de renombrar el snapshot: queda el temporal a medias
+        long segment = WriteAheadLog.segments(directory).get(0);
+        Files.createFile(WriteAheadLog.path(directory, segment + 1));
+        Path temporary = SnapshotFile.path(directory, segment + 1);
+        Files.write(temporary.resolveSibling(temporary.getFileName() + ".tmp"), new byte[] {1, 2, 3});
+
+        MemoryNoteStore recovered = start();
+
+        assertThat(recovered.findAll()).isEqualTo(before);
+    }
+
+    @Test
+    void crashBeforeDeletingOldSegmentsDoesNotReplayThemAgain() throws IOException {
+        MemoryNoteStore store = start();
+        store.insert(create("a"));
+        NoteDto b = store.insert(create("b"));
+        Path oldSegment = lastSegment();
+        byte[] oldRecords = Files.readAllBytes(oldSegment);
+        store.snapshot();
+        store.deleteAll(List.of(b.getId()));
+        List<NoteDto> before = store.findAll();
+        // Caída entre el renombrado del snapshot y el borrado de los segmentos que ya incluye
+        Files.write(oldSegment, oldRecords);
+        long newerLogBytes = Files.size(lastSegment());
+
+        MemoryNoteStore recovered = start();
+
+        assertThat(recovered.findAll()).isEqualTo(before);
+        // Solo se reproduce lo posterior al snapshot; el segmento antiguo se ignora
+        assertThat(recovered.getLogBytes()).isEqualTo(newerLogBytes);
+    }
+
+    private MemoryNoteStore start() {
+        MemoryNoteStore store = new MemoryNoteStore(new NoteMapper(), directory.toString(), false, Long.MAX_VALUE);
+        store.start();
+        started.add(store);
+        return store;
+    }
+
+    private Path lastSegment() throws IOException {
+        List<Long> segments = WriteAheadLog.segments(directory);
+        return WriteAheadLog.path(directory, segments.get(segments.size() - 1));
+    }
+
+    private static CreateNoteDto create(String title) {
+        CreateNoteDto dto = new CreateNoteDto();
+        dto.setTitle(title);
+        dto.setContent("content of " + title);
+        dto.setCategory("Work");
+        return dto;
+    }
+}
@@ -0,0 +1,270 @@
+package com.notes.writebehind;
+
+import com.notes.dto.AutosaveConflictDto;
+import com.notes.dto.NoteDto;
+import com.notes.dto.UpdateNoteDto;
+import com.notes.exception.AutosaveConflictException;
+import com.notes.store.NoteStore;
+import com.notes.store.PartialUpdate;
+import com.notes.store.PartialWriteException;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NoteWriteBehindBufferTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    private final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+    // La base de datos: updatePartial solo escribe si la nota sigue en la versión esperada
+    private final Map<Long, NoteDto> database = new ConcurrentHashMap<>();
+    private final List<List<PartialUpdate>> writes = new ArrayList<>();
+    private NoteStore noteStore;
+    private final List<NoteWriteBehindBuffer> buffers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        noteStore = mock(NoteStore.class);
+        when(noteStore.updatePartial(anyList())).thenAnswer(call -> updatePartial(call.getArgument(0)));
+        when(noteStore.findAllById(anyCollection())).thenAnswer(call -> findAllById(call.getArgument(0)));
+        when(noteStore.findById(anyLong())).thenAnswer(call -> Optional.ofNullable(database.get(call.<Long>getArgument(0))));
+        when(noteStore.findMetadataById(anyLong()))
+                .thenAnswer(call -> Optional.ofNullable(database.get(call.<Long>getArgument(0))));
+        database.put(1L, note(1L, 3));
+        database.put(2L, note(2L, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffers.forEach(buffer -> {
+            if (buffer.isRunning()) {
+                buffer.stop();
+            }
+        });
+        validatorFactory.close();
+    }
+
+    @Test
+    void repeatedEditsOfANoteAreWrittenOnceWithAllTheirChanges() throws IOException {
+        NoteWriteBehindBuffer buffer = started();
+
+        accept(buffer, 1L, "first title", null);
+        accept(buffer, 1L, null, "new content");
+        NoteDto view = accept(buffer, 1L, "last title", null);
+
+        assertThat(view.getVersion()).isEqualTo(6);
+        assertThat(buffer.getCoalesced()).isEqualTo(2);
+        assertThat(buffer.getPending(1L)).extracting(NoteDto::getTitle, NoteDto::getContent)
+                .containsExactly("last title", "new content");
+
+        buffer.flush();
+
+        assertThat(writes).hasSize(1);
+        PartialUpdate update = writes.get(0).get(0);
+        assertThat(update.getExpectedVersion()).isEqualTo(3);
+        assertThat(update.getVersionIncrement()).isEqualTo(3);
+        assertThat(database.get(1L)).extracting(NoteDto::getTitle, NoteDto::getContent, NoteDto::getVersion)
+                .containsExactly("last title", "new content", 6L);
+        assertThat(buffer.getPendingCount()).isZero();
+        assertThat(buffer.getWritten()).isEqualTo(1);
+    }
+
+    @Test
+    void editsDiscardedByAConflictOnFlushAreReportedToTheClient() throws IOException {
+        NoteWriteBehindBuffer buffer = started();
+        accept(buffer, 1L, "autosaved", null);
+        // Otra instancia la modifica antes del flush
+        database.get(1L).setVersion(4);
+
+        buffer.flush();
+
+        assertThat(buffer.getConflicts()).isEqualTo(1);
+        assertThat(buffer.getPending(1L)).isNull();
+        assertThat(database.get(1L).getTitle()).isEqualTo("note 1");
+        AutosaveConflictDto conflict = buffer.getConflict(1L);
+        assertThat(conflict).isNotNull();
+        assertThat(conflict.getAcceptedOnVersion()).isEqualTo(3);
+        assertThat(conflict.getCurrentVersion()).isEqualTo(4);
+        assertThat(conflict.getDiscardedChanges().getTitle()).isEqualTo("autosaved");
+
+        // El siguiente autoguardado lo recibe una vez; después se acepta sobre el estado actual
+        assertThatThrownBy(() -> accept(buffer, 1L, "again", null))
+                .isInstanceOfSatisfying(AutosaveConflictException.class,
+                        e -> assertThat(e.getConflict()).isSameAs(conflict));
+        assertThat(buffer.getConflict(1L)).isNull();
+        assertThat(accept(buffer, 1L, "again", null).getVersion()).isEqualTo(5);
+    }
+
+    @Test
+    void editsAcceptedBeforeACrashAreWrittenOnRestart() throws IOException {
+        NoteWriteBehindBuffer beforeCrash = started();
+        accept(beforeCrash, 1L, "edited", null);
+        accept(beforeCrash, 1L, null, "edited content");
+        // La base de datos no responde y el proceso muere sin parar el buffer
+        AtomicBoolean databaseDown = new AtomicBoolean(true);
+        doAnswer(call -> {
+            if (databaseDown.get()) {
+                throw new QueryTimeoutException("database is down");
+            }
+            return updatePartial(call.getArgument(0));
+        }).when(noteStore).updatePartial(anyList());
+        beforeCrash.flush();
+        assertThat(beforeCrash.getFailedFlushes()).isEqualTo(1);
+
+        databaseDown.set(false);
+        NoteWriteBehindBuffer afterRestart = started();
+
+        assertThat(database.get(1L)).extracting(NoteDto::getTitle, NoteDto::getContent, NoteDto::getVersion)
+                .containsExactly("edited", "edited content", 5L);
+        assertThat(afterRestart.getPendingCount()).isZero();
+        assertThat(afterRestart.getJournalBytes()).isZero();
+    }
+
+    @Test
+    void crashAfterTheWriteButBeforeTheJournalIsMarkedReappliesTheSameChanges() throws IOException {
+        NoteWriteBehindBuffer beforeCrash = started();
+        accept(beforeCrash, 1L, "edited", null);
+        // El UPDATE llega a la base de datos pero el flush no termina
+        doThrow(new QueryTimeoutException("connection lost")).when(noteStore).findAllById(anyCollection());
+        beforeCrash.flush();
+        assertThat(database.get(1L).getVersion()).isEqualTo(4);
+
+        doAnswer(call -> findAllById(call.getArgument(0))).when(noteStore).findAllById(anyCollection());
+        NoteWriteBehindBuffer afterRestart = started();
+
+        // Se vuelven a aplicar sobre el estado actual, no se toman por un conflicto
+        assertThat(database.get(1L)).extracting(NoteDto::getTitle, NoteDto::getVersion).containsExactly("edited", 5L);
+        assertThat(afterRestart.getConflicts()).isZero();
+        assertThat(afterRestart.getConflict(1L)).isNull();
+    }
+
+    @Test
+    void editsOfAShardThatFailedStayPendingAndTheRestAreDone() throws IOException {
+        NoteWriteBehindBuffer buffer = started();
+        accept(buffer, 1L, "one", null);
+        accept(buffer, 2L, "two", null);
+        // Cada nota en un shard y el de la segunda no responde
+        doAnswer(call -> {
+            List<PartialUpdate> updates = call.getArgument(0);
+            List<Boolean> applied = updatePartial(updates.subList(0, 1));
+            BitSet written = new BitSet();
+            written.set(0);
+            throw new PartialWriteException(new QueryTimeoutException("shard 1 is down"),
+                    Arrays.asList(applied.get(0), null), written);
+        }).when(noteStore).updatePartial(anyList());
+
+        buffer.flush();
+
+        assertThat(buffer.getFailedFlushes()).isEqualTo(1);
+        assertThat(buffer.getConflicts()).isZero();
+        assertThat(buffer.getPending(1L)).isNull();
+        assertThat(buffer.getPending(2L)).isNotNull();
+
+        doAnswer(call -> updatePartial(call.getArgument(0))).when(noteStore).updatePartial(anyList());
+        buffer.flush();
+
+        assertThat(writes.get(writes.size() - 1)).extracting(PartialUpdate::getId).containsExactly(2L);
+        assertThat(database.get(2L).getTitle()).isEqualTo("two");
+        assertThat(database.get(1L).getVersion()).isEqualTo(4);
+    }
+
+    private NoteWriteBehindBuffer started() throws IOException {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        NoteWriteBehindBuffer buffer = new NoteWriteBehindBuffer(noteStore, validatorFactory.getValidator(),
+                mock(ApplicationEventPublisher.class), transactionManager, Jackson2ObjectMapperBuilder.json().build(),
+                true, directory.resolve("write-behind.journal").toString(), false, 500, 1 << 20, 60_000);
+        buffers.add(buffer);
+        buffer.start();
+        return buffer;
+    }
+
+    private NoteDto accept(NoteWriteBehindBuffer buffer, long id, String title, String content) {
+        UpdateNoteDto changes = new UpdateNoteDto();
+        changes.setTitle(title);
+        changes.setContent(content);
+        NoteDto current = buffer.getPending(id);
+        return buffer.accept(id, changes, current != null ? current : copy(database.get(id)), null);
+    }
+
+    private List<NoteDto> findAllById(Collection<Long> ids) {
+        return ids.stream().filter(database::containsKey).map(id -> copy(database.get(id))).toList();
+    }
+
+    private List<Boolean> updatePartial(List<PartialUpdate> updates) {
+        writes.add(List.copyOf(updates));
+        List<Boolean> applied = new ArrayList<>();
+        for (PartialUpdate update : updates) {
+            NoteDto note = database.get(update.getId());
+            if (note == null || note.getVersion() != update.getExpectedVersion()) {
+                applied.add(false);
+                continue;
+            }
+            if (update.getChanges().getTitle() != null) {
+                note.setTitle(update.getChanges().getTitle());
+            }
+            if (update.getChanges().getContent() != null) {
+                note.setContent(update.getChanges().getContent());
+            }
+            note.setUpdatedAt(update.getUpdatedAt());
+            note.setVersion(note.getVersion() + update.getVersionIncrement());
+            applied.add(true);
+        }
+        return applied;
+    }
+
+    private static NoteDto note(long id, long version) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle("note " + id);
+        dto.setContent("content " + id);
+        dto.setCategory("Work");
+        dto.setCreatedAt(CREATED);
+        dto.setUpdatedAt(CREATED);
+        dto.setVersion(version);
+        return dto;
+    }
+
+    private static NoteDto copy(NoteDto note) {
+        NoteDto copy = note(note.getId(), note.getVersion());
+        copy.setTitle(note.getTitle());
+        copy.setContent(note.getContent());
+        copy.setUpdatedAt(note.getUpdatedAt());
+        return copy;
+    }
+}
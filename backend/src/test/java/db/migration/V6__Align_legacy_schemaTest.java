@@ -0,0 +1,85 @@
+package db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class V6__Align_legacy_schemaTest {
+
+    @Test
+    void legacyInitSqlSchemaIsAlignedWithV1() throws SQLException {
+        String url = "jdbc:h2:mem:legacy;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            // Lo que creaba el antiguo mysql/init.sql, con las columnas que añadía ddl-auto=update
+            statement.execute("CREATE TABLE notes (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "title VARCHAR(255) NOT NULL, " +
+                    "content TEXT, " +
+                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "category VARCHAR(100) DEFAULT 'General', " +
+                    "priority ENUM('LOW', 'MEDIUM', 'HIGH') DEFAULT 'MEDIUM', " +
+                    "published BOOLEAN NOT NULL)");
+            statement.execute("CREATE INDEX idx_category ON notes(category)");
+            statement.execute("INSERT INTO notes (title, category, priority, published) VALUES ('a', NULL, NULL, FALSE)");
+
+            migrate(url);
+
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String column : new String[] {"created_at", "updated_at", "category", "priority", "version"}) {
+                try (ResultSet rs = metaData.getColumns(null, null, "notes", column)) {
+                    assertThat(rs.next()).as(column).isTrue();
+                    assertThat(rs.getInt("NULLABLE")).as(column).isEqualTo(DatabaseMetaData.columnNoNulls);
+                    if (column.endsWith("_at")) {
+                        assertThat(rs.getInt("DECIMAL_DIGITS")).as(column).isEqualTo(6);
+                    }
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT category, priority, version FROM notes")) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getString("category")).isEqualTo("General");
+                assertThat(rs.getString("priority")).isEqualTo("MEDIUM");
+                assertThat(rs.getLong("version")).isZero();
+            }
+            try (ResultSet rs = metaData.getIndexInfo(null, null, "notes", false, true)) {
+                boolean cursorIndex = false;
+                while (rs.next()) {
+                    cursorIndex |= "idx_updated_at_id".equalsIgnoreCase(rs.getString("INDEX_NAME"));
+                }
+                assertThat(cursorIndex).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void databaseCreatedByV1IsLeftAsItIs() throws SQLException {
+        String url = "jdbc:h2:mem:fresh;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        migrate(url);
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT success FROM \"flyway_schema_history\" WHERE version = '6'")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getBoolean(1)).isTrue();
+        }
+    }
+
+    private static void migrate(String url) {
+        Flyway.configure()
+                .dataSource(url, "sa", "")
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+}
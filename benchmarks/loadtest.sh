@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+# Compara el backend con hilos de plataforma y con hilos virtuales bajo la misma carga.
+#
+# Requisitos: Java 21, MySQL accesible (por defecto el de docker-compose en localhost:3306)
+# y el backend empaquetado:  mvn -f backend/pom.xml install -DskipTests
+#
+# Variables: CLIENTS (400), WARMUP (15), DURATION (60), SEED (2000), CPUS ("0" = taskset a un núcleo,
+# vacío = sin límite), SPRING_DATASOURCE_URL/USERNAME/PASSWORD.
+set -euo pipefail
+
+cd "$(dirname "$0")"
+JAR=$(ls ../backend/target/notes-api-*-exec.jar)
+PORT=18080
+CLIENTS=${CLIENTS:-400}
+WARMUP=${WARMUP:-15}
+DURATION=${DURATION:-60}
+SEED=${SEED:-2000}
+CPUS=${CPUS-0}
+export SPRING_DATASOURCE_URL=${SPRING_DATASOURCE_URL:-jdbc:mysql://localhost:3306/notes_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC}
+export SPRING_DATASOURCE_USERNAME=${SPRING_DATASOURCE_USERNAME:-notes_user}
+export SPRING_DATASOURCE_PASSWORD=${SPRING_DATASOURCE_PASSWORD:-notes_password}
+
+mvn -q compile
+
+for mode in platform virtual; do
+  virtual=false
+  [ "$mode" = virtual ] && virtual=true
+  launcher=()
+  [ -n "$CPUS" ] && launcher=(taskset -c "$CPUS")
+
+  # Mismo heap que el pod (límite de 512Mi) y sin logs SQL para no medir la consola.
+  # Todos los clientes salen de la misma IP: sin límite por cliente ni descarte de carga
+  "${launcher[@]}" java -Xmx384m -jar "$JAR" --server.port=$PORT \
+      --spring.threads.virtual.enabled=$virtual \
+      --notes.rate-limit.enabled=false --notes.load-shedding.enabled=false \
+      --spring.jpa.show-sql=false --logging.level.org.springframework.web=WARN \
+      > "target/loadtest-$mode.log" 2>&1 &
+  pid=$!
+  trap 'kill $pid 2>/dev/null || true' EXIT
+
+  for _ in $(seq 1 90); do
+    curl -sf "http://localhost:$PORT/actuator/health" > /dev/null && break
+    sleep 1
+  done
+
+  mvn -q exec:exec@loadtest -Dloadtest.args="--url=http://localhost:$PORT --clients=$CLIENTS \
+      --warmup=$WARMUP --duration=$DURATION --seed=$SEED --label=$mode --out=target/loadtest-$mode.json"
+
+  kill $pid
+  wait $pid 2>/dev/null || true
+done
+
+echo
+echo "Resultados (throughput en peticiones/s, latencias en ms):"
+cat target/loadtest-platform.json target/loadtest-virtual.json
@@ -0,0 +1,90 @@
+package com.notes.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.notes.controller.NoteController.ApiResponse;
+import com.notes.dto.NoteDto;
+import com.notes.json.NoteJsonCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de extremo a extremo de las respuestas de {@code NoteController},
+ * con un ObjectMapper configurado como el de Spring Boot: solo Jackson ({@code jackson}) o con el JSON
+ * de cada nota ya en {@link NoteJsonCache} ({@code cached}, el caso de las lecturas repetidas).
+ * {@code streamList} escribe en un stream como la respuesta HTTP, sin materializar el array final.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int notes;
+
+    @Param({"jackson", "cached"})
+    public String serializer;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<List<NoteDto>> listResponse;
+    private ApiResponse<NoteDto> singleResponse;
+
+    @Setup
+    public void setup() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (serializer.equals("cached")) {
+            builder.modulesToInstall(new NoteJsonCache(64L * 1024 * 1024).module());
+        }
+        objectMapper = builder.build();
+        Random random = new Random(42);
+        List<NoteDto> dtos = new ArrayList<>(notes);
+        for (int i = 0; i < notes; i++) {
+            dtos.add(BenchmarkData.dto(i + 1, random));
+        }
+        listResponse = new ApiResponse<>("success", "Notes retrieved successfully", dtos);
+        singleResponse = new ApiResponse<>("success", "Note found", dtos.get(0));
+        // Primera serialización fuera de la medida: llena la caché en el modo cached
+        try {
+            objectMapper.writeValueAsBytes(listResponse);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(listResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeSingle() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(singleResponse);
+    }
+
+    @Benchmark
+    public void streamList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), listResponse);
+    }
+}
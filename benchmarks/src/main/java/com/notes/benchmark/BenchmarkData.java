@@ -0,0 +1,108 @@
+package com.notes.benchmark;
+
+import com.notes.NotesApplication;
+import com.notes.dto.NoteDto;
+import com.notes.model.Note;
+import com.notes.repository.NoteBatchWriter;
+import com.notes.service.NoteSearchIndexMaintainer;
+import com.notes.store.NoteIdGenerator;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Datos sintéticos deterministas y arranque del contexto Spring sobre H2 para los benchmarks.
+ */
+final class BenchmarkData {
+
+    static final int CATEGORIES = 10;
+    static final String SEARCH_TERM = "presupuesto";
+
+    private static final int SEED_CHUNK_SIZE = 5000;
+    private static final String[] WORDS = {
+            "reunion", "proyecto", "compras", "tarea", "cliente", "revisar", "enviar", "informe",
+            "lunes", "viernes", "equipo", "idea", "llamar", "pendiente", "urgente", SEARCH_TERM
+    };
+
+    private BenchmarkData() {
+    }
+
+    static ConfigurableApplicationContext startContext(String databaseName) {
+        return new SpringApplicationBuilder(NotesApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.profiles.active=benchmark",
+                     "--spring.datasource.url=jdbc:h2:mem:" + databaseName
+                             + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    }
+
+    /** Inserta {@code size} notas con el camino de inserción masiva y reconstruye el índice de búsqueda. */
+    static void seed(ConfigurableApplicationContext context, int size) {
+        NoteBatchWriter writer = context.getBean(NoteBatchWriter.class);
+        NoteIdGenerator ids = context.getBean(NoteIdGenerator.class);
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        Random random = new Random(42);
+        for (int from = 0; from < size; from += SEED_CHUNK_SIZE) {
+            List<Note> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+            for (int i = from; i < Math.min(from + SEED_CHUNK_SIZE, size); i++) {
+                Note note = note(i, random);
+                note.setId(ids.nextId());
+                chunk.add(note);
+            }
+            tx.executeWithoutResult(status -> writer.insertAll(chunk));
+        }
+        context.getBean(NoteSearchIndexMaintainer.class).rebuild();
+    }
+
+    static Note note(int i, Random random) {
+        return new Note("Nota " + i + " " + WORDS[random.nextInt(WORDS.length)], sentence(random, 30),
+                "Categoria" + (i % CATEGORIES), Note.Priority.values()[i % Note.Priority.values().length], i % 2 == 0);
+    }
+
+    static NoteDto dto(long id, Random random) {
+        NoteDto dto = new NoteDto();
+        dto.setId(id);
+        dto.setTitle("Nota " + id);
+        dto.setContent(sentence(random, 30));
+        dto.setCategory("Categoria" + (id % CATEGORIES));
+        dto.setPriority(Note.Priority.MEDIUM);
+        dto.setPublished(true);
+        dto.setCreatedAt(LocalDateTime.of(2024, 1, 1, 10, 0).plusMinutes(id));
+        dto.setUpdatedAt(LocalDateTime.of(2024, 6, 1, 10, 0).plusMinutes(id));
+        return dto;
+    }
+
+    /**
+     * Texto largo de unos {@code bytes} bytes para los benchmarks de compresión. Mezcla palabras con
+     * números y fechas para no ser tan repetitivo como {@link #sentence}.
+     */
+    static String longContent(Random random, int bytes) {
+        StringBuilder sb = new StringBuilder(bytes + 64);
+        while (sb.length() < bytes) {
+            sb.append(sentence(random, 8 + random.nextInt(12)))
+                    .append(" pedido ").append(10_000 + random.nextInt(90_000))
+                    .append(" el ").append(1 + random.nextInt(28)).append('/').append(1 + random.nextInt(12))
+                    .append(random.nextInt(4) == 0 ? ".\n" : ". ");
+        }
+        sb.setLength(bytes);
+        return sb.toString();
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package com.notes.benchmark;
+
+import com.notes.model.ContentCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de CPU de comprimir y descomprimir el contenido de una nota frente al espacio que ahorra.
+ * El tamaño guardado de cada combinación se imprime al preparar el benchmark; {@code plainBytes} es
+ * la referencia sin compresión (solo la conversión a UTF-8 que hace el driver).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentCodecBenchmark {
+
+    // Algoritmo y, para DEFLATE, nivel de compresión
+    @Param({"LZ4", "DEFLATE:1", "DEFLATE:6"})
+    public String codec;
+
+    @Param({"4096", "16384", "65535"})
+    public int contentBytes;
+
+    private String content;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        String[] parts = codec.split(":");
+        int level = parts.length > 1 ? Integer.parseInt(parts[1]) : 6;
+        content = BenchmarkData.longContent(new Random(42), contentBytes);
+        ContentCodec.configure(ContentCodec.Algorithm.valueOf(parts[0]), 0, level, 160);
+        encoded = ContentCodec.encode(content);
+        int raw = content.getBytes(StandardCharsets.UTF_8).length;
+        System.out.printf(Locale.ROOT, "%n%s: %d bytes -> %d bytes stored (%.1f%% saved)%n",
+                codec, raw, encoded.length, 100.0 * (raw - encoded.length) / raw);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return ContentCodec.encode(content);
+    }
+
+    @Benchmark
+    public String decode() {
+        return ContentCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public byte[] plainBytes() {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
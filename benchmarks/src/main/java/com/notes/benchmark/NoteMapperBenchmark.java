@@ -0,0 +1,53 @@
+package com.notes.benchmark;
+
+import com.notes.dto.CreateNoteDto;
+import com.notes.dto.NoteDto;
+import com.notes.mapper.NoteMapper;
+import com.notes.model.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteMapperBenchmark {
+
+    private final NoteMapper mapper = new NoteMapper();
+    private Note note;
+    private CreateNoteDto createDto;
+
+    @Setup
+    public void setup() {
+        note = BenchmarkData.note(1, new Random(42));
+        note.setId(1L);
+        createDto = new CreateNoteDto();
+        createDto.setTitle(note.getTitle());
+        createDto.setContent(note.getContent());
+        createDto.setCategory(note.getCategory());
+        createDto.setPublished(true);
+    }
+
+    @Benchmark
+    public NoteDto toDto() {
+        return mapper.toDto(note);
+    }
+
+    @Benchmark
+    public Note toEntity() {
+        return mapper.toEntity(createDto);
+    }
+}
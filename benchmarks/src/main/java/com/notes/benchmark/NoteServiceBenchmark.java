@@ -0,0 +1,72 @@
+package com.notes.benchmark;
+
+import com.notes.dto.NoteDto;
+import com.notes.model.Note;
+import com.notes.service.NoteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminos de lectura de {@link NoteService} contra H2 con distintos volúmenes de datos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class NoteServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private NoteService noteService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkData.startContext("service" + datasetSize);
+        BenchmarkData.seed(context, datasetSize);
+        noteService = context.getBean(NoteService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<NoteDto> getAllNotes() {
+        return noteService.getAllNotes();
+    }
+
+    @Benchmark
+    public NoteService.SearchResult filterNotes() {
+        return noteService.filterNotes(null, "Categoria3", Note.Priority.HIGH);
+    }
+
+    @Benchmark
+    public NoteService.SearchResult filterNotesWithKeyword() {
+        return noteService.filterNotes(BenchmarkData.SEARCH_TERM, "Categoria3", null);
+    }
+
+    @Benchmark
+    public NoteService.SearchResult searchNotes() {
+        return noteService.searchNotes(BenchmarkData.SEARCH_TERM);
+    }
+}
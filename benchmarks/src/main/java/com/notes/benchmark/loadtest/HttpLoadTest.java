@@ -0,0 +1,220 @@
+package com.notes.benchmark.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga HTTP en bucle cerrado contra un backend ya arrancado.
+ * <p>
+ * Cada cliente repite: 60% {@code GET /api/notes/{id}}, 30% {@code GET /api/notes/category/{c}?limit=20}
+ * (página por cursor, siempre va a la base de datos) y 10% {@code PUT /api/notes/{id}}.
+ * Al terminar imprime throughput, p50/p99/max y errores, y los guarda en JSON para comparar modos
+ * (ver {@code loadtest.sh}).
+ * <pre>
+ * --url=http://localhost:8080  --clients=400  --warmup=15  --duration=60  --seed=2000
+ * --label=platform             --out=target/loadtest-platform.json
+ * </pre>
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "400"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "15"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int seed = Integer.parseInt(options.getOrDefault("seed", "2000"));
+        String label = options.getOrDefault("label", "run");
+        Path out = Path.of(options.getOrDefault("out", "target/loadtest-" + label + ".json"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long[] ids = seedNotes(client, url, seed);
+        System.out.printf("Seeded %d notes, %d clients, warmup %ds, measuring %ds%n",
+                ids.length, clients, warmupSeconds, durationSeconds);
+
+        long warmupEnd = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        long end = warmupEnd + durationSeconds * 1_000_000_000L;
+        AtomicLong errors = new AtomicLong();
+        List<LongList> latencies = new ArrayList<>(clients);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int i = 0; i < clients; i++) {
+            LongList samples = new LongList();
+            latencies.add(samples);
+            Thread worker = new Thread(() -> {
+                try {
+                    runClient(client, url, ids, warmupEnd, end, samples, errors);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+
+        long[] all = LongList.merge(latencies);
+        Arrays.sort(all);
+        String result = String.format(Locale.ROOT,
+                "{\"label\":\"%s\",\"clients\":%d,\"durationSeconds\":%d,\"requests\":%d,\"errors\":%d,"
+                        + "\"throughput\":%.1f,\"p50Ms\":%.2f,\"p99Ms\":%.2f,\"maxMs\":%.2f}",
+                label, clients, durationSeconds, all.length, errors.get(),
+                all.length / (double) durationSeconds,
+                percentile(all, 0.50), percentile(all, 0.99), all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+        System.out.println(result);
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        Files.writeString(out, result + System.lineSeparator());
+    }
+
+    private static void runClient(HttpClient client, String url, long[] ids, long warmupEnd, long end,
+                                  LongList samples, AtomicLong errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            long id = ids[random.nextInt(ids.length)];
+            int roll = random.nextInt(100);
+            HttpRequest request;
+            if (roll < 60) {
+                request = HttpRequest.newBuilder(URI.create(url + "/api/notes/" + id)).GET().build();
+            } else if (roll < 90) {
+                request = HttpRequest.newBuilder(URI.create(url + "/api/notes/category/Categoria" + random.nextInt(10) + "?limit=20"))
+                        .GET().build();
+            } else {
+                request = HttpRequest.newBuilder(URI.create(url + "/api/notes/" + id))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(noteJson("Nota editada " + now, id)))
+                        .build();
+            }
+            boolean ok;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                ok = response.statusCode() < 400 || response.statusCode() == 409;
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long finished = System.nanoTime();
+            if (now >= warmupEnd && finished < end) {
+                if (ok) {
+                    samples.add(finished - now);
+                } else {
+                    errors.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    // Crea las notas de prueba con el endpoint masivo, en lotes de 500
+    private static long[] seedNotes(HttpClient client, String url, int count) throws IOException, InterruptedException {
+        LongList ids = new LongList();
+        for (int start = 0; start < count; start += 500) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = start; i < Math.min(count, start + 500); i++) {
+                if (i > start) {
+                    body.append(',');
+                }
+                body.append(noteJson("Nota de carga " + i, i));
+            }
+            body.append(']');
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(url + "/api/notes/batch"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("Seeding failed with HTTP " + response.statusCode() + ": " + response.body());
+            }
+            // Extrae los "id" de los resultados sin depender de una librería JSON
+            String json = response.body();
+            int index = 0;
+            while ((index = json.indexOf("\"id\":", index)) >= 0) {
+                index += 5;
+                int endIndex = index;
+                while (endIndex < json.length() && Character.isDigit(json.charAt(endIndex))) {
+                    endIndex++;
+                }
+                if (endIndex > index) {
+                    long id = Long.parseLong(json.substring(index, endIndex));
+                    if (ids.size == 0 || ids.values[ids.size - 1] != id) {
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+        return ids.toArray();
+    }
+
+    private static String noteJson(String title, long n) {
+        return "{\"title\":\"" + title + "\",\"content\":\"Contenido de la nota " + n + " para la prueba de carga\","
+                + "\"category\":\"Categoria" + (n % 10) + "\",\"priority\":\"" + (n % 3 == 0 ? "HIGH" : "MEDIUM") + "\"}";
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    // Lista de long sin boxing: cada cliente guarda sus latencias (ns) sin coordinarse con los demás
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        static long[] merge(List<LongList> lists) {
+            int total = lists.stream().mapToInt(list -> list.size).sum();
+            long[] merged = new long[total];
+            int offset = 0;
+            for (LongList list : lists) {
+                System.arraycopy(list.values, 0, merged, offset, list.size);
+                offset += list.size;
+            }
+            return merged;
+        }
+    }
+}
@@ -1,16 +1,19 @@
 -- Inicialización de la base de datos para el sistema de notas
 USE notes_db;
 
--- Crear tabla de notas
+-- Crear tabla de notas (mismo esquema que backend/src/main/resources/db/migration/V1__initial_schema.sql;
+-- al arrancar, Flyway marca esta base de datos como versión 1 y aplica solo las migraciones posteriores)
 CREATE TABLE IF NOT EXISTS notes (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     title VARCHAR(255) NOT NULL,
     content TEXT,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    category VARCHAR(100) DEFAULT 'General',
-    priority ENUM('LOW', 'MEDIUM', 'HIGH') DEFAULT 'MEDIUM'
-);
+    published BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+    category VARCHAR(100) NOT NULL DEFAULT 'General',
+    priority ENUM('LOW', 'MEDIUM', 'HIGH') NOT NULL DEFAULT 'MEDIUM',
+    version BIGINT NOT NULL DEFAULT 0
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
 
 -- Insertar algunas notas de ejemplo
 INSERT INTO notes (title, content, category, priority) VALUES 
@@ -22,4 +25,9 @@ INSERT INTO notes (title, content, category, priority) VALUES
 -- Crear índices para mejorar el rendimiento
 CREATE INDEX idx_category ON notes(category);
 CREATE INDEX idx_created_at ON notes(created_at);
-CREATE INDEX idx_priority ON notes(priority);
\ No newline at end of file
+CREATE INDEX idx_priority ON notes(priority);
+
+-- Índices compuestos para la paginación por cursor (orden estable updated_at DESC, id DESC)
+CREATE INDEX idx_updated_at_id ON notes(updated_at, id);
+CREATE INDEX idx_category_updated_at_id ON notes(category, updated_at, id);
+CREATE INDEX idx_priority_updated_at_id ON notes(priority, updated_at, id);
\ No newline at end of file